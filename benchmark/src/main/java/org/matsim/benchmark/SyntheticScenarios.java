@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Creates the synthetic networks and populations used by the micro-benchmarks, so they do not
+ * depend on scenario files and scale with their parameters. Equal seeds give equal scenarios.
+ */
+public final class SyntheticScenarios {
+
+	private SyntheticScenarios() {
+	}
+
+	/**
+	 * Adds a square grid of <code>size</code> x <code>size</code> nodes, 200m apart, connected by links in
+	 * both directions, with random free speeds between 8 and 22 m/s.
+	 *
+	 * @return the nodes of the grid
+	 */
+	public static List<Node> createGridNetwork(final Network network, final int size, final long seed) {
+		Random random = new Random(seed);
+		Node[][] grid = new Node[size][size];
+		List<Node> nodes = new ArrayList<>(size * size);
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				grid[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 200, y * 200));
+				nodes.add(grid[x][y]);
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLink(network, grid[x][y], grid[x + 1][y], random);
+					addLink(network, grid[x + 1][y], grid[x][y], random);
+				}
+				if (y + 1 < size) {
+					addLink(network, grid[x][y], grid[x][y + 1], random);
+					addLink(network, grid[x][y + 1], grid[x][y], random);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	private static void addLink(final Network network, final Node from, final Node to, final Random random) {
+		Id<Link> id = Id.create(from.getId() + "-" + to.getId(), Link.class);
+		NetworkUtils.createAndAddLink(network, id, from, to, 200, 8 + 14 * random.nextDouble(), 1800, 1);
+	}
+
+	/**
+	 * Adds persons with a home-work-home plan by car between random links of the network, without routes.
+	 * The departures are spread between 6:00 and 9:00 and between 16:00 and 19:00.
+	 */
+	public static void createPopulation(final Scenario scenario, final int numberOfPersons, final long seed) {
+		Random random = new Random(seed);
+		List<Link> links = new ArrayList<>(scenario.getNetwork().getLinks().values());
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.create(i, Person.class));
+			Plan plan = factory.createPlan();
+			Id<Link> home = links.get(random.nextInt(links.size())).getId();
+			Id<Link> work = links.get(random.nextInt(links.size())).getId();
+
+			Activity morning = factory.createActivityFromLinkId("home", home);
+			morning.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(morning);
+			plan.addLeg(factory.createLeg(TransportMode.car));
+			Activity workActivity = factory.createActivityFromLinkId("work", work);
+			workActivity.setEndTime(16 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(workActivity);
+			plan.addLeg(factory.createLeg(TransportMode.car));
+			plan.addActivity(factory.createActivityFromLinkId("home", home));
+
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+}
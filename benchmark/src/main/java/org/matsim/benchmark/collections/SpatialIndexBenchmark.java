@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.PackedSpatialIndex;
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares closest and within-distance queries of the {@link QuadTree} and the {@link PackedSpatialIndex},
+ * for uniformly distributed points in a 50km x 50km square.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+	private static final int QUERIES = 1000;
+	private static final double EXTENT = 50000;
+
+	@Param({"10000", "1000000"})
+	public int numberOfPoints;
+
+	private QuadTree<Coord> quadTree;
+	private PackedSpatialIndex<Coord> packedIndex;
+	private PackedSpatialIndex.Searcher<Coord> searcher;
+	private double[] queryX;
+	private double[] queryY;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(4711);
+		List<Coord> coords = new ArrayList<>(this.numberOfPoints);
+		this.quadTree = new QuadTree<>(0, 0, EXTENT, EXTENT);
+		for (int i = 0; i < this.numberOfPoints; i++) {
+			Coord coord = new Coord(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT);
+			coords.add(coord);
+			this.quadTree.put(coord.getX(), coord.getY(), coord);
+		}
+		this.packedIndex = new PackedSpatialIndex<>(coords, c -> c);
+		this.searcher = this.packedIndex.createSearcher();
+
+		this.queryX = new double[QUERIES];
+		this.queryY = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryX[i] = random.nextDouble() * EXTENT;
+			this.queryY[i] = random.nextDouble() * EXTENT;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void quadTreeGetClosest(final Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(this.quadTree.getClosest(this.queryX[i], this.queryY[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void packedIndexGetClosest(final Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(this.searcher.getClosest(this.queryX[i], this.queryY[i]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void quadTreeGetDisk(final Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(this.quadTree.getDisk(this.queryX[i], this.queryY[i], 500));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void packedIndexFindWithinDistance(final Blackhole bh) {
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(this.searcher.findWithinDistance(this.queryX[i], this.queryY[i], 500));
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.drt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.matsim.contrib.drt.optimizer.rebalancing.mincostflow.TransportProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import graphs.flows.MinCostFlow;
+import graphs.flows.MinCostFlowDense;
+import graphs.flows.NetworkSimplex;
+
+/**
+ * Compares the min cost flow solvers on transport problems as solved by the DRT min cost flow rebalancing: the
+ * zones with surplus vehicles send them to the zones with missing vehicles, at costs proportional to the beeline
+ * distance. Half of the zones have a surplus, the other half a deficit. Each measurement includes building the graph.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinCostFlowBenchmark {
+
+	@Param({"100", "1000"})
+	public int zoneCount;
+
+	private int producerCount;
+	private int consumerCount;
+	private int[] supply;
+	private int[] demand;
+	private int[][] cost;
+	private List<Pair<Integer, Integer>> supplyPairs;
+	private List<Pair<Integer, Integer>> demandPairs;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		// zones in a 20 km x 20 km area, with 1 to 5 surplus (or missing) vehicles each
+		Random random = new Random(4711);
+		this.producerCount = this.zoneCount / 2;
+		this.consumerCount = this.zoneCount - this.producerCount;
+		double[] x = new double[this.zoneCount];
+		double[] y = new double[this.zoneCount];
+		for (int z = 0; z < this.zoneCount; z++) {
+			x[z] = random.nextDouble() * 20000;
+			y[z] = random.nextDouble() * 20000;
+		}
+
+		this.supply = new int[this.producerCount];
+		for (int i = 0; i < this.producerCount; i++) {
+			this.supply[i] = 1 + random.nextInt(5);
+		}
+		this.demand = new int[this.consumerCount];
+		for (int j = 0; j < this.consumerCount; j++) {
+			this.demand[j] = 1 + random.nextInt(5);
+		}
+
+		this.supplyPairs = new ArrayList<>();
+		for (int i = 0; i < this.producerCount; i++) {
+			this.supplyPairs.add(Pair.of(i, this.supply[i]));
+		}
+		this.demandPairs = new ArrayList<>();
+		for (int j = 0; j < this.consumerCount; j++) {
+			this.demandPairs.add(Pair.of(j, this.demand[j]));
+		}
+
+		this.cost = new int[this.producerCount][this.consumerCount];
+		for (int i = 0; i < this.producerCount; i++) {
+			for (int j = 0; j < this.consumerCount; j++) {
+				int c = this.producerCount + j;
+				this.cost[i][j] = (int)Math.hypot(x[i] - x[c], y[i] - y[c]) / 10;
+			}
+		}
+	}
+
+	@Benchmark
+	public int[] minCostFlow() {
+		@SuppressWarnings("unchecked")
+		List<MinCostFlow.Edge>[] graph = Stream.generate(ArrayList::new)
+				.limit(this.zoneCount + 2)
+				.toArray(List[]::new);
+		int maxFlow = addTransportEdges((u, v, cap, c) -> MinCostFlow.addEdge(graph, u, v, cap, c));
+		return MinCostFlow.minCostFlow(graph, 0, this.zoneCount + 1, maxFlow, false);
+	}
+
+	@Benchmark
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public int[] minCostFlowDense() {
+		// the edge class of MinCostFlowDense is not visible here, the edges are created by addEdge()
+		List[] graph = Stream.generate(ArrayList::new).limit(this.zoneCount + 2).toArray(List[]::new);
+		int maxFlow = addTransportEdges((u, v, cap, c) -> MinCostFlowDense.addEdge(graph, u, v, cap, c));
+		return MinCostFlowDense.minCostFlow(graph, 0, this.zoneCount + 1, maxFlow, false);
+	}
+
+	@Benchmark
+	public long networkSimplex() {
+		NetworkSimplex networkSimplex = new NetworkSimplex(this.zoneCount + 2,
+				this.producerCount * this.consumerCount + this.zoneCount);
+		int maxFlow = addTransportEdges(networkSimplex::addArc);
+		networkSimplex.setSupply(0, maxFlow);
+		networkSimplex.setSupply(this.zoneCount + 1, -maxFlow);
+		networkSimplex.solve();
+		return networkSimplex.getTotalCost();
+	}
+
+	@Benchmark
+	public List<Triple<Integer, Integer, Integer>> transportProblem() {
+		// solved with NetworkSimplex, without the source and sink nodes
+		return new TransportProblem<Integer, Integer>((i, j) -> this.cost[i][j]).solve(this.supplyPairs, this.demandPairs);
+	}
+
+	/**
+	 * Source (0) -> producers -> consumers -> sink (zoneCount + 1), as in the original TransportProblem.
+	 *
+	 * @return the max flow
+	 */
+	private int addTransportEdges(EdgeAdder edgeAdder) {
+		int totalSupply = 0;
+		for (int i = 0; i < this.producerCount; i++) {
+			edgeAdder.add(0, 1 + i, this.supply[i], 0);
+			totalSupply += this.supply[i];
+		}
+		for (int i = 0; i < this.producerCount; i++) {
+			for (int j = 0; j < this.consumerCount; j++) {
+				int capacity = Math.min(this.supply[i], this.demand[j]);
+				edgeAdder.add(1 + i, 1 + this.producerCount + j, capacity, this.cost[i][j]);
+			}
+		}
+		int totalDemand = 0;
+		for (int j = 0; j < this.consumerCount; j++) {
+			edgeAdder.add(1 + this.producerCount + j, this.zoneCount + 1, this.demand[j], 0);
+			totalDemand += this.demand[j];
+		}
+		return Math.min(totalSupply, totalDemand);
+	}
+
+	private interface EdgeAdder {
+		void add(int u, int v, int capacity, int cost);
+	}
+
+}
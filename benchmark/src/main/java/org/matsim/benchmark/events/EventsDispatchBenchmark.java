@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the dispatching of events in {@link EventsManagerImpl}, which uses generated
+ * callers per handler, with calling the handlers via {@link Method#invoke}, as
+ * <code>EventsManagerImpl</code> did for all event types not listed in its former
+ * <code>callHandlerFast</code> method.
+ * <br>
+ * Run with <code>java -cp matsim-benchmark.jar:libs/* org.openjdk.jmh.Main EventsDispatchBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsDispatchBenchmark {
+
+	private static final int EVENTS = 1000;
+
+	@Param({"1", "4"})
+	public int handlersPerType;
+
+	private EventsManagerImpl eventsManager;
+	private Event[] events;
+	private ReflectiveHandlerInfo[] enterHandlers;
+	private ReflectiveHandlerInfo[] leaveHandlers;
+
+	@Setup
+	public void setup() throws NoSuchMethodException {
+		this.eventsManager = new EventsManagerImpl();
+		List<ReflectiveHandlerInfo> enter = new ArrayList<>();
+		List<ReflectiveHandlerInfo> leave = new ArrayList<>();
+		Method enterMethod = LinkEnterEventHandler.class.getMethod("handleEvent", LinkEnterEvent.class);
+		Method leaveMethod = LinkLeaveEventHandler.class.getMethod("handleEvent", LinkLeaveEvent.class);
+		for (int i = 0; i < this.handlersPerType; i++) {
+			CountingHandler handler = new CountingHandler();
+			this.eventsManager.addHandler(handler);
+			enter.add(new ReflectiveHandlerInfo(handler, enterMethod));
+			leave.add(new ReflectiveHandlerInfo(handler, leaveMethod));
+		}
+		this.enterHandlers = enter.toArray(new ReflectiveHandlerInfo[enter.size()]);
+		this.leaveHandlers = leave.toArray(new ReflectiveHandlerInfo[leave.size()]);
+
+		this.events = new Event[EVENTS];
+		Id<Vehicle> vehicleId = Id.create("veh", Vehicle.class);
+		for (int i = 0; i < EVENTS; i++) {
+			Id<Link> linkId = Id.create(i, Link.class);
+			if (i % 2 == 0) {
+				this.events[i] = new LinkEnterEvent(i, vehicleId, linkId);
+			} else {
+				this.events[i] = new LinkLeaveEvent(i, vehicleId, linkId);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void eventsManagerImpl() {
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void reflectiveInvoke(Blackhole bh) throws IllegalAccessException, InvocationTargetException {
+		for (Event event : this.events) {
+			ReflectiveHandlerInfo[] infos = event instanceof LinkEnterEvent ? this.enterHandlers : this.leaveHandlers;
+			for (ReflectiveHandlerInfo info : infos) {
+				synchronized (info.handler) {
+					info.method.invoke(info.handler, event);
+				}
+			}
+			bh.consume(infos);
+		}
+	}
+
+	private static final class ReflectiveHandlerInfo {
+		final EventHandler handler;
+		final Method method;
+
+		ReflectiveHandlerInfo(final EventHandler handler, final Method method) {
+			this.handler = handler;
+			this.method = method;
+		}
+	}
+
+	public static final class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		public long enterCount = 0;
+		public long leaveCount = 0;
+
+		@Override
+		public void handleEvent(final LinkEnterEvent event) {
+			this.enterCount++;
+		}
+
+		@Override
+		public void handleEvent(final LinkLeaveEvent event) {
+			this.leaveCount++;
+		}
+
+		@Override
+		public void reset(final int iteration) {
+			this.enterCount = 0;
+			this.leaveCount = 0;
+		}
+	}
+
+}
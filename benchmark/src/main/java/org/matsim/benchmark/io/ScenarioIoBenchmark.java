@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading and writing network and population files in the current formats, for a grid
+ * network and a population with routed plans. The files are written to a temporary directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScenarioIoBenchmark {
+
+	@Param({"xml", "xml.gz"})
+	public String fileType;
+
+	@Param({"100"})
+	public int gridSize;
+
+	@Param({"50000"})
+	public int numberOfPersons;
+
+	private Scenario scenario;
+	private File directory;
+	private String networkFile;
+	private String populationFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		SyntheticScenarios.createGridNetwork(this.scenario.getNetwork(), this.gridSize, 4711);
+		SyntheticScenarios.createPopulation(this.scenario, this.numberOfPersons, 42);
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+
+		this.directory = Files.createTempDirectory("matsim-io-benchmark").toFile();
+		this.networkFile = new File(this.directory, "network." + this.fileType).getPath();
+		this.populationFile = new File(this.directory, "population." + this.fileType).getPath();
+		writeNetwork();
+		writePopulation();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		new File(this.networkFile).delete();
+		new File(this.populationFile).delete();
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public void writeNetwork() {
+		new NetworkWriter(this.scenario.getNetwork()).write(this.networkFile);
+	}
+
+	@Benchmark
+	public void writePopulation() {
+		new PopulationWriter(this.scenario.getPopulation(), this.scenario.getNetwork()).write(this.populationFile);
+	}
+
+	@Benchmark
+	public Network readNetwork() {
+		Scenario newScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(newScenario.getNetwork()).readFile(this.networkFile);
+		return newScenario.getNetwork();
+	}
+
+	@Benchmark
+	public Scenario readPopulation() {
+		Scenario newScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(newScenario).readFile(this.populationFile);
+		return newScenario;
+	}
+
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.router;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AStarLandmarksFactory;
+import org.matsim.core.router.ContractionHierarchyRouterFactory;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.SpeedyDijkstraFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time of single least-cost path queries between random nodes of a grid network, for
+ * the different router implementations. The pre-processing of the routers, including the customization of
+ * the contraction hierarchy metric, is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeastCostPathBenchmark {
+
+	private static final int REQUESTS = 100;
+
+	@Param({"Dijkstra", "FastDijkstra", "AStarLandmarks", "FastAStarLandmarks", "SpeedyDijkstra", "ContractionHierarchy"})
+	public String algorithm;
+
+	@Param({"100"})
+	public int gridSize;
+
+	private LeastCostPathCalculator router;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = SyntheticScenarios.createGridNetwork(network, this.gridSize, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeAndDisutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.router = createFactory(this.algorithm).createPathCalculator(network, travelTimeAndDisutility, travelTimeAndDisutility);
+
+		Random random = new Random(42);
+		this.fromNodes = new Node[REQUESTS];
+		this.toNodes = new Node[REQUESTS];
+		for (int i = 0; i < REQUESTS; i++) {
+			this.fromNodes[i] = nodes.get(random.nextInt(nodes.size()));
+			this.toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+		// routers which prepare their data lazily do so with the first query
+		this.router.calcLeastCostPath(this.fromNodes[0], this.toNodes[0], 8 * 3600, null, null);
+	}
+
+	private static LeastCostPathCalculatorFactory createFactory(final String algorithm) {
+		switch (algorithm) {
+		case "Dijkstra":
+			return new DijkstraFactory();
+		case "FastDijkstra":
+			return new FastDijkstraFactory();
+		case "AStarLandmarks":
+			return new AStarLandmarksFactory();
+		case "FastAStarLandmarks":
+			return new FastAStarLandmarksFactory();
+		case "SpeedyDijkstra":
+			return new SpeedyDijkstraFactory();
+		case "ContractionHierarchy":
+			return new ContractionHierarchyRouterFactory(900, 30 * 3600);
+		default:
+			throw new IllegalArgumentException("unknown routing algorithm: " + algorithm);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public void calcLeastCostPath(final Blackhole bh) {
+		for (int i = 0; i < REQUESTS; i++) {
+			bh.consume(this.router.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null));
+		}
+	}
+
+}
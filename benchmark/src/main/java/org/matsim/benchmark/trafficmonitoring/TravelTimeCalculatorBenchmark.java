@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.benchmark.SyntheticScenarios;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how fast the {@link TravelTimeCalculator} handles link enter and leave events, and how
+ * fast it answers travel time queries afterwards, which includes the consolidation of the data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	private static final int EVENTS = 100000;
+	private static final int QUERIES = 10000;
+
+	@Param({"50"})
+	public int gridSize;
+
+	private TravelTimeCalculator calculator;
+	private LinkEnterEvent[] enterEvents;
+	private LinkLeaveEvent[] leaveEvents;
+	private Link[] queryLinks;
+	private double[] queryTimes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Network network = NetworkUtils.createNetwork();
+		SyntheticScenarios.createGridNetwork(network, this.gridSize, 4711);
+		this.calculator = TravelTimeCalculator.create(network, new TravelTimeCalculatorConfigGroup());
+
+		// vehicles driving along random links through the day; each vehicle enters a link and then leaves it
+		Random random = new Random(42);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		this.enterEvents = new LinkEnterEvent[EVENTS];
+		this.leaveEvents = new LinkLeaveEvent[EVENTS];
+		for (int i = 0; i < EVENTS; i++) {
+			Id<Vehicle> vehicleId = Id.create(i % 1000, Vehicle.class);
+			Id<Link> linkId = links.get(random.nextInt(links.size())).getId();
+			double enterTime = 24 * 3600.0 * i / EVENTS;
+			this.enterEvents[i] = new LinkEnterEvent(enterTime, vehicleId, linkId);
+			this.leaveEvents[i] = new LinkLeaveEvent(enterTime + 10 + random.nextInt(60), vehicleId, linkId);
+		}
+
+		this.queryLinks = new Link[QUERIES];
+		this.queryTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryLinks[i] = links.get(random.nextInt(links.size()));
+			this.queryTimes[i] = random.nextInt(24 * 3600);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(2 * EVENTS)
+	public void handleEvents() {
+		this.calculator.reset(0);
+		for (int i = 0; i < EVENTS; i++) {
+			this.calculator.handleEvent(this.enterEvents[i]);
+			this.calculator.handleEvent(this.leaveEvents[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERIES)
+	public void getLinkTravelTime(final Blackhole bh) {
+		// re-adding the events makes the calculator consolidate its data again, as after every iteration
+		handleEvents();
+		for (int i = 0; i < QUERIES; i++) {
+			bh.consume(this.calculator.getLinkTravelTime(this.queryLinks[i], this.queryTimes[i]));
+		}
+	}
+
+}
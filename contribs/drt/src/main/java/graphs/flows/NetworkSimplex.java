@@ -0,0 +1,414 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package graphs.flows;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cost flow with node supplies, solved with the primal network simplex method. Unlike {@link MinCostFlow},
+ * {@link MinCostFlowDense} and {@link MinCostFlowSimple} (successive shortest paths), the running time does not
+ * depend on the amount of flow, and the graph is stored in plain arrays (one entry per arc), so large sparse problems
+ * are solved without creating objects per arc.
+ * <p>
+ * The implementation follows the textbook method (see e.g. Ahuja, Magnanti, Orlin: Network Flows, ch. 11) with an
+ * artificial root node and big-M artificial arcs as the initial basis, strongly feasible spanning trees (which
+ * prevents cycling) and the block search pivot rule.
+ * <p>
+ * Usage: create the solver, add the arcs, set the supplies (positive) and demands (negative), call {@link #solve()}
+ * and read the flows. The sum of all supplies must be zero. Setting the supplies directly at the nodes is usually
+ * much faster than adding a super source and sink (as required by the successive shortest path solvers), because
+ * the latter make most pivots degenerate.
+ */
+public class NetworkSimplex {
+	private static final int STATE_UPPER = -1;
+	private static final int STATE_TREE = 0;
+	private static final int STATE_LOWER = 1;
+
+	private static final int DIR_UP = 1;// tree arc directed from the node to its parent
+	private static final int DIR_DOWN = -1;// tree arc directed from the parent to the node
+
+	private static final long INF = Long.MAX_VALUE / 4;
+
+	private final int nodeCount;
+	private final long[] supply;
+
+	// arcs (real arcs followed by one artificial arc per node after init)
+	private int arcCount;
+	private int[] arcSource;
+	private int[] arcTarget;
+	private long[] arcCapacity;
+	private long[] arcCost;
+	private long[] arcFlow;
+	private int[] arcState;
+
+	// spanning tree; node nodeCount is the artificial root
+	private int[] parent;
+	private int[] predArc;
+	private int[] predDir;
+	private int[] depth;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] prevSibling;
+	private long[] potential;
+
+	// pivot state
+	private int blockSize;
+	private int nextSearchArc;
+	private int inArc;
+	private int join;
+	private int uIn;
+	private int vIn;
+	private int uOut;
+	private long delta;
+
+	private int[] stack;
+
+	private long totalCost;
+
+	public NetworkSimplex(int nodeCount) {
+		this(nodeCount, 16);
+	}
+
+	public NetworkSimplex(int nodeCount, int expectedArcCount) {
+		this.nodeCount = nodeCount;
+		supply = new long[nodeCount];
+
+		int initialArcs = Math.max(expectedArcCount, 1) + nodeCount;
+		arcSource = new int[initialArcs];
+		arcTarget = new int[initialArcs];
+		arcCapacity = new long[initialArcs];
+		arcCost = new long[initialArcs];
+	}
+
+	/**
+	 * @return index of the arc
+	 */
+	public int addArc(int source, int target, int capacity, int cost) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Negative capacity");
+		}
+		if (arcCount == arcSource.length) {
+			int newLength = 2 * arcSource.length;
+			arcSource = Arrays.copyOf(arcSource, newLength);
+			arcTarget = Arrays.copyOf(arcTarget, newLength);
+			arcCapacity = Arrays.copyOf(arcCapacity, newLength);
+			arcCost = Arrays.copyOf(arcCost, newLength);
+		}
+		arcSource[arcCount] = source;
+		arcTarget[arcCount] = target;
+		arcCapacity[arcCount] = capacity;
+		arcCost[arcCount] = cost;
+		return arcCount++;
+	}
+
+	/**
+	 * @param supply
+	 *            positive for supply, negative for demand
+	 */
+	public void setSupply(int node, int supply) {
+		this.supply[node] = supply;
+	}
+
+	public int getArcCount() {
+		return arcCount;
+	}
+
+	/**
+	 * @return true if a feasible flow was found (then it is optimal), false otherwise
+	 */
+	public boolean solve() {
+		long supplySum = 0;
+		for (long s : supply) {
+			supplySum += s;
+		}
+		if (supplySum != 0) {
+			throw new IllegalStateException("Supplies and demands are not balanced: " + supplySum);
+		}
+
+		init();
+		while (findEnteringArc()) {
+			findJoinNode();
+			boolean change = findLeavingArc();
+			if (delta >= INF) {
+				throw new IllegalStateException("Unbounded problem");
+			}
+			changeFlow(change);
+			if (change) {
+				updateTree();
+			}
+		}
+
+		// flows on artificial arcs mean that the supplies cannot be satisfied
+		for (int e = arcCount; e < arcCount + nodeCount; e++) {
+			if (arcFlow[e] != 0) {
+				return false;
+			}
+		}
+
+		totalCost = 0;
+		for (int e = 0; e < arcCount; e++) {
+			totalCost += arcFlow[e] * arcCost[e];
+		}
+		return true;
+	}
+
+	public int getFlow(int arc) {
+		return (int)arcFlow[arc];
+	}
+
+	public long getTotalCost() {
+		return totalCost;
+	}
+
+	private void init() {
+		int root = nodeCount;
+		int allArcCount = arcCount + nodeCount;
+		arcSource = Arrays.copyOf(arcSource, allArcCount);
+		arcTarget = Arrays.copyOf(arcTarget, allArcCount);
+		arcCapacity = Arrays.copyOf(arcCapacity, allArcCount);
+		arcCost = Arrays.copyOf(arcCost, allArcCount);
+		arcFlow = new long[allArcCount];
+		arcState = new int[allArcCount];
+		Arrays.fill(arcState, 0, arcCount, STATE_LOWER);
+
+		parent = new int[nodeCount + 1];
+		predArc = new int[nodeCount + 1];
+		predDir = new int[nodeCount + 1];
+		depth = new int[nodeCount + 1];
+		firstChild = new int[nodeCount + 1];
+		nextSibling = new int[nodeCount + 1];
+		prevSibling = new int[nodeCount + 1];
+		potential = new long[nodeCount + 1];
+		stack = new int[nodeCount + 1];
+		Arrays.fill(firstChild, -1);
+
+		// big M: more expensive than any path of real arcs
+		long maxCost = 0;
+		for (int e = 0; e < arcCount; e++) {
+			maxCost = Math.max(maxCost, Math.abs(arcCost[e]));
+		}
+		long artificialCost = (maxCost + 1) * (nodeCount + 1);
+
+		// initial strongly feasible tree: all nodes are children of the root
+		parent[root] = -1;
+		predArc[root] = -1;
+		for (int u = 0; u < nodeCount; u++) {
+			int e = arcCount + u;
+			arcCapacity[e] = INF;
+			arcCost[e] = artificialCost;
+			arcState[e] = STATE_TREE;
+			parent[u] = root;
+			predArc[u] = e;
+			depth[u] = 1;
+			addChild(root, u);
+			if (supply[u] >= 0) {
+				arcSource[e] = u;
+				arcTarget[e] = root;
+				arcFlow[e] = supply[u];
+				predDir[u] = DIR_UP;
+				potential[u] = -artificialCost;
+			} else {
+				arcSource[e] = root;
+				arcTarget[e] = u;
+				arcFlow[e] = -supply[u];
+				predDir[u] = DIR_DOWN;
+				potential[u] = artificialCost;
+			}
+		}
+
+		blockSize = Math.max((int)Math.sqrt(arcCount), 10);
+		nextSearchArc = 0;
+	}
+
+	private long reducedCost(int e) {
+		return arcCost[e] + potential[arcSource[e]] - potential[arcTarget[e]];
+	}
+
+	// block search pivot rule: the most violating arc of the first block containing any violating arc
+	private boolean findEnteringArc() {
+		if (arcCount == 0) {
+			return false;
+		}
+
+		long min = 0;
+		int count = blockSize;
+		int e = nextSearchArc;
+		for (int i = 0; i < arcCount; i++) {
+			long c = arcState[e] * reducedCost(e);
+			if (c < min) {
+				min = c;
+				inArc = e;
+			}
+			if (--count == 0) {
+				if (min < 0) {
+					nextSearchArc = e;
+					return true;
+				}
+				count = blockSize;
+			}
+			if (++e == arcCount) {
+				e = 0;
+			}
+		}
+		nextSearchArc = e;
+		return min < 0;
+	}
+
+	private void findJoinNode() {
+		int u = arcSource[inArc];
+		int v = arcTarget[inArc];
+		while (u != v) {
+			if (depth[u] >= depth[v]) {
+				u = parent[u];
+			} else {
+				v = parent[v];
+			}
+		}
+		join = u;
+	}
+
+	// the cycle is oriented along the entering arc from 'first' to 'second'; for strongly feasible trees, the leaving
+	// arc is the last blocking arc when traversing the cycle from the join node in this direction
+	private boolean findLeavingArc() {
+		int first, second;
+		if (arcState[inArc] == STATE_LOWER) {
+			first = arcSource[inArc];
+			second = arcTarget[inArc];
+		} else {
+			first = arcTarget[inArc];
+			second = arcSource[inArc];
+		}
+
+		delta = arcCapacity[inArc];
+		int result = 0;
+		for (int u = first; u != join; u = parent[u]) {
+			int e = predArc[u];
+			long d = predDir[u] == DIR_DOWN ? residual(e) : arcFlow[e];
+			if (d < delta) {
+				delta = d;
+				uOut = u;
+				result = 1;
+			}
+		}
+		for (int u = second; u != join; u = parent[u]) {
+			int e = predArc[u];
+			long d = predDir[u] == DIR_UP ? residual(e) : arcFlow[e];
+			if (d <= delta) {
+				delta = d;
+				uOut = u;
+				result = 2;
+			}
+		}
+
+		if (result == 1) {
+			uIn = first;
+			vIn = second;
+		} else {
+			uIn = second;
+			vIn = first;
+		}
+		return result != 0;
+	}
+
+	private long residual(int e) {
+		return arcCapacity[e] >= INF ? INF : arcCapacity[e] - arcFlow[e];
+	}
+
+	private void changeFlow(boolean change) {
+		if (delta > 0) {
+			long value = arcState[inArc] * delta;
+			arcFlow[inArc] += value;
+			for (int u = arcSource[inArc]; u != join; u = parent[u]) {
+				arcFlow[predArc[u]] -= value * predDir[u];
+			}
+			for (int u = arcTarget[inArc]; u != join; u = parent[u]) {
+				arcFlow[predArc[u]] += value * predDir[u];
+			}
+		}
+
+		if (change) {
+			int outArc = predArc[uOut];
+			arcState[inArc] = STATE_TREE;
+			arcState[outArc] = arcFlow[outArc] == 0 ? STATE_LOWER : STATE_UPPER;
+		} else {
+			arcState[inArc] = -arcState[inArc];
+		}
+	}
+
+	// removes the leaving arc, re-roots the cut-off subtree at uIn and hangs it below vIn via the entering arc
+	private void updateTree() {
+		int newParent = vIn;
+		int newPredArc = inArc;
+		int u = uIn;
+		while (true) {
+			int oldParent = parent[u];
+			int oldPredArc = predArc[u];
+
+			removeChild(oldParent, u);
+			parent[u] = newParent;
+			predArc[u] = newPredArc;
+			predDir[u] = arcSource[newPredArc] == u ? DIR_UP : DIR_DOWN;
+			addChild(newParent, u);
+
+			if (u == uOut) {
+				break;
+			}
+			newParent = u;
+			newPredArc = oldPredArc;
+			u = oldParent;
+		}
+
+		// potentials and depths of the moved subtree
+		int size = 0;
+		stack[size++] = uIn;
+		while (size > 0) {
+			int v = stack[--size];
+			int e = predArc[v];
+			int p = parent[v];
+			potential[v] = predDir[v] == DIR_UP ? potential[p] - arcCost[e] : potential[p] + arcCost[e];
+			depth[v] = depth[p] + 1;
+			for (int c = firstChild[v]; c != -1; c = nextSibling[c]) {
+				stack[size++] = c;
+			}
+		}
+	}
+
+	private void addChild(int p, int c) {
+		int oldFirst = firstChild[p];
+		nextSibling[c] = oldFirst;
+		prevSibling[c] = -1;
+		if (oldFirst != -1) {
+			prevSibling[oldFirst] = c;
+		}
+		firstChild[p] = c;
+	}
+
+	private void removeChild(int p, int c) {
+		int prev = prevSibling[c];
+		int next = nextSibling[c];
+		if (prev == -1) {
+			firstChild[p] = next;
+		} else {
+			nextSibling[prev] = next;
+		}
+		if (next != -1) {
+			prevSibling[next] = prev;
+		}
+	}
+}
@@ -121,13 +121,17 @@ public class VehicleData {
 		}
 	}
 
-	public void updateEntry(Vehicle vehicle) {
+	/**
+	 * @return the new entry, or null if the vehicle is no longer available
+	 */
+	public Entry updateEntry(Vehicle vehicle) {
 		Entry e = entryFactory.create(vehicle, currentTime);
 		if (e != null) {
 			entries.put(vehicle.getId(), e);
 		} else {
 			entries.remove(vehicle.getId());
 		}
+		return e;
 	}
 
 	public int getSize() {
@@ -27,6 +27,7 @@ import java.util.concurrent.ForkJoinPool;
 import org.apache.log4j.Logger;
 import org.matsim.contrib.drt.data.DrtRequest;
 import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
 import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
 import org.matsim.contrib.drt.passenger.events.DrtRequestRejectedEvent;
 import org.matsim.contrib.drt.passenger.events.DrtRequestScheduledEvent;
@@ -87,10 +88,19 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
 				vehicleDataEntryFactory, forkJoinPool);
 
+		// with large fleets, evaluate only the vehicles that can reach the pickup earliest
+		int maxEvaluatedVehicles = drtCfg.getMaxEvaluatedVehiclesPerRequest();
+		VehicleStopIndex vehicleStopIndex = maxEvaluatedVehicles > 0 && vData.getSize() > maxEvaluatedVehicles
+				? new VehicleStopIndex(vData.getEntries(), DetourLinksProvider.calcOptimisticBeelineSpeed(drtCfg),
+						mobsimTimer.getTimeOfDay())
+				: null;
+
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
-			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vData.getEntries());
+			Collection<Entry> vEntries = vehicleStopIndex == null ? vData.getEntries()
+					: vehicleStopIndex.findVehicles(req, maxEvaluatedVehicles);
+			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vEntries);
 			if (!best.isPresent()) {
 				req.setRejected(true);
 				eventsManager.processEvent(new DrtRequestRejectedEvent(mobsimTimer.getTimeOfDay(), req.getId()));
@@ -101,7 +111,10 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 			} else {
 				BestInsertion bestInsertion = best.get();
 				insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
-				vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+				Entry updatedEntry = vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+				if (vehicleStopIndex != null) {
+					vehicleStopIndex.updateEntry(bestInsertion.vehicleEntry.vehicle, updatedEntry);
+				}
 				eventsManager.processEvent(new DrtRequestScheduledEvent(mobsimTimer.getTimeOfDay(), req.getId(),
 						bestInsertion.vehicleEntry.vehicle.getId(), req.getPickupTask().getEndTime(),
 						req.getDropoffTask().getBeginTime()));
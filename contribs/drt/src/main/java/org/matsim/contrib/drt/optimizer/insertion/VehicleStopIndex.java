@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.util.PartialSort;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.core.utils.collections.PackedSpatialIndex;
+
+/**
+ * Preselects the vehicles for which insertions of a request are evaluated, so that the insertion search does not
+ * depend on the fleet size.
+ * <p>
+ * The index contains all points where a pickup can be inserted, i.e. the vehicle start and the stops, together with
+ * the times the vehicle departs from them. For each vehicle, a lower bound of the pickup time is the departure time
+ * plus the optimistic beeline time to the pickup link (minimum over the vehicle's points). The k vehicles with the
+ * lowest bounds are found by searching the points in order of increasing distance to the pickup, until no more
+ * distant point can have a lower bound. Points the vehicle leaves fully occupied are not indexed, so fully occupied
+ * vehicles are not returned. However, the remaining capacity and time window constraints are not checked, i.e. all k
+ * vehicles may turn out to be unable to serve the request. Vehicles that cannot reach the pickup before the latest
+ * start time of the request are never returned.
+ * <p>
+ * The index is built once per batch of requests. Vehicles whose schedules change in the meantime are passed to
+ * {@link #updateEntry(Vehicle, Entry)} and then evaluated separately. Not thread-safe.
+ */
+class VehicleStopIndex {
+	private static class InsertionPoint {
+		private final Entry vEntry;
+		private final Link link;
+		private final double departureTime;
+
+		private InsertionPoint(Entry vEntry, Link link, double departureTime) {
+			this.vEntry = vEntry;
+			this.link = link;
+			this.departureTime = departureTime;
+		}
+	}
+
+	private final double optimisticBeelineSpeed;
+	private final double minDepartureTime;
+	private final PackedSpatialIndex.Searcher<InsertionPoint> searcher;
+
+	// points of these vehicles in the index are outdated; null values mean the vehicles are no longer available
+	private final Map<Id<Vehicle>, Entry> updatedEntries = new HashMap<>();
+
+	// reused between the queries
+	private final Map<Entry, Double> pickupTimeBounds = new HashMap<>();
+
+	VehicleStopIndex(Collection<Entry> vEntries, double optimisticBeelineSpeed, double currentTime) {
+		this.optimisticBeelineSpeed = optimisticBeelineSpeed;
+
+		List<InsertionPoint> points = new ArrayList<>();
+		double minTime = currentTime;
+		for (Entry vEntry : vEntries) {
+			for (InsertionPoint p : getInsertionPoints(vEntry)) {
+				points.add(p);
+				minTime = Math.min(minTime, p.departureTime);
+			}
+		}
+		minDepartureTime = minTime;
+		searcher = new PackedSpatialIndex<>(points, p -> p.link.getCoord()).createSearcher();
+	}
+
+	// a pickup can be inserted only after points left with a free seat (see InsertionGenerator)
+	private static List<InsertionPoint> getInsertionPoints(Entry vEntry) {
+		int capacity = vEntry.vehicle.getCapacity();
+		int stopCount = vEntry.stops.size();
+		List<InsertionPoint> points = new ArrayList<>(stopCount + 1);
+		if (vEntry.startOccupancy < capacity || stopCount == 0) {
+			points.add(new InsertionPoint(vEntry, vEntry.start.link, vEntry.start.time));
+		}
+		for (int i = 0; i < stopCount; i++) {
+			Stop s = vEntry.stops.get(i);
+			if (s.outgoingOccupancy < capacity || i == stopCount - 1) {
+				points.add(new InsertionPoint(vEntry, s.task.getLink(), s.task.getEndTime()));
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * @param vEntry
+	 *            the new entry, or null if the vehicle is no longer available
+	 */
+	void updateEntry(Vehicle vehicle, Entry vEntry) {
+		updatedEntries.put(vehicle.getId(), vEntry);
+	}
+
+	/**
+	 * @return up to k vehicles with the lowest bounds of the pickup time (not ordered)
+	 */
+	List<Entry> findVehicles(DrtRequest drtRequest, int k) {
+		Coord pickupCoord = drtRequest.getFromLink().getCoord();
+		double latestPickupTime = drtRequest.getLatestStartTime();
+		double maxDistance = (latestPickupTime - minDepartureTime) * optimisticBeelineSpeed;
+		if (maxDistance < 0) {
+			return new ArrayList<>();
+		}
+
+		// double the number of points until the k best vehicles cannot be improved by more distant points
+		int pointCount = Math.max(4 * k, 16);
+		while (true) {
+			pickupTimeBounds.clear();
+			int found = searcher.findKNearest(pickupCoord.getX(), pickupCoord.getY(), pointCount, maxDistance);
+			for (int i = 0; i < found; i++) {
+				InsertionPoint p = searcher.getValue(i);
+				if (!updatedEntries.containsKey(p.vEntry.vehicle.getId())) {
+					addPickupTimeBound(p.vEntry, p.departureTime + searcher.getDistance(i) / optimisticBeelineSpeed,
+							latestPickupTime);
+				}
+			}
+
+			if (found < pointCount) {
+				break;// all points within maxDistance have been visited
+			}
+
+			double boundForMoreDistantPoints = minDepartureTime
+					+ searcher.getDistance(found - 1) / optimisticBeelineSpeed;
+			if (pickupTimeBounds.values().stream().filter(b -> b <= boundForMoreDistantPoints).count() >= k) {
+				break;
+			}
+			pointCount *= 2;
+		}
+
+		for (Entry vEntry : updatedEntries.values()) {
+			if (vEntry != null) {
+				for (InsertionPoint p : getInsertionPoints(vEntry)) {
+					addPickupTimeBound(vEntry, p.departureTime
+							+ DistanceUtils.calculateDistance(p.link.getCoord(), pickupCoord) / optimisticBeelineSpeed,
+							latestPickupTime);
+				}
+			}
+		}
+
+		return PartialSort.kSmallestElements(k, pickupTimeBounds.keySet().stream(), pickupTimeBounds::get);
+	}
+
+	private void addPickupTimeBound(Entry vEntry, double pickupTimeBound, double latestPickupTime) {
+		if (pickupTimeBound <= latestPickupTime) {
+			pickupTimeBounds.merge(vEntry, pickupTimeBound, Math::min);
+		}
+	}
+}
@@ -22,13 +22,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.ToIntBiFunction;
-import java.util.stream.Stream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
-import graphs.flows.MinCostFlow;
-import graphs.flows.MinCostFlow.Edge;
+import graphs.flows.NetworkSimplex;
 
 /**
  * @author michalm
@@ -43,58 +41,63 @@ public class TransportProblem<P, C> {
 	public List<Triple<P, C, Integer>> solve(List<Pair<P, Integer>> supply, List<Pair<C, Integer>> demand) {
 		final int P = supply.size();
 		final int C = demand.size();
-		final int N = P + C + 2;
+		final int N = P + C + 1;
 
 		// N nodes, which indices are:
-		// 0 - source
-		// 1..P - producers 1..P
-		// P+1..P+C - consumers 1..C
-		// P+C+1 - sink
+		// 0..P-1 - producers 1..P
+		// P..P+C-1 - consumers 1..C
+		// P+C - dummy node that balances the total supply and demand
 
-		@SuppressWarnings("unchecked")
-		List<Edge>[] graph = Stream.generate(ArrayList::new).limit(N).toArray(List[]::new);
-
-		// source -> producers
-		int totalSupply = 0;
-		for (int i = 0; i < P; i++) {
-			int supplyValue = supply.get(i).getValue();
-			MinCostFlow.addEdge(graph, 0, 1 + i, supplyValue, 0);
-			totalSupply += supplyValue;
+		int totalSupply = supply.stream().mapToInt(Pair::getValue).sum();
+		int totalDemand = demand.stream().mapToInt(Pair::getValue).sum();
+		if (Math.min(totalSupply, totalDemand) == 0) {
+			return Collections.emptyList();
 		}
 
+		NetworkSimplex networkSimplex = new NetworkSimplex(N, P * C + Math.max(P, C));
+
 		// producers --> consumers
+		int[] arcs = new int[P * C];
 		for (int i = 0; i < P; i++) {
 			Pair<P, Integer> producer = supply.get(i);
+			networkSimplex.setSupply(i, producer.getValue());
 			for (int j = 0; j < C; j++) {
 				Pair<C, Integer> consumer = demand.get(j);
 				int capacity = Math.min(producer.getValue(), consumer.getValue());
 				int cost = costFunction.applyAsInt(producer.getKey(), consumer.getKey());
-				MinCostFlow.addEdge(graph, 1 + i, 1 + P + j, capacity, cost);
+				arcs[i * C + j] = networkSimplex.addArc(i, P + j, capacity, cost);
 			}
 		}
 
-		// consumers -> sink
-		int totalDemand = 0;
 		for (int j = 0; j < C; j++) {
-			int demandValue = demand.get(j).getValue();
-			MinCostFlow.addEdge(graph, 1 + P + j, N - 1, demandValue, 0);
-			totalDemand += demandValue;
+			networkSimplex.setSupply(P + j, -demand.get(j).getValue());
+		}
+
+		// surplus supply (or demand) is sent to (or received from) the dummy node at zero cost
+		final int dummy = P + C;
+		networkSimplex.setSupply(dummy, totalDemand - totalSupply);
+		if (totalSupply > totalDemand) {
+			for (int i = 0; i < P; i++) {
+				networkSimplex.addArc(i, dummy, supply.get(i).getValue(), 0);
+			}
+		} else if (totalSupply < totalDemand) {
+			for (int j = 0; j < C; j++) {
+				networkSimplex.addArc(dummy, P + j, demand.get(j).getValue(), 0);
+			}
 		}
 
 		// solve min cost flow problem
-		int[] result = MinCostFlow.minCostFlow(graph, 0, N - 1, Math.min(totalSupply, totalDemand), false);
-		if (result[0] == 0) {
-			return Collections.emptyList();
+		if (!networkSimplex.solve()) {
+			throw new IllegalStateException("No feasible flow");
 		}
 
 		// extract flows
 		List<Triple<P, C, Integer>> flows = new ArrayList<>();
 		for (int i = 0; i < P; i++) {
 			P from = supply.get(i).getKey();
-			for (Edge e : graph[1 + i]) {
-				int flow = e.getFlow();
+			for (int j = 0; j < C; j++) {
+				int flow = networkSimplex.getFlow(arcs[i * C + j]);
 				if (flow > 0) {
-					int j = e.getTo() - (1 + P);
 					C to = demand.get(j).getKey();
 					flows.add(Triple.of(from, to, flow));
 				}
@@ -98,6 +98,15 @@ public class DrtConfigGroup extends ReflectiveConfigGroup {
 			+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 			+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String MAX_EVALUATED_VEHICLES_PER_REQUEST = "maxEvaluatedVehiclesPerRequest";
+	static final String MAX_EVALUATED_VEHICLES_PER_REQUEST_EXP = "Limits the insertion search for each request to the vehicles"
+			+ " that can reach the pickup location earliest (according to an optimistic beeline estimate)."
+			+ " Speeds up the insertion for large fleets, but the best insertion may be missed."
+			+ " Vehicles without a free seat are skipped, but other constraints (e.g. capacity along the ride"
+			+ " or time windows of the already scheduled requests) are not considered when selecting the vehicles,"
+			+ " so a request may be rejected even though another vehicle could serve it."
+			+ " Default value is 0, which means that all vehicles are evaluated.";
+
 	@PositiveOrZero
 	private double stopDuration = Double.NaN;// seconds
 
@@ -144,6 +153,9 @@ public class DrtConfigGroup extends ReflectiveConfigGroup {
 	private int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(),
 			ParallelPathDataProvider.MAX_THREADS);
 
+	@PositiveOrZero
+	private int maxEvaluatedVehiclesPerRequest = 0;// 0 == all vehicles
+
 	public enum OperationalScheme {
 		stopbased, door2door
 	}
@@ -169,6 +181,7 @@ public class DrtConfigGroup extends ReflectiveConfigGroup {
 		map.put(ESTIMATED_DRT_SPEED, ESTIMATED_DRT_SPEED_EXP);
 		map.put(ESTIMATED_BEELINE_DISTANCE_FACTOR, ESTIMATED_BEELINE_DISTANCE_FACTOR_EXP);
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
+		map.put(MAX_EVALUATED_VEHICLES_PER_REQUEST, MAX_EVALUATED_VEHICLES_PER_REQUEST_EXP);
 		map.put(PRINT_WARNINGS, PRINT_WARNINGS_EXP);
 		return map;
 	}
@@ -422,6 +435,22 @@ public class DrtConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	/**
+	 * @return -- {@value #MAX_EVALUATED_VEHICLES_PER_REQUEST_EXP}
+	 */
+	@StringGetter(MAX_EVALUATED_VEHICLES_PER_REQUEST)
+	public int getMaxEvaluatedVehiclesPerRequest() {
+		return maxEvaluatedVehiclesPerRequest;
+	}
+
+	/**
+	 * @param-- {@value #MAX_EVALUATED_VEHICLES_PER_REQUEST_EXP}
+	 */
+	@StringSetter(MAX_EVALUATED_VEHICLES_PER_REQUEST)
+	public void setMaxEvaluatedVehiclesPerRequest(final int maxEvaluatedVehiclesPerRequest) {
+		this.maxEvaluatedVehiclesPerRequest = maxEvaluatedVehiclesPerRequest;
+	}
+
 	/**
 	 * @return -- {@value #PRINT_WARNINGS_EXP}
 	 */
@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package graphs.flows;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import graphs.flows.MinCostFlow.Edge;
+
+public class NetworkSimplexTest {
+	@Test
+	public void testSmallGraph() {
+		NetworkSimplex networkSimplex = new NetworkSimplex(3);
+		int a01 = networkSimplex.addArc(0, 1, 3, 1);
+		int a02 = networkSimplex.addArc(0, 2, 2, 1);
+		int a12 = networkSimplex.addArc(1, 2, 2, 1);
+		networkSimplex.setSupply(0, 4);
+		networkSimplex.setSupply(2, -4);
+
+		assertTrue(networkSimplex.solve());
+		assertEquals(6, networkSimplex.getTotalCost());
+		assertEquals(2, networkSimplex.getFlow(a01));
+		assertEquals(2, networkSimplex.getFlow(a02));
+		assertEquals(2, networkSimplex.getFlow(a12));
+	}
+
+	@Test
+	public void testInfeasible() {
+		NetworkSimplex networkSimplex = new NetworkSimplex(2);
+		networkSimplex.addArc(0, 1, 3, 1);
+		networkSimplex.setSupply(0, 4);
+		networkSimplex.setSupply(1, -4);
+		assertFalse(networkSimplex.solve());
+	}
+
+	@Test
+	public void testSameCostAsMinCostFlow() {
+		Random random = new Random(4711);
+		for (int run = 0; run < 100; run++) {
+			int n = 2 + random.nextInt(30);
+			int m = random.nextInt(5 * n);
+
+			@SuppressWarnings("unchecked")
+			List<Edge>[] graph = Stream.generate(ArrayList::new).limit(n).toArray(List[]::new);
+			NetworkSimplex networkSimplex = new NetworkSimplex(n);
+			for (int e = 0; e < m; e++) {
+				int u = random.nextInt(n);
+				int v = random.nextInt(n);
+				int capacity = random.nextInt(20);
+				int cost = random.nextInt(100);
+				MinCostFlow.addEdge(graph, u, v, capacity, cost);
+				networkSimplex.addArc(u, v, capacity, cost);
+			}
+
+			// max flow from 0 to n-1, computed by MinCostFlow, then routed with NetworkSimplex
+			int[] expected = MinCostFlow.minCostFlow(graph, 0, n - 1, Integer.MAX_VALUE, true);
+			networkSimplex.setSupply(0, expected[0]);
+			networkSimplex.setSupply(n - 1, -expected[0]);
+			assertTrue(networkSimplex.solve());
+			assertEquals(expected[1], networkSimplex.getTotalCost());
+
+			// one more unit cannot be routed
+			networkSimplex.setSupply(0, expected[0] + 1);
+			networkSimplex.setSupply(n - 1, -expected[0] - 1);
+			assertFalse(networkSimplex.solve());
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+public class VehicleStopIndexTest {
+	private static final double SPEED = 10;
+	private static final int CAPACITY = 4;
+
+	private final Random random = new Random(42);
+	private final List<Link> links = createLinks(100);
+
+	@Test
+	public void testRandomStops() {
+		Map<Id<Vehicle>, Entry> entries = createEntries(300);
+		VehicleStopIndex index = new VehicleStopIndex(entries.values(), SPEED, 0);
+		assertSameAsBruteForce(index, entries);
+	}
+
+	@Test
+	public void testUpdatedEntries() {
+		Map<Id<Vehicle>, Entry> entries = createEntries(300);
+		VehicleStopIndex index = new VehicleStopIndex(entries.values(), SPEED, 0);
+
+		// vehicles rescheduled within the batch: new schedules, idle at the pickup or no longer available
+		List<Entry> original = new ArrayList<>(entries.values());
+		for (int i = 0; i < 30; i++) {
+			Vehicle vehicle = original.get(i).vehicle;
+			Entry updated = i % 3 == 0 ? null : createEntry(vehicle);
+			entries.put(vehicle.getId(), updated);
+			index.updateEntry(vehicle, updated);
+		}
+		Vehicle idleVehicle = original.get(30).vehicle;
+		Entry idleEntry = new Entry(idleVehicle, new LinkTimePair(links.get(0), 0), 0, ImmutableList.of());
+		entries.put(idleVehicle.getId(), idleEntry);
+		index.updateEntry(idleVehicle, idleEntry);
+
+		List<Entry> found = index.findVehicles(createRequest(links.get(0), 3600), 1);
+		Assert.assertEquals(1, found.size());
+		Assert.assertSame(idleEntry, found.get(0));
+
+		assertSameAsBruteForce(index, entries);
+	}
+
+	@Test
+	public void testLatestStartTime() {
+		Map<Id<Vehicle>, Entry> entries = createEntries(300);
+		VehicleStopIndex index = new VehicleStopIndex(entries.values(), SPEED, 0);
+
+		Assert.assertTrue(index.findVehicles(createRequest(links.get(0), -1), 10).isEmpty());
+		for (Link link : links) {
+			for (double latestStartTime = 0; latestStartTime < 3000; latestStartTime += 100) {
+				DrtRequest request = createRequest(link, latestStartTime);
+				for (Entry e : index.findVehicles(request, 10)) {
+					Assert.assertTrue(calcPickupTimeBound(e, link) <= latestStartTime);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFullyOccupiedVehicleSkipped() {
+		Link pickupLink = links.get(0);
+		Link farLink = links.stream().max(Comparator.comparingDouble(l -> distance(l, pickupLink))).get();
+		Vehicle fullVehicle = new VehicleImpl(Id.create("full", Vehicle.class), pickupLink, CAPACITY, 0, 1e6);
+		Vehicle emptyVehicle = new VehicleImpl(Id.create("empty", Vehicle.class), farLink, CAPACITY, 0, 1e6);
+
+		// passes the pickup link, but without a free seat until the last stop (far away)
+		Entry fullEntry = new Entry(fullVehicle, new LinkTimePair(pickupLink, 0), CAPACITY,
+				ImmutableList.of(new Stop(new DrtStopTask(10, 20, pickupLink), CAPACITY),
+						new Stop(new DrtStopTask(1000, 1010, farLink), 0)));
+		Entry emptyEntry = new Entry(emptyVehicle, new LinkTimePair(farLink, 100), 0, ImmutableList.of());
+
+		List<Entry> vEntries = new ArrayList<>();
+		vEntries.add(fullEntry);
+		vEntries.add(emptyEntry);
+		for (int i = 0; i < 20; i++) {
+			vEntries.add(new Entry(new VehicleImpl(Id.create("far_" + i, Vehicle.class), farLink, CAPACITY, 0, 1e6),
+					new LinkTimePair(farLink, 200 + i), 0, ImmutableList.of()));
+		}
+
+		VehicleStopIndex index = new VehicleStopIndex(vEntries, SPEED, 0);
+		List<Entry> found = index.findVehicles(createRequest(pickupLink, 1e6), 1);
+		Assert.assertEquals(1, found.size());
+		Assert.assertSame(emptyEntry, found.get(0));
+	}
+
+	private void assertSameAsBruteForce(VehicleStopIndex index, Map<Id<Vehicle>, Entry> entries) {
+		for (int q = 0; q < 200; q++) {
+			Link pickupLink = links.get(random.nextInt(links.size()));
+			DrtRequest request = createRequest(pickupLink, random.nextDouble() * 3000);
+			int k = 1 + random.nextInt(50);
+
+			List<Entry> expected = entries.values().stream()//
+					.filter(e -> e != null && calcPickupTimeBound(e, pickupLink) <= request.getLatestStartTime())//
+					.sorted(Comparator.comparingDouble(e -> calcPickupTimeBound(e, pickupLink)))//
+					.limit(k)//
+					.collect(Collectors.toList());
+			List<Entry> found = index.findVehicles(request, k);
+
+			Assert.assertEquals(expected.size(), found.size());
+			Assert.assertEquals(new HashSet<>(expected), new HashSet<>(found));
+		}
+	}
+
+	// minimum over all points where a pickup can be inserted (start and stops left with a free seat, and last stop)
+	private static double calcPickupTimeBound(Entry e, Link pickupLink) {
+		double bound = Double.POSITIVE_INFINITY;
+		if (e.startOccupancy < CAPACITY || e.stops.isEmpty()) {
+			bound = e.start.time + distance(e.start.link, pickupLink) / SPEED;
+		}
+		for (int i = 0; i < e.stops.size(); i++) {
+			Stop s = e.stops.get(i);
+			if (s.outgoingOccupancy < CAPACITY || i == e.stops.size() - 1) {
+				bound = Math.min(bound, s.task.getEndTime() + distance(s.task.getLink(), pickupLink) / SPEED);
+			}
+		}
+		return bound;
+	}
+
+	private static double distance(Link link1, Link link2) {
+		return DistanceUtils.calculateDistance(link1.getCoord(), link2.getCoord());
+	}
+
+	private Map<Id<Vehicle>, Entry> createEntries(int count) {
+		Map<Id<Vehicle>, Entry> entries = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			Vehicle vehicle = new VehicleImpl(Id.create(i, Vehicle.class), links.get(random.nextInt(links.size())),
+					CAPACITY, 0, 1e6);
+			entries.put(vehicle.getId(), createEntry(vehicle));
+		}
+		return entries;
+	}
+
+	private Entry createEntry(Vehicle vehicle) {
+		double time = random.nextDouble() * 1000;
+		int occupancy = random.nextInt(CAPACITY + 1);
+		LinkTimePair start = new LinkTimePair(links.get(random.nextInt(links.size())), time);
+		int startOccupancy = occupancy;
+
+		ImmutableList.Builder<Stop> stops = ImmutableList.builder();
+		int stopCount = random.nextInt(5);
+		for (int s = 0; s < stopCount; s++) {
+			double beginTime = time + random.nextDouble() * 500;
+			time = beginTime + 60;
+			occupancy = s == stopCount - 1 ? 0 : random.nextInt(CAPACITY + 1);
+			stops.add(new Stop(new DrtStopTask(beginTime, time, links.get(random.nextInt(links.size()))), occupancy));
+		}
+		return new Entry(vehicle, start, startOccupancy, stops.build());
+	}
+
+	private static DrtRequest createRequest(Link fromLink, double latestStartTime) {
+		return new DrtRequest(Id.create("r", Request.class), null, fromLink, fromLink, 0,
+				latestStartTime, latestStartTime + 3600, 0);
+	}
+
+	private List<Link> createLinks(int count) {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(i),
+					new Coord(random.nextDouble() * 10000, random.nextDouble() * 10000)));
+		}
+		List<Link> links = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), nodes.get(i),
+					nodes.get((i + 1) % count), 100, 10, 1000, 1));
+		}
+		return links;
+	}
+}
@@ -19,53 +19,166 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import org.matsim.api.core.v01.Id;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
+/**
+ * Caches paths per (time bin, from node, to node). The cache is bounded by an (estimated) memory budget; when it is
+ * exceeded, the least recently used paths are evicted. Paths are stored compactly as link arrays, the node lists are
+ * rebuilt on each hit.
+ * <p>
+ * The cache can be queried concurrently. Since {@link LeastCostPathCalculator}s are not thread-safe, the
+ * {@link Supplier}-based constructor creates one calculator per querying thread; with the single-calculator
+ * constructor, the cache misses are computed one at a time.
+ */
 public class DefaultLeastCostPathCalculatorWithCache implements LeastCostPathCalculatorWithCache {
-	private final LeastCostPathCalculator calculator;
+	public static final long DEFAULT_MAX_CACHE_BYTES = 256L * 1024 * 1024;
+
+	// rough estimates for a 64-bit JVM: cache entry with key and value objects, plus a reference per link
+	private static final int ENTRY_OVERHEAD_BYTES = 160;
+	private static final int BYTES_PER_LINK = 8;
+
+	private final ThreadLocal<LeastCostPathCalculator> calculator;
+	private final Object calculatorLock;
 	private final TimeDiscretizer timeDiscretizer;
-	private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
+	private final Cache<PathKey, CachedPath> pathCache;
 
-	private CacheStats cacheStats = new CacheStats();
+	private final CacheStats cacheStats = new CacheStats();
 
-	@SuppressWarnings("unchecked")
 	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
 			TimeDiscretizer timeDiscretizer) {
+		this(calculator, timeDiscretizer, DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator, TimeDiscretizer timeDiscretizer,
+			long maxCacheBytes) {
+		this(ThreadLocal.withInitial(() -> calculator), calculator, timeDiscretizer, maxCacheBytes);
+	}
+
+	/**
+	 * @param calculatorSupplier
+	 *            called once per thread querying this cache
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(Supplier<LeastCostPathCalculator> calculatorSupplier,
+			TimeDiscretizer timeDiscretizer, long maxCacheBytes) {
+		this(ThreadLocal.withInitial(calculatorSupplier), null, timeDiscretizer, maxCacheBytes);
+	}
+
+	private DefaultLeastCostPathCalculatorWithCache(ThreadLocal<LeastCostPathCalculator> calculator,
+			Object calculatorLock, TimeDiscretizer timeDiscretizer, long maxCacheBytes) {
 		this.calculator = calculator;
+		this.calculatorLock = calculatorLock;
 		this.timeDiscretizer = timeDiscretizer;
 
-		pathCache = new Table[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < pathCache.length; i++) {
-			pathCache[i] = HashBasedTable.create();
-		}
+		pathCache = CacheBuilder.newBuilder()//
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())//
+				.maximumWeight(maxCacheBytes)//
+				.<PathKey, CachedPath> weigher((key, path) -> ENTRY_OVERHEAD_BYTES + BYTES_PER_LINK * path.links.length)//
+				.<PathKey, CachedPath> removalListener(notification -> {
+					if (notification.wasEvicted()) {
+						cacheStats.incEvictions();
+					}
+				})//
+				.build();
 	}
 
 	@Override
 	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
-		Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-		Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
-
-		if (path == null) {
-			cacheStats.incMisses();
-			path = calculator.calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
-					vehicle);
-			spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-		} else {
+		PathKey key = new PathKey(timeDiscretizer.getIdx(startTime), fromNode.getId().index(),
+				toNode.getId().index());
+		CachedPath cachedPath = pathCache.getIfPresent(key);
+
+		if (cachedPath != null) {
 			cacheStats.incHits();
+			return cachedPath.toPath(fromNode);
 		}
 
+		cacheStats.incMisses();
+		Path path = calculatePath(fromNode, toNode, timeDiscretizer.discretize(startTime), person, vehicle);
+		if (path != null) {// unreachable destinations are not cached
+			pathCache.put(key, new CachedPath(path));
+		}
 		return path;
 	}
 
+	private Path calculatePath(Node fromNode, Node toNode, double time, Person person, Vehicle vehicle) {
+		if (calculatorLock == null) {
+			return calculator.get().calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+		}
+		synchronized (calculatorLock) {
+			return calculator.get().calcLeastCostPath(fromNode, toNode, time, person, vehicle);
+		}
+	}
+
 	@Override
 	public CacheStats getCacheStats() {
 		return cacheStats;
 	}
+
+	/**
+	 * @return (approximate) number of cached paths
+	 */
+	public long getCacheSize() {
+		return pathCache.size();
+	}
+
+	private static final class PathKey {
+		private final int timeBin;
+		private final int fromNodeIndex;
+		private final int toNodeIndex;
+
+		private PathKey(int timeBin, int fromNodeIndex, int toNodeIndex) {
+			this.timeBin = timeBin;
+			this.fromNodeIndex = fromNodeIndex;
+			this.toNodeIndex = toNodeIndex;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PathKey)) {
+				return false;
+			}
+			PathKey other = (PathKey)obj;
+			return timeBin == other.timeBin && fromNodeIndex == other.fromNodeIndex
+					&& toNodeIndex == other.toNodeIndex;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * timeBin + fromNodeIndex) * 31 + toNodeIndex;
+		}
+	}
+
+	private static final class CachedPath {
+		private final Link[] links;
+		private final double travelTime;
+		private final double travelCost;
+
+		private CachedPath(Path path) {
+			links = path.links.toArray(new Link[path.links.size()]);
+			travelTime = path.travelTime;
+			travelCost = path.travelCost;
+		}
+
+		private Path toPath(Node fromNode) {
+			List<Node> nodes = new ArrayList<>(links.length + 1);
+			nodes.add(fromNode);
+			for (Link link : links) {
+				nodes.add(link.getToNode());
+			}
+			return new Path(nodes, Arrays.asList(links.clone()), travelTime, travelCost);
+		}
+	}
 }
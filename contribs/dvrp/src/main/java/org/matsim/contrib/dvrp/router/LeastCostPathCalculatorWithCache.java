@@ -19,29 +19,55 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.matsim.core.router.util.LeastCostPathCalculator;
 
 public interface LeastCostPathCalculatorWithCache extends LeastCostPathCalculator {
+	/**
+	 * Thread-safe, as the cache may be queried by several threads.
+	 */
 	class CacheStats {
-		private int hits = 0;
-		private int misses = 0;
+		private final AtomicInteger hits = new AtomicInteger();
+		private final AtomicInteger misses = new AtomicInteger();
+		private final AtomicInteger evictions = new AtomicInteger();
 
 		public void incHits() {
-			hits++;
+			hits.incrementAndGet();
 		}
 
 		public void incMisses() {
-			misses++;
+			misses.incrementAndGet();
+		}
+
+		public void incEvictions() {
+			evictions.incrementAndGet();
 		}
 
 		public int getHits() {
-			return hits;
+			return hits.get();
 		}
 
 		public int getMisses() {
-			return misses;
+			return misses.get();
+		}
+
+		/**
+		 * @return number of entries removed from the cache because its size limit was reached
+		 */
+		public int getEvictions() {
+			return evictions.get();
+		}
+
+		/**
+		 * @return hits / (hits + misses), or <code>NaN</code> if there have been no queries yet
+		 */
+		public double getHitRate() {
+			int h = getHits();
+			int total = h + getMisses();
+			return total == 0 ? Double.NaN : (double)h / total;
 		}
 	}
 
 	CacheStats getCacheStats();
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+public class DefaultLeastCostPathCalculatorWithCacheTest {
+	private static final int GRID_SIZE = 5;
+
+	private final Network network = createGridNetwork();
+	private final Node isolatedNode = NetworkUtils.createAndAddNode(network, Id.createNodeId("isolated"),
+			new Coord(-1000, -1000));
+
+	@Test
+	public void testHitSameAsMiss() {
+		AtomicInteger calculatorCalls = new AtomicInteger();
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				countingCalculator(calculatorCalls), TimeDiscretizer.ACYCLIC_1_HOUR);
+		Node from = getNode(0, 0);
+		Node to = getNode(GRID_SIZE - 1, GRID_SIZE - 1);
+
+		Path miss = cache.calcLeastCostPath(from, to, 3600, null, null);
+		Path hit = cache.calcLeastCostPath(from, to, 3600 + 1800, null, null);// same time bin
+
+		assertThat(calculatorCalls.get()).isEqualTo(1);
+		assertThat(cache.getCacheStats().getMisses()).isEqualTo(1);
+		assertThat(cache.getCacheStats().getHits()).isEqualTo(1);
+		assertSamePath(hit, miss);
+
+		cache.calcLeastCostPath(from, to, 2 * 3600, null, null);// next time bin
+		assertThat(calculatorCalls.get()).isEqualTo(2);
+		assertThat(cache.getCacheSize()).isEqualTo(2);
+	}
+
+	@Test
+	public void testEvictions() {
+		AtomicInteger calculatorCalls = new AtomicInteger();
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				countingCalculator(calculatorCalls), TimeDiscretizer.ACYCLIC_1_HOUR, 1);// no path fits
+		Node from = getNode(0, 0);
+		Node to = getNode(GRID_SIZE - 1, 0);
+
+		Path path = cache.calcLeastCostPath(from, to, 0, null, null);
+		assertThat(path.links).hasSize(GRID_SIZE - 1);
+		assertSamePath(cache.calcLeastCostPath(from, to, 0, null, null), path);
+
+		assertThat(calculatorCalls.get()).isEqualTo(2);
+		assertThat(cache.getCacheStats().getHits()).isEqualTo(0);
+		assertThat(cache.getCacheStats().getEvictions()).isEqualTo(2);
+		assertThat(cache.getCacheSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void testUnreachableNotCached() {
+		AtomicInteger calculatorCalls = new AtomicInteger();
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(
+				countingCalculator(calculatorCalls), TimeDiscretizer.ACYCLIC_1_HOUR);
+
+		assertThat(cache.calcLeastCostPath(getNode(0, 0), isolatedNode, 0, null, null)).isNull();
+		assertThat(cache.calcLeastCostPath(getNode(0, 0), isolatedNode, 0, null, null)).isNull();
+
+		assertThat(calculatorCalls.get()).isEqualTo(2);
+		assertThat(cache.getCacheStats().getMisses()).isEqualTo(2);
+		assertThat(cache.getCacheSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		final int threads = 4;
+		final int queriesPerThread = 2000;
+		AtomicInteger createdCalculators = new AtomicInteger();
+		DefaultLeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(() -> {
+			createdCalculators.incrementAndGet();
+			return createCalculator();
+		}, TimeDiscretizer.ACYCLIC_1_HOUR, DefaultLeastCostPathCalculatorWithCache.DEFAULT_MAX_CACHE_BYTES);
+		LeastCostPathCalculator referenceCalculator = createCalculator();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final Random random = new Random(t);
+				futures.add(executor.submit(() -> {
+					for (int q = 0; q < queriesPerThread; q++) {
+						Node from = getNode(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+						Node to = getNode(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE));
+						Path path = cache.calcLeastCostPath(from, to, random.nextInt(3) * 3600, null, null);
+						Path expected;
+						synchronized (referenceCalculator) {
+							expected = referenceCalculator.calcLeastCostPath(from, to, 0, null, null);
+						}
+						assertThat(path.travelCost).isEqualTo(expected.travelCost);
+						assertThat(path.nodes.get(0)).isSameAs(from);
+						assertThat(path.nodes.get(path.nodes.size() - 1)).isSameAs(to);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();// rethrows assertion errors
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(createdCalculators.get()).isBetween(1, threads);
+		int queries = cache.getCacheStats().getHits() + cache.getCacheStats().getMisses();
+		assertThat(queries).isEqualTo(threads * queriesPerThread);
+		// at most GRID_SIZE^4 node pairs times 3 time bins, computed at most once per thread
+		assertThat(cache.getCacheStats().getMisses()).isLessThanOrEqualTo(threads * 3 * GRID_SIZE * GRID_SIZE * GRID_SIZE
+				* GRID_SIZE);
+	}
+
+	private static void assertSamePath(Path actual, Path expected) {
+		assertThat(actual.nodes).containsExactlyElementsOf(expected.nodes);
+		assertThat(actual.links).containsExactlyElementsOf(expected.links);
+		assertThat(actual.travelTime).isEqualTo(expected.travelTime);
+		assertThat(actual.travelCost).isEqualTo(expected.travelCost);
+	}
+
+	private LeastCostPathCalculator countingCalculator(AtomicInteger calls) {
+		LeastCostPathCalculator delegate = createCalculator();
+		return (fromNode, toNode, starttime, person, vehicle) -> {
+			calls.incrementAndGet();
+			return delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		};
+	}
+
+	private LeastCostPathCalculator createCalculator() {
+		FreeSpeedTravelTime travelTime = new FreeSpeedTravelTime();
+		return new DijkstraFactory().createPathCalculator(network, new OnlyTimeDependentTravelDisutility(travelTime),
+				travelTime);
+	}
+
+	private Node getNode(int x, int y) {
+		return network.getNodes().get(Id.createNodeId(x + "_" + y));
+	}
+
+	// bidirectional grid, with the links of each row faster than the ones of the previous row
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				Node node = network.getNodes().get(Id.createNodeId(x + "_" + y));
+				if (x + 1 < GRID_SIZE) {
+					Node next = network.getNodes().get(Id.createNodeId((x + 1) + "_" + y));
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(node.getId() + "-" + next.getId()), node, next,
+							100, 10 + y, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(next.getId() + "-" + node.getId()), next, node,
+							100, 10 + y, 1000, 1);
+				}
+				if (y + 1 < GRID_SIZE) {
+					Node next = network.getNodes().get(Id.createNodeId(x + "_" + (y + 1)));
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(node.getId() + "-" + next.getId()), node, next,
+							100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(next.getId() + "-" + node.getId()), next, node,
+							100, 10, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+}
@@ -21,6 +21,8 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.log4j.Logger;
@@ -66,12 +68,19 @@ import org.matsim.vehicles.Vehicle;
  */
 public class ColdEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(ColdEmissionAnalysisModule.class);
+	private static final ColdPollutant[] COLD_POLLUTANTS = ColdPollutant.values();
 	
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgHbefaColdTable;
-	private final Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedHbefaColdTable;
+	private final HbefaColdEmissionFactorTable hbefaColdTable;
+	private final boolean detailedTableAvailable;
+
+	// vehicle information parsed from the vehicle type descriptions
+	private final Map<String, HbefaVehicle> hbefaVehicles = new HashMap<>();
 	
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
+
+	// reused by calculateColdEmissionsAndThrowEvent
+	private final double[] coldEmissionsOfEvent = new double[COLD_POLLUTANTS.length];
 	private final EmissionsConfigGroup ecg;
 	
 	private int vehInfoWarnHDVCnt = 0;
@@ -97,13 +106,29 @@ public class ColdEmissionAnalysisModule {
 			ColdEmissionAnalysisModuleParameter parameterObject,
 			EventsManager emissionEventsManager, Double emissionEfficiencyFactor) {
 
-		this.avgHbefaColdTable = parameterObject.avgHbefaColdTable;
-		this.detailedHbefaColdTable = parameterObject.detailedHbefaColdTable;
+		this.hbefaColdTable = new HbefaColdEmissionFactorTable(parameterObject.avgHbefaColdTable, parameterObject.detailedHbefaColdTable);
+		this.detailedTableAvailable = parameterObject.detailedHbefaColdTable != null;
 		this.ecg = parameterObject.ecg;
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 	}
 
+	private class HbefaVehicle {
+		private final HbefaVehicleCategory category;
+		private final HbefaVehicleAttributes attributes;
+		private final int tableIndex;
+
+		private HbefaVehicle(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.category = vehicleInformationTuple.getFirst();
+			this.attributes = vehicleInformationTuple.getSecond();
+			// HBEFA 3.1 does not provide cold start emission factors for HGV; without the detailed table, the average values are used
+			HbefaVehicleCategory tableCategory = category.equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE) ?
+					HbefaVehicleCategory.PASSENGER_CAR : category;
+			this.tableIndex = hbefaColdTable.getVehicleIndex(tableCategory,
+					detailedTableAvailable ? attributes : new HbefaVehicleAttributes());
+		}
+	}
+
 	public void reset() {
 		logger.info("resetting counters...");
 		vehInfoWarnHDVCnt = 0;
@@ -117,6 +142,28 @@ public class ColdEmissionAnalysisModule {
 			double parkingDuration,
 			int distance_km) {
 
+		checkVehicleInfoAndCalculateColdEmissions(vehicle, parkingDuration, distance_km, coldEmissionsOfEvent);
+
+		// only the map of the event is created
+		Map<ColdPollutant, Double> coldEmissions = new EnumMap<>(ColdPollutant.class);
+		for (ColdPollutant coldPollutant : COLD_POLLUTANTS) {
+			coldEmissions.put(coldPollutant, coldEmissionsOfEvent[coldPollutant.ordinal()]);
+		}
+		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicle.getId(), coldEmissions);
+		this.eventsManager.processEvent(coldEmissionEvent);
+	}
+
+	/**
+	 * Calculates the cold emissions as {@link #calculateColdEmissionsAndThrowEvent(Id, Vehicle, double, double, int)},
+	 * but writes them into <code>coldEmissions</code> (indexed by {@link ColdPollutant#ordinal()}) and does not throw
+	 * an event. Apart from the first event of each vehicle type, nothing is allocated.
+	 */
+	public void checkVehicleInfoAndCalculateColdEmissions(
+			Vehicle vehicle,
+			double parkingDuration,
+			int distance_km,
+			double[] coldEmissions) {
+
 		if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
 			if(vehicle.getType().getDescription()==null) { // emission specification is in vehicle type id
 				vehicle.getType().setDescription(EmissionSpecificationMarker.BEGIN_EMISSIONS
@@ -132,48 +179,36 @@ public class ColdEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Map<ColdPollutant, Double> coldEmissions = new HashMap<>();
 		if(vehicle.getType().getDescription() == null){
 			throw new RuntimeException("Vehicle type description for vehicle " + vehicle + "is missing. " +
 					"Please make sure that requirements for emission vehicles in "
 					+ EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
 		}
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+
+		HbefaVehicle hbefaVehicle = this.hbefaVehicles.get(vehicleDescription);
+		if (hbefaVehicle == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleDescription2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			hbefaVehicle = new HbefaVehicle(vehicleInformationTuple);
+			this.hbefaVehicles.put(vehicleDescription, hbefaVehicle);
 		}
 
-		coldEmissions = getColdPollutantDoubleMap(vehicle.getId(), parkingDuration, vehicleInformationTuple, distance_km);
+		calculateColdEmissions(vehicle.getId(), parkingDuration, hbefaVehicle, distance_km, coldEmissions);
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			coldEmissions = rescaleColdEmissions(coldEmissions);
-		}
-		Event coldEmissionEvent = new ColdEmissionEvent(eventTime, coldEmissionEventLinkId, vehicle.getId(), coldEmissions);
-		this.eventsManager.processEvent(coldEmissionEvent);
-	}
-
-	private Map<ColdPollutant, Double> rescaleColdEmissions(Map<ColdPollutant, Double> coldEmissions) {
-		Map<ColdPollutant, Double> rescaledColdEmissions = new HashMap<>();
-		
-		for(ColdPollutant wp : coldEmissions.keySet()){
-			Double orgValue = coldEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledColdEmissions.put(wp, rescaledValue);
+			for (int i = 0; i < coldEmissions.length; i++) {
+				coldEmissions[i] *= emissionEfficiencyFactor;
+			}
 		}
-		return rescaledColdEmissions;
 	}
 
-    private Map<ColdPollutant, Double> getColdPollutantDoubleMap(Id<Vehicle> vehicleId, double parkingDuration, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km) {
-        final Map<ColdPollutant, Double> coldEmissionsOfEvent = new HashMap<>();
-
-        HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
-
-        if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+    private void calculateColdEmissions(Id<Vehicle> vehicleId, double parkingDuration, HbefaVehicle hbefaVehicle, int distance_km, double[] coldEmissionsOfEvent) {
+        if(hbefaVehicle.category.equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
             if(vehInfoWarnHDVCnt < maxWarnCnt) {
                 vehInfoWarnHDVCnt++;
                 logger.warn("HBEFA 3.1 does not provide cold start emission factors for " +
@@ -181,12 +216,10 @@ public class ColdEmissionAnalysisModule {
                         ". Setting vehicle category to " + HbefaVehicleCategory.PASSENGER_CAR + "...");
                 if(vehInfoWarnHDVCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
             }
-        } else if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
-			for (ColdPollutant cp : ColdPollutant.values()){
-				coldEmissionsOfEvent.put( cp, 0.0 );
-			}
-			return coldEmissionsOfEvent;
-		} else if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.MOTORCYCLE)) {
+        } else if(hbefaVehicle.category.equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+			Arrays.fill(coldEmissionsOfEvent, 0.0);
+			return;
+		} else if (hbefaVehicle.category.equals(HbefaVehicleCategory.MOTORCYCLE)) {
 			if(vehInfoWarnMotorCylceCnt == 0) {
 				vehInfoWarnMotorCylceCnt++;
 				logger.warn("HBEFA 3.1 does not provide cold start emission factors for " +
@@ -194,58 +227,47 @@ public class ColdEmissionAnalysisModule {
 						". Setting cold emissions to zero.");
 				logger.warn(Gbl.ONLYONCE + "\t" + Gbl.FUTURE_SUPPRESSED);
 			}
-			for (ColdPollutant cp : ColdPollutant.values()){
-				coldEmissionsOfEvent.put( cp, 0.0 );
-			}
-			return coldEmissionsOfEvent;
-		} else {
-            key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-        }
+			Arrays.fill(coldEmissionsOfEvent, 0.0);
+			return;
+		}
 
         int parkingDuration_h = Math.max(1, (int) (parkingDuration / 3600));
         if (parkingDuration_h >= 12) parkingDuration_h = 13;
 
-        key.setHbefaParkingTime(parkingDuration_h);
-
-        for (ColdPollutant coldPollutant : ColdPollutant.values()) {
+        for (ColdPollutant coldPollutant : COLD_POLLUTANTS) {
             double generatedEmissions;
             if (distance_km == 1) {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, hbefaVehicle, parkingDuration_h, 1, coldPollutant);
             } else {
-               generatedEmissions = getTableEmissions(vehicleId, vehicleInformationTuple, 2, key, coldPollutant) - getTableEmissions(vehicleId, vehicleInformationTuple, 1, key, coldPollutant);
+               generatedEmissions = getTableEmissions(vehicleId, hbefaVehicle, parkingDuration_h, 2, coldPollutant) - getTableEmissions(vehicleId, hbefaVehicle, parkingDuration_h, 1, coldPollutant);
             }
-            coldEmissionsOfEvent.put(coldPollutant, generatedEmissions);
+            coldEmissionsOfEvent[coldPollutant.ordinal()] = generatedEmissions;
         }
-        return coldEmissionsOfEvent;
     }
 
-    private double getTableEmissions(Id<Vehicle> vehicleId, Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple, int distance_km, HbefaColdEmissionFactorKey key, ColdPollutant coldPollutant) {
-        key.setHbefaDistance(distance_km);
+    private double getTableEmissions(Id<Vehicle> vehicleId, HbefaVehicle hbefaVehicle, int parkingDuration_h, int distance_km, ColdPollutant coldPollutant) {
         double generatedEmissions;
 
-        key.setHbefaComponent(coldPollutant);
-
-        if(this.detailedHbefaColdTable != null){ // check if detailed emission factors file is set in config
-            HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-            hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-            hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-            hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-            key.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-
-            if(this.detailedHbefaColdTable.containsKey(key)){
-                generatedEmissions = this.detailedHbefaColdTable.get(key).getColdEmissionFactor();
-            } else {
-                generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
+        if(this.detailedTableAvailable){ // check if detailed emission factors file is set in config
+            generatedEmissions = this.hbefaColdTable.getColdEmissionFactor(true, hbefaVehicle.tableIndex, parkingDuration_h, distance_km, coldPollutant);
+            if(Double.isNaN(generatedEmissions)){
+                generatedEmissions = this.hbefaColdTable.getColdEmissionFactor(false, hbefaVehicle.tableIndex, parkingDuration_h, distance_km, coldPollutant);
 
                 if(vehAttributesNotSpecifiedCnt < maxWarnCnt) {
                     vehAttributesNotSpecifiedCnt++;
                     logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " +
-                            "`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+                            "`" + hbefaVehicle.attributes + "'. Using fleet average values instead.");
                     if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
                 }
             }
         } else {
-            generatedEmissions = this.avgHbefaColdTable.get(key).getColdEmissionFactor();
+            generatedEmissions = this.hbefaColdTable.getColdEmissionFactor(false, hbefaVehicle.tableIndex, parkingDuration_h, distance_km, coldPollutant);
+        }
+
+        if(Double.isNaN(generatedEmissions)){
+            throw new RuntimeException("No cold emission factor for " + hbefaVehicle.category + ", parking time " + parkingDuration_h
+                    + " h, distance " + distance_km + " km and " + coldPollutant + " in the average table (vehicle attributes: "
+                    + hbefaVehicle.attributes + "). Aborting...");
         }
         return generatedEmissions;
     }
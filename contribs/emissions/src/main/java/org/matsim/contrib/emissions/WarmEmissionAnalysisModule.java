@@ -21,6 +21,8 @@
  * *********************************************************************** */
 package org.matsim.contrib.emissions;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.log4j.Logger;
@@ -33,6 +35,7 @@ import org.matsim.contrib.emissions.types.HbefaVehicleAttributes;
 import org.matsim.contrib.emissions.types.HbefaVehicleCategory;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactor;
 import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorKey;
+import org.matsim.contrib.emissions.types.HbefaWarmEmissionFactorTable;
 import org.matsim.contrib.emissions.types.WarmPollutant;
 import org.matsim.contrib.emissions.utils.EmissionSpecificationMarker;
 import org.matsim.contrib.emissions.utils.EmissionsConfigGroup;
@@ -48,16 +51,23 @@ import org.matsim.vehicles.Vehicle;
  */
 public class WarmEmissionAnalysisModule {
 	private static final Logger logger = Logger.getLogger(WarmEmissionAnalysisModule.class);
+	private static final WarmPollutant[] WARM_POLLUTANTS = WarmPollutant.values();
 
 //	private final HbefaRoadTypeMapping roadTypeMapping;
 
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgHbefaWarmTable;
-	private final Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedHbefaWarmTable;
+	private final HbefaWarmEmissionFactorTable hbefaWarmTable;
+	private final boolean detailedTableAvailable;
+
+	// vehicle information parsed from the vehicle type descriptions
+	private final Map<String, HbefaVehicle> hbefaVehicles = new HashMap<>();
 
 	private final EventsManager eventsManager;
 	private final Double emissionEfficiencyFactor;
 	private final EmissionsConfigGroup ecg;
 
+	// reused by the map-based calculation
+	private final double[] warmEmissionsOfEvent = new double[WARM_POLLUTANTS.length];
+
 	private int vehAttributesNotSpecifiedCnt = 0;
 
     // The following was tested to slow down significantly, therefore counters were commented out:
@@ -114,13 +124,27 @@ public class WarmEmissionAnalysisModule {
 			System.exit(0);
 		}
 //		this.roadTypeMapping = parameterObject.roadTypeMapping;
-		this.avgHbefaWarmTable = parameterObject.avgHbefaWarmTable;
-		this.detailedHbefaWarmTable = parameterObject.detailedHbefaWarmTable;
+		this.hbefaWarmTable = new HbefaWarmEmissionFactorTable(parameterObject.avgHbefaWarmTable, parameterObject.detailedHbefaWarmTable);
+		this.detailedTableAvailable = parameterObject.detailedHbefaWarmTable != null;
 		this.eventsManager = emissionEventsManager;
 		this.emissionEfficiencyFactor = emissionEfficiencyFactor;
 		this.ecg = parameterObject.ecg;
 	}
 
+	private class HbefaVehicle {
+		private final HbefaVehicleCategory category;
+		private final HbefaVehicleAttributes attributes;
+		private final int tableIndex;
+
+		private HbefaVehicle(Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			this.category = vehicleInformationTuple.getFirst();
+			this.attributes = vehicleInformationTuple.getSecond();
+			// without the detailed table, the average values are used
+			this.tableIndex = hbefaWarmTable.getVehicleIndex(category,
+					detailedTableAvailable ? attributes : new HbefaVehicleAttributes());
+		}
+	}
+
 	public void reset() {
 		logger.info("resetting counters...");
 		vehAttributesNotSpecifiedCnt = 0;
@@ -140,12 +164,44 @@ public class WarmEmissionAnalysisModule {
 		this.eventsManager.processEvent(warmEmissionEvent);
 	}
 
+	/**
+	 * @param warmEmissions indexed by {@link WarmPollutant#ordinal()}
+	 */
+	public void throwWarmEmissionEvent(double leaveTime, Id<Link> linkId, Id<Vehicle> vehicleId, double[] warmEmissions){
+		throwWarmEmissionEvent(leaveTime, linkId, vehicleId, toMap(warmEmissions));
+	}
+
 	public Map<WarmPollutant, Double> checkVehicleInfoAndCalculateWarmEmissions(
 			Vehicle vehicle,
 			String roadType,
 			double freeVelocity,
 			double linkLength,
 			double travelTime) {
+		checkVehicleInfoAndCalculateWarmEmissions(vehicle, roadType, freeVelocity, linkLength, travelTime, warmEmissionsOfEvent);
+		return toMap(warmEmissionsOfEvent);
+	}
+
+	private static Map<WarmPollutant, Double> toMap(double[] warmEmissionsArray) {
+		Map<WarmPollutant, Double> warmEmissions = new EnumMap<>(WarmPollutant.class);
+		for (WarmPollutant warmPollutant : WARM_POLLUTANTS) {
+			warmEmissions.put(warmPollutant, warmEmissionsArray[warmPollutant.ordinal()]);
+		}
+		return warmEmissions;
+	}
+
+	/**
+	 * Same as {@link #checkVehicleInfoAndCalculateWarmEmissions(Vehicle, String, double, double, double)}, but writes
+	 * the emissions into <code>warmEmissions</code> (indexed by {@link WarmPollutant#ordinal()}) instead of creating a
+	 * map. Apart from the first event of each vehicle type, nothing is allocated. Together with
+	 * {@link #throwWarmEmissionEvent(double, Id, Id, double[])}, only the map of the event itself is created.
+	 */
+	public void checkVehicleInfoAndCalculateWarmEmissions(
+			Vehicle vehicle,
+			String roadType,
+			double freeVelocity,
+			double linkLength,
+			double travelTime,
+			double[] warmEmissions) {
 
 		if(this.ecg.isUsingVehicleTypeIdAsVehicleDescription() ) {
 			if(vehicle.getType().getDescription()==null) { // emission specification is in vehicle type id
@@ -160,7 +216,6 @@ public class WarmEmissionAnalysisModule {
 			}
 		}
 
-		Map<WarmPollutant, Double> warmEmissions = new HashMap<>();
 		if(vehicle == null ||
 				(vehicle.getType() == null && vehicle.getType().getDescription() == null) // if both are null together; no vehicle type information.
 				) {
@@ -171,79 +226,46 @@ public class WarmEmissionAnalysisModule {
 
 		String vehicleDescription = vehicle.getType().getDescription();
 
-		Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
-		if (vehicleInformationTuple.getFirst() == null){
-			throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
-					"Please make sure that requirements for emission vehicles in " + 
-					EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+		HbefaVehicle hbefaVehicle = this.hbefaVehicles.get(vehicleDescription);
+		if (hbefaVehicle == null) {
+			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple = convertVehicleTypeId2VehicleInformationTuple(vehicleDescription);
+			if (vehicleInformationTuple.getFirst() == null){
+				throw new RuntimeException("Vehicle category for vehicle " + vehicle + " is not valid. " +
+						"Please make sure that requirements for emission vehicles in " + 
+						EmissionsConfigGroup.GROUP_NAME + " config group are met. Aborting...");
+			}
+			hbefaVehicle = new HbefaVehicle(vehicleInformationTuple);
+			this.hbefaVehicles.put(vehicleDescription, hbefaVehicle);
 		}
 
-		warmEmissions = calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, vehicleInformationTuple);
+		calculateWarmEmissions(vehicle.getId(), travelTime, roadType, freeVelocity, linkLength, hbefaVehicle, warmEmissions);
 
 		// a basic apporach to introduce emission reduced cars:
 		if(emissionEfficiencyFactor != null){
-			warmEmissions = rescaleWarmEmissions(warmEmissions);
-		}
-		return warmEmissions;
-	}
-	
-	private Map<WarmPollutant, Double> rescaleWarmEmissions(Map<WarmPollutant, Double> warmEmissions) {
-		Map<WarmPollutant, Double> rescaledWarmEmissions = new HashMap<>();
-		
-		for(WarmPollutant wp : warmEmissions.keySet()){
-			Double orgValue = warmEmissions.get(wp);
-			Double rescaledValue = emissionEfficiencyFactor * orgValue;
-			rescaledWarmEmissions.put(wp, rescaledValue);
+			for (int i = 0; i < warmEmissions.length; i++) {
+				warmEmissions[i] *= emissionEfficiencyFactor;
+			}
 		}
-		return rescaledWarmEmissions;
 	}
 
-	private Map<WarmPollutant, Double> calculateWarmEmissions(
+	private void calculateWarmEmissions(
 			Id<Vehicle> vehicleId,
 			double travelTime,
 			String roadType,
 			double freeVelocity,
 			double linkLength,
-			Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> vehicleInformationTuple) {
+			HbefaVehicle hbefaVehicle,
+			double[] warmEmissionsOfEvent) {
 
-		Map<WarmPollutant, Double> warmEmissionsOfEvent = new HashMap<>();
+		if(hbefaVehicle.category.equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
+			Arrays.fill(warmEmissionsOfEvent, 0.0);
+			return;
+		}
 
 //		String hbefaRoadTypeName = this.roadTypeMapping.get(roadType, freeVelocity);
-		String hbefaRoadTypeName = roadType;
-
-		HbefaWarmEmissionFactorKey keyFreeFlow = new HbefaWarmEmissionFactorKey();
-		HbefaWarmEmissionFactorKey keyStopAndGo = new HbefaWarmEmissionFactorKey();
-
-		if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE)){
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE);
-		} else if (vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.MOTORCYCLE)) {
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.MOTORCYCLE);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.MOTORCYCLE);
-		} else if(vehicleInformationTuple.getFirst().equals(HbefaVehicleCategory.ZERO_EMISSION_VEHICLE)) {
-			for (WarmPollutant warmPollutant : WarmPollutant.values()) {
-				warmEmissionsOfEvent.put( warmPollutant, 0.0 );
-			}
-			return warmEmissionsOfEvent;
-		} else {
-			keyFreeFlow.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-			keyStopAndGo.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
-		}
+		int roadCategory = this.hbefaWarmTable.getRoadCategoryIndex(roadType);
+		int vehicle = hbefaVehicle.tableIndex;
 
-		keyFreeFlow.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyStopAndGo.setHbefaRoadCategory(hbefaRoadTypeName);
-		keyFreeFlow.setHbefaTrafficSituation(HbefaTrafficSituation.FREEFLOW);
-		keyStopAndGo.setHbefaTrafficSituation(HbefaTrafficSituation.STOPANDGO);
-
-		if(this.detailedHbefaWarmTable != null){ // check if detailed emission factors file is set in config
-			HbefaVehicleAttributes hbefaVehicleAttributes = new HbefaVehicleAttributes();
-			hbefaVehicleAttributes.setHbefaTechnology(vehicleInformationTuple.getSecond().getHbefaTechnology());
-			hbefaVehicleAttributes.setHbefaSizeClass(vehicleInformationTuple.getSecond().getHbefaSizeClass());
-			hbefaVehicleAttributes.setHbefaEmConcept(vehicleInformationTuple.getSecond().getHbefaEmConcept());
-			keyFreeFlow.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-			keyStopAndGo.setHbefaVehicleAttributes(hbefaVehicleAttributes);
-		}
-		
 		double linkLength_km = linkLength / 1000;
 		double travelTime_h = travelTime / 3600;
 		double freeFlowSpeed_kmh = freeVelocity * 3.6;
@@ -254,40 +276,32 @@ public class WarmEmissionAnalysisModule {
 		double efFreeFlow_gpkm;
 		double efStopGo_gpkm;
 
-		for (WarmPollutant warmPollutant : WarmPollutant.values()) {
+		for (WarmPollutant warmPollutant : WARM_POLLUTANTS) {
 			double generatedEmissions;
 
-			keyFreeFlow.setHbefaComponent(warmPollutant);
-			keyStopAndGo.setHbefaComponent(warmPollutant);
-			
-			if(this.detailedHbefaWarmTable != null){
-				if(this.detailedHbefaWarmTable.get(keyFreeFlow) != null && this.detailedHbefaWarmTable.get(keyStopAndGo) != null){
-					stopGoSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.detailedHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.detailedHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.detailedHbefaWarmTable.get(keyFreeFlow).getSpeed();
-
-				} else {
+			boolean detailed = false;
+			if(this.detailedTableAvailable){ // check if detailed emission factors file is set in config
+				detailed = !Double.isNaN(this.hbefaWarmTable.getWarmEmissionFactor(true, vehicle, roadCategory, HbefaTrafficSituation.FREEFLOW, warmPollutant))
+						&& !Double.isNaN(this.hbefaWarmTable.getWarmEmissionFactor(true, vehicle, roadCategory, HbefaTrafficSituation.STOPANDGO, warmPollutant));
+				if(!detailed){
 					vehAttributesNotSpecifiedCnt++;
-					stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-					efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-					efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-					freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
-
                     int maxWarnCnt = 3;
                     if(vehAttributesNotSpecifiedCnt <= maxWarnCnt) {
 						logger.warn("Detailed vehicle attributes are not specified correctly for vehicle " + vehicleId + ": " + 
-								"`" + vehicleInformationTuple.getSecond() + "'. Using fleet average values instead.");
+								"`" + hbefaVehicle.attributes + "'. Using fleet average values instead.");
 						if(vehAttributesNotSpecifiedCnt == maxWarnCnt) logger.warn(Gbl.FUTURE_SUPPRESSED);
 					}
 //					vehAttributesNotSpecified.add(personId);
 				}
-			} else {
-				stopGoSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyStopAndGo).getSpeed();
-				efFreeFlow_gpkm = this.avgHbefaWarmTable.get(keyFreeFlow).getWarmEmissionFactor();
-				efStopGo_gpkm = this.avgHbefaWarmTable.get(keyStopAndGo).getWarmEmissionFactor();
-				freeFlowSpeedFromTable_kmh = this.avgHbefaWarmTable.get(keyFreeFlow).getSpeed();
-//				vehAttributesNotSpecified.add(personId);
+			}
+			stopGoSpeedFromTable_kmh = this.hbefaWarmTable.getSpeed(detailed, vehicle, roadCategory, HbefaTrafficSituation.STOPANDGO, warmPollutant);
+			efFreeFlow_gpkm = this.hbefaWarmTable.getWarmEmissionFactor(detailed, vehicle, roadCategory, HbefaTrafficSituation.FREEFLOW, warmPollutant);
+			efStopGo_gpkm = this.hbefaWarmTable.getWarmEmissionFactor(detailed, vehicle, roadCategory, HbefaTrafficSituation.STOPANDGO, warmPollutant);
+			freeFlowSpeedFromTable_kmh = this.hbefaWarmTable.getSpeed(detailed, vehicle, roadCategory, HbefaTrafficSituation.FREEFLOW, warmPollutant);
+
+			if(Double.isNaN(efFreeFlow_gpkm) || Double.isNaN(efStopGo_gpkm)){
+				throw new RuntimeException("No warm emission factors for " + hbefaVehicle.category + ", road category " + roadType
+						+ " and " + warmPollutant + " in the average table (vehicle attributes: " + hbefaVehicle.attributes + "). Aborting...");
 			}
 			
 			if(averageSpeed_kmh <= 0.0){
@@ -322,11 +336,10 @@ public class WarmEmissionAnalysisModule {
 				freeFlowKmCounter = freeFlowKmCounter + distanceFreeFlow_km;
 			}
 			kmCounter = kmCounter + linkLength_km;
-			warmEmissionsOfEvent.put(warmPollutant, generatedEmissions);
+			warmEmissionsOfEvent[warmPollutant.ordinal()] = generatedEmissions;
 		}
 		emissionEventCounter++;
 //		vehicleIdSet.add(personId);
-		return warmEmissionsOfEvent;
 	}
 
 	private Tuple<HbefaVehicleCategory, HbefaVehicleAttributes> convertVehicleTypeId2VehicleInformationTuple(String vehicleDescription) {
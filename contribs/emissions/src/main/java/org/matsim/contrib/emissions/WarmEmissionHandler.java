@@ -55,6 +55,9 @@ public class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEven
 	private final Vehicles emissionVehicles;
 	private final WarmEmissionAnalysisModule warmEmissionAnalysisModule;
 
+	// reused for every link leave event, indexed by WarmPollutant.ordinal()
+	private final double[] warmEmissions = new double[WarmPollutant.values().length];
+
 	private int linkLeaveCnt = 0;
 	private int linkLeaveFirstActWarnCnt = 0;
 	private int linkLeaveSomeActWarnCnt = 0;
@@ -197,12 +200,13 @@ public class WarmEmissionHandler implements LinkEnterEventHandler, LinkLeaveEven
 			}
 			Vehicle vehicle = this.emissionVehicles.getVehicles().get(vehicleId);
 
-			Map<WarmPollutant, Double> warmEmissions = warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(
+			warmEmissionAnalysisModule.checkVehicleInfoAndCalculateWarmEmissions(
 					vehicle,
 					roadTypeString,
 					freeVelocity,
 					linkLength,
-					travelTime);
+					travelTime,
+					warmEmissions);
 
 			warmEmissionAnalysisModule.throwWarmEmissionEvent(leaveTime, linkId, vehicleId, warmEmissions);
 		}
@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaColdEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The average and the detailed HBEFA cold emission factor tables, compiled into arrays. The vehicles (vehicle category
+ * and vehicle attributes) of the tables are numbered when the table is created; for each vehicle, the factors are
+ * stored in a <code>double[]</code> indexed by parking time, distance and pollutant (enum ordinal). See
+ * {@link HbefaWarmEmissionFactorTable}.
+ * <p>
+ * Missing entries are returned as <code>NaN</code>.
+ */
+public final class HbefaColdEmissionFactorTable {
+	private static final int POLLUTANT_COUNT = ColdPollutant.values().length;
+
+	private final Map<HbefaVehicleAttributes, Integer>[] vehicleIndices;// per vehicle category
+	private final int parkingTimeCount;
+	private final int distanceCount;
+	private final double[][] avgFactors;
+	private final double[][] detailedFactors;
+
+	@SuppressWarnings("unchecked")
+	public HbefaColdEmissionFactorTable(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgTable,
+			Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedTable) {
+		vehicleIndices = new Map[HbefaVehicleCategory.values().length];
+		for (int i = 0; i < vehicleIndices.length; i++) {
+			vehicleIndices[i] = new HashMap<>();
+		}
+
+		int vehicleCount = 0;
+		int maxParkingTime = 0;
+		int maxDistance = 0;
+		for (Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table : new Map[] { avgTable, detailedTable }) {
+			if (table == null) {
+				continue;
+			}
+			for (HbefaColdEmissionFactorKey key : table.keySet()) {
+				Map<HbefaVehicleAttributes, Integer> indices = vehicleIndices[key.getHbefaVehicleCategory().ordinal()];
+				if (!indices.containsKey(key.getHbefaVehicleAttributes())) {
+					indices.put(key.getHbefaVehicleAttributes(), vehicleCount++);
+				}
+				maxParkingTime = Math.max(maxParkingTime, key.getHbefaParkingTime());
+				maxDistance = Math.max(maxDistance, key.getHbefaDistance());
+			}
+		}
+		parkingTimeCount = maxParkingTime + 1;
+		distanceCount = maxDistance + 1;
+
+		avgFactors = new double[vehicleCount][];
+		fill(avgTable, avgFactors);
+
+		detailedFactors = new double[vehicleCount][];
+		fill(detailedTable, detailedFactors);
+	}
+
+	private void fill(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table, double[][] factors) {
+		if (table == null) {
+			return;
+		}
+
+		int rowLength = parkingTimeCount * distanceCount * POLLUTANT_COUNT;
+		for (Entry<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> e : table.entrySet()) {
+			HbefaColdEmissionFactorKey key = e.getKey();
+			if (key.getHbefaParkingTime() < 0 || key.getHbefaDistance() < 0) {
+				continue;// cannot be looked up
+			}
+			int vehicle = getVehicleIndex(key.getHbefaVehicleCategory(), key.getHbefaVehicleAttributes());
+			if (factors[vehicle] == null) {
+				factors[vehicle] = new double[rowLength];
+				Arrays.fill(factors[vehicle], Double.NaN);
+			}
+			factors[vehicle][index(key.getHbefaParkingTime(), key.getHbefaDistance(), key.getHbefaComponent())] = e
+					.getValue().getColdEmissionFactor();
+		}
+	}
+
+	private int index(int parkingTime, int distance, ColdPollutant pollutant) {
+		return (parkingTime * distanceCount + distance) * POLLUTANT_COUNT + pollutant.ordinal();
+	}
+
+	/**
+	 * @return index of the vehicle in this table, or -1 if neither of the tables contains it
+	 */
+	public int getVehicleIndex(HbefaVehicleCategory vehicleCategory, HbefaVehicleAttributes vehicleAttributes) {
+		Integer index = vehicleIndices[vehicleCategory.ordinal()].get(vehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the emission factor (in g) of the average (<code>detailed == false</code>) or detailed table, or
+	 *         <code>NaN</code> if missing
+	 */
+	public double getColdEmissionFactor(boolean detailed, int vehicle, int parkingTime, int distance,
+			ColdPollutant pollutant) {
+		double[][] rows = detailed ? detailedFactors : avgFactors;
+		if (vehicle < 0 || rows[vehicle] == null || parkingTime < 0 || parkingTime >= parkingTimeCount
+				|| distance < 0 || distance >= distanceCount) {
+			return Double.NaN;
+		}
+		return rows[vehicle][index(parkingTime, distance, pollutant)];
+	}
+}
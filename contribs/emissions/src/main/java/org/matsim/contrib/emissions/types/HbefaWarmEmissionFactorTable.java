@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HbefaWarmEmissionFactorTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.emissions.types;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The average and the detailed HBEFA warm emission factor tables, compiled into arrays. The vehicles (vehicle category
+ * and vehicle attributes) and the road categories of the tables are numbered when the table is created; for each
+ * vehicle, the factors and speeds are stored in a <code>double[]</code> indexed by road category, traffic situation
+ * and pollutant (enum ordinals). Once the indices of a vehicle and a road category are known, looking up a factor
+ * does neither create a key object nor compute a hash code.
+ * <p>
+ * Missing entries are returned as <code>NaN</code>.
+ */
+public final class HbefaWarmEmissionFactorTable {
+	private static final int SITUATION_COUNT = HbefaTrafficSituation.values().length;
+	private static final int POLLUTANT_COUNT = WarmPollutant.values().length;
+
+	private final Map<HbefaVehicleAttributes, Integer>[] vehicleIndices;// per vehicle category
+	private final Map<String, Integer> roadCategoryIndices = new HashMap<>();
+	private final double[][] avgFactors;
+	private final double[][] avgSpeeds;
+	private final double[][] detailedFactors;
+	private final double[][] detailedSpeeds;
+
+	@SuppressWarnings("unchecked")
+	public HbefaWarmEmissionFactorTable(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgTable,
+			Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedTable) {
+		vehicleIndices = new Map[HbefaVehicleCategory.values().length];
+		for (int i = 0; i < vehicleIndices.length; i++) {
+			vehicleIndices[i] = new HashMap<>();
+		}
+
+		int vehicleCount = 0;
+		for (Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table : new Map[] { avgTable, detailedTable }) {
+			if (table == null) {
+				continue;
+			}
+			for (HbefaWarmEmissionFactorKey key : table.keySet()) {
+				Map<HbefaVehicleAttributes, Integer> indices = vehicleIndices[key.getHbefaVehicleCategory().ordinal()];
+				if (!indices.containsKey(key.getHbefaVehicleAttributes())) {
+					indices.put(key.getHbefaVehicleAttributes(), vehicleCount++);
+				}
+				if (!roadCategoryIndices.containsKey(key.getHbefaRoadCategory())) {
+					roadCategoryIndices.put(key.getHbefaRoadCategory(), roadCategoryIndices.size());
+				}
+			}
+		}
+
+		avgFactors = new double[vehicleCount][];
+		avgSpeeds = new double[vehicleCount][];
+		fill(avgTable, avgFactors, avgSpeeds);
+
+		detailedFactors = new double[vehicleCount][];
+		detailedSpeeds = new double[vehicleCount][];
+		fill(detailedTable, detailedFactors, detailedSpeeds);
+	}
+
+	private void fill(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table, double[][] factors,
+			double[][] speeds) {
+		if (table == null) {
+			return;
+		}
+
+		int rowLength = roadCategoryIndices.size() * SITUATION_COUNT * POLLUTANT_COUNT;
+		for (Entry<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> e : table.entrySet()) {
+			HbefaWarmEmissionFactorKey key = e.getKey();
+			int vehicle = getVehicleIndex(key.getHbefaVehicleCategory(), key.getHbefaVehicleAttributes());
+			if (factors[vehicle] == null) {
+				factors[vehicle] = createNaNArray(rowLength);
+				speeds[vehicle] = createNaNArray(rowLength);
+			}
+			int i = index(getRoadCategoryIndex(key.getHbefaRoadCategory()), key.getHbefaTrafficSituation(),
+					key.getHbefaComponent());
+			factors[vehicle][i] = e.getValue().getWarmEmissionFactor();
+			speeds[vehicle][i] = e.getValue().getSpeed();
+		}
+	}
+
+	private static double[] createNaNArray(int length) {
+		double[] array = new double[length];
+		Arrays.fill(array, Double.NaN);
+		return array;
+	}
+
+	private static int index(int roadCategory, HbefaTrafficSituation trafficSituation, WarmPollutant pollutant) {
+		return (roadCategory * SITUATION_COUNT + trafficSituation.ordinal()) * POLLUTANT_COUNT + pollutant.ordinal();
+	}
+
+	/**
+	 * @return index of the vehicle in this table, or -1 if neither of the tables contains it
+	 */
+	public int getVehicleIndex(HbefaVehicleCategory vehicleCategory, HbefaVehicleAttributes vehicleAttributes) {
+		Integer index = vehicleIndices[vehicleCategory.ordinal()].get(vehicleAttributes);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return index of the road category in this table, or -1 if neither of the tables contains it
+	 */
+	public int getRoadCategoryIndex(String roadCategory) {
+		Integer index = roadCategoryIndices.get(roadCategory);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the emission factor (in g/km) of the average (<code>detailed == false</code>) or detailed table, or
+	 *         <code>NaN</code> if missing
+	 */
+	public double getWarmEmissionFactor(boolean detailed, int vehicle, int roadCategory,
+			HbefaTrafficSituation trafficSituation, WarmPollutant pollutant) {
+		return get(detailed ? detailedFactors : avgFactors, vehicle, roadCategory, trafficSituation, pollutant);
+	}
+
+	/**
+	 * @return the speed (in km/h) of the average (<code>detailed == false</code>) or detailed table, or
+	 *         <code>NaN</code> if missing
+	 */
+	public double getSpeed(boolean detailed, int vehicle, int roadCategory, HbefaTrafficSituation trafficSituation,
+			WarmPollutant pollutant) {
+		return get(detailed ? detailedSpeeds : avgSpeeds, vehicle, roadCategory, trafficSituation, pollutant);
+	}
+
+	private static double get(double[][] rows, int vehicle, int roadCategory, HbefaTrafficSituation trafficSituation,
+			WarmPollutant pollutant) {
+		if (vehicle < 0 || roadCategory < 0 || rows[vehicle] == null) {
+			return Double.NaN;
+		}
+		return rows[vehicle][index(roadCategory, trafficSituation, pollutant)];
+	}
+}
@@ -0,0 +1,72 @@
+/* *********************************************************************** *
+ * project: org.matsim.*                                                   *
+ * TestHbefaColdEmissionFactorTable.java                                   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHbefaColdEmissionFactorTable {
+
+	@Test
+	public void testLookup() {
+		HbefaVehicleAttributes average = new HbefaVehicleAttributes();
+		HbefaVehicleAttributes diesel = new HbefaVehicleAttributes();
+		diesel.setHbefaTechnology("diesel");
+
+		Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> avgTable = new HashMap<>();
+		put(avgTable, average, 1, 1, ColdPollutant.CO, 1.);
+		put(avgTable, average, 13, 2, ColdPollutant.CO, 2.);
+		Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> detailedTable = new HashMap<>();
+		put(detailedTable, diesel, 5, 1, ColdPollutant.NOX, 3.);
+
+		HbefaColdEmissionFactorTable table = new HbefaColdEmissionFactorTable(avgTable, detailedTable);
+		int avgPc = table.getVehicleIndex(HbefaVehicleCategory.PASSENGER_CAR, new HbefaVehicleAttributes());
+		int dieselPc = table.getVehicleIndex(HbefaVehicleCategory.PASSENGER_CAR, diesel);
+
+		Assert.assertEquals(1., table.getColdEmissionFactor(false, avgPc, 1, 1, ColdPollutant.CO), 0.);
+		Assert.assertEquals(2., table.getColdEmissionFactor(false, avgPc, 13, 2, ColdPollutant.CO), 0.);
+		Assert.assertEquals(3., table.getColdEmissionFactor(true, dieselPc, 5, 1, ColdPollutant.NOX), 0.);
+
+		// missing entries, unknown vehicles and out of range parking times and distances
+		Assert.assertTrue(Double.isNaN(table.getColdEmissionFactor(false, avgPc, 13, 1, ColdPollutant.CO)));
+		Assert.assertTrue(Double.isNaN(table.getColdEmissionFactor(false, dieselPc, 5, 1, ColdPollutant.NOX)));
+		Assert.assertEquals(-1, table.getVehicleIndex(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, average));
+		Assert.assertTrue(Double.isNaN(table.getColdEmissionFactor(false, -1, 1, 1, ColdPollutant.CO)));
+		Assert.assertTrue(Double.isNaN(table.getColdEmissionFactor(false, avgPc, 14, 1, ColdPollutant.CO)));
+		Assert.assertTrue(Double.isNaN(table.getColdEmissionFactor(false, avgPc, 1, 3, ColdPollutant.CO)));
+	}
+
+	private static void put(Map<HbefaColdEmissionFactorKey, HbefaColdEmissionFactor> table,
+			HbefaVehicleAttributes attributes, int parkingTime, int distance, ColdPollutant pollutant, double factor) {
+		HbefaColdEmissionFactorKey key = new HbefaColdEmissionFactorKey();
+		key.setHbefaVehicleCategory(HbefaVehicleCategory.PASSENGER_CAR);
+		key.setHbefaVehicleAttributes(attributes);
+		key.setHbefaParkingTime(parkingTime);
+		key.setHbefaDistance(distance);
+		key.setHbefaComponent(pollutant);
+		HbefaColdEmissionFactor value = new HbefaColdEmissionFactor();
+		value.setColdEmissionFactor(factor);
+		table.put(key, value);
+	}
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*                                                   *
+ * TestHbefaWarmEmissionFactorTable.java                                   *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.emissions.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHbefaWarmEmissionFactorTable {
+
+	@Test
+	public void testLookup() {
+		HbefaVehicleAttributes average = new HbefaVehicleAttributes();
+		HbefaVehicleAttributes petrol = new HbefaVehicleAttributes();
+		petrol.setHbefaTechnology("petrol");
+
+		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgTable = new HashMap<>();
+		put(avgTable, HbefaVehicleCategory.PASSENGER_CAR, average, "URB", HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX, 1., 50.);
+		put(avgTable, HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, average, "RUR", HbefaTrafficSituation.STOPANDGO, WarmPollutant.PM, 2., 10.);
+		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> detailedTable = new HashMap<>();
+		put(detailedTable, HbefaVehicleCategory.PASSENGER_CAR, petrol, "URB", HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX, 3., 45.);
+
+		HbefaWarmEmissionFactorTable table = new HbefaWarmEmissionFactorTable(avgTable, detailedTable);
+
+		HbefaVehicleAttributes petrolCopy = new HbefaVehicleAttributes();
+		petrolCopy.setHbefaTechnology("petrol");
+		int avgPc = table.getVehicleIndex(HbefaVehicleCategory.PASSENGER_CAR, new HbefaVehicleAttributes());
+		int petrolPc = table.getVehicleIndex(HbefaVehicleCategory.PASSENGER_CAR, petrolCopy);
+		int avgHgv = table.getVehicleIndex(HbefaVehicleCategory.HEAVY_GOODS_VEHICLE, average);
+		int urb = table.getRoadCategoryIndex("URB");
+		int rur = table.getRoadCategoryIndex("RUR");
+
+		Assert.assertEquals(1., table.getWarmEmissionFactor(false, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX), 0.);
+		Assert.assertEquals(50., table.getSpeed(false, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX), 0.);
+		Assert.assertEquals(2., table.getWarmEmissionFactor(false, avgHgv, rur, HbefaTrafficSituation.STOPANDGO, WarmPollutant.PM), 0.);
+		Assert.assertEquals(3., table.getWarmEmissionFactor(true, petrolPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX), 0.);
+		Assert.assertEquals(45., table.getSpeed(true, petrolPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX), 0.);
+
+		// missing entries
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, petrolPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(true, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, avgPc, urb, HbefaTrafficSituation.STOPANDGO, WarmPollutant.NOX)));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, avgPc, rur, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.CO)));
+
+		// unknown vehicles and road categories
+		Assert.assertEquals(-1, table.getVehicleIndex(HbefaVehicleCategory.MOTORCYCLE, average));
+		Assert.assertEquals(-1, table.getRoadCategoryIndex("MW"));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, -1, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(false, avgPc, -1, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+	}
+
+	@Test
+	public void testWithoutDetailedTable() {
+		Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> avgTable = new HashMap<>();
+		put(avgTable, HbefaVehicleCategory.PASSENGER_CAR, new HbefaVehicleAttributes(), "URB", HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX, 1., 50.);
+
+		HbefaWarmEmissionFactorTable table = new HbefaWarmEmissionFactorTable(avgTable, null);
+		int avgPc = table.getVehicleIndex(HbefaVehicleCategory.PASSENGER_CAR, new HbefaVehicleAttributes());
+		int urb = table.getRoadCategoryIndex("URB");
+		Assert.assertEquals(1., table.getWarmEmissionFactor(false, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX), 0.);
+		Assert.assertTrue(Double.isNaN(table.getWarmEmissionFactor(true, avgPc, urb, HbefaTrafficSituation.FREEFLOW, WarmPollutant.NOX)));
+	}
+
+	private static void put(Map<HbefaWarmEmissionFactorKey, HbefaWarmEmissionFactor> table, HbefaVehicleCategory category,
+			HbefaVehicleAttributes attributes, String roadCategory, HbefaTrafficSituation trafficSituation,
+			WarmPollutant pollutant, double factor, double speed) {
+		HbefaWarmEmissionFactorKey key = new HbefaWarmEmissionFactorKey();
+		key.setHbefaVehicleCategory(category);
+		key.setHbefaVehicleAttributes(attributes);
+		key.setHbefaRoadCategory(roadCategory);
+		key.setHbefaTrafficSituation(trafficSituation);
+		key.setHbefaComponent(pollutant);
+		HbefaWarmEmissionFactor value = new HbefaWarmEmissionFactor();
+		value.setWarmEmissionFactor(factor);
+		value.setSpeed(speed);
+		table.put(key, value);
+	}
+}
@@ -19,7 +19,11 @@
 package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.data.Fleet;
@@ -54,23 +58,42 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 	public AssignmentRequestInserter(Fleet fleet, Network network, MobsimTimer timer, TravelTime travelTime,
 			TravelDisutility travelDisutility, TaxiScheduler scheduler, AssignmentTaxiOptimizerParams params) {
 		this(fleet, timer, travelTime, scheduler, params,
-				(MultiNodePathCalculator)new FastMultiNodeDijkstraFactory(true).createPathCalculator(network,
-						travelDisutility, travelTime),
-				(BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(true)
-						.createPathCalculator(network, travelDisutility, travelTime),
+				createRouters(params.numberOfThreads,
+						() -> (MultiNodePathCalculator)new FastMultiNodeDijkstraFactory(true)
+								.createPathCalculator(network, travelDisutility, travelTime)),
+				createRouters(params.numberOfThreads,
+						() -> (BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(true)
+								.createPathCalculator(network, travelDisutility, travelTime)),
 				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime));
 	}
 
+	private static <R> List<R> createRouters(int count, Supplier<R> routerFactory) {
+		return Stream.generate(routerFactory).limit(count).collect(Collectors.toList());
+	}
+
 	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TravelTime travelTime, TaxiScheduler scheduler,
 			AssignmentTaxiOptimizerParams params, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router) {
+		this(fleet, timer, travelTime, scheduler, params, Collections.singletonList(multiNodeRouter),
+				Collections.singletonList(backwardMultiNodeRouter), router);
+	}
+
+	/**
+	 * @param multiNodeRouters
+	 *            one router per thread used for the path searches
+	 * @param backwardMultiNodeRouters
+	 *            one router per thread used for the path searches
+	 */
+	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TravelTime travelTime, TaxiScheduler scheduler,
+			AssignmentTaxiOptimizerParams params, List<? extends MultiNodePathCalculator> multiNodeRouters,
+			List<? extends BackwardMultiNodePathCalculator> backwardMultiNodeRouters, LeastCostPathCalculator router) {
 		this.fleet = fleet;
 		this.scheduler = scheduler;
 		this.timer = timer;
 		this.params = params;
 
-		assignmentProblem = new VehicleAssignmentProblem<>(travelTime, multiNodeRouter, backwardMultiNodeRouter, router,
-				params.nearestRequestsLimit, params.nearestVehiclesLimit);
+		assignmentProblem = new VehicleAssignmentProblem<>(travelTime, multiNodeRouters, backwardMultiNodeRouters,
+				router, params.nearestRequestsLimit, params.nearestVehiclesLimit, params.solver);
 
 		assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
 	}
@@ -22,6 +22,7 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 import org.apache.commons.configuration.Configuration;
 import org.matsim.contrib.taxi.optimizer.DefaultTaxiOptimizerParams;
 import org.matsim.contrib.taxi.optimizer.assignment.TaxiToRequestAssignmentCostProvider.Mode;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.Solver;
 
 public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public static final String MODE = "mode";
@@ -34,6 +35,9 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public static final String NEAREST_REQUESTS_LIMIT = "nearestRequestsLimit";
 	public static final String NEAREST_VEHICLES_LIMIT = "nearestVehiclesLimit";
 
+	public static final String SOLVER = "solver";
+	public static final String NUMBER_OF_THREADS = "numberOfThreads";
+
 	public final Mode mode;
 	public final double nullPathCost;
 
@@ -43,6 +47,9 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public final int nearestRequestsLimit;
 	public final int nearestVehiclesLimit;
 
+	public final Solver solver;// SPARSE requires the nearest limits to be effective
+	public final int numberOfThreads;// for the path searches
+
 	public AssignmentTaxiOptimizerParams(Configuration optimizerConfig) {
 		super(optimizerConfig, true, true);
 
@@ -57,5 +64,8 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 
 		nearestRequestsLimit = optimizerConfig.getInt(NEAREST_REQUESTS_LIMIT);
 		nearestVehiclesLimit = optimizerConfig.getInt(NEAREST_VEHICLES_LIMIT);
+
+		solver = Solver.valueOf(optimizerConfig.getString(SOLVER, Solver.HUNGARIAN.name()));
+		numberOfThreads = optimizerConfig.getInt(NUMBER_OF_THREADS, 1);
 	}
 }
@@ -0,0 +1,355 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+
+/**
+ * Solves the assignment problem on a sparse cost matrix, i.e. only the given (row, column) pairs may be assigned.
+ * Unlike {@link HungarianAlgorithm}, which works on the full matrix in O(n^3), the run time depends on the number of
+ * candidate pairs, which makes it suitable when only the k nearest candidates of each row are considered.
+ * <p>
+ * Each row is either assigned to one of its candidate columns or left unassigned at its unassigned cost, and the sum
+ * of both is minimised. Internally, every row gets a dummy column of its own at the unassigned cost, so all rows can be
+ * assigned. If the unassigned costs exceed the costs of any real assignment by far (like {@link HungarianAlgorithm}
+ * with a high cost of the non-candidate pairs), the number of assigned rows is maximised first and their cost second.
+ * The number of rows may exceed the number of columns.
+ * <p>
+ * The algorithm is the shortest augmenting path method (as in the augmentation phase of Jonker-Volgenant): starting
+ * from dual values that keep all reduced costs non-negative, each unassigned row is assigned along a shortest path in
+ * the residual graph (Dijkstra), after which the duals are updated.
+ * <p>
+ * The column duals of a previous, similar problem can be passed to {@link #execute(double[])} as a warm start. With
+ * good duals, most rows are assigned directly to a column with zero reduced cost. A warm start only guarantees an
+ * optimal result if every column that ends up unassigned has the maximum initial dual; if that is not the case, the
+ * problem is solved again from zero duals.
+ * <p>
+ * Not thread-safe.
+ */
+public class SparseAssignmentSolver {
+	private static final byte UNREACHED = 0;
+	private static final byte IN_HEAP = 1;
+	private static final byte SCANNED = 2;
+
+	private final int rowCount;
+	private final int colCount;// real columns; the dummy column of row r is colCount + r
+	private final int totalColCount;
+	private final int[] rowStarts;// edges of row r: [rowStarts[r], rowStarts[r + 1]), the last one to its dummy column
+	private final int[] edgeCols;
+	private final double[] edgeCosts;
+
+	private final double[] rowDuals;
+	private final double[] colDuals;
+	private final int[] colByRow;
+	private final int[] rowByCol;
+
+	// Dijkstra working memory (indexed by columns, including the dummy ones)
+	private final double[] dist;
+	private final int[] predRow;
+	private final byte[] state;
+	private final int[] touchedCols;
+	private int touchedCount;
+	private final int[] scannedCols;
+	private int scannedCount;
+	private final int[] heap;
+	private final int[] heapPos;
+	private int heapSize;
+
+	/**
+	 * @param rowStarts
+	 *            the candidate pairs of row r are stored at positions rowStarts[r] (incl.) to rowStarts[r + 1] (excl.)
+	 *            of edgeCols and edgeCosts; length: rowCount + 1
+	 * @param edgeCols
+	 *            the columns of the candidate pairs; no column may appear twice in a row
+	 * @param edgeCosts
+	 *            the costs of the candidate pairs
+	 * @param unassignedRowCosts
+	 *            the cost of leaving a row unassigned; length: rowCount
+	 */
+	public SparseAssignmentSolver(int rowCount, int colCount, int[] rowStarts, int[] edgeCols, double[] edgeCosts,
+			double[] unassignedRowCosts) {
+		if (rowStarts.length != rowCount + 1 || edgeCols.length != edgeCosts.length
+				|| rowStarts[rowCount] != edgeCols.length || unassignedRowCosts.length != rowCount) {
+			throw new IllegalArgumentException("Inconsistent sparse matrix");
+		}
+
+		this.rowCount = rowCount;
+		this.colCount = colCount;
+		this.totalColCount = colCount + rowCount;
+
+		// append the edge to the dummy column to the edges of each row
+		this.rowStarts = new int[rowCount + 1];
+		this.edgeCols = new int[edgeCols.length + rowCount];
+		this.edgeCosts = new double[edgeCols.length + rowCount];
+		int e = 0;
+		for (int r = 0; r < rowCount; r++) {
+			this.rowStarts[r] = e;
+			for (int i = rowStarts[r]; i < rowStarts[r + 1]; i++, e++) {
+				this.edgeCols[e] = edgeCols[i];
+				this.edgeCosts[e] = edgeCosts[i];
+			}
+			this.edgeCols[e] = colCount + r;
+			this.edgeCosts[e] = unassignedRowCosts[r];
+			e++;
+		}
+		this.rowStarts[rowCount] = e;
+
+		rowDuals = new double[rowCount];
+		colDuals = new double[totalColCount];
+		colByRow = new int[rowCount];
+		rowByCol = new int[totalColCount];
+
+		dist = new double[totalColCount];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		predRow = new int[totalColCount];
+		state = new byte[totalColCount];
+		touchedCols = new int[totalColCount];
+		scannedCols = new int[totalColCount];
+		heap = new int[totalColCount];
+		heapPos = new int[totalColCount];
+	}
+
+	/**
+	 * @param initialColDuals
+	 *            column duals of a previous problem (warm start), or null to start from zero
+	 * @return the column assigned to each row, or -1 if a row is not assigned
+	 */
+	public int[] execute(double[] initialColDuals) {
+		if (initialColDuals == null || !solve(initialColDuals)) {
+			solve(null);
+		}
+
+		int[] assignment = colByRow.clone();
+		for (int r = 0; r < rowCount; r++) {
+			if (assignment[r] >= colCount) {
+				assignment[r] = -1;// dummy column
+			}
+		}
+		return assignment;
+	}
+
+	/**
+	 * @return the row duals of the last solution; for each assigned pair, rowDual + colDual == cost
+	 */
+	public double[] getRowDuals() {
+		return rowDuals.clone();
+	}
+
+	/**
+	 * @return the column duals of the last solution (all non-positive, zero for unassigned columns)
+	 */
+	public double[] getColDuals() {
+		return Arrays.copyOf(colDuals, colCount);
+	}
+
+	private boolean solve(double[] initialColDuals) {
+		Arrays.fill(colByRow, -1);
+		Arrays.fill(rowByCol, -1);
+		initColDuals(initialColDuals);
+
+		// initial duals and assignments: each row is assigned to its column with the min reduced cost, if still free
+		for (int r = 0; r < rowCount; r++) {
+			double minReducedCost = Double.POSITIVE_INFINITY;
+			int minCol = -1;
+			for (int e = rowStarts[r]; e < rowStarts[r + 1]; e++) {
+				double reducedCost = edgeCosts[e] - colDuals[edgeCols[e]];
+				if (reducedCost < minReducedCost) {
+					minReducedCost = reducedCost;
+					minCol = edgeCols[e];
+				}
+			}
+
+			// there is at least the dummy column
+			rowDuals[r] = minReducedCost;
+			if (rowByCol[minCol] == -1) {
+				colByRow[r] = minCol;
+				rowByCol[minCol] = r;
+			}
+		}
+
+		for (int r = 0; r < rowCount; r++) {
+			if (colByRow[r] == -1) {
+				augment(r);// always succeeds, at the latest at the dummy column of r
+			}
+		}
+
+		if (initialColDuals != null) {
+			// duals of unassigned columns are never changed, so they must be already optimal (== max == 0)
+			for (int c = 0; c < totalColCount; c++) {
+				if (rowByCol[c] == -1 && colDuals[c] != 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void initColDuals(double[] initialColDuals) {
+		Arrays.fill(colDuals, 0);// the dummy columns always start at the max dual
+		if (initialColDuals == null) {
+			return;
+		}
+
+		if (initialColDuals.length != colCount) {
+			throw new IllegalArgumentException("Expected " + colCount + " column duals");
+		}
+
+		// shift the duals so that the max is 0
+		double max = 0;
+		for (int c = 0; c < colCount; c++) {
+			if (c == 0 || initialColDuals[c] > max) {
+				max = initialColDuals[c];
+			}
+		}
+		for (int c = 0; c < colCount; c++) {
+			colDuals[c] = initialColDuals[c] - max;
+		}
+	}
+
+	private void augment(int startRow) {
+		relaxRow(startRow, 0);
+
+		int freeCol = -1;
+		while (heapSize > 0) {
+			int c = pollHeap();
+			state[c] = SCANNED;
+			scannedCols[scannedCount++] = c;
+
+			int r = rowByCol[c];
+			if (r == -1) {
+				freeCol = c;
+				break;
+			}
+			relaxRow(r, dist[c]);
+		}
+
+		if (freeCol != -1) {
+			// update the duals so that all reduced costs remain non-negative and the path becomes tight
+			double pathLength = dist[freeCol];
+			rowDuals[startRow] += pathLength;
+			for (int i = 0; i < scannedCount; i++) {
+				int c = scannedCols[i];
+				if (c != freeCol) {
+					double diff = pathLength - dist[c];
+					colDuals[c] -= diff;
+					rowDuals[rowByCol[c]] += diff;
+				}
+			}
+
+			// re-assign the rows along the path
+			int c = freeCol;
+			while (true) {
+				int r = predRow[c];
+				int prevCol = colByRow[r];
+				colByRow[r] = c;
+				rowByCol[c] = r;
+				if (r == startRow) {
+					break;
+				}
+				c = prevCol;
+			}
+		}
+
+		// clean up the working memory
+		for (int i = 0; i < touchedCount; i++) {
+			int c = touchedCols[i];
+			dist[c] = Double.POSITIVE_INFINITY;
+			state[c] = UNREACHED;
+		}
+		touchedCount = 0;
+		scannedCount = 0;
+		heapSize = 0;
+	}
+
+	private void relaxRow(int r, double rowDist) {
+		double rowDual = rowDuals[r];
+		for (int e = rowStarts[r]; e < rowStarts[r + 1]; e++) {
+			int c = edgeCols[e];
+			if (state[c] == SCANNED) {
+				continue;
+			}
+
+			double d = rowDist + edgeCosts[e] - rowDual - colDuals[c];
+			if (d < dist[c]) {
+				dist[c] = d;
+				predRow[c] = r;
+				if (state[c] == UNREACHED) {
+					state[c] = IN_HEAP;
+					touchedCols[touchedCount++] = c;
+					heap[heapSize] = c;
+					heapPos[c] = heapSize;
+					heapSize++;
+				}
+				siftUp(heapPos[c]);
+			}
+		}
+	}
+
+	private int pollHeap() {
+		int min = heap[0];
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPos[heap[0]] = 0;
+			siftDown(0);
+		}
+		return min;
+	}
+
+	private void siftUp(int pos) {
+		int c = heap[pos];
+		double d = dist[c];
+		while (pos > 0) {
+			int parentPos = (pos - 1) / 2;
+			int parent = heap[parentPos];
+			if (dist[parent] <= d) {
+				break;
+			}
+			heap[pos] = parent;
+			heapPos[parent] = pos;
+			pos = parentPos;
+		}
+		heap[pos] = c;
+		heapPos[c] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int c = heap[pos];
+		double d = dist[c];
+		while (true) {
+			int childPos = 2 * pos + 1;
+			if (childPos >= heapSize) {
+				break;
+			}
+			if (childPos + 1 < heapSize && dist[heap[childPos + 1]] < dist[heap[childPos]]) {
+				childPos++;
+			}
+			int child = heap[childPos];
+			if (dist[child] >= d) {
+				break;
+			}
+			heap[pos] = child;
+			heapPos[child] = pos;
+			pos = childPos;
+		}
+		heap[pos] = c;
+		heapPos[c] = pos;
+	}
+}
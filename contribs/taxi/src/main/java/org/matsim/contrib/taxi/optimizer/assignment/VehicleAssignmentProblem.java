@@ -21,9 +21,19 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
@@ -47,11 +57,29 @@ public class VehicleAssignmentProblem<D> {
 		double calc(VehicleData.Entry departure, DestEntry<D> dest, PathData pathData);
 	}
 
+	public enum Solver {
+		// dense cost matrix (pairs without path data are assigned at AssignmentCost(..., null)), O(n^3)
+		HUNGARIAN,
+
+		// only pairs with path data (i.e. the k nearest ones) can be assigned; warm-started with the previous duals;
+		// leaving a vehicle/destination unassigned costs as much as assigning it without path data
+		SPARSE;
+	}
+
 	private final TravelTime travelTime;
 	private final LeastCostPathCalculator router;
 
-	private final OneToManyPathSearch forwardPathSearch;
-	private final OneToManyPathSearch backwardPathSearch;
+	// one path search per thread
+	private final List<OneToManyPathSearch> forwardPathSearches;
+	private final List<OneToManyPathSearch> backwardPathSearches;
+	private final ForkJoinPool forkJoinPool;
+
+	private final Solver solver;
+
+	// column duals of the previous sparse solution (of destinations or vehicles, depending on the orientation),
+	// used as a warm start
+	private final Map<Id<Vehicle>, Double> vehicleDuals = new HashMap<>();
+	private final Map<D, Double> destinationDuals = new HashMap<>();
 
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
@@ -69,11 +97,33 @@ public class VehicleAssignmentProblem<D> {
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
 			int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(travelTime, Collections.singletonList(multiNodeRouter),
+				Collections.singletonList(backwardMultiNodeRouter), router, nearestDestinationLimit,
+				nearestVehicleLimit, Solver.HUNGARIAN);
+	}
+
+	/**
+	 * @param multiNodeRouters
+	 *            one router per thread used for the path searches
+	 * @param backwardMultiNodeRouters
+	 *            one router per thread used for the path searches
+	 */
+	public VehicleAssignmentProblem(TravelTime travelTime, List<? extends MultiNodePathCalculator> multiNodeRouters,
+			List<? extends BackwardMultiNodePathCalculator> backwardMultiNodeRouters,
+			LeastCostPathCalculator router, int nearestDestinationLimit, int nearestVehicleLimit, Solver solver) {
+		if (multiNodeRouters.size() != backwardMultiNodeRouters.size()) {
+			throw new IllegalArgumentException("One forward and one backward router per thread required");
+		}
+
 		this.travelTime = travelTime;
 		this.router = router;
+		this.solver = solver;
 
-		forwardPathSearch = OneToManyPathSearch.create(multiNodeRouter);
-		backwardPathSearch = OneToManyPathSearch.create(backwardMultiNodeRouter);
+		forwardPathSearches = multiNodeRouters.stream().map(OneToManyPathSearch::create)
+				.collect(Collectors.toList());
+		backwardPathSearches = backwardMultiNodeRouters.stream().map(OneToManyPathSearch::create)
+				.collect(Collectors.toList());
+		forkJoinPool = multiNodeRouters.size() > 1 ? new ForkJoinPool(multiNodeRouters.size()) : null;
 
 		// TODO this kNN is slow
 		destinationFinder = nearestDestinationLimit < 0 ? null
@@ -89,8 +139,13 @@ public class VehicleAssignmentProblem<D> {
 		this.assignmentCost = assignmentCost;
 
 		PathData[][] pathDataMatrix = createPathDataMatrix();
-		double[][] costMatrix = createCostMatrix(pathDataMatrix);
-		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
+		int[] assignments;
+		if (solver == Solver.HUNGARIAN) {
+			double[][] costMatrix = createCostMatrix(pathDataMatrix);
+			assignments = new HungarianAlgorithm(costMatrix).execute();
+		} else {
+			assignments = solveSparse(pathDataMatrix);
+		}
 		return createDispatches(assignments, pathDataMatrix, travelTime);
 	}
 
@@ -119,7 +174,7 @@ public class VehicleAssignmentProblem<D> {
 	}
 
 	private void calcPathsForVehicles(PathData[][] pathDataMatrix) {
-		for (int v = 0; v < vData.getSize(); v++) {
+		calcPathsInParallel(vData.getSize(), forwardPathSearches, (forwardPathSearch, v) -> {
 			VehicleData.Entry departure = vData.getEntry(v);
 
 			List<DestEntry<D>> filteredDests = destinationFinder == null ? dData.getEntries()
@@ -131,12 +186,12 @@ public class VehicleAssignmentProblem<D> {
 				int d = filteredDests.get(i).idx;
 				pathDataMatrix[v][d] = paths[i];
 			}
-		}
+		});
 	}
 
 	// TODO does not support adv reqs
 	private void calcPathsForDestinations(PathData[][] pathDataMatrix) {
-		for (int d = 0; d < dData.getSize(); d++) {
+		calcPathsInParallel(dData.getSize(), backwardPathSearches, (backwardPathSearch, d) -> {
 			DestEntry<D> dest = dData.getEntry(d);
 
 			List<VehicleData.Entry> filteredVehs = vehicleFinder == null ? vData.getEntries()
@@ -148,7 +203,25 @@ public class VehicleAssignmentProblem<D> {
 				int v = filteredVehs.get(i).idx;
 				pathDataMatrix[v][d] = paths[i];
 			}
+		});
+	}
+
+	// each thread uses its own path search for every n-th task (the tasks write to different matrix cells)
+	private void calcPathsInParallel(int taskCount, List<OneToManyPathSearch> pathSearches,
+			ObjIntConsumer<OneToManyPathSearch> task) {
+		int threads = pathSearches.size();
+		if (threads == 1) {
+			for (int i = 0; i < taskCount; i++) {
+				task.accept(pathSearches.get(0), i);
+			}
+			return;
 		}
+
+		forkJoinPool.submit(() -> IntStream.range(0, threads).parallel().forEach(t -> {
+			for (int i = t; i < taskCount; i += threads) {
+				task.accept(pathSearches.get(t), i);
+			}
+		})).join();
 	}
 
 	private double[][] createCostMatrix(PathData[][] pathDataMatrix) {
@@ -165,6 +238,84 @@ public class VehicleAssignmentProblem<D> {
 		return costMatrix;
 	}
 
+	private int[] solveSparse(PathData[][] pathDataMatrix) {
+		// fewer rows, fewer augmentations
+		boolean vehiclesAsRows = vData.getSize() <= dData.getSize();
+		int rowCount = vehiclesAsRows ? vData.getSize() : dData.getSize();
+		int colCount = vehiclesAsRows ? dData.getSize() : vData.getSize();
+
+		int[] rowStarts = new int[rowCount + 1];
+		for (int r = 0; r < rowCount; r++) {
+			int edgeCount = 0;
+			for (int c = 0; c < colCount; c++) {
+				if (getPathData(pathDataMatrix, vehiclesAsRows, r, c) != null) {
+					edgeCount++;
+				}
+			}
+			rowStarts[r + 1] = rowStarts[r] + edgeCount;
+		}
+
+		int[] edgeCols = new int[rowStarts[rowCount]];
+		double[] edgeCosts = new double[rowStarts[rowCount]];
+		// as in the dense matrix, where the pairs without path data are assigned at AssignmentCost(..., null)
+		double[] unassignedRowCosts = new double[rowCount];
+		for (int r = 0; r < rowCount; r++) {
+			int e = rowStarts[r];
+			for (int c = 0; c < colCount; c++) {
+				PathData pathData = getPathData(pathDataMatrix, vehiclesAsRows, r, c);
+				if (pathData != null) {
+					int v = vehiclesAsRows ? r : c;
+					int d = vehiclesAsRows ? c : r;
+					edgeCols[e] = c;
+					edgeCosts[e] = assignmentCost.calc(vData.getEntry(v), dData.getEntry(d), pathData);
+					unassignedRowCosts[r] = Math.max(unassignedRowCosts[r],
+							assignmentCost.calc(vData.getEntry(v), dData.getEntry(d), null));
+					e++;
+				}
+			}
+		}
+
+		double[] initialColDuals = new double[colCount];
+		for (int c = 0; c < colCount; c++) {
+			initialColDuals[c] = vehiclesAsRows ? destinationDuals.getOrDefault(dData.getEntry(c).destination, 0.)
+					: vehicleDuals.getOrDefault(vData.getEntry(c).vehicle.getId(), 0.);
+		}
+
+		SparseAssignmentSolver sparseSolver = new SparseAssignmentSolver(rowCount, colCount, rowStarts, edgeCols,
+				edgeCosts, unassignedRowCosts);
+		int[] colByRow = sparseSolver.execute(initialColDuals);
+
+		// only the column duals are kept; if the orientation flips in the next step, the row duals would not be
+		// valid column duals, so the other map stays empty and the solver starts cold
+		double[] colDuals = sparseSolver.getColDuals();
+		vehicleDuals.clear();
+		destinationDuals.clear();
+		for (int c = 0; c < colCount; c++) {
+			if (vehiclesAsRows) {
+				destinationDuals.put(dData.getEntry(c).destination, colDuals[c]);
+			} else {
+				vehicleDuals.put(vData.getEntry(c).vehicle.getId(), colDuals[c]);
+			}
+		}
+
+		if (vehiclesAsRows) {
+			return colByRow;
+		}
+
+		int[] assignments = new int[vData.getSize()];
+		Arrays.fill(assignments, -1);
+		for (int d = 0; d < colByRow.length; d++) {
+			if (colByRow[d] != -1) {
+				assignments[colByRow[d]] = d;
+			}
+		}
+		return assignments;
+	}
+
+	private static PathData getPathData(PathData[][] pathDataMatrix, boolean vehiclesAsRows, int r, int c) {
+		return vehiclesAsRows ? pathDataMatrix[r][c] : pathDataMatrix[c][r];
+	}
+
 	private List<Dispatch<D>> createDispatches(int[] assignments, PathData[][] pathDataMatrix, TravelTime travelTime) {
 		List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vData.getSize(), dData.getSize()));
 		for (int v = 0; v < assignments.length; v++) {
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseAssignmentSolverTest {
+	private static final double MISSING = -1;// marks non-candidate pairs
+	private static final double UNASSIGNED = 1e6;// cost of leaving a row unassigned
+	private static final double FORBIDDEN = 1e12;// cost of non-candidate pairs for HungarianAlgorithm
+
+	@Test
+	public void testDenseSameAsHungarian() {
+		Random random = new Random(4711);
+		for (int run = 0; run < 50; run++) {
+			int rows = 1 + random.nextInt(20);
+			int cols = rows + random.nextInt(10);
+			double[][] costs = randomCosts(random, rows, cols, 1.0);
+			assertOptimal(costs, createSolver(costs).execute(null));
+		}
+	}
+
+	@Test
+	public void testSparseSameAsHungarian() {
+		Random random = new Random(42);
+		for (int run = 0; run < 100; run++) {
+			int rows = 1 + random.nextInt(30);
+			int cols = 1 + random.nextInt(30);
+			double[][] costs = randomCosts(random, rows, cols, 0.15);
+			assertOptimal(costs, createSolver(costs).execute(null));
+		}
+	}
+
+	@Test
+	public void testWarmStart() {
+		Random random = new Random(1234);
+		for (int run = 0; run < 50; run++) {
+			int rows = 1 + random.nextInt(20);
+			int cols = 1 + random.nextInt(20);
+			double[][] costs = randomCosts(random, rows, cols, 0.3);
+			SparseAssignmentSolver solver = createSolver(costs);
+			solver.execute(null);
+			double[] colDuals = solver.getColDuals();
+
+			// perturb the costs and solve again from the previous duals
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < cols; c++) {
+					if (costs[r][c] != MISSING) {
+						costs[r][c] += random.nextInt(10);
+					}
+				}
+			}
+			assertOptimal(costs, createSolver(costs).execute(colDuals));
+		}
+	}
+
+	@Test
+	public void testRowsWithoutCandidates() {
+		double[][] costs = { { MISSING, MISSING }, { 3, 1 } };
+		int[] assignment = createSolver(costs).execute(null);
+		assertArrayEquals(new int[] { -1, 1 }, assignment);
+	}
+
+	@Test
+	public void testContestedColumn() {
+		// the cheaper row gets the column, regardless of the row order
+		double[][] costs = { { 10, MISSING }, { 1, MISSING } };
+		assertArrayEquals(new int[] { -1, 0 }, createSolver(costs).execute(null));
+	}
+
+	@Test
+	public void testMaxCardinality() {
+		// assigning r0 would leave either r1 or r2 unassigned
+		double[][] costs = { { 5, 6, MISSING }, { 1, MISSING, MISSING }, { MISSING, 1, MISSING } };
+		assertArrayEquals(new int[] { -1, 0, 1 }, createSolver(costs).execute(null));
+	}
+
+	private static double[][] randomCosts(Random random, int rows, int cols, double density) {
+		double[][] costs = new double[rows][cols];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				costs[r][c] = random.nextDouble() < density ? random.nextInt(100) : MISSING;
+			}
+		}
+		return costs;
+	}
+
+	private static SparseAssignmentSolver createSolver(double[][] costs) {
+		int rows = costs.length;
+		int cols = costs[0].length;
+		int[] rowStarts = new int[rows + 1];
+		int edgeCount = 0;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				if (costs[r][c] != MISSING) {
+					edgeCount++;
+				}
+			}
+			rowStarts[r + 1] = edgeCount;
+		}
+
+		int[] edgeCols = new int[edgeCount];
+		double[] edgeCosts = new double[edgeCount];
+		int e = 0;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				if (costs[r][c] != MISSING) {
+					edgeCols[e] = c;
+					edgeCosts[e] = costs[r][c];
+					e++;
+				}
+			}
+		}
+
+		double[] unassignedRowCosts = new double[rows];
+		Arrays.fill(unassignedRowCosts, UNASSIGNED);
+		return new SparseAssignmentSolver(rows, cols, rowStarts, edgeCols, edgeCosts, unassignedRowCosts);
+	}
+
+	/**
+	 * Compares with HungarianAlgorithm on the full matrix, extended by one column per row for leaving the row
+	 * unassigned.
+	 */
+	private static void assertOptimal(double[][] costs, int[] assignment) {
+		int rows = costs.length;
+		int cols = costs[0].length;
+		double[][] fullCosts = new double[rows][cols + rows];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				fullCosts[r][c] = costs[r][c] == MISSING ? FORBIDDEN : costs[r][c];
+			}
+			for (int c = cols; c < cols + rows; c++) {
+				fullCosts[r][c] = c - cols == r ? UNASSIGNED : FORBIDDEN;
+			}
+		}
+		int[] expected = new HungarianAlgorithm(fullCosts).execute();
+		double expectedCost = 0;
+		for (int r = 0; r < rows; r++) {
+			expectedCost += fullCosts[r][expected[r]];
+		}
+
+		double cost = 0;
+		boolean[] used = new boolean[cols];
+		for (int r = 0; r < rows; r++) {
+			int c = assignment[r];
+			if (c == -1) {
+				cost += UNASSIGNED;
+			} else {
+				assertTrue(costs[r][c] != MISSING);
+				assertFalse(used[c]);
+				used[c] = true;
+				cost += costs[r][c];
+			}
+		}
+		assertEquals(expectedCost, cost, 1e-9);
+	}
+}
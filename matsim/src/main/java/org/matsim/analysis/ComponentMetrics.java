@@ -0,0 +1,288 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ComponentMetrics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.matsim.core.config.groups.ControlerConfigGroup;
+
+/**
+ * Collects timers, counters and gauges of the components doing the work in an iteration, e.g. the mobsim engines,
+ * the event handlers, the routers, the replanning strategies and the scoring. In contrast to the
+ * {@link IterationStopWatch}, which measures the phases of an iteration, this shows where the time goes within
+ * the phases, without attaching a profiler.
+ * <br>
+ * Components get their metrics once by name, e.g. <code>"router.car.leastCostPath"</code>, and update them while they
+ * work. All metrics are thread-safe. If the metrics are disabled, i.e. {@link ControlerConfigGroup#getWriteComponentMetricsInterval()}
+ * is <code>0</code>, the same no-op metrics are returned for all names, and the timers do not even read the clock. Components
+ * which may be used without injection can use {@link #DISABLED} in this case.
+ * <br>
+ * The {@link ComponentMetricsControlerListener} resets the metrics at the start of every iteration and writes them at its end.
+ *
+ * @see ComponentMetricsModule
+ */
+public final class ComponentMetrics {
+
+	/**
+	 * Metrics which do not collect anything, for components used without injection.
+	 */
+	public static final ComponentMetrics DISABLED = new ComponentMetrics(false);
+
+	private final boolean enabled;
+
+	private final ConcurrentSkipListMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+	private final Timer disabledTimer = new Timer("disabled", false);
+	private final Counter disabledCounter = new Counter("disabled", false);
+	private final Gauge disabledGauge = new Gauge("disabled", false);
+
+	public ComponentMetrics(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * @return the timer with the given name, which is created if it does not exist yet.
+	 * @throws IllegalArgumentException if a metric of another type exists with this name.
+	 */
+	public Timer getTimer(final String name) {
+		if (!this.enabled) {
+			return this.disabledTimer;
+		}
+		return getMetric(name, Timer.class);
+	}
+
+	/**
+	 * @return the counter with the given name, which is created if it does not exist yet.
+	 * @throws IllegalArgumentException if a metric of another type exists with this name.
+	 */
+	public Counter getCounter(final String name) {
+		if (!this.enabled) {
+			return this.disabledCounter;
+		}
+		return getMetric(name, Counter.class);
+	}
+
+	/**
+	 * @return the gauge with the given name, which is created if it does not exist yet.
+	 * @throws IllegalArgumentException if a metric of another type exists with this name.
+	 */
+	public Gauge getGauge(final String name) {
+		if (!this.enabled) {
+			return this.disabledGauge;
+		}
+		return getMetric(name, Gauge.class);
+	}
+
+	private <T extends Metric> T getMetric(final String name, final Class<T> type) {
+		Metric metric = this.metrics.computeIfAbsent(name, n -> {
+			if (type == Timer.class) return new Timer(n, true);
+			if (type == Counter.class) return new Counter(n, true);
+			return new Gauge(n, true);
+		});
+		if (!type.isInstance(metric)) {
+			throw new IllegalArgumentException("metric " + name + " is already registered as " + metric.getClass().getSimpleName()
+					+ ", not as " + type.getSimpleName());
+		}
+		return type.cast(metric);
+	}
+
+	/**
+	 * @return all metrics registered so far, sorted by their names.
+	 */
+	public List<Metric> getMetrics() {
+		return new ArrayList<>(this.metrics.values());
+	}
+
+	/**
+	 * Resets the values of all metrics. The metrics stay registered, so components may keep their references.
+	 */
+	public void reset() {
+		for (Metric metric : this.metrics.values()) {
+			metric.reset();
+		}
+	}
+
+	/**
+	 * @return a name for the metrics of the given component, i.e. the simple name of its class or, for anonymous classes, the full name.
+	 */
+	public static String nameOf(final Object component) {
+		String name = component.getClass().getSimpleName();
+		return name.isEmpty() ? component.getClass().getName() : name;
+	}
+
+	public static abstract class Metric {
+		private final String name;
+		/*package*/ final boolean enabled;
+
+		private Metric(final String name, final boolean enabled) {
+			this.name = name;
+			this.enabled = enabled;
+		}
+
+		public final String getName() {
+			return this.name;
+		}
+
+		/*package*/ abstract void reset();
+	}
+
+	/**
+	 * Measures the number and the durations of the invocations of some operation. Use it as
+	 * <pre>
+	 * long start = timer.start();
+	 * doSomething();
+	 * timer.stop(start);
+	 * </pre>
+	 */
+	public static final class Timer extends Metric {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+		private Timer(final String name, final boolean enabled) {
+			super(name, enabled);
+		}
+
+		/**
+		 * @return the current value of {@link System#nanoTime()}, or <code>0</code> if the metrics are disabled.
+		 */
+		public long start() {
+			return this.enabled ? System.nanoTime() : 0;
+		}
+
+		/**
+		 * Records an invocation which started at the time returned by {@link #start()}.
+		 */
+		public void stop(final long startNanos) {
+			if (this.enabled) {
+				record(System.nanoTime() - startNanos);
+			}
+		}
+
+		/**
+		 * Records an invocation with the given duration.
+		 */
+		public void record(final long nanos) {
+			if (this.enabled) {
+				this.count.increment();
+				this.totalNanos.add(nanos);
+				this.maxNanos.accumulate(nanos);
+			}
+		}
+
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		public long getTotalNanos() {
+			return this.totalNanos.sum();
+		}
+
+		public long getMaxNanos() {
+			return this.maxNanos.get();
+		}
+
+		/**
+		 * @return the number of invocations per second of the measured time, e.g. the events per second of an event handler.
+		 */
+		public double getRatePerSecond() {
+			long total = getTotalNanos();
+			return total == 0 ? Double.NaN : getCount() * 1e9 / total;
+		}
+
+		@Override
+		/*package*/ void reset() {
+			this.count.reset();
+			this.totalNanos.reset();
+			this.maxNanos.reset();
+		}
+	}
+
+	/**
+	 * Counts something, e.g. the nodes visited by a router.
+	 */
+	public static final class Counter extends Metric {
+		private final LongAdder value = new LongAdder();
+
+		private Counter(final String name, final boolean enabled) {
+			super(name, enabled);
+		}
+
+		public void increment() {
+			if (this.enabled) {
+				this.value.increment();
+			}
+		}
+
+		public void add(final long n) {
+			if (this.enabled) {
+				this.value.add(n);
+			}
+		}
+
+		public long get() {
+			return this.value.sum();
+		}
+
+		@Override
+		/*package*/ void reset() {
+			this.value.reset();
+		}
+	}
+
+	/**
+	 * Holds a single value which is set by the component, e.g. the imbalance between the threads of the mobsim.
+	 */
+	public static final class Gauge extends Metric {
+		private volatile double value = Double.NaN;
+
+		private Gauge(final String name, final boolean enabled) {
+			super(name, enabled);
+		}
+
+		public void set(final double value) {
+			if (this.enabled) {
+				this.value = value;
+			}
+		}
+
+		/**
+		 * @return the value, or <code>NaN</code> if it was not set in the current iteration.
+		 */
+		public double get() {
+			return this.value;
+		}
+
+		@Override
+		/*package*/ void reset() {
+			this.value = Double.NaN;
+		}
+	}
+
+}
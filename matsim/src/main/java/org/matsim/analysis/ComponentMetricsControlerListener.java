@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ComponentMetricsControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+import javax.inject.Inject;
+
+import org.matsim.analysis.ComponentMetrics.Counter;
+import org.matsim.analysis.ComponentMetrics.Gauge;
+import org.matsim.analysis.ComponentMetrics.Metric;
+import org.matsim.analysis.ComponentMetrics.Timer;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Resets the {@link ComponentMetrics} at the start of every iteration, and writes them tab-separated to
+ * <code>componentMetrics.txt</code> at the end of every iteration selected by
+ * {@link ControlerConfigGroup#getWriteComponentMetricsInterval()}. The file has one line per iteration and metric,
+ * so that metrics which are registered only in later iterations fit in.
+ */
+final class ComponentMetricsControlerListener implements IterationStartsListener, IterationEndsListener, ShutdownListener {
+
+	public static final String FILENAME_COMPONENT_METRICS = "componentMetrics";
+
+	private final ComponentMetrics metrics;
+	private final int writeInterval;
+	private final String fileName;
+	private BufferedWriter out = null;
+
+	@Inject
+	ComponentMetricsControlerListener(ComponentMetrics metrics, ControlerConfigGroup controlerConfigGroup, OutputDirectoryHierarchy controlerIO) {
+		this.metrics = metrics;
+		this.writeInterval = controlerConfigGroup.getWriteComponentMetricsInterval();
+		this.fileName = controlerIO.getOutputFilename(FILENAME_COMPONENT_METRICS + ".txt");
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		this.metrics.reset();
+	}
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		if (!this.metrics.isEnabled() || this.writeInterval <= 0 || event.getIteration() % this.writeInterval != 0) {
+			return;
+		}
+		try {
+			if (this.out == null) {
+				this.out = IOUtils.getBufferedWriter(this.fileName);
+				this.out.write("Iteration\tMetric\tCount\tTotalMillis\tMeanMicros\tMaxMicros\tPerSecond\tValue\n");
+			}
+			for (Metric metric : this.metrics.getMetrics()) {
+				this.out.write(event.getIteration() + "\t" + metric.getName() + "\t");
+				if (metric instanceof Timer) {
+					Timer timer = (Timer) metric;
+					long count = timer.getCount();
+					this.out.write(count + "\t" + timer.getTotalNanos() / 1e6 + "\t"
+							+ (count == 0 ? "" : String.valueOf(timer.getTotalNanos() / 1e3 / count)) + "\t"
+							+ timer.getMaxNanos() / 1e3 + "\t"
+							+ (count == 0 ? "" : String.valueOf(timer.getRatePerSecond())) + "\t");
+				} else if (metric instanceof Counter) {
+					this.out.write(((Counter) metric).get() + "\t\t\t\t\t");
+				} else {
+					double value = ((Gauge) metric).get();
+					this.out.write("\t\t\t\t\t" + (Double.isNaN(value) ? "" : String.valueOf(value)));
+				}
+				this.out.write("\n");
+			}
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(final ShutdownEvent event) {
+		if (this.out != null) {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ComponentMetricsModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import com.google.inject.Singleton;
+import org.matsim.core.controler.AbstractModule;
+
+/**
+ * Binds the {@link ComponentMetrics}, enabled according to the config, and the listener writing them.
+ * Components inject the metrics optionally, as they are also used without this module.
+ */
+public class ComponentMetricsModule extends AbstractModule {
+	@Override
+	public void install() {
+		bind(ComponentMetrics.class).toInstance(new ComponentMetrics(getConfig().controler().getWriteComponentMetricsInterval() > 0));
+		bind(ComponentMetricsControlerListener.class).in(Singleton.class);
+		addControlerListenerBinding().to(ComponentMetricsControlerListener.class);
+	}
+}
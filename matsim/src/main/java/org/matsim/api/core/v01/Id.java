@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -36,11 +37,15 @@ import org.matsim.vehicles.Vehicle;
  * Note that Ids should not contain any whitespace characters (spaces, tabs, newlines, ...), 
  * as this may lead to problems when Ids are written to file and read back in.
  * 
+ * Every Id additionally carries a dense integer {@link #index()}, assigned in order of creation
+ * and unique per type. This allows array-backed collections like {@link IdMap} and {@link IdSet}
+ * that avoid hashing and string comparisons.
+ * 
  *  @author mrieser / Senozon AG
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -58,21 +63,65 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
+		IdCache idCache = getCache(type);
 		Gbl.assertNotNull(key);
-		Id<?> id = map.get(key);
+		Id<?> id = idCache.byKey.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (idCache) {
+				id = idCache.byKey.get(key);
+				if (id == null) {
+					id = idCache.add(key);
+				}
+			}
 		}
 		
 		return (Id<T>) id;
 	}
 	
+	/**
+	 * @return the Id of the given type with the given index, or <code>null</code> if no such Id was created yet.
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null || index < 0) {
+			return null;
+		}
+		Id<?>[] ids = idCache.byIndex;
+		if (index < ids.length && ids[index] != null) {
+			return (Id<T>) ids[index];
+		}
+		// the Id may have been created concurrently, check again while holding the lock
+		synchronized (idCache) {
+			return index < idCache.count ? (Id<T>) idCache.byIndex[index] : null;
+		}
+	}
+	
+	/**
+	 * @return the number of Ids created so far for the given type. All indices of this type are smaller than this number.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			return 0;
+		}
+		synchronized (idCache) {
+			return idCache.count;
+		}
+	}
+	
+	private static IdCache getCache(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			idCache = cache.computeIfAbsent(type, k -> new IdCache());
+		}
+		return idCache;
+	}
+	
+	/**
+	 * @return the dense, per-type index of this Id, starting at 0. 
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -92,6 +141,9 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	
 	@Override
 	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
 		if (obj instanceof Id) {
 			return this.compareTo((Id) obj) == 0;
 		}
@@ -113,9 +165,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -129,6 +188,29 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 	
+	/**
+	 * All Ids of one type, by key and by index. Modifications are guarded by the instance itself,
+	 * the index array is only ever replaced by a larger copy so it can be read without locking.
+	 */
+	private static final class IdCache {
+		final Map<String, Id<?>> byKey = new ConcurrentHashMap<String, Id<?>>();
+		volatile Id<?>[] byIndex = new Id<?>[16];
+		int count = 0;
+
+		/*package*/ Id<?> add(final String key) {
+			Id<?> id = new IdImpl<Object>(key, this.count);
+			Id<?>[] ids = this.byIndex;
+			if (this.count == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length * 2);
+			}
+			ids[this.count] = id;
+			this.byIndex = ids;
+			this.count++;
+			this.byKey.put(key, id);
+			return id;
+		}
+	}
+	
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
 			return "null" ;
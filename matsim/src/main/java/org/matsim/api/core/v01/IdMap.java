@@ -0,0 +1,361 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map with {@link Id}s as keys, backed by a simple array indexed by {@link Id#index()}.
+ * Lookups and updates do neither hash nor compare strings, and there are no entry objects.
+ * The array grows to the largest index stored, so this map is best suited for keys of
+ * a type where most of the Ids are contained, e.g. all persons or all links.
+ * <br>
+ * Keys must be Ids of the type given in the constructor; Ids of a different type with the same
+ * index would silently map to the same slot. <code>null</code> values are not supported,
+ * putting <code>null</code> removes the mapping. Iteration is in order of the Id index.
+ * Like {@link java.util.HashMap}, this class is not thread-safe.
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> implements Iterable<V> {
+
+	private static final int MIN_SIZE = 16;
+
+	private final Class<T> idClass;
+	private Object[] data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(MIN_SIZE, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.data = new Object[Math.max(1, initialCapacity)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		if (value == null) {
+			return false;
+		}
+		for (Object o : this.data) {
+			if (value.equals(o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(final Object key) {
+		if (key instanceof Id) {
+			return get(((Id<?>) key).index());
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(final int index) {
+		if (index >= 0 && index < this.data.length) {
+			return (V) this.data[index];
+		}
+		return null;
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		return put(key.index(), value);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(final int index, final V value) {
+		if (value == null) {
+			return remove(index);
+		}
+		if (index >= this.data.length) {
+			int newLength = Math.max(index + 1, this.data.length + (this.data.length >> 1));
+			newLength = Math.max(newLength, Id.getNumberOfIds(this.idClass));
+			this.data = Arrays.copyOf(this.data, newLength);
+		}
+		V old = (V) this.data[index];
+		this.data[index] = value;
+		if (old == null) {
+			this.size++;
+			this.modCount++;
+		}
+		return old;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		if (key instanceof Id) {
+			return remove(((Id<?>) key).index());
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(final int index) {
+		if (index >= 0 && index < this.data.length) {
+			V old = (V) this.data[index];
+			if (old != null) {
+				this.data[index] = null;
+				this.size--;
+				this.modCount++;
+			}
+			return old;
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+		return new ValueIterator();
+	}
+
+	@Override
+	public Set<Id<T>> keySet() {
+		return new KeySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new Values();
+	}
+
+	@Override
+	public Set<Entry<Id<T>, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	private abstract class DataIterator<E> implements Iterator<E> {
+		private int expectedModCount = IdMap.this.modCount;
+		private int nextIndex = -1;
+		private int currentIndex = -1;
+
+		DataIterator() {
+			advance();
+		}
+
+		private void advance() {
+			Object[] data = IdMap.this.data;
+			do {
+				this.nextIndex++;
+			} while (this.nextIndex < data.length && data[this.nextIndex] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex < IdMap.this.data.length;
+		}
+
+		@Override
+		public E next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.currentIndex = this.nextIndex;
+			advance();
+			return element(this.currentIndex);
+		}
+
+		@Override
+		public void remove() {
+			if (this.currentIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.remove(this.currentIndex);
+			this.expectedModCount = IdMap.this.modCount;
+			this.currentIndex = -1;
+		}
+
+		abstract E element(int index);
+	}
+
+	private final class ValueIterator extends DataIterator<V> {
+		@SuppressWarnings("unchecked")
+		@Override
+		V element(final int index) {
+			return (V) IdMap.this.data[index];
+		}
+	}
+
+	private final class KeyIterator extends DataIterator<Id<T>> {
+		@Override
+		Id<T> element(final int index) {
+			return Id.get(index, IdMap.this.idClass);
+		}
+	}
+
+	private final class EntryIterator extends DataIterator<Entry<Id<T>, V>> {
+		@Override
+		Entry<Id<T>, V> element(final int index) {
+			return new IdEntry(index);
+		}
+	}
+
+	private final class IdEntry implements Entry<Id<T>, V> {
+		private final int index;
+
+		IdEntry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return Id.get(this.index, IdMap.this.idClass);
+		}
+
+		@Override
+		public V getValue() {
+			return IdMap.this.get(this.index);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			if (value == null) {
+				throw new NullPointerException("null values are not supported.");
+			}
+			return IdMap.this.put(this.index, value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> e = (Entry<?, ?>) o;
+			return getKey().equals(e.getKey()) && getValue().equals(e.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return getKey().hashCode() ^ getValue().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+	private final class KeySet extends AbstractSet<Id<T>> {
+		@Override
+		public Iterator<Id<T>> iterator() {
+			return new KeyIterator();
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return IdMap.this.containsKey(o);
+		}
+
+		@Override
+		public boolean remove(final Object o) {
+			return IdMap.this.remove(o) != null;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private final class Values extends AbstractCollection<V> {
+		@Override
+		public Iterator<V> iterator() {
+			return new ValueIterator();
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return IdMap.this.containsValue(o);
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<Id<T>, V>> {
+		@Override
+		public Iterator<Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+}
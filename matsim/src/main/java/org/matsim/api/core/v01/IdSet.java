@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of {@link Id}s, backed by a {@link BitSet} indexed by {@link Id#index()}.
+ * Uses one bit per Id of the type instead of one entry object per element as
+ * {@link java.util.HashSet} does.
+ * <br>
+ * Elements must be Ids of the type given in the constructor. Iteration is in order of the Id index.
+ * This class is not thread-safe.
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final BitSet data;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this(idClass, Id.getNumberOfIds(idClass));
+	}
+
+	public IdSet(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.data = new BitSet(initialCapacity);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		if (o instanceof Id) {
+			return this.data.get(((Id<?>) o).index());
+		}
+		return false;
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = id.index();
+		if (this.data.get(index)) {
+			return false;
+		}
+		this.data.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (o instanceof Id) {
+			int index = ((Id<?>) o).index();
+			if (this.data.get(index)) {
+				this.data.clear(index);
+				this.size--;
+				this.modCount++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		this.data.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new IdIterator();
+	}
+
+	private final class IdIterator implements Iterator<Id<T>> {
+		private int expectedModCount = IdSet.this.modCount;
+		private int nextIndex = IdSet.this.data.nextSetBit(0);
+		private int currentIndex = -1;
+
+		@Override
+		public boolean hasNext() {
+			return this.nextIndex >= 0;
+		}
+
+		@Override
+		public Id<T> next() {
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.nextIndex < 0) {
+				throw new NoSuchElementException();
+			}
+			this.currentIndex = this.nextIndex;
+			this.nextIndex = IdSet.this.data.nextSetBit(this.currentIndex + 1);
+			return Id.get(this.currentIndex, IdSet.this.idClass);
+		}
+
+		@Override
+		public void remove() {
+			if (this.currentIndex < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdSet.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdSet.this.data.clear(this.currentIndex);
+			IdSet.this.size--;
+			IdSet.this.modCount++;
+			this.expectedModCount = IdSet.this.modCount;
+			this.currentIndex = -1;
+		}
+	}
+
+}
@@ -37,9 +37,9 @@ import org.matsim.core.utils.misc.StringUtils;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyDijkstra, ContractionHierarchy}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, columnar}
 
 	public static final String GROUP_NAME = "controler";
 
@@ -47,12 +47,14 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String TIME_DEPENDENT_LANDMARKS = "timeDependentLandmarks";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String WRITE_COMPONENT_METRICS_INTERVAL = "writeComponentMetricsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
@@ -68,6 +70,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
 
+	private boolean timeDependentLandmarks = false;
+
 	private boolean linkToLinkRoutingEnabled = false;
 
 	private String runId = null;
@@ -76,6 +80,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval=10;
 	private int writePlansInterval=10;
+	private int writeComponentMetricsInterval=0;
 	private Set<String> snapshotFormat = Collections.emptySet();
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -91,14 +96,23 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.SpeedyDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks +
+				" or " + RoutingAlgorithmType.ContractionHierarchy + " (routes with the travel disutilities of the departure time bin, not person-specific, so it requires "
+				+ PlansCalcRouteConfigGroup.GROUP_NAME + ".routingRandomness=0)");
+		map.put(TIME_DEPENDENT_LANDMARKS, "Default=false. If enabled, the landmarks of " + RoutingAlgorithmType.AStarLandmarks + " and " + RoutingAlgorithmType.FastAStarLandmarks +
+				" are pre-processed again in every iteration before replanning, with the smallest travel disutility of each link over all time bins of the travel time calculator"
+				+ " instead of its free speed disutility. This yields tighter bounds, but requires a travel disutility which does not depend on the person, i.e. "
+				+ PlansCalcRouteConfigGroup.GROUP_NAME + ".routingRandomness=0; otherwise, the controler does not start.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, columnar (binary, see ColumnarEventsFormat)."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
 				"written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(WRITE_COMPONENT_METRICS_INTERVAL, "Default=0. iterationNumber % writeComponentMetricsInterval == 0 defines in which iterations the timers and " +
+				"counters of the ComponentMetrics (mobsim engines, event handlers, routers, replanning, scoring) are written to componentMetrics.txt. " +
+				"`0' disables the collection of the metrics completely, which avoids their (small) overhead.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0; "); // TODO: add description
@@ -164,6 +178,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( TIME_DEPENDENT_LANDMARKS )
+	public boolean isTimeDependentLandmarks() {
+		return this.timeDependentLandmarks;
+	}
+
+	@StringSetter( TIME_DEPENDENT_LANDMARKS )
+	public void setTimeDependentLandmarks(final boolean timeDependentLandmarks) {
+		this.timeDependentLandmarks = timeDependentLandmarks;
+	}
+
 	@StringGetter( RUNID )
 	public String getRunId() {
 		return this.runId;
@@ -293,6 +317,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setWritePlansInterval(final int writePlansInterval) {
 		this.writePlansInterval = writePlansInterval;
 	}
+
+	@StringGetter( WRITE_COMPONENT_METRICS_INTERVAL )
+	public int getWriteComponentMetricsInterval() {
+		return this.writeComponentMetricsInterval;
+	}
+
+	@StringSetter( WRITE_COMPONENT_METRICS_INTERVAL )
+	public void setWriteComponentMetricsInterval(final int writeComponentMetricsInterval) {
+		this.writeComponentMetricsInterval = writeComponentMetricsInterval;
+	}
 	
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
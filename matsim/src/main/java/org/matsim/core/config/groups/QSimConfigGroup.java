@@ -225,6 +225,7 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there." ) ;
+		map.put(RUNNER_REBALANCING_INTERVAL, RUNNER_REBALANCING_INTERVAL_CMT ) ;
 		map.put(REMOVE_STUCK_VEHICLES, REMOVE_STUCK_VEHICLES_STRING );
 		map.put(STUCK_TIME, STUCK_TIME_STRING );
 
@@ -282,6 +283,7 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(SEEP_MODE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set a seep mode. Default is bike.");
 		map.put(IS_SEEP_MODE_STORAGE_FREE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to true if seep mode do not consumes any space on the link. Default is false.");
 		map.put(IS_RESTRICTING_SEEPAGE, "If link dynamics is set as "+ LinkDynamics.SeepageQ+", set to false if all seep modes should perform seepage. Default is true (better option).");
+		map.put(SKIPPING_IDLE_TIME_STEPS, SKIPPING_IDLE_TIME_STEPS_CMT);
 //		map.put(CREATING_VEHICLES_FOR_ALL_NETWORK_MODES, "If set to true, creates a vehicle for each person corresponding to every network mode. However, " +
 //				"this will be overridden if vehicle source is "+ VehiclesSource.fromVehiclesData+".");
 		
@@ -518,6 +520,23 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public void setUsingThreadpool( boolean val ) {
 		this.usingThreadpool = val ;
 	}
+	// ---
+	private static final String RUNNER_REBALANCING_INTERVAL = "netsimRunnerRebalancingInterval" ;
+	private static final String RUNNER_REBALANCING_INTERVAL_CMT = "Interval in simulated seconds after which the active nodes and links are "
+			+ "redistributed between the threads of the network simulation, based on the run time each thread needed in the preceding interval. "
+			+ "0 keeps the initial assignment of nodes and links for the whole simulation. Only has an effect if numberOfThreads > 1.";
+	private int runnerRebalancingInterval = 0 ;
+	@StringGetter(RUNNER_REBALANCING_INTERVAL)
+	public int getNetsimRunnerRebalancingInterval() {
+		return this.runnerRebalancingInterval ;
+	}
+	@StringSetter(RUNNER_REBALANCING_INTERVAL)
+	public void setNetsimRunnerRebalancingInterval( int interval ) {
+		if ( interval < 0 ) {
+			throw new IllegalArgumentException( "Rebalancing interval must not be negative, got " + interval );
+		}
+		this.runnerRebalancingInterval = interval ;
+	}
 
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
@@ -568,6 +587,24 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.isRestrictingSeepage = isRestrictingSeepage;
 	}
 	// ---
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps";
+	static final String SKIPPING_IDLE_TIME_STEPS_CMT = "If true, the qsim jumps over time steps in which none of the mobsim engines has "
+			+ "anything to do, e.g. during the night. This only happens if all engines report when they have something to do next, "
+			+ "which the default activity, teleportation and network engines do. Note that before/after sim step listeners are not "
+			+ "called for skipped time steps. Default is false.";
+	private boolean skippingIdleTimeSteps = false;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps;
+	}
+	/**
+	 * @param skippingIdleTimeSteps -- {@value #SKIPPING_IDLE_TIME_STEPS_CMT}
+	 */
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(boolean skippingIdleTimeSteps) {
+		this.skippingIdleTimeSteps = skippingIdleTimeSteps;
+	}
+	// ---
 	private boolean usingTravelTimeCheckInTeleportation = false ;
 	public boolean isUsingTravelTimeCheckInTeleportation() {
 		// yyyyyy this should better become a threshold number!  kai, aug'16
@@ -262,6 +262,9 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		Map<String,String> map = super.getComments();
 		map.put(ReflectiveDelegate.ITERATION_FRACTION_TO_DISABLE_INNOVATION, "fraction of iterations where innovative strategies are switched off.  Something link 0.8 should be good.  E.g. if you run from iteration 400 to iteration 500, innovation is switched off at iteration 480" ) ;
 		map.put(ReflectiveDelegate.MAX_AGENT_PLAN_MEMORY_SIZE, "maximum number of plans per agent.  ``0'' means ``infinity''.  Currently (2010), ``5'' is a good number");
+		map.put(ReflectiveDelegate.NUMBER_OF_THREADS, "number of threads choosing strategies and plans for the agents.  ``0'' (default) handles the agents one after the other "
+				+ "using the global random number generator.  Any other value draws the random numbers from one stream per agent and iteration, "
+				+ "so the results are the same for any number of threads (but not the same as with ``0'').");
 
 		StringBuilder strb = new StringBuilder() ;
 		for ( DefaultPlansRemover name : DefaultPlansRemover.values() ) {
@@ -340,6 +343,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		return delegate.getMaxAgentPlanMemorySize();
 	}
 
+	public void setNumberOfThreads(int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
+	public int getNumberOfThreads() {
+		return delegate.getNumberOfThreads();
+	}
+
 	public void setExternalExeConfigTemplate(String externalExeConfigTemplate) {
 		delegate.setExternalExeConfigTemplate(externalExeConfigTemplate);
 	}
@@ -401,8 +412,10 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String NUMBER_OF_THREADS = "numberOfThreads" ;
 
 		private int maxAgentPlanMemorySize = 5;
+		private int numberOfThreads = 0;
 		private String externalExeConfigTemplate = null;
 		private String externalExeTmpFileRootDir = null;
 		private long externalExeTimeOut = 3600;
@@ -428,6 +441,16 @@ public final class StrategyConfigGroup extends ConfigGroup {
 			return this.maxAgentPlanMemorySize;
 		}
 
+		@StringSetter( NUMBER_OF_THREADS )
+		public void setNumberOfThreads(final int numberOfThreads) {
+			this.numberOfThreads = numberOfThreads;
+		}
+
+		@StringGetter( NUMBER_OF_THREADS )
+		public int getNumberOfThreads() {
+			return this.numberOfThreads;
+		}
+
 		@StringSetter( EXTERNAL_EXE_CONFIG_TEMPLATE )
 		public void setExternalExeConfigTemplate(final String externalExeConfigTemplate) {
 			this.externalExeConfigTemplate = externalExeConfigTemplate;
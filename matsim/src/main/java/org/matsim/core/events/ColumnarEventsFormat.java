@@ -0,0 +1,103 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Describes the binary, columnar events file format written by
+ * {@link org.matsim.core.events.algorithms.EventWriterColumnar} and read by {@link EventsReaderColumnar}.
+ * <br>
+ * All numbers are big-endian, as written by {@link java.io.DataOutputStream}. A file consists of
+ * <ol>
+ * <li>a header: <code>long MAGIC, int VERSION</code></li>
+ * <li>a sequence of deflate-compressed chunks, each containing up to {@link #CHUNK_SIZE} consecutive events
+ * stored column by column: <code>double time[n], int type[n], int person[n], int link[n], int vehicle[n],
+ * int attributeCount[n]</code>, followed by the additional attributes of all events in the chunk as
+ * <code>int key[m], byte kind[m], long value[m]</code>.</li>
+ * <li>a deflate-compressed footer with the dictionaries for event types, attribute keys, string values,
+ * person ids, link ids and vehicle ids, and an index of all chunks with their file offset, lengths,
+ * number of events, minimal and maximal event time, and the event types they contain.</li>
+ * <li>a trailer: <code>long footerOffset, int footerCompressedLength, int footerLength, long MAGIC</code>.</li>
+ * </ol>
+ * Types, keys, strings and ids are stored as index into the respective dictionary, with
+ * {@link #NONE} denoting a missing person, link or vehicle. Depending on its kind, an attribute value
+ * is either a dictionary index ({@link #KIND_STRING}) or the raw bits of a double value ({@link #KIND_DOUBLE}),
+ * the latter being used for all values that are exactly represented by {@link Double#toString(double)}.
+ * Attributes with a <code>null</code> value are stored with kind {@link #KIND_NULL} and are omitted when reading.
+ * As person, link and vehicle are stored in their own columns, the order of the attributes of a
+ * {@link org.matsim.api.core.v01.events.GenericEvent} may differ after reading.
+ * <br>
+ * The chunk index allows readers to skip all chunks outside a time window or not containing
+ * any of the requested event types without decompressing them.
+ */
+public final class ColumnarEventsFormat {
+
+	public static final String FILE_EXTENSION = ".evc";
+
+	public static final long MAGIC = 0x4d4154534d455643L; // "MATSMEVC"
+	public static final int VERSION = 1;
+
+	public static final int CHUNK_SIZE = 1 << 16;
+	public static final int HEADER_LENGTH = 8 + 4;
+	public static final int TRAILER_LENGTH = 8 + 4 + 4 + 8;
+
+	public static final int NONE = -1;
+
+	public static final byte KIND_STRING = 0;
+	public static final byte KIND_DOUBLE = 1;
+	public static final byte KIND_NULL = 2;
+
+	public static final String ATTRIBUTE_PERSON = "person";
+	public static final String ATTRIBUTE_LINK = "link";
+	public static final String ATTRIBUTE_VEHICLE = "vehicle";
+
+	private ColumnarEventsFormat() {
+	}
+
+	/*package*/ static byte[] inflate(final byte[] compressed, final int uncompressedLength) {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] data = new byte[uncompressedLength];
+			int offset = 0;
+			while (offset < uncompressedLength) {
+				int read = inflater.inflate(data, offset, uncompressedLength - offset);
+				if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+					break;
+				}
+				offset += read;
+			}
+			if (offset != uncompressedLength) {
+				throw new UncheckedIOException(new IOException("Corrupt events file: expected " + uncompressedLength + " bytes, but got " + offset));
+			}
+			return data;
+		} catch (DataFormatException e) {
+			throw new UncheckedIOException(new IOException("Corrupt events file.", e));
+		} finally {
+			inflater.end();
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Creates {@link EventHandlerCaller}s for <code>handleEvent</code> methods.
+ * <br>
+ * If possible, the caller is generated with {@link LambdaMetafactory} and invokes the
+ * method of the concrete handler class directly, giving a monomorphic call site per
+ * (handler class, event class) pair that the JIT can inline. If the concrete class
+ * is not accessible (e.g. anonymous or private classes), the handler interface's method
+ * is called instead. Only if no caller can be generated at all, e.g. because the
+ * handler is loaded by a different class loader, reflection is used as a fallback.
+ * <br>
+ * Generated callers are cached per method, so registering many handlers of the same
+ * class does not generate additional classes.
+ */
+final class EventHandlerCallerFactory {
+
+	private static final Logger log = Logger.getLogger(EventHandlerCallerFactory.class);
+
+	private static final MethodType CALLER_TYPE = MethodType.methodType(void.class, EventHandler.class, Event.class);
+
+	private static final Map<Method, EventHandlerCaller> cache = new ConcurrentHashMap<>();
+
+	private EventHandlerCallerFactory() {
+	}
+
+	/**
+	 * @param handlerClass the concrete class of the handler
+	 * @param interfaceMethod the <code>handleEvent</code> method as declared in the handler interface
+	 */
+	static EventHandlerCaller create(final Class<?> handlerClass, final Method interfaceMethod) {
+		Method method = findConcreteMethod(handlerClass, interfaceMethod);
+		if (method != null) {
+			EventHandlerCaller caller = getOrGenerate(method);
+			if (caller != null) {
+				return caller;
+			}
+		}
+		EventHandlerCaller caller = getOrGenerate(interfaceMethod);
+		if (caller != null) {
+			return caller;
+		}
+		log.warn("could not generate event handler caller for " + handlerClass.getName() + " and event class "
+				+ interfaceMethod.getParameterTypes()[0].getName() + ", falling back to reflection.");
+		return new ReflectiveCaller(interfaceMethod);
+	}
+
+	/**
+	 * Creates a caller always using reflection, as it was done before the introduction of generated callers.
+	 */
+	static EventHandlerCaller createReflective(final Method method) {
+		return new ReflectiveCaller(method);
+	}
+
+	private static Method findConcreteMethod(final Class<?> handlerClass, final Method interfaceMethod) {
+		try {
+			Method method = handlerClass.getMethod(interfaceMethod.getName(), interfaceMethod.getParameterTypes());
+			if (Modifier.isPublic(method.getDeclaringClass().getModifiers()) && !Modifier.isAbstract(method.getModifiers())) {
+				return method;
+			}
+		} catch (NoSuchMethodException | SecurityException e) {
+			// use the interface method
+		}
+		return null;
+	}
+
+	private static EventHandlerCaller getOrGenerate(final Method method) {
+		EventHandlerCaller caller = cache.get(method);
+		if (caller == null) {
+			caller = generate(method);
+			if (caller != null) {
+				cache.put(method, caller);
+			}
+		}
+		return caller;
+	}
+
+	private static EventHandlerCaller generate(final Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+		if (!EventHandler.class.isAssignableFrom(declaringClass) || !Event.class.isAssignableFrom(eventClass)) {
+			return null;
+		}
+		if (!isVisible(declaringClass) || !isVisible(eventClass)) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle target = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "call", MethodType.methodType(EventHandlerCaller.class),
+					CALLER_TYPE, target, target.type());
+			return (EventHandlerCaller) site.getTarget().invoke();
+		} catch (Throwable e) {
+			log.debug("could not generate event handler caller for " + method, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Generated callers reference the classes by name, so they must be resolvable from this class' class loader.
+	 */
+	private static boolean isVisible(final Class<?> klass) {
+		try {
+			return Class.forName(klass.getName(), false, EventHandlerCallerFactory.class.getClassLoader()) == klass;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private static final class ReflectiveCaller implements EventHandlerCaller {
+		private final Method method;
+
+		ReflectiveCaller(final Method method) {
+			this.method = method;
+		}
+
+		@Override
+		public void call(final EventHandler handler, final Event event) {
+			try {
+				this.method.invoke(handler, event);
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				throw new RuntimeException("problem invoking EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + this.method.getParameterTypes()[0].getCanonicalName(), e);
+			} catch (InvocationTargetException e) {
+				// behave like a direct call and pass on what the handler threw
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+
+}
@@ -20,9 +20,9 @@
 
 package org.matsim.core.events;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
@@ -43,26 +44,10 @@ import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
-import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
-import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
-import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
-import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
-import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -73,9 +58,9 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
  * </ol>
+ * When a handler is added, a direct caller is generated for each of its <code>handleEvent</code>
+ * methods (see {@link EventHandlerCallerFactory}), so events are dispatched without reflection.
  *
  * @author dstrippgen
  * @author mrieser
@@ -84,29 +69,54 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * Event classes whose handlers used to be called directly instead of by reflection. Exceptions thrown by
+	 * these handlers are propagated unchanged, all others are wrapped in a RuntimeException naming the handler.
+	 */
+	private static final Set<Class<?>> UNWRAPPED_EXCEPTION_EVENT_CLASSES = new HashSet<Class<?>>(Arrays.asList(
+			LinkLeaveEvent.class, LinkEnterEvent.class, VehicleEntersTrafficEvent.class, PersonArrivalEvent.class,
+			PersonDepartureEvent.class, ActivityEndEvent.class, ActivityStartEvent.class, TransitDriverStartsEvent.class,
+			PersonStuckEvent.class, PersonMoneyEvent.class, AgentWaitingForPtEvent.class, PersonEntersVehicleEvent.class,
+			PersonLeavesVehicleEvent.class, VehicleDepartsAtFacilityEvent.class, VehicleArrivesAtFacilityEvent.class,
+			Event.class));
+
 	static private class HandlerData {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
+		protected ArrayList<EventHandlerCaller> callerList = new ArrayList<EventHandlerCaller>(5);
 		protected Method method;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
 		}
+		protected void addHandler(final EventHandler handler) {
+			this.handlerList.add(handler);
+			this.callerList.add(EventHandlerCallerFactory.create(handler.getClass(), this.method));
+		}
 		protected void removeHandler(final EventHandler handler) {
-			this.handlerList.remove(handler);
+			int index = this.handlerList.indexOf(handler);
+			if (index >= 0) {
+				this.handlerList.remove(index);
+				this.callerList.remove(index);
+			}
 		}
 	}
 
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final EventHandlerCaller caller;
+		protected final ComponentMetrics.Timer timer;
+		protected final boolean wrapExceptions;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final EventHandlerCaller caller,
+				final ComponentMetrics.Timer timer) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.caller = caller;
+			this.timer = timer;
+			this.wrapExceptions = !UNWRAPPED_EXCEPTION_EVENT_CLASSES.contains(eventClass);
 		}
 	}
 
@@ -117,6 +127,8 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -137,6 +149,15 @@ public final class EventsManagerImpl implements EventsManager {
 	}
 
 
+	/**
+	 * Sets the metrics in which the time spent in every handler is recorded, as <code>events.&lt;handler class&gt;</code>.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+		this.cacheHandlers.clear();
+	}
+
 	@Override
 	public void addHandler (final EventHandler handler) {
 		Set<Class<?>> addedHandlers = new HashSet<Class<?>>();
@@ -210,7 +231,7 @@ public final class EventsManagerImpl implements EventsManager {
 						dat = new HandlerData(eventClass, method);
 						this.handlerData.add(dat);
 					}
-					dat.handlerList.add(handler);
+					dat.addHandler(handler);
 				}
 			}
 		}
@@ -219,16 +240,17 @@ public final class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+				long start = info.timer.start();
+				if (!info.wrapExceptions) {
+					info.caller.call(info.eventHandler, event);
+				} else {
+					try {
+						info.caller.call(info.eventHandler, event);
+					} catch (RuntimeException e) {
+						throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+					}
 				}
+				info.timer.stop(start);
 			}
 		}
 	}
@@ -245,8 +267,8 @@ public final class EventsManagerImpl implements EventsManager {
 		while (klass != Object.class) {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+				for (int i = 0; i < dat.handlerList.size(); i++) {
+					info.add(new HandlerInfo(klass, dat.handlerList.get(i), dat.callerList.get(i), getTimer(dat.handlerList.get(i))));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -255,8 +277,8 @@ public final class EventsManagerImpl implements EventsManager {
 		for (Class<?> intfc : getAllInterfaces(eventClass)) {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+				for (int i = 0; i < dat.handlerList.size(); i++) {
+					info.add(new HandlerInfo(intfc, dat.handlerList.get(i), dat.callerList.get(i), getTimer(dat.handlerList.get(i))));
 				}
 			}
 		}
@@ -266,6 +288,10 @@ public final class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	private ComponentMetrics.Timer getTimer(final EventHandler handler) {
+		return this.componentMetrics.getTimer("events." + ComponentMetrics.nameOf(handler));
+	}
+
 	private Set<Class<?>> getAllInterfaces(final Class<?> klass) {
 		Set<Class<?>> intfs = new HashSet<Class<?>>();
 		for (Class<?> intf : klass.getInterfaces()) {
@@ -282,60 +308,6 @@ public final class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
-		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
-		}
-		return false;
-	}
-
 	public void printEventHandlers() {
 		log.info("currently registered event-handlers:");
 		for (HandlerData handlerType : this.handlerData) {
@@ -0,0 +1,242 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files in the binary, columnar format described in {@link ColumnarEventsFormat}.
+ * <br>
+ * The file is memory-mapped chunk by chunk, so only the dictionaries and the currently decoded chunk
+ * are held in memory. If a time window or a set of event types is specified, chunks that cannot contain
+ * any matching event are skipped without being decompressed, and non-matching events of the other chunks
+ * are not created at all. The events are created by the same code as in {@link EventsReaderXMLv1}, so
+ * reading a columnar file results in the same event objects as reading the equivalent xml file.
+ *
+ * @see org.matsim.core.events.algorithms.EventWriterColumnar
+ */
+public final class EventsReaderColumnar implements MatsimReader {
+
+	private final static Logger log = Logger.getLogger(EventsReaderColumnar.class);
+
+	private final EventsReaderXMLv1 delegate;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private String[] eventTypes = null;
+
+	public EventsReaderColumnar(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper<?> cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> will be read.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * Only events of the given types will be read. Passing no types at all reads all events.
+	 */
+	public void setEventTypes(final String... eventTypes) {
+		this.eventTypes = eventTypes.length == 0 ? null : eventTypes.clone();
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < ColumnarEventsFormat.HEADER_LENGTH + ColumnarEventsFormat.TRAILER_LENGTH) {
+				throw new UncheckedIOException("File is too short to be a columnar events file: " + filename);
+			}
+			ByteBuffer header = map(channel, 0, ColumnarEventsFormat.HEADER_LENGTH);
+			if (header.getLong() != ColumnarEventsFormat.MAGIC) {
+				throw new UncheckedIOException("Not a columnar events file: " + filename);
+			}
+			int version = header.getInt();
+			if (version != ColumnarEventsFormat.VERSION) {
+				throw new UncheckedIOException("Unsupported version " + version + " of columnar events file " + filename);
+			}
+			ByteBuffer trailer = map(channel, size - ColumnarEventsFormat.TRAILER_LENGTH, ColumnarEventsFormat.TRAILER_LENGTH);
+			long footerOffset = trailer.getLong();
+			int footerCompressedLength = trailer.getInt();
+			int footerLength = trailer.getInt();
+			if (trailer.getLong() != ColumnarEventsFormat.MAGIC) {
+				throw new UncheckedIOException("Incomplete columnar events file, it was probably not closed correctly: " + filename);
+			}
+			ByteBuffer footer = ByteBuffer.wrap(inflate(channel, footerOffset, footerCompressedLength, footerLength));
+			String[] types = readDictionary(footer);
+			String[] keys = readDictionary(footer);
+			String[] strings = readDictionary(footer);
+			String[] persons = readDictionary(footer);
+			String[] links = readDictionary(footer);
+			String[] vehicles = readDictionary(footer);
+			boolean[] acceptedTypes = getAcceptedTypes(types);
+
+			int chunkCount = footer.getInt();
+			int skipped = 0;
+			for (int c = 0; c < chunkCount; c++) {
+				long offset = footer.getLong();
+				int compressedLength = footer.getInt();
+				int length = footer.getInt();
+				int eventCount = footer.getInt();
+				double minTime = footer.getDouble();
+				double maxTime = footer.getDouble();
+				int typeCount = footer.getInt();
+				boolean containsAcceptedType = false;
+				for (int t = 0; t < typeCount; t++) {
+					containsAcceptedType |= acceptedTypes[footer.getInt()];
+				}
+				if (!containsAcceptedType || maxTime < this.fromTime || minTime > this.toTime) {
+					skipped++;
+					continue;
+				}
+				ByteBuffer chunk = ByteBuffer.wrap(inflate(channel, offset, compressedLength, length));
+				readChunk(chunk, eventCount, acceptedTypes, types, keys, strings, persons, links, vehicles);
+			}
+			if (skipped > 0) {
+				log.info("skipped " + skipped + " of " + chunkCount + " chunks not matching the time window or event types.");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readChunk(final ByteBuffer chunk, final int n, final boolean[] acceptedTypes, final String[] types,
+			final String[] keys, final String[] strings, final String[] persons, final String[] links, final String[] vehicles) {
+		double[] times = new double[n];
+		chunk.asDoubleBuffer().get(times);
+		chunk.position(chunk.position() + n * 8);
+		int[] typeColumn = readInts(chunk, n);
+		int[] personColumn = readInts(chunk, n);
+		int[] linkColumn = readInts(chunk, n);
+		int[] vehicleColumn = readInts(chunk, n);
+		int[] attributeCounts = readInts(chunk, n);
+		int m = 0;
+		for (int count : attributeCounts) {
+			m += count;
+		}
+		int[] attributeKeys = readInts(chunk, m);
+		byte[] attributeKinds = new byte[m];
+		chunk.get(attributeKinds);
+		long[] attributeValues = new long[m];
+		chunk.asLongBuffer().get(attributeValues);
+
+		AttributesImpl atts = new AttributesImpl();
+		int attributeIndex = 0;
+		for (int i = 0; i < n; i++) {
+			int count = attributeCounts[i];
+			double time = times[i];
+			int type = typeColumn[i];
+			if (!acceptedTypes[type] || time < this.fromTime || time > this.toTime) {
+				attributeIndex += count;
+				continue;
+			}
+			atts.clear();
+			addAttribute(atts, ColumnarEventsFormat.ATTRIBUTE_PERSON, personColumn[i], persons);
+			addAttribute(atts, ColumnarEventsFormat.ATTRIBUTE_LINK, linkColumn[i], links);
+			addAttribute(atts, ColumnarEventsFormat.ATTRIBUTE_VEHICLE, vehicleColumn[i], vehicles);
+			for (int a = 0; a < count; a++, attributeIndex++) {
+				String key = keys[attributeKeys[attributeIndex]];
+				long value = attributeValues[attributeIndex];
+				switch (attributeKinds[attributeIndex]) {
+					case ColumnarEventsFormat.KIND_STRING:
+						atts.addAttribute("", key, key, "CDATA", strings[(int) value]);
+						break;
+					case ColumnarEventsFormat.KIND_DOUBLE:
+						atts.addAttribute("", key, key, "CDATA", Double.toString(Double.longBitsToDouble(value)));
+						break;
+					default:
+						// null values are not passed on
+				}
+			}
+			this.delegate.processEvent(time, types[type], atts);
+		}
+	}
+
+	private static void addAttribute(final AttributesImpl atts, final String key, final int index, final String[] values) {
+		if (index != ColumnarEventsFormat.NONE) {
+			atts.addAttribute("", key, key, "CDATA", values[index]);
+		}
+	}
+
+	private boolean[] getAcceptedTypes(final String[] types) {
+		boolean[] accepted = new boolean[types.length];
+		if (this.eventTypes == null) {
+			Arrays.fill(accepted, true);
+		} else {
+			for (int i = 0; i < types.length; i++) {
+				for (String eventType : this.eventTypes) {
+					if (eventType.equals(types[i])) {
+						accepted[i] = true;
+					}
+				}
+			}
+		}
+		return accepted;
+	}
+
+	private static int[] readInts(final ByteBuffer buffer, final int length) {
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * 4);
+		return values;
+	}
+
+	private static String[] readDictionary(final ByteBuffer buffer) {
+		String[] values = new String[buffer.getInt()];
+		for (int i = 0; i < values.length; i++) {
+			byte[] utf8 = new byte[buffer.getInt()];
+			buffer.get(utf8);
+			values[i] = new String(utf8, StandardCharsets.UTF_8);
+		}
+		return values;
+	}
+
+	private static byte[] inflate(final FileChannel channel, final long offset, final int compressedLength, final int length) throws IOException {
+		byte[] compressed = new byte[compressedLength];
+		map(channel, offset, compressedLength).get(compressed);
+		return ColumnarEventsFormat.inflate(compressed, length);
+	}
+
+	private static MappedByteBuffer map(final FileChannel channel, final long offset, final int length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+	}
+
+}
@@ -0,0 +1,299 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Lock-free multi-producer, multi-consumer buffer that passes every event to every consumer,
+ * in the style of the LMAX Disruptor.
+ * <br>
+ * Producers claim a sequence number with a single atomic increment and write the event into
+ * the slot of that sequence. Every consumer runs in its own thread, reads the slots in sequence
+ * order and keeps track of its own position. Thus all consumers see the events in exactly the
+ * same order, which is the order in which the sequences were claimed, and each event is written
+ * only once independent of the number of consumers.
+ * <br>
+ * The slots are organized as a chain of fixed-size segments instead of a single wrapping array.
+ * Event handlers may create events themselves while being called from a consumer thread; with
+ * a fixed capacity, such a consumer could wait for free slots only it could free itself.
+ * Producers that are not consumer threads are held back if the consumers fall too far behind,
+ * which limits the memory used by the buffer.
+ *
+ * @see ParallelEventsManagerImpl
+ */
+/*package*/ final class EventsRingBuffer {
+
+	private static final int SEGMENT_SHIFT = 12;
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = 50000;
+
+	private static final AtomicReferenceFieldUpdater<EventsRingBuffer, Segment> TAIL =
+			AtomicReferenceFieldUpdater.newUpdater(EventsRingBuffer.class, Segment.class, "tail");
+
+	/** next sequence to be claimed by a producer */
+	private final AtomicLong cursor = new AtomicLong(0);
+	/** the most recently created segment, used as starting point by producers looking up their segment */
+	private volatile Segment tail;
+	private final Consumer[] consumers;
+	private final Thread[] threads;
+	private final long maxBacklog;
+	private final AtomicBoolean aborted = new AtomicBoolean(false);
+
+	/**
+	 * @param eventsManagers one consumer thread is created for each events manager.
+	 * @param maxBacklog the maximum number of events not yet processed by all consumers before producers have to wait.
+	 */
+	EventsRingBuffer(final EventsManager[] eventsManagers, final long maxBacklog) {
+		Segment first = new Segment(0, null, eventsManagers.length);
+		this.tail = first;
+		this.maxBacklog = Math.max(SEGMENT_SIZE, maxBacklog);
+		this.consumers = new Consumer[eventsManagers.length];
+		this.threads = new Thread[eventsManagers.length];
+		for (int i = 0; i < eventsManagers.length; i++) {
+			this.consumers[i] = new Consumer(eventsManagers[i], first);
+		}
+	}
+
+	void start(final String threadNamePrefix, final UncaughtExceptionHandler exceptionHandler) {
+		for (int i = 0; i < this.consumers.length; i++) {
+			Thread thread = new Thread(this.consumers[i], threadNamePrefix + i);
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler((t, e) -> {
+				this.aborted.set(true);
+				exceptionHandler.uncaughtException(t, e);
+			});
+			this.threads[i] = thread;
+		}
+		for (Thread thread : this.threads) {
+			thread.start();
+		}
+	}
+
+	void publish(final Event event) {
+		long sequence = this.cursor.getAndIncrement();
+		if (!isConsumerThread()) {
+			int idleCounter = 0;
+			while (sequence - getMinimumConsumerSequence() > this.maxBacklog && !this.aborted.get()) {
+				idleCounter = idle(idleCounter);
+			}
+		}
+		Segment segment = findSegment(sequence >>> SEGMENT_SHIFT);
+		segment.slots.lazySet((int) (sequence & SEGMENT_MASK), event);
+	}
+
+	/**
+	 * Blocks until all events published so far, including the ones created by event handlers
+	 * while processing them, are processed by all consumers.
+	 *
+	 * @return <code>false</code> if a consumer thread died, <code>true</code> otherwise.
+	 */
+	boolean awaitProcessed() {
+		int idleCounter = 0;
+		while (true) {
+			long published = this.cursor.get() - 1;
+			while (getMinimumConsumerSequence() < published) {
+				if (this.aborted.get()) {
+					return false;
+				}
+				idleCounter = idle(idleCounter);
+			}
+			// handlers may have created additional events in the meantime
+			if (this.cursor.get() - 1 == published) {
+				return !this.aborted.get();
+			}
+		}
+	}
+
+	/**
+	 * Waits until all events are processed and stops the consumer threads.
+	 *
+	 * @return <code>false</code> if a consumer thread died, <code>true</code> otherwise.
+	 */
+	boolean close() {
+		boolean success = awaitProcessed();
+		if (success) {
+			publish(new LastEventOfIteration(0.0));
+		}
+		try {
+			for (Thread thread : this.threads) {
+				if (success) {
+					thread.join();
+				} else {
+					thread.interrupt();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		return success && !this.aborted.get();
+	}
+
+	private boolean isConsumerThread() {
+		Thread current = Thread.currentThread();
+		for (Thread thread : this.threads) {
+			if (thread == current) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long getMinimumConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			long sequence = consumer.processed.get();
+			if (sequence < min) {
+				min = sequence;
+			}
+		}
+		return min;
+	}
+
+	private Segment findSegment(final long index) {
+		Segment segment = this.tail;
+		// another producer may have already created newer segments; the older ones are still linked
+		// since no consumer can have passed a segment containing an unpublished sequence.
+		while (segment.index > index) {
+			segment = segment.prev;
+		}
+		while (segment.index < index) {
+			Segment next = segment.next;
+			if (next == null) {
+				Segment created = new Segment(segment.index + 1, segment, this.consumers.length);
+				if (Segment.NEXT.compareAndSet(segment, null, created)) {
+					next = created;
+				} else {
+					next = segment.next;
+				}
+			}
+			segment = next;
+		}
+		Segment currentTail = this.tail;
+		while (currentTail.index < segment.index && !TAIL.compareAndSet(this, currentTail, segment)) {
+			currentTail = this.tail;
+		}
+		return segment;
+	}
+
+	private static int idle(final int counter) {
+		if (counter < SPIN_TRIES) {
+			return counter + 1;
+		}
+		if (counter < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+			return counter + 1;
+		}
+		LockSupport.parkNanos(PARK_NANOS);
+		return counter;
+	}
+
+	private static final class Segment {
+		static final AtomicReferenceFieldUpdater<Segment, Segment> NEXT =
+				AtomicReferenceFieldUpdater.newUpdater(Segment.class, Segment.class, "next");
+
+		final long index;
+		final AtomicReferenceArray<Event> slots = new AtomicReferenceArray<>(SEGMENT_SIZE);
+		/** number of consumers that have not yet read all events of this segment */
+		final AtomicInteger remainingConsumers;
+		volatile Segment next = null;
+		volatile Segment prev;
+
+		Segment(final long index, final Segment prev, final int numberOfConsumers) {
+			this.index = index;
+			this.prev = prev;
+			this.remainingConsumers = new AtomicInteger(numberOfConsumers);
+		}
+	}
+
+	private final class Consumer implements Runnable {
+		private final EventsManager eventsManager;
+		/** the sequence of the last event that was fully processed by this consumer */
+		final AtomicLong processed = new AtomicLong(-1);
+		private Segment segment;
+
+		Consumer(final EventsManager eventsManager, final Segment first) {
+			this.eventsManager = eventsManager;
+			this.segment = first;
+		}
+
+		@Override
+		public void run() {
+			long sequence = 0;
+			while (true) {
+				int slot = (int) (sequence & SEGMENT_MASK);
+				if (slot == 0 && sequence > 0 && !moveToNextSegment()) {
+					return;
+				}
+				Event event = this.segment.slots.get(slot);
+				int idleCounter = 0;
+				while (event == null) {
+					if (Thread.interrupted()) {
+						return;
+					}
+					idleCounter = idle(idleCounter);
+					event = this.segment.slots.get(slot);
+				}
+				if (event instanceof LastEventOfIteration) {
+					this.processed.set(sequence);
+					Gbl.printCurrentThreadCpuTime();
+					return;
+				}
+				this.eventsManager.processEvent(event);
+				this.processed.lazySet(sequence);
+				sequence++;
+			}
+		}
+
+		private boolean moveToNextSegment() {
+			Segment current = this.segment;
+			Segment next = current.next;
+			int idleCounter = 0;
+			while (next == null) {
+				if (Thread.interrupted()) {
+					return false;
+				}
+				idleCounter = idle(idleCounter);
+				next = current.next;
+			}
+			if (current.remainingConsumers.decrementAndGet() == 0) {
+				// all consumers are done with the current segment, let it be garbage collected
+				next.prev = null;
+			}
+			this.segment = next;
+			return true;
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import java.util.concurrent.Phaser;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -53,7 +54,7 @@ public final class ParallelEventsManager implements EventsManager {
 
 	private Distributor distributor;
 	
-	private EventsManager singleThreadEventsHandler;
+	private EventsManagerImpl singleThreadEventsHandler;
 	private EventsManager[] eventsManagers;
 	private final List<EventHandler> eventsHandlers;
 	
@@ -90,6 +91,8 @@ public final class ParallelEventsManager implements EventsManager {
 //	private final int eventsArraySize = 512;	// syncOnTimeSteps = true
 	private final int eventsArraySize;
 
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
+
 	@Inject
 	ParallelEventsManager(Config config) {
 		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true);
@@ -120,6 +123,15 @@ public final class ParallelEventsManager implements EventsManager {
 		else this.eventsArraySize = 32768;
 	}
 	
+	/**
+	 * Sets the metrics in which the time spent in every handler is recorded, unless each handler has its own thread, see {@link EventsManagerImpl#setComponentMetrics(ComponentMetrics)}.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+		this.singleThreadEventsHandler.setComponentMetrics(componentMetrics);
+	}
+
 	@Override
 	public void processEvent(final Event event) {
 		if (this.parallelMode) this.distributor.processEvent(event);
@@ -172,7 +184,11 @@ public final class ParallelEventsManager implements EventsManager {
 		if (this.oneThreadPerHandler) {
 			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[i] = new SingleHandlerEventsManager(this.eventsHandlers.get(i));
 		} else {
-			for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+			for (int i = 0; i < this.numOfThreads; i++) {
+				EventsManagerImpl eventsManager = new EventsManagerImpl();
+				eventsManager.setComponentMetrics(this.componentMetrics);
+				this.eventsManagers[i] = eventsManager;
+			}
 			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[this.eventsHandlers.size() % numOfThreads].addHandler(this.eventsHandlers.get(i));
 		}
 		
@@ -22,8 +22,10 @@ package org.matsim.core.events;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -55,18 +57,26 @@ import javax.inject.Inject;
  * (not really needed, but can make performance slightly faster in larger
  * simulations).
  *
+ * All events are written once into a shared {@link EventsRingBuffer}, from which each
+ * events handling thread reads them in the same order. Events can be created concurrently
+ * by several threads, e.g. the QSim's QNetsimEngineRunners, without taking locks. As the
+ * QSim only calls {@link #afterSimStep(double)} once all events of a time step are created,
+ * the events of a time step are always handled before the ones of the next time step.
+ * If <code>synchronizeOnSimSteps</code> is set, {@link #afterSimStep(double)} additionally
+ * blocks until all events of the time step are handled, like {@link SimStepParallelEventsManagerImpl}.
+ *
  * @see <a href="http://www.matsim.org/node/238">http://www.matsim.org/node/238</a>
  * @author rashid_waraich
  *
  */
 public final class ParallelEventsManagerImpl implements EventsManager {
 
-	private boolean parallelMode = true;
+	private volatile boolean parallelMode = false;
 	private int numberOfThreads;
+	private boolean synchronizeOnSimSteps = false;
 	private EventsManagerImpl[] events = null;
-	private ProcessEventThread[] eventsProcessThread = null;
-	private Thread[] threads = null;
-	private int numberOfAddedEventsHandler = 0;
+	private EventsRingBuffer ringBuffer = null;
+	private final AtomicInteger numberOfAddedEventsHandler = new AtomicInteger(0);
 	private final AtomicBoolean hadException = new AtomicBoolean(false);
 	private final ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler(hadException);
 
@@ -75,8 +85,8 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	// this number should be set in the following way:
 	// if the number of events is estimated as x, then this number
 	// could be set to x/10
-	// the higher this parameter, the less locks are used, but
-	// the more the time buffer between the simulation and events handling
+	// it is the maximum number of events the simulation may be ahead of
+	// the events handling before it has to wait.
 	// for small simulations, the default value is ok and it even works
 	// quite well for larger simulations with 10 million events
 	private int preInputBufferMaxLength = 100000;
@@ -86,6 +96,8 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		if (config.parallelEventHandling().getEstimatedNumberOfEvents() != null) {
 			preInputBufferMaxLength = (int) (config.parallelEventHandling().getEstimatedNumberOfEvents() / 10);
 		}
+		Boolean synchronize = config.parallelEventHandling().getSynchronizeOnSimSteps();
+		this.synchronizeOnSimSteps = synchronize != null && synchronize;
 		init(config.parallelEventHandling().getNumberOfThreads());
 	}
 
@@ -109,32 +121,52 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		init(numberOfThreads);
 	}
 
+	/**
+	 * @param synchronizeOnSimSteps
+	 *            if <code>true</code>, all events of a time step are handled before {@link #afterSimStep(double)} returns.
+	 */
+	public ParallelEventsManagerImpl(int numberOfThreads, long estimatedNumberOfEvents, boolean synchronizeOnSimSteps) {
+		this(numberOfThreads, estimatedNumberOfEvents);
+		this.synchronizeOnSimSteps = synchronizeOnSimSteps;
+	}
+
+	/**
+	 * Sets the metrics in which the time spent in every handler is recorded, see {@link EventsManagerImpl#setComponentMetrics(ComponentMetrics)}.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		for (EventsManagerImpl eventsManager : this.events) {
+			synchronized (eventsManager) {
+				eventsManager.setComponentMetrics(componentMetrics);
+			}
+		}
+	}
+
 	@Override
 	public void processEvent(final Event event) {
 		if (parallelMode) {
-			for (int i = 0; i < eventsProcessThread.length; i++) {
-				eventsProcessThread[i].processEvent(event);
-			}
+			ringBuffer.publish(event);
 		} else {
-			for (int i = 0; i < eventsProcessThread.length; i++) {
-				eventsProcessThread[i].getEvents().processEvent(event);
+			for (int i = 0; i < events.length; i++) {
+				events[i].processEvent(event);
 			}
 		}
 	}
 
 	@Override
 	public void addHandler(final EventHandler handler) {
-		synchronized (this) {
-			log.info("adding Event-Handler " + handler.getClass().getName() + " to thread " + numberOfAddedEventsHandler);
-			events[numberOfAddedEventsHandler].addHandler(handler);
-			numberOfAddedEventsHandler = (numberOfAddedEventsHandler + 1) % numberOfThreads;
+		// handlers are distributed round-robin; only the events manager the handler is added to is locked
+		int thread = Math.floorMod(numberOfAddedEventsHandler.getAndIncrement(), numberOfThreads);
+		log.info("adding Event-Handler " + handler.getClass().getName() + " to thread " + thread);
+		synchronized (events[thread]) {
+			events[thread].addHandler(handler);
 		}
 	}
 
 	@Override
 	public void resetHandlers(final int iteration) {
-		synchronized (this) {
-			for (int i = 0; i < events.length; i++) {
+		for (int i = 0; i < events.length; i++) {
+			synchronized (events[i]) {
 				events[i].resetHandlers(iteration);
 			}
 		}
@@ -142,16 +174,16 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void removeHandler(final EventHandler handler) {
-		synchronized (this) {
-			for (int i = 0; i < events.length; i++) {
+		for (int i = 0; i < events.length; i++) {
+			synchronized (events[i]) {
 				events[i].removeHandler(handler);
 			}
 		}
 	}
 
 	private void printEventHandlers() {
-		synchronized (this) {
-			for (int i = 0; i < events.length; i++) {
+		for (int i = 0; i < events.length; i++) {
+			synchronized (events[i]) {
 				log.info("registered event handlers for thread " + i + ":");
 				events[i].printEventHandlers();
 			}
@@ -161,9 +193,6 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	private void init(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 		this.events = new EventsManagerImpl[numberOfThreads];
-		this.eventsProcessThread = new ProcessEventThread[numberOfThreads];
-		this.threads = new Thread[numberOfThreads];
-		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
 			events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
 		}
@@ -177,16 +206,9 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	// anymore
 	@Override
 	public void finishProcessing() {
-		for (int i = 0; i < eventsProcessThread.length; i++) {
-			eventsProcessThread[i].close();
-		}
-
-		try {
-			for (Thread t : this.threads) {
-				t.join();
-			}
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		if (this.parallelMode) {
+			// waits for all events to be handled, including events created by handlers in the meantime
+			this.ringBuffer.close();
 		}
 		
 		// list which threads had which handlers to debug performance issues
@@ -211,12 +233,8 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	@Override
 	public void initProcessing() {
 		// reset this class, so that it can be reused for the next iteration
-		for (int i = 0; i < numberOfThreads; i++) {
-			this.eventsProcessThread[i] = new ProcessEventThread(events[i], preInputBufferMaxLength);
-			this.threads[i] = new Thread(eventsProcessThread[i], "Events-" + i);
-			this.threads[i].setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
-			this.threads[i].start();
-		}
+		this.ringBuffer = new EventsRingBuffer(this.events, this.preInputBufferMaxLength);
+		this.ringBuffer.start("Events-", this.uncaughtExceptionHandler);
 		
 		// (re-)activate parallel mode while the mobsim is running
 		this.parallelMode = true;
@@ -243,7 +261,10 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void afterSimStep(double time) {
-		// nothing to do in this implementation
+		if (this.synchronizeOnSimSteps && this.parallelMode) {
+			// if a thread died, finishProcessing() will report it
+			this.ringBuffer.awaitProcessed();
+		}
 	}
 
 }
@@ -21,6 +21,7 @@
 package org.matsim.core.events;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
@@ -92,6 +93,15 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
 	}
 
+	/**
+	 * Sets the metrics in which the time spent in every handler is recorded, see {@link EventsManagerImpl#setComponentMetrics(ComponentMetrics)}.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		this.delegate.setComponentMetrics(componentMetrics);
+		for (EventsManagerImpl eventsManager : this.eventsManagers) eventsManager.setComponentMetrics(componentMetrics);
+	}
+
 	@Override
 	public void processEvent(final Event event) {
 		this.counter.incrementAndGet();
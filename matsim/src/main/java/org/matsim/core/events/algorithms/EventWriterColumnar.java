@@ -0,0 +1,341 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.ColumnarEventsFormat;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in the binary, columnar format described in {@link ColumnarEventsFormat}.
+ * Events are collected in chunks of {@link ColumnarEventsFormat#CHUNK_SIZE} events, and each
+ * chunk is compressed and written as soon as it is full. The dictionaries and the chunk index
+ * are written when the file is closed, so a file is only readable after {@link #closeFile()}.
+ *
+ * @see org.matsim.core.events.EventsReaderColumnar
+ */
+public class EventWriterColumnar implements EventWriter, BasicEventHandler {
+
+	private final DataOutputStream out;
+	private long position = 0;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressBuffer = new byte[1024];
+
+	private final Dictionary types = new Dictionary();
+	private final Dictionary keys = new Dictionary();
+	private final Dictionary strings = new Dictionary();
+	private final Dictionary persons = new Dictionary();
+	private final Dictionary links = new Dictionary();
+	private final Dictionary vehicles = new Dictionary();
+
+	private final double[] times = new double[ColumnarEventsFormat.CHUNK_SIZE];
+	private final int[] typeColumn = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private final int[] personColumn = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private final int[] linkColumn = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private final int[] vehicleColumn = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private final int[] attributeCounts = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private int eventCount = 0;
+
+	private int[] attributeKeys = new int[ColumnarEventsFormat.CHUNK_SIZE];
+	private byte[] attributeKinds = new byte[ColumnarEventsFormat.CHUNK_SIZE];
+	private long[] attributeValues = new long[ColumnarEventsFormat.CHUNK_SIZE];
+	private int attributeCount = 0;
+
+	private final List<ChunkInfo> chunks = new ArrayList<>();
+
+	public EventWriterColumnar(final String outfilename) {
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outfilename), 1 << 16));
+			this.out.writeLong(ColumnarEventsFormat.MAGIC);
+			this.out.writeInt(ColumnarEventsFormat.VERSION);
+			this.position = ColumnarEventsFormat.HEADER_LENGTH;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		int index = this.eventCount;
+		this.times[index] = event.getTime();
+		this.typeColumn[index] = this.types.index(event.getEventType());
+		int person = ColumnarEventsFormat.NONE;
+		int link = ColumnarEventsFormat.NONE;
+		int vehicle = ColumnarEventsFormat.NONE;
+		int count = 0;
+		for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+			switch (key) {
+				case Event.ATTRIBUTE_TIME:
+				case Event.ATTRIBUTE_TYPE:
+					break;
+				case ColumnarEventsFormat.ATTRIBUTE_PERSON:
+					if (value != null) {
+						person = this.persons.index(value);
+					}
+					break;
+				case ColumnarEventsFormat.ATTRIBUTE_LINK:
+					if (value != null) {
+						link = this.links.index(value);
+					}
+					break;
+				case ColumnarEventsFormat.ATTRIBUTE_VEHICLE:
+					if (value != null) {
+						vehicle = this.vehicles.index(value);
+					}
+					break;
+				default:
+					addAttribute(this.keys.index(key), value);
+					count++;
+			}
+		}
+		this.personColumn[index] = person;
+		this.linkColumn[index] = link;
+		this.vehicleColumn[index] = vehicle;
+		this.attributeCounts[index] = count;
+		this.eventCount++;
+		if (this.eventCount == ColumnarEventsFormat.CHUNK_SIZE) {
+			writeChunk();
+		}
+	}
+
+	private void addAttribute(final int key, final String value) {
+		if (this.attributeCount == this.attributeKeys.length) {
+			int newLength = this.attributeKeys.length * 2;
+			this.attributeKeys = Arrays.copyOf(this.attributeKeys, newLength);
+			this.attributeKinds = Arrays.copyOf(this.attributeKinds, newLength);
+			this.attributeValues = Arrays.copyOf(this.attributeValues, newLength);
+		}
+		int index = this.attributeCount;
+		this.attributeKeys[index] = key;
+		if (value == null) {
+			this.attributeKinds[index] = ColumnarEventsFormat.KIND_NULL;
+			this.attributeValues[index] = 0;
+		} else if (isExactDouble(value)) {
+			this.attributeKinds[index] = ColumnarEventsFormat.KIND_DOUBLE;
+			this.attributeValues[index] = Double.doubleToRawLongBits(Double.parseDouble(value));
+		} else {
+			this.attributeKinds[index] = ColumnarEventsFormat.KIND_STRING;
+			this.attributeValues[index] = this.strings.index(value);
+		}
+		this.attributeCount++;
+	}
+
+	/**
+	 * @return <code>true</code> if the value is the string representation of a double as created by
+	 * {@link Double#toString(double)}, i.e. it can be stored as double and restored without any change.
+	 */
+	private static boolean isExactDouble(final String value) {
+		if (value.isEmpty()) {
+			return false;
+		}
+		char first = value.charAt(0);
+		if ((first < '0' || first > '9') && first != '-') {
+			return false; // avoids the costly exception for the typical non-numeric values
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private void writeChunk() {
+		if (this.eventCount == 0) {
+			return;
+		}
+		int n = this.eventCount;
+		int m = this.attributeCount;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(n * 28 + m * 13);
+		DataOutputStream data = new DataOutputStream(bytes);
+		double minTime = Double.POSITIVE_INFINITY;
+		double maxTime = Double.NEGATIVE_INFINITY;
+		BitSet chunkTypes = new BitSet();
+		try {
+			for (int i = 0; i < n; i++) {
+				double time = this.times[i];
+				data.writeDouble(time);
+				minTime = Math.min(minTime, time);
+				maxTime = Math.max(maxTime, time);
+			}
+			for (int i = 0; i < n; i++) {
+				data.writeInt(this.typeColumn[i]);
+				chunkTypes.set(this.typeColumn[i]);
+			}
+			writeInts(data, this.personColumn, n);
+			writeInts(data, this.linkColumn, n);
+			writeInts(data, this.vehicleColumn, n);
+			writeInts(data, this.attributeCounts, n);
+			writeInts(data, this.attributeKeys, m);
+			data.write(this.attributeKinds, 0, m);
+			for (int i = 0; i < m; i++) {
+				data.writeLong(this.attributeValues[i]);
+			}
+			data.flush();
+			byte[] uncompressed = bytes.toByteArray();
+			int compressedLength = compress(uncompressed);
+			ChunkInfo chunk = new ChunkInfo(this.position, compressedLength, uncompressed.length, n, minTime, maxTime, chunkTypes);
+			this.out.write(this.compressBuffer, 0, compressedLength);
+			this.position += compressedLength;
+			this.chunks.add(chunk);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.eventCount = 0;
+		this.attributeCount = 0;
+	}
+
+	private static void writeInts(final DataOutputStream data, final int[] values, final int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			data.writeInt(values[i]);
+		}
+	}
+
+	/**
+	 * Compresses the data into {@link #compressBuffer}, growing it if necessary.
+	 *
+	 * @return the number of compressed bytes
+	 */
+	private int compress(final byte[] uncompressed) {
+		this.deflater.reset();
+		this.deflater.setInput(uncompressed);
+		this.deflater.finish();
+		int length = 0;
+		while (!this.deflater.finished()) {
+			if (length == this.compressBuffer.length) {
+				this.compressBuffer = Arrays.copyOf(this.compressBuffer, this.compressBuffer.length * 2);
+			}
+			length += this.deflater.deflate(this.compressBuffer, length, this.compressBuffer.length - length);
+		}
+		return length;
+	}
+
+	@Override
+	public void closeFile() {
+		writeChunk();
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream footer = new DataOutputStream(bytes);
+			this.types.write(footer);
+			this.keys.write(footer);
+			this.strings.write(footer);
+			this.persons.write(footer);
+			this.links.write(footer);
+			this.vehicles.write(footer);
+			footer.writeInt(this.chunks.size());
+			for (ChunkInfo chunk : this.chunks) {
+				chunk.write(footer);
+			}
+			footer.flush();
+			byte[] uncompressed = bytes.toByteArray();
+			int compressedLength = compress(uncompressed);
+			long footerOffset = this.position;
+			this.out.write(this.compressBuffer, 0, compressedLength);
+			this.out.writeLong(footerOffset);
+			this.out.writeInt(compressedLength);
+			this.out.writeInt(uncompressed.length);
+			this.out.writeLong(ColumnarEventsFormat.MAGIC);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.deflater.end();
+		}
+	}
+
+	private static final class Dictionary {
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		int index(final String value) {
+			Integer index = this.indices.get(value);
+			if (index == null) {
+				index = this.values.size();
+				this.indices.put(value, index);
+				this.values.add(value);
+			}
+			return index;
+		}
+
+		void write(final DataOutputStream out) throws IOException {
+			out.writeInt(this.values.size());
+			for (String value : this.values) {
+				byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(utf8.length);
+				out.write(utf8);
+			}
+		}
+	}
+
+	private static final class ChunkInfo {
+		final long offset;
+		final int compressedLength;
+		final int length;
+		final int eventCount;
+		final double minTime;
+		final double maxTime;
+		final BitSet types;
+
+		ChunkInfo(final long offset, final int compressedLength, final int length, final int eventCount,
+				final double minTime, final double maxTime, final BitSet types) {
+			this.offset = offset;
+			this.compressedLength = compressedLength;
+			this.length = length;
+			this.eventCount = eventCount;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+			this.types = types;
+		}
+
+		void write(final DataOutputStream out) throws IOException {
+			out.writeLong(this.offset);
+			out.writeInt(this.compressedLength);
+			out.writeInt(this.length);
+			out.writeInt(this.eventCount);
+			out.writeDouble(this.minTime);
+			out.writeDouble(this.maxTime);
+			out.writeInt(this.types.cardinality());
+			for (int type = this.types.nextSetBit(0); type >= 0; type = this.types.nextSetBit(type + 1)) {
+				out.writeInt(type);
+			}
+		}
+	}
+
+}
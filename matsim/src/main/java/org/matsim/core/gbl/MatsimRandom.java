@@ -58,6 +58,9 @@ public abstract class MatsimRandom {
 	private static final Random random = new Random(DEFAULT_RANDOM_SEED);
 //	private static final Random random = new InstrumentedRandom(DEFAULT_RANDOM_SEED);
 
+	/** random number generators replacing the global one in some threads, see {@link #setThreadRandom(Random)} */
+	private static final ThreadLocal<Random> threadRandom = new ThreadLocal<>();
+
 	/** Resets the random number generator with a default random seed. */
 	public static void reset() {
 		reset(DEFAULT_RANDOM_SEED);
@@ -70,11 +73,43 @@ public abstract class MatsimRandom {
 	public static void reset(final long seed) {
 		lastUsedSeed = seed;
 		internalCounter = 0;
-		getRandom().setSeed(seed);
+		random.setSeed(seed);
 //		prepareRNG(random);
 	}
 	public static Random getRandom() {
-		return random;
+		Random r = threadRandom.get();
+		return r == null ? random : r;
+	}
+
+	/**
+	 * Makes {@link #getRandom()} return the given random number generator instead of the global one,
+	 * but only when called from the current thread. This allows code which uses the global random number
+	 * generator, e.g. plan selectors, to be run in parallel and still behave deterministically.
+	 *
+	 * @param rnd the random number generator to use in the current thread, or <code>null</code> to use the global one again.
+	 */
+	public static void setThreadRandom(final Random rnd) {
+		if (rnd == null) {
+			threadRandom.remove();
+		} else {
+			threadRandom.set(rnd);
+		}
+	}
+
+	/**
+	 * Derives a seed for a random number generator from the seed MATSim was last reset with, a key (e.g. the
+	 * id of a person) and a number (e.g. the iteration). The same arguments always result in the same seed,
+	 * independent of the order or the thread in which the seeds are created.
+	 */
+	public static long getSeed(final String key, final long number) {
+		long h = lastUsedSeed * 0x9E3779B97F4A7C15L + number;
+		for (int i = 0; i < key.length(); i++) {
+			h = 31 * h + key.charAt(i);
+		}
+		// the finalizer of SplitMix64, so similar keys result in very different seeds
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return h ^ (h >>> 31);
 	}
 
 	/** Returns an instance of a random number generator, which can be used
@@ -0,0 +1,371 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A priority queue of elements which become due at a certain time, for engines which release their
+ * agents as the simulation time passes (e.g. activity ends or teleportation arrivals).
+ * <br>
+ * The elements are put into buckets of one second, arranged in a ring covering the next
+ * {@link #DEFAULT_NUMBER_OF_BUCKETS} seconds. Adding an element therefore is O(1), and polling
+ * the due elements of a time step only looks at the buckets of that time step. A bucket is sorted
+ * when it becomes due, by time and then by the given tie breaker, so the elements are returned in
+ * exactly the same order as by a {@link PriorityQueue} with the corresponding comparator. Elements
+ * further in the future than the ring covers are kept in a priority queue until their bucket
+ * comes into range.
+ * <br>
+ * If the queue is created as <code>removable</code>, it remembers the entry of every element, so
+ * {@link #remove(Object)} is O(1). Each element may then be contained at most once.
+ * <br>
+ * This class is not thread-safe.
+ */
+/*package*/ final class CalendarQueue<E> {
+
+	/*package*/ static final int DEFAULT_NUMBER_OF_BUCKETS = 1 << 17; // a bit more than 36 hours
+
+	private static final class Entry<E> {
+		final E element;
+		final double time;
+		boolean removed = false;
+		boolean inBucket = false;
+
+		Entry(E element, double time) {
+			this.element = element;
+			this.time = time;
+		}
+	}
+
+	private static final class Bucket<E> {
+		Entry<E>[] entries = newEntryArray(4);
+		int head = 0;
+		int size = 0;
+		boolean sorted = true;
+
+		void add(Entry<E> entry) {
+			if (this.size == this.entries.length) {
+				if (this.head > 0) {
+					System.arraycopy(this.entries, this.head, this.entries, 0, this.size - this.head);
+					Arrays.fill(this.entries, this.size - this.head, this.size, null);
+					this.size -= this.head;
+					this.head = 0;
+				}
+				if (this.size == this.entries.length) {
+					this.entries = Arrays.copyOf(this.entries, 2 * this.entries.length);
+				}
+			}
+			this.entries[this.size++] = entry;
+			this.sorted = false;
+		}
+
+		/**
+		 * @return the first entry which is not removed, or <code>null</code> if the bucket is empty
+		 */
+		Entry<E> peek(Comparator<Entry<E>> comparator) {
+			if (!this.sorted) {
+				Arrays.sort(this.entries, this.head, this.size, comparator);
+				this.sorted = true;
+			}
+			while (this.head < this.size && this.entries[this.head].removed) {
+				this.entries[this.head++] = null;
+			}
+			if (this.head == this.size) {
+				this.head = 0;
+				this.size = 0;
+				return null;
+			}
+			return this.entries[this.head];
+		}
+
+		void removeFirst() {
+			this.entries[this.head++] = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Entry<E>[] newEntryArray(int length) {
+		return new Entry[length];
+	}
+
+	private final Comparator<Entry<E>> comparator;
+	private final Bucket<E>[] buckets;
+	private final int mask;
+	private final PriorityQueue<Entry<E>> overflow;
+	private final Map<E, Entry<E>> entriesByElement;
+
+	/** entries added before the first call to {@link #poll(double)}, when the start time is not yet known */
+	private List<Entry<E>> unplaced = new ArrayList<>();
+	/** the second of the first bucket in the ring */
+	private long cursor;
+	private int size = 0;
+	private int sizeInBuckets = 0;
+	/** cached result of {@link #getNextTime()}, valid if not NaN */
+	private double nextTime = Double.NaN;
+
+	/**
+	 * @param tieBreaker defines the order of elements with the same time
+	 * @param removable whether {@link #remove(Object)} is supported
+	 */
+	/*package*/ CalendarQueue(final Comparator<? super E> tieBreaker, final boolean removable) {
+		this(tieBreaker, removable, DEFAULT_NUMBER_OF_BUCKETS);
+	}
+
+	@SuppressWarnings("unchecked")
+	/*package*/ CalendarQueue(final Comparator<? super E> tieBreaker, final boolean removable, final int numberOfBuckets) {
+		if (Integer.bitCount(numberOfBuckets) != 1) {
+			throw new IllegalArgumentException("number of buckets must be a power of 2, but is " + numberOfBuckets);
+		}
+		this.comparator = (e1, e2) -> {
+			int cmp = Double.compare(e1.time, e2.time);
+			return cmp != 0 ? cmp : tieBreaker.compare(e1.element, e2.element);
+		};
+		this.buckets = new Bucket[numberOfBuckets];
+		this.mask = numberOfBuckets - 1;
+		this.overflow = new PriorityQueue<>(11, this.comparator);
+		this.entriesByElement = removable ? new IdentityHashMap<>() : null;
+	}
+
+	/*package*/ void add(final E element, final double time) {
+		Entry<E> entry = new Entry<>(element, time);
+		if (this.entriesByElement != null) {
+			this.entriesByElement.put(element, entry);
+		}
+		this.size++;
+		if (time < this.nextTime) {
+			this.nextTime = time;
+		}
+		if (this.unplaced != null) {
+			this.unplaced.add(entry);
+		} else {
+			place(entry);
+		}
+	}
+
+	/**
+	 * Removes the element and returns the time it was added with, or <code>null</code> if the element is not contained.
+	 * Only supported by removable queues.
+	 */
+	/*package*/ Double remove(final E element) {
+		if (this.entriesByElement == null) {
+			throw new UnsupportedOperationException("this queue was not created as removable");
+		}
+		Entry<E> entry = this.entriesByElement.remove(element);
+		if (entry == null) {
+			return null;
+		}
+		// the entry is skipped when it is reached:
+		entry.removed = true;
+		this.size--;
+		if (entry.time == this.nextTime) {
+			this.nextTime = Double.NaN;
+		}
+		if (entry.inBucket) {
+			this.sizeInBuckets--;
+		}
+		return entry.time;
+	}
+
+	/**
+	 * Removes and returns the next element with a time smaller or equal to the given time, or <code>null</code>
+	 * if there is no such element. Elements may be added while the due elements are polled; those which are due
+	 * are still returned in the right order.
+	 */
+	/*package*/ E poll(final double time) {
+		if (this.unplaced != null) {
+			start(time);
+		}
+		double floorTime = Math.floor(time);
+		while (this.size > 0) {
+			if (this.sizeInBuckets == 0) {
+				// nothing in the ring, so jump directly to the next overflow entry
+				if (this.overflow.isEmpty() || this.overflow.peek().time > time) {
+					return null;
+				}
+				moveCursor(Math.max(this.cursor, secondOf(this.overflow.peek().time)));
+			}
+			Bucket<E> bucket = this.buckets[(int) (this.cursor & this.mask)];
+			Entry<E> entry = bucket == null ? null : bucket.peek(this.comparator);
+			if (entry != null) {
+				if (entry.time > time) {
+					return null;
+				}
+				bucket.removeFirst();
+				this.size--;
+				this.nextTime = Double.NaN;
+				this.sizeInBuckets--;
+				if (this.entriesByElement != null) {
+					this.entriesByElement.remove(entry.element);
+				}
+				return entry.element;
+			}
+			if (this.cursor + 1 > floorTime) {
+				return null;
+			}
+			moveCursor(this.cursor + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the time of the next element which will be polled, or <code>Double.POSITIVE_INFINITY</code> if the queue is empty
+	 */
+	/*package*/ double getNextTime() {
+		if (Double.isNaN(this.nextTime)) {
+			this.nextTime = findNextTime();
+		}
+		return this.nextTime;
+	}
+
+	private double findNextTime() {
+		if (this.size == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (this.unplaced != null) {
+			double time = Double.POSITIVE_INFINITY;
+			for (Entry<E> entry : this.unplaced) {
+				if (!entry.removed) {
+					time = Math.min(time, entry.time);
+				}
+			}
+			return time;
+		}
+		if (this.sizeInBuckets > 0) {
+			// the first non-empty bucket contains the next element; it is at most one round away
+			for (long second = this.cursor; ; second++) {
+				Bucket<E> bucket = this.buckets[(int) (second & this.mask)];
+				Entry<E> entry = bucket == null ? null : bucket.peek(this.comparator);
+				if (entry != null) {
+					return entry.time;
+				}
+			}
+		}
+		while (this.overflow.peek().removed) {
+			this.overflow.poll();
+		}
+		return this.overflow.peek().time;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	/*package*/ boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Passes all elements with their times to the consumer, in the order they would be polled.
+	 */
+	/*package*/ void forEach(final ObjDoubleConsumer<? super E> consumer) {
+		List<Entry<E>> entries = new ArrayList<>(this.size);
+		if (this.unplaced != null) {
+			entries.addAll(this.unplaced);
+		}
+		for (Bucket<E> bucket : this.buckets) {
+			if (bucket != null) {
+				for (int i = bucket.head; i < bucket.size; i++) {
+					entries.add(bucket.entries[i]);
+				}
+			}
+		}
+		entries.addAll(this.overflow);
+		entries.sort(this.comparator);
+		for (Entry<E> entry : entries) {
+			if (!entry.removed) {
+				consumer.accept(entry.element, entry.time);
+			}
+		}
+	}
+
+	/*package*/ void clear() {
+		Arrays.fill(this.buckets, null);
+		this.overflow.clear();
+		if (this.entriesByElement != null) {
+			this.entriesByElement.clear();
+		}
+		this.unplaced = new ArrayList<>();
+		this.size = 0;
+		this.sizeInBuckets = 0;
+		this.nextTime = Double.NaN;
+	}
+
+	private void start(final double time) {
+		// entries before the start time are all due, so they can share the first bucket
+		this.cursor = secondOf(time);
+		List<Entry<E>> entries = this.unplaced;
+		this.unplaced = null;
+		for (Entry<E> entry : entries) {
+			if (!entry.removed) {
+				place(entry);
+			}
+		}
+	}
+
+	private void place(final Entry<E> entry) {
+		long second = secondOf(entry.time);
+		if (second - this.cursor > this.mask) {
+			this.overflow.add(entry);
+			return;
+		}
+		// entries which are already due go into the current bucket
+		int index = (int) (Math.max(second, this.cursor) & this.mask);
+		Bucket<E> bucket = this.buckets[index];
+		if (bucket == null) {
+			bucket = new Bucket<>();
+			this.buckets[index] = bucket;
+		}
+		bucket.add(entry);
+		entry.inBucket = true;
+		this.sizeInBuckets++;
+	}
+
+	private void moveCursor(final long newCursor) {
+		this.cursor = newCursor;
+		while (!this.overflow.isEmpty() && secondOf(this.overflow.peek().time) - this.cursor <= this.mask) {
+			Entry<E> entry = this.overflow.poll();
+			if (!entry.removed) {
+				place(entry);
+			}
+		}
+	}
+
+	/**
+	 * @return the second of the time, limited to a range in which the differences between seconds cannot overflow
+	 */
+	private static long secondOf(final double time) {
+		if (time <= -(1L << 52)) {
+			return -(1L << 52);
+		}
+		if (time >= (1L << 52) || Double.isNaN(time)) {
+			return 1L << 52;
+		}
+		return (long) Math.floor(time);
+	}
+
+}
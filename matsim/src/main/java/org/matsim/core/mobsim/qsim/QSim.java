@@ -21,6 +21,7 @@
 package org.matsim.core.mobsim.qsim;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonDepartureEvent;
@@ -132,6 +133,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		else this.mobsimEngineRunTimes = null;
 	}
 
+	// the time of the engines in the ComponentMetrics, in the order of mobsimEngines
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
+	private ComponentMetrics.Timer[] mobsimEngineTimers;
+	private ComponentMetrics.Timer withindayEngineTimer;
+
 	/*package (for tests)*/ final InternalInterface internalInterface = new InternalInterface() {
 
 		// These methods must be synchronized, because they are called back
@@ -178,6 +184,14 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	private Injector childInjector;
 
+	/**
+	 * Sets the metrics in which the time of the doSimStep of every engine is recorded, as <code>qsim.&lt;engine class&gt;</code>.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+	}
+
 	@Override
 	public final void rescheduleActivityEnd(MobsimAgent agent) {
 		this.activityEngine.rescheduleActivityEnd(agent);
@@ -267,6 +281,16 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 	}
 
+	private void initMobsimEngineTimers() {
+		this.mobsimEngineTimers = new ComponentMetrics.Timer[this.mobsimEngines.size()];
+		int i = 0;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			this.mobsimEngineTimers[i] = this.componentMetrics.getTimer("qsim." + ComponentMetrics.nameOf(mobsimEngine));
+			if (mobsimEngine == this.withindayEngine) this.withindayEngineTimer = this.mobsimEngineTimers[i];
+			i++;
+		}
+	}
+
 	private void createAgents() {
 		for (AgentSource agentSource : this.agentSources) {
 			agentSource.insertAgentsIntoMobsim();
@@ -343,6 +367,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now);
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
+
+		if (this.mobsimEngineTimers == null || this.mobsimEngineTimers.length != this.mobsimEngines.size()) {
+			// (engines may be added until the first time step)
+			initMobsimEngineTimers();
+		}
 		
 		/*
 		 * The WithinDayEngine has to perform its replannings before
@@ -350,18 +379,25 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		 */
 		if (this.withindayEngine != null) {
 			if (analyzeRunTimes) startTime = System.nanoTime();
+			long metricsStartTime = this.withindayEngineTimer.start();
 			this.withindayEngine.doSimStep(now);
+			this.withindayEngineTimer.stop(metricsStartTime);
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(this.withindayEngine).addAndGet(System.nanoTime() - this.startTime);
 		}
 
 		// "added" engines
+		int engineIndex = -1;
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			engineIndex++;
 			if (analyzeRunTimes) this.startTime = System.nanoTime();
 			
 			// withindayEngine.doSimStep(time) has already been called
 			if (mobsimEngine == this.withindayEngine) continue;
 
+			ComponentMetrics.Timer timer = this.mobsimEngineTimers[engineIndex];
+			long metricsStartTime = timer.start();
 			mobsimEngine.doSimStep(now);
+			timer.stop(metricsStartTime);
 			
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(mobsimEngine).addAndGet(System.nanoTime() - this.startTime);
 		}
@@ -385,6 +421,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (qsimConfigGroup.isSkippingIdleTimeSteps()) {
+				this.skipIdleTimeSteps();
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
@@ -392,6 +431,33 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		return doContinue;
 	}
 
+	/**
+	 * Moves the timer over the time steps in which none of the engines has anything to do.  This is only possible if all engines
+	 * report when they have something to do next, see {@link WakeUpTimeProvider}.  The timer is still incremented step by step,
+	 * so it reaches exactly the same times as without skipping.
+	 */
+	private void skipIdleTimeSteps() {
+		double wakeUpTime = Double.POSITIVE_INFINITY;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (!(mobsimEngine instanceof WakeUpTimeProvider)) {
+				return;
+			}
+			wakeUpTime = Math.min(wakeUpTime, ((WakeUpTimeProvider) mobsimEngine).getNextWakeUpTime());
+			if (wakeUpTime <= this.simTimer.getTimeOfDay()) {
+				return;
+			}
+		}
+		// the step at (or directly after) the end time needs to be simulated, since it ends the simulation:
+		double skipUntil = Math.min(wakeUpTime, this.stopTime);
+		if (skipUntil == Double.POSITIVE_INFINITY || skipUntil == Double.MAX_VALUE) {
+			// nothing scheduled and no end time; leave it to the usual termination criteria
+			return;
+		}
+		while (this.simTimer.getTimeOfDay() < skipUntil) {
+			this.simTimer.incrementTime();
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
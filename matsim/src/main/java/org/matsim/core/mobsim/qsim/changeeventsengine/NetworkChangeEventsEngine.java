@@ -29,6 +29,7 @@ import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 
@@ -38,7 +39,7 @@ import java.util.Queue;
 /**
  * @author dgrether
  */
-public final class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+public final class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, WakeUpTimeProvider {
 	private static final Logger log = Logger.getLogger(NetworkChangeEventsEngine.class) ;
 	
 	private Queue<NetworkChangeEvent> networkChangeEventsQueue = null;
@@ -82,6 +83,14 @@ public final class NetworkChangeEventsEngine implements NetworkChangeEventsEngin
 		}
 	}
 
+	@Override
+	public double getNextWakeUpTime() {
+		if ((this.networkChangeEventsQueue != null) && (this.networkChangeEventsQueue.size() > 0)) {
+			return this.networkChangeEventsQueue.peek().getStartTime();
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	private void handleNetworkChangeEvents(final double time) {
 		while ((this.networkChangeEventsQueue.size() > 0) && (this.networkChangeEventsQueue.peek().getStartTime() <= time)) {
 			NetworkChangeEvent event = this.networkChangeEventsQueue.poll();
@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WakeUpTimeProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+
+/**
+ * Implemented by {@link MobsimEngine}s which know when they have something to do next. If all engines of the
+ * QSim implement this interface, the QSim may jump over the time steps in which none of them has anything to do,
+ * see {@link QSimConfigGroup#isSkippingIdleTimeSteps()}.
+ */
+public interface WakeUpTimeProvider {
+
+	/**
+	 * Called between two time steps, after the engine's doSimStep.
+	 *
+	 * @return the earliest time at which a call to doSimStep could change anything, or
+	 * <code>Double.POSITIVE_INFINITY</code> if nothing is scheduled. Engines which may have something to do
+	 * in the next time step may return any time up to the next time step, e.g. <code>Double.NEGATIVE_INFINITY</code>.
+	 */
+	double getNextWakeUpTime();
+
+}
@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * First-in-first-out queue of the holes travelling upstream on a link. A hole only consists of
+ * the time it arrives at the upstream end of the link and its size in pcu, so both are stored
+ * in parallel ring buffers instead of creating one {@link QueueWithBuffer.Hole} per leaving vehicle.
+ * Hole objects are only created when they are needed for the visualization, see {@link #toHoles()}.
+ */
+/*package*/ final class HoleQueue {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] exitTimes = new double[INITIAL_CAPACITY];
+	private double[] pcus = new double[INITIAL_CAPACITY];
+	private int head = 0;
+	private int size = 0;
+
+	/*package*/ void add(final double earliestLinkExitTime, final double pcu) {
+		if (this.size == this.exitTimes.length) {
+			grow();
+		}
+		int i = (this.head + this.size) & (this.exitTimes.length - 1);
+		this.exitTimes[i] = earliestLinkExitTime;
+		this.pcus[i] = pcu;
+		this.size++;
+	}
+
+	/*package*/ boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the earliest link exit time of the first hole; only valid if the queue is not empty
+	 */
+	/*package*/ double peekEarliestLinkExitTime() {
+		return this.exitTimes[this.head];
+	}
+
+	/**
+	 * Removes the first hole.
+	 *
+	 * @return the size of the removed hole in pcu; only valid if the queue is not empty
+	 */
+	/*package*/ double poll() {
+		double pcu = this.pcus[this.head];
+		this.head = (this.head + 1) & (this.exitTimes.length - 1);
+		this.size--;
+		return pcu;
+	}
+
+	/*package*/ void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * @return a new queue containing one {@link QueueWithBuffer.Hole} per hole in this queue, in the same order
+	 */
+	/*package*/ Queue<QueueWithBuffer.Hole> toHoles() {
+		Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>(Math.max(1, this.size));
+		for (int k = 0; k < this.size; k++) {
+			int i = (this.head + k) & (this.exitTimes.length - 1);
+			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole();
+			hole.setEarliestLinkExitTime(this.exitTimes[i]);
+			hole.setSizeInEquivalents(this.pcus[i]);
+			holes.add(hole);
+		}
+		return holes;
+	}
+
+	private void grow() {
+		int capacity = this.exitTimes.length;
+		double[] newExitTimes = new double[capacity << 1];
+		double[] newPcus = new double[capacity << 1];
+		int firstPart = Math.min(this.size, capacity - this.head);
+		System.arraycopy(this.exitTimes, this.head, newExitTimes, 0, firstPart);
+		System.arraycopy(this.exitTimes, 0, newExitTimes, firstPart, this.size - firstPart);
+		System.arraycopy(this.pcus, this.head, newPcus, 0, firstPart);
+		System.arraycopy(this.pcus, 0, newPcus, firstPart, this.size - firstPart);
+		this.exitTimes = newExitTimes;
+		this.pcus = newPcus;
+		this.head = 0;
+	}
+
+}
@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -37,6 +38,7 @@ import java.util.concurrent.ThreadFactory;
 import javax.inject.Inject;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
@@ -59,6 +61,7 @@ import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -70,7 +73,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine, NetsimEngine {
+public class QNetsimEngine implements MobsimEngine, NetsimEngine, WakeUpTimeProvider {
 
 	public interface NetsimInternalInterface {
 		QNetwork getNetsimNetwork();
@@ -120,16 +123,40 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	/*
+	 * If > 0, the active nodes and links are redistributed between the runners in this interval (in simulated seconds),
+	 * based on the time each runner needed in the preceding interval.
+	 */
+	private final int rebalancingInterval;
+	private double nextRebalancingTime = Double.POSITIVE_INFINITY;
+	/*
+	 * Runners whose run time exceeds the average by less than this fraction are not relieved,
+	 * to avoid moving nodes back and forth due to measurement noise.
+	 */
+	private static final double REBALANCING_TOLERANCE = 0.05;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
 	public static boolean printRunTimesPerTimeStep = false;
+
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
 	
 	@Override
 	public void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
 	}
 
+	/**
+	 * Sets the metrics in which the run times of the runners, without waiting at the barriers, are recorded after the
+	 * simulation, as <code>qsim.QNetsimEngineRunner.&lt;i&gt;</code>, together with their imbalance, i.e. the ratio
+	 * of the longest to the average run time.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+	}
+
 	public QNetsimEngine(final QSim sim) {
 		this(sim, null);
 	}
@@ -141,6 +168,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.rebalancingInterval = qsimConfigGroup.getNetsimRunnerRebalancingInterval();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -228,6 +256,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		 */
 
 		initQSimEngineThreads();
+
+		if (this.rebalancingInterval > 0 && this.engines.size() > 1) {
+			this.nextRebalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime() + this.rebalancingInterval;
+		}
 	}
 
 	@Override
@@ -260,6 +292,20 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		for (QLinkI link : network.getNetsimLinks().values()) {
 			link.clearVehicles();
 		}
+
+		if (this.componentMetrics.isEnabled() && !this.engines.isEmpty()) {
+			long sum = 0;
+			long max = 0;
+			for (int i = 0; i < this.engines.size(); i++) {
+				long runTime = this.engines.get(i).getTotalRunTime();
+				this.componentMetrics.getTimer("qsim.QNetsimEngineRunner." + i).record(runTime);
+				sum += runTime;
+				max = Math.max(max, runTime);
+			}
+			if (sum > 0) {
+				this.componentMetrics.getGauge("qsim.QNetsimEngineRunner.imbalance").set(max * this.engines.size() / (double) sum);
+			}
+		}
 	}
 
 	/**
@@ -308,6 +354,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
 		// as input for the domain decomposition under (b).
 
+		if (time >= this.nextRebalancingTime) {
+			rebalanceRunners();
+			this.nextRebalancingTime = time + this.rebalancingInterval;
+		}
+
 		// set current Time
 		for (QNetsimEngineRunner engine : this.engines) {
 			engine.setTime(time);
@@ -350,6 +401,21 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		}
 	}
 
+	/**
+	 * As long as any link or node is active, the network needs to be simulated in every time step.
+	 * Otherwise, it only becomes active again when an agent departs or arrives on a link, which is
+	 * triggered by one of the other engines.
+	 */
+	@Override
+	public double getNextWakeUpTime() {
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (!engine.isIdle()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public int getNumberOfSimulatedLinks() {
 
 		int numLinks = 0;
@@ -510,6 +576,47 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.linksToActivateInitially.clear();
 	}
 
+	/*
+	 * Pairs the slowest runner with the fastest one, the second slowest with the second fastest, and so on,
+	 * and moves a share of the active nodes (with their out-links) of the slower runner to the faster one.
+	 * The share is chosen such that both would have needed the same time if the work was proportional
+	 * to the number of active nodes. Repeated in every interval, this follows the load as it moves through
+	 * the network during the day. As every node uses its own random number generator when running
+	 * with multiple threads, the assignment of nodes to runners does not influence the simulation result.
+	 * 
+	 * This is only called between time steps, when no runner is active.
+	 */
+	private void rebalanceRunners() {
+		int numberOfEngines = this.engines.size();
+		List<QNetsimEngineRunner> sortedEngines = new ArrayList<>(this.engines);
+		sortedEngines.sort(Comparator.comparingLong(QNetsimEngineRunner::getAccumulatedRunTime));
+		long sum = 0;
+		for (QNetsimEngineRunner engine : sortedEngines) {
+			sum += engine.getAccumulatedRunTime();
+		}
+		double average = (double) sum / numberOfEngines;
+
+		int transferredNodes = 0;
+		for (int i = 0; i < numberOfEngines / 2; i++) {
+			QNetsimEngineRunner fast = sortedEngines.get(i);
+			QNetsimEngineRunner slow = sortedEngines.get(numberOfEngines - 1 - i);
+			long slowTime = slow.getAccumulatedRunTime();
+			if (slowTime <= average * (1.0 + REBALANCING_TOLERANCE)) {
+				break;
+			}
+			double share = (slowTime - fast.getAccumulatedRunTime()) / (2.0 * slowTime);
+			int maxNodes = (int) (slow.getNumberOfSimulatedNodes() * share);
+			transferredNodes += slow.transferActiveNodes(fast, maxNodes, this.network);
+		}
+		if (transferredNodes > 0 && log.isDebugEnabled()) {
+			log.debug("rebalancing QNetsimEngineRunners: transferred " + transferredNodes + " active nodes.");
+		}
+
+		for (QNetsimEngineRunner engine : this.engines) {
+			engine.resetAccumulatedRunTime();
+		}
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -548,6 +655,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		log.info("sum min run times: " + sumMin);
 		log.info("sum max run times: " + sumMax);
 		log.info("sum all run times / num threads: " + sum / this.numOfThreads);
+
+		// the difference between the sum of the maximum and the average run times is the time lost at the barriers
+		this.componentMetrics.getGauge("qsim.QNetsimEngineRunner.sumOfMinStepTimesMillis").set(sumMin / 1e6);
+		this.componentMetrics.getGauge("qsim.QNetsimEngineRunner.sumOfMaxStepTimesMillis").set(sumMax / 1e6);
+		this.componentMetrics.getGauge("qsim.QNetsimEngineRunner.sumOfAverageStepTimesMillis").set(sum / 1e6 / this.engines.size());
 	}
 	
 	private static class NamedThreadFactory implements ThreadFactory {
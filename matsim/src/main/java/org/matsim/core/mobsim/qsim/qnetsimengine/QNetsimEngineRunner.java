@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.qsim.QSim;
 
@@ -78,6 +80,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
+
+	/*
+	 * Time spent moving nodes and links since the last call of resetAccumulatedRunTime(),
+	 * without the time waiting at the barriers. Used by the QNetsimEngine to rebalance
+	 * the work between the runners.
+	 */
+	private long accumulatedRunTime = 0;
+	private long previouslyAccumulatedRunTime = 0;
 	{	
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
 		else runTimes = null;
@@ -116,11 +126,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if (this.movingNodes) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		this.accumulatedRunTime += System.nanoTime() - start;
 		return true ;
 	}
 
@@ -144,12 +156,16 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 				return;
 			}
 
+			long start = System.nanoTime();
 			moveNodes();
+			this.accumulatedRunTime += System.nanoTime() - start;
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			start = System.nanoTime();
 			moveLinks();
+			this.accumulatedRunTime += System.nanoTime() - start;
 
 			if (QSim.analyzeRunTimes) {
 				long end = System.nanoTime();
@@ -229,7 +245,61 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		return this.nodesQueue.size();
 	}
 
+	/**
+	 * @return true if neither links nor nodes are active
+	 */
+	/*package*/ boolean isIdle() {
+		return this.linksList.isEmpty() && this.nodesQueue.isEmpty();
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
+
+	/*package*/ long getAccumulatedRunTime() {
+		return this.accumulatedRunTime;
+	}
+
+	/*package*/ void resetAccumulatedRunTime() {
+		this.previouslyAccumulatedRunTime += this.accumulatedRunTime;
+		this.accumulatedRunTime = 0;
+	}
+
+	/*package*/ long getTotalRunTime() {
+		return this.previouslyAccumulatedRunTime + this.accumulatedRunTime;
+	}
+
+	/*
+	 * Hands over up to maxNodes of the currently active nodes to the target runner. As links
+	 * are activated by the runner handling their from-node, all out-links of these nodes
+	 * are handed over as well, including the ones that are currently active.
+	 * Must only be called between time steps, i.e. while no runner moves nodes or links.
+	 * 
+	 * Returns the number of transferred nodes.
+	 */
+	/*package*/ int transferActiveNodes(final QNetsimEngineRunner target, final int maxNodes, final QNetwork network) {
+		Set<Node> transferredNodes = new HashSet<>();
+		Iterator<QNodeImpl> simNodes = this.nodesQueue.iterator();
+		while (simNodes.hasNext() && transferredNodes.size() < maxNodes) {
+			QNodeImpl node = simNodes.next();
+			simNodes.remove();
+			node.setNetElementActivationRegistry(target);
+			target.nodesQueue.add(node);
+			transferredNodes.add(node.getNode());
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				((AbstractQLink) network.getNetsimLink(outLink.getId())).setNetElementActivationRegistry(target);
+			}
+		}
+		if (!transferredNodes.isEmpty()) {
+			Iterator<QLinkI> simLinks = this.linksList.iterator();
+			while (simLinks.hasNext()) {
+				QLinkI link = simLinks.next();
+				if (transferredNodes.contains(link.getLink().getFromNode())) {
+					simLinks.remove();
+					target.linksList.add(link);
+				}
+			}
+		}
+		return transferredNodes.size();
+	}
 }
\ No newline at end of file
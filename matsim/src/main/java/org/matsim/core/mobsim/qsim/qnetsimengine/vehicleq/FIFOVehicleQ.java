@@ -19,43 +19,155 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
 
 import java.util.AbstractQueue;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
+/**
+ * First-in-first-out queue of vehicles, backed by a growable ring buffer. In contrast to a
+ * linked list, adding and removing vehicles does not allocate anything once the buffer
+ * has grown to the maximal number of vehicles on the link.
+ */
 public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle>  {
-	
-	private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private QVehicle[] elements = new QVehicle[INITIAL_CAPACITY];
+	private int head = 0;
+	private int size = 0;
+	private int modCount = 0;
 
 	@Override
 	public boolean offer(QVehicle e) {
-		return vehicleQueue.offer(e);
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (this.size == this.elements.length) {
+			grow();
+		}
+		this.elements[(this.head + this.size) & (this.elements.length - 1)] = e;
+		this.size++;
+		this.modCount++;
+		return true;
 	}
 
 	@Override
 	public QVehicle peek() {
-		return vehicleQueue.peek();
+		return this.size == 0 ? null : this.elements[this.head];
 	}
 
 	@Override
 	public QVehicle poll() {
-		return vehicleQueue.poll();
+		if (this.size == 0) {
+			return null;
+		}
+		QVehicle e = this.elements[this.head];
+		this.elements[this.head] = null;
+		this.head = (this.head + 1) & (this.elements.length - 1);
+		this.size--;
+		this.modCount++;
+		return e;
 	}
 
 	@Override
-	public Iterator<QVehicle> iterator() {
-		return vehicleQueue.iterator();
+	public void addFirst(QVehicle e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (this.size == this.elements.length) {
+			grow();
+		}
+		this.head = (this.head - 1) & (this.elements.length - 1);
+		this.elements[this.head] = e;
+		this.size++;
+		this.modCount++;
 	}
 
 	@Override
 	public int size() {
-		return vehicleQueue.size();
+		return this.size;
 	}
 
 	@Override
-	public void addFirst(QVehicle e) {
-		vehicleQueue.addFirst(e);
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.elements[(this.head + i) & (this.elements.length - 1)] = null;
+		}
+		this.head = 0;
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<QVehicle> iterator() {
+		return new Itr();
+	}
+
+	private void grow() {
+		QVehicle[] newElements = new QVehicle[this.elements.length << 1];
+		int firstPart = Math.min(this.size, this.elements.length - this.head);
+		System.arraycopy(this.elements, this.head, newElements, 0, firstPart);
+		System.arraycopy(this.elements, 0, newElements, firstPart, this.size - firstPart);
+		this.elements = newElements;
+		this.head = 0;
+	}
+
+	/**
+	 * Removes the element at the given position (counted from the head) by shifting the
+	 * following elements one step towards the head.
+	 */
+	private void removeAt(int position) {
+		int mask = this.elements.length - 1;
+		for (int i = position; i < this.size - 1; i++) {
+			this.elements[(this.head + i) & mask] = this.elements[(this.head + i + 1) & mask];
+		}
+		this.elements[(this.head + this.size - 1) & mask] = null;
+		this.size--;
+		this.modCount++;
+	}
+
+	private final class Itr implements Iterator<QVehicle> {
+		private int next = 0;
+		private int last = -1;
+		private int expectedModCount = FIFOVehicleQ.this.modCount;
+
+		@Override
+		public boolean hasNext() {
+			return this.next < FIFOVehicleQ.this.size;
+		}
+
+		@Override
+		public QVehicle next() {
+			if (this.expectedModCount != FIFOVehicleQ.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.next >= FIFOVehicleQ.this.size) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.next++;
+			return FIFOVehicleQ.this.elements[(FIFOVehicleQ.this.head + this.last) & (FIFOVehicleQ.this.elements.length - 1)];
+		}
+
+		@Override
+		public void remove() {
+			if (this.last < 0) {
+				throw new IllegalStateException();
+			}
+			if (this.expectedModCount != FIFOVehicleQ.this.modCount) {
+				throw new ConcurrentModificationException();
+			}
+			removeAt(this.last);
+			this.next = this.last;
+			this.last = -1;
+			this.expectedModCount = FIFOVehicleQ.this.modCount;
+		}
 	}
 
 }
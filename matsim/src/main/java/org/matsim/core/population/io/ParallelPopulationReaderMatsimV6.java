@@ -0,0 +1,470 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+
+/**
+ * Reads population files in the <code>population_v6.dtd</code> format with several threads.
+ * <br>
+ * The main thread only splits the file into chunks of persons, looking for the <code>&lt;person&gt;</code>
+ * and <code>&lt;/person&gt;</code> tags without actually parsing the xml. Each chunk is then parsed, validated
+ * and interpreted by one of the worker threads, which use a {@link PopulationReaderMatsimV6}. The persons are
+ * handed over in the order of the file, either by adding them to the population of the scenario, or, if
+ * {@link PersonAlgorithm}s were added, by running the algorithms on them like the {@link StreamingPopulationReader}
+ * does. At most two chunks per thread are kept in memory, so streaming a population needs bounded memory only.
+ * <br>
+ * The file is expected to be UTF-8 encoded, like all files written by MATSim. Files in other formats are
+ * read with the {@link PopulationReader}, which does not support streaming.
+ */
+public final class ParallelPopulationReaderMatsimV6 implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final String POPULATION_V6 = "population_v6.dtd";
+	private static final String POPULATION = "population";
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final List<PersonAlgorithm> personAlgos = new ArrayList<>();
+
+	private int numThreads;
+	private int personsPerChunk = 500;
+	private int cnt = 0;
+
+	public ParallelPopulationReaderMatsimV6(final Scenario scenario) {
+		this( new IdentityTransformation() , scenario );
+	}
+
+	public ParallelPopulationReaderMatsimV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario) {
+		if ( scenario.getPopulation() instanceof StreamingPopulationReader.StreamingPopulation ) {
+			throw new RuntimeException("Use " + ParallelPopulationReaderMatsimV6.class.getSimpleName() + "#addAlgorithm instead of "
+					+ "the StreamingPopulationReader to stream a population in parallel.");
+		}
+		this.coordinateTransformation = coordinateTransformation;
+		this.scenario = scenario;
+		this.numThreads = Math.max(1, scenario.getConfig().global().getNumberOfThreads());
+	}
+
+	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
+		this.attributeConverters.put( clazz , converter );
+	}
+
+	public void putAttributeConverters( final Map<Class<?>, AttributeConverter<?>> converters ) {
+		this.attributeConverters.putAll( converters );
+	}
+
+	/**
+	 * Sets the number of threads parsing the persons, by default the global number of threads of the config.
+	 */
+	public void setNumberOfThreads(final int numThreads) {
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/*package*/ void setPersonsPerChunk(final int personsPerChunk) {
+		this.personsPerChunk = Math.max(1, personsPerChunk);
+	}
+
+	/**
+	 * Streams the population: the algorithms are run on every person, and the person is removed from the
+	 * population again afterwards. The algorithms are run by the thread calling the reader, one person after
+	 * the other, so they need not be thread-safe.
+	 */
+	public void addAlgorithm(final PersonAlgorithm algo) {
+		this.personAlgos.add(algo);
+	}
+
+	public void clearAlgorithms() {
+		this.personAlgos.clear();
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		log.info("starting to parse population from file " + filename + " with " + this.numThreads + " threads ...");
+		if (!parse(IOUtils.getBufferedReader(filename))) {
+			createFallbackReader().readFile(filename);
+		}
+	}
+
+	public void parse(final URL url) {
+		log.info("starting to parse population from url " + url + " with " + this.numThreads + " threads ...");
+		if (!parse(new BufferedReader(new InputStreamReader(IOUtils.getInputStream(url), IOUtils.CHARSET_UTF8)))) {
+			createFallbackReader().parse(url);
+		}
+	}
+
+	private PopulationReader createFallbackReader() {
+		if (!this.personAlgos.isEmpty()) {
+			throw new RuntimeException("Streaming a population in parallel is only supported for the " + POPULATION_V6 + " format.");
+		}
+		log.info("not a " + POPULATION_V6 + " file, reading it with the " + PopulationReader.class.getSimpleName() + ".");
+		PopulationReader reader = new PopulationReader(this.coordinateTransformation, this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		return reader;
+	}
+
+	/**
+	 * @return <code>false</code> if the input is not in the population_v6 format. Nothing is read in this case.
+	 */
+	private boolean parse(final Reader input) {
+		try (PersonChunkSplitter splitter = new PersonChunkSplitter(input)) {
+			String header = splitter.readHeader();
+			String doctype = splitter.getDoctype();
+			if (doctype == null || !doctype.contains(POPULATION_V6)) {
+				return false;
+			}
+			// the population element and the attributes of the population
+			PopulationReaderMatsimV6 headerReader = new PopulationReaderMatsimV6(this.coordinateTransformation, this.scenario);
+			headerReader.putAttributeConverters(this.attributeConverters);
+			headerReader.parse(new InputSource(new StringReader(header + "</" + POPULATION + ">")));
+
+			ExecutorService executor = Executors.newFixedThreadPool(this.numThreads);
+			Deque<Future<List<Person>>> pending = new ArrayDeque<>();
+			try {
+				while (true) {
+					StringBuilder chunk = new StringBuilder(doctype).append('<').append(POPULATION).append('>');
+					if (splitter.readPersons(chunk, this.personsPerChunk) == 0) {
+						break;
+					}
+					chunk.append("</").append(POPULATION).append('>');
+					final String xml = chunk.toString();
+					pending.add(executor.submit(() -> parseChunk(xml)));
+					if (pending.size() >= 2 * this.numThreads) {
+						handlePersons(pending.poll());
+					}
+				}
+				while (!pending.isEmpty()) {
+					handlePersons(pending.poll());
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+			log.info("finished parallel population reading, " + this.cnt + " persons read.");
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private List<Person> parseChunk(final String xml) {
+		ChunkReader reader = new ChunkReader(this.coordinateTransformation, this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		reader.parse(new InputSource(new StringReader(xml)));
+		return reader.persons;
+	}
+
+	private void handlePersons(final Future<List<Person>> future) {
+		List<Person> persons;
+		try {
+			persons = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		Population population = this.scenario.getPopulation();
+		for (Person person : persons) {
+			this.cnt++;
+			population.addPerson(person);
+			if (!this.personAlgos.isEmpty()) {
+				for (PersonAlgorithm algo : this.personAlgos) {
+					algo.run(person);
+				}
+				population.removePerson(person.getId());
+			}
+		}
+	}
+
+	/**
+	 * Parses one chunk of persons and collects them, instead of adding them to the population.
+	 */
+	private static final class ChunkReader extends PopulationReaderMatsimV6 {
+
+		private final List<Person> persons = new ArrayList<>();
+
+		ChunkReader(final CoordinateTransformation coordinateTransformation, final Scenario scenario) {
+			super(coordinateTransformation, scenario);
+		}
+
+		@Override
+		public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+			// the population element of a chunk has no attributes, it must not change the population
+			if (!POPULATION.equals(name)) {
+				super.startTag(name, atts, context);
+			}
+		}
+
+		@Override
+		void handlePerson(final Person person) {
+			this.persons.add(person);
+		}
+	}
+
+	/**
+	 * Splits a population file into its header and the xml text of the persons. Comments and CDATA sections are
+	 * skipped or copied as a whole, and quoted attribute values are respected, so only actual tags are found.
+	 */
+	private static final class PersonChunkSplitter implements Closeable {
+
+		private final Reader reader;
+		private final char[] buffer = new char[1 << 16];
+		private int pos = 0;
+		private int limit = 0;
+		private boolean eof = false;
+		private String doctype = null;
+
+		PersonChunkSplitter(final Reader reader) {
+			this.reader = reader;
+		}
+
+		/**
+		 * @return everything up to the first person, or up to the end of the population if it has no persons.
+		 */
+		String readHeader() throws IOException {
+			StringBuilder header = new StringBuilder();
+			while (available(1)) {
+				if (this.buffer[this.pos] != '<') {
+					header.append(this.buffer[this.pos++]);
+				} else if (isAt("<!--")) {
+					copyUntil(header, "-->");
+				} else if (isAt("<!DOCTYPE")) {
+					int start = header.length();
+					copyDoctype(header);
+					this.doctype = header.substring(start);
+				} else if (isAtTag("<person") || isAt("</" + POPULATION)) {
+					break;
+				} else {
+					header.append(this.buffer[this.pos++]);
+				}
+			}
+			return header.toString();
+		}
+
+		String getDoctype() {
+			return this.doctype;
+		}
+
+		/**
+		 * Appends the xml text of up to <code>maxPersons</code> persons to the chunk.
+		 *
+		 * @return the number of persons appended
+		 */
+		int readPersons(final StringBuilder chunk, final int maxPersons) throws IOException {
+			int count = 0;
+			while (count < maxPersons && skipToNextPerson()) {
+				copyPerson(chunk);
+				count++;
+			}
+			return count;
+		}
+
+		private boolean skipToNextPerson() throws IOException {
+			while (available(1)) {
+				if (this.buffer[this.pos] != '<') {
+					this.pos++;
+				} else if (isAt("<!--")) {
+					copyUntil(null, "-->");
+				} else if (isAtTag("<person")) {
+					return true;
+				} else if (isAt("</" + POPULATION)) {
+					return false;
+				} else {
+					throw new IOException("unexpected tag between persons at: " + new String(this.buffer, this.pos, Math.min(40, this.limit - this.pos)));
+				}
+			}
+			return false;
+		}
+
+		private void copyPerson(final StringBuilder chunk) throws IOException {
+			// the start tag; attribute values may contain '>'
+			char quote = 0;
+			char previous = 0;
+			while (true) {
+				char c = next();
+				chunk.append(c);
+				if (quote != 0) {
+					if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '>') {
+					if (previous == '/') {
+						return; // empty person
+					}
+					break;
+				}
+				previous = c;
+			}
+			// the content, up to and including the end tag
+			while (true) {
+				if (!available(1)) {
+					throw new IOException("unexpected end of file within a person.");
+				}
+				if (this.buffer[this.pos] != '<') {
+					chunk.append(this.buffer[this.pos++]);
+				} else if (isAt("<!--")) {
+					copyUntil(chunk, "-->");
+				} else if (isAt("<![CDATA[")) {
+					copyUntil(chunk, "]]>");
+				} else if (isAt("</person")) {
+					copyUntil(chunk, ">");
+					return;
+				} else {
+					chunk.append(this.buffer[this.pos++]);
+				}
+			}
+		}
+
+		private void copyDoctype(final StringBuilder target) throws IOException {
+			char quote = 0;
+			int depth = 0;
+			while (true) {
+				char c = next();
+				target.append(c);
+				if (quote != 0) {
+					if (c == quote) {
+						quote = 0;
+					}
+				} else if (c == '"' || c == '\'') {
+					quote = c;
+				} else if (c == '[') {
+					depth++;
+				} else if (c == ']') {
+					depth--;
+				} else if (c == '>' && depth == 0) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Copies everything up to and including <code>end</code> to the target, or skips it if the target is <code>null</code>.
+		 */
+		private void copyUntil(final StringBuilder target, final String end) throws IOException {
+			while (!isAt(end)) {
+				char c = next();
+				if (target != null) {
+					target.append(c);
+				}
+			}
+			if (target != null) {
+				target.append(end);
+			}
+			this.pos += end.length();
+		}
+
+		private char next() throws IOException {
+			if (!available(1)) {
+				throw new IOException("unexpected end of file.");
+			}
+			return this.buffer[this.pos++];
+		}
+
+		private boolean isAt(final String s) throws IOException {
+			if (!available(s.length())) {
+				return false;
+			}
+			for (int i = 0; i < s.length(); i++) {
+				if (this.buffer[this.pos + i] != s.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return true if the input continues with the start of the given tag, and not just with a tag with the same prefix
+		 */
+		private boolean isAtTag(final String tag) throws IOException {
+			if (!isAt(tag) || !available(tag.length() + 1)) {
+				return false;
+			}
+			char c = this.buffer[this.pos + tag.length()];
+			return c == '>' || c == '/' || Character.isWhitespace(c);
+		}
+
+		/**
+		 * @return true if at least n characters are available in the buffer, reading more input if required
+		 */
+		private boolean available(final int n) throws IOException {
+			if (this.limit - this.pos >= n) {
+				return true;
+			}
+			System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit - this.pos);
+			this.limit -= this.pos;
+			this.pos = 0;
+			while (this.limit < n && !this.eof) {
+				int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+				if (read < 0) {
+					this.eof = true;
+				} else {
+					this.limit += read;
+				}
+			}
+			return this.limit - this.pos >= n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.reader.close();
+		}
+	}
+
+}
@@ -181,7 +181,7 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				handlePerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -203,6 +203,13 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * Called for every person after it was read completely. Adds the person to the population.
+	 */
+	/*package*/ void handlePerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -66,8 +66,16 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	
 	@Override
 	public void run(final HasPlansAndId<T, I> person) {
-		this.counter++;
-		
+		handlePlan(selectPlan(person));
+	}
+
+	/**
+	 * Selects a plan of the person and, if this strategy has modules, makes a copy of it the selected plan.
+	 * Only the person is changed, so this may be called for different persons concurrently.
+	 *
+	 * @return the copy of the selected plan which must be handed to the modules, or <code>null</code> if there are no modules
+	 */
+	/*package*/ T selectPlan(final HasPlansAndId<T, I> person) {
 		// if there is at least one unscored plan, find that one:
 		T plan = new RandomUnscoredPlanSelector<T, I>().selectPlan(person) ;
 		
@@ -86,17 +94,25 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 
 		// if there is a "module" (i.e. "innovation"):
 		if (this.firstModule != null) {
-			
 			// set the working plan to a copy of the selected plan:
-			plan = person.createCopyOfSelectedPlanAndMakeSelected();
-			
+			return person.createCopyOfSelectedPlanAndMakeSelected();
+		}
+		return null;
+	}
+
+	/**
+	 * Counts the person as handled and hands the plan returned by {@link #selectPlan(HasPlansAndId)} over to the modules.
+	 */
+	/*package*/ void handlePlan(final T plan) {
+		this.counter++;
+
+		if (plan != null) {
 			// add new plan to container that contains the plans that are handled by this PlanStrategy:
 			this.plans.add(plan);
 
 			// start working on this new plan:
 			this.firstModule.handlePlan(plan);
 		}
-
 	}
 
 	@Override
@@ -25,9 +25,16 @@ import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.api.internal.MatsimManager;
@@ -72,6 +79,13 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private PlanSelector<PL, AG> removalPlanSelector = new GenericWorstPlanForRemovalSelector<>();
 
 	private String subpopulationAttributeName = null;
+
+	private int numberOfThreads = 0;
+	private ExecutorService executor = null;
+	private int currentIteration = 0;
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
+
+	private static final int PERSONS_PER_TASK = 1000;
 	
 	public GenericStrategyManager() {
 	}
@@ -84,6 +98,35 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 		this.subpopulationAttributeName = name;
 	}
 
+	/**
+	 * Sets the number of threads choosing the strategies and plans of the persons. With <code>0</code>, the default,
+	 * the persons are handled one after the other by the calling thread, using the global random number generator.
+	 * <br>
+	 * Otherwise, the population is split into shards which are handled by a pool of threads, which is kept
+	 * between iterations. For each person and iteration, a separate random number generator is seeded from the
+	 * person's id and the iteration, and {@link MatsimRandom#getRandom()} returns it while the person is handled.
+	 * Removing plans, choosing the strategy and selecting the plan are done in parallel. The selected plans are
+	 * then handed over to the modules of the strategies in the order of the population, by the calling thread.
+	 * Thus, the results are the same for any positive number of threads, but differ from the ones with <code>0</code>.
+	 * The plan selectors, including the one for removal, must be thread-safe in this case; the ones of MATSim are.
+	 * Strategies which are not a {@link GenericPlanStrategyImpl} are run completely by the calling thread.
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		if (numberOfThreads != this.numberOfThreads && this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Sets the metrics in which the time of choosing the strategies and plans is recorded as <code>replanning.selection</code>,
+	 * and the time of finishing every strategy, i.e. of running its modules, as <code>replanning.&lt;strategy&gt;.finish</code>.
+	 */
+	public final void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+	}
+
 	/**
 	 * Adds a strategy to this manager with the specified weight. This weight
 	 * compared to the sum of weights of all strategies in this manager defines
@@ -193,36 +236,139 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 			strategy.init(replanningContext);
 		}
 
-		// then go through the population and ...
-		for (HasPlansAndId<PL, AG> person : persons ) {
-
-			// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
-			if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
-				removePlans( person, this.maxPlansPerAgent);
+		ComponentMetrics.Timer selectionTimer = this.componentMetrics.getTimer("replanning.selection");
+		long start = selectionTimer.start();
+		if (this.numberOfThreads > 0) {
+			// (some callers, e.g. tests, do not provide a replanning context)
+			final int iteration = replanningContext != null ? replanningContext.getIteration() : this.currentIteration;
+			runParallel(persons, subPopLookup, iteration);
+		} else {
+			// then go through the population and ...
+			for (HasPlansAndId<PL, AG> person : persons ) {
+				GenericPlanStrategy<PL, AG> strategy = prepareAndChooseStrategy(person, subPopLookup);
+
+				// ... and run the strategy:
+				strategy.run(person);
 			}
-
-			// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
-			String subpopName = null;
-			if (this.subpopulationAttributeName != null) {
-				subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
-			}
-			GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
-
-			if (strategy==null) {
-				throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
-			}
-			
-			// ... and run the strategy:
-			strategy.run(person);
 		}
+		selectionTimer.stop(start);
 
 		// finally make sure all strategies have finished there work
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
+			ComponentMetrics.Timer finishTimer = this.componentMetrics.getTimer("replanning." + strategy + ".finish");
+			start = finishTimer.start();
 			strategy.finish();
+			finishTimer.stop(start);
 		}
 
 	}
 
+	private GenericPlanStrategy<PL, AG> prepareAndChooseStrategy(final HasPlansAndId<PL, AG> person, final ObjectAttributes subPopLookup) {
+		// ... reduce the number of plans to the allowed maximum (in evol comp lang this is "selection")
+		if ((this.maxPlansPerAgent > 0) && (person.getPlans().size() > this.maxPlansPerAgent)) {
+			removePlans( person, this.maxPlansPerAgent);
+		}
+
+		// ... choose the strategy to be used for this person (in evol comp lang this would be the choice of the mutation operator)
+		String subpopName = null;
+		if (this.subpopulationAttributeName != null) {
+			subpopName = (String) subPopLookup.getAttribute(person.getId().toString(), this.subpopulationAttributeName);
+		}
+		GenericPlanStrategy<PL, AG> strategy = this.chooseStrategy(person, subpopName);
+
+		if (strategy==null) {
+			throw new RuntimeException("No strategy found! Have you defined at least one replanning strategy per subpopulation?");
+		}
+		return strategy;
+	}
+
+	/**
+	 * Handles the persons in two phases: first, the shards of the population are handled in parallel, up to the
+	 * selection of the plan. Then, the calling thread hands the selected plans over to the modules, in the order
+	 * of the population, as the modules are not required to be thread-safe.
+	 */
+	private void runParallel(final Iterable<? extends HasPlansAndId<PL, AG>> persons, final ObjectAttributes subPopLookup,
+			final int iteration) {
+		final List<HasPlansAndId<PL, AG>> personList = new ArrayList<>();
+		for (HasPlansAndId<PL, AG> person : persons) {
+			personList.add(person);
+		}
+		final int size = personList.size();
+		final List<GenericPlanStrategy<PL, AG>> chosenStrategies = new ArrayList<>(Collections.nCopies(size, null));
+		final List<PL> selectedPlans = new ArrayList<>(Collections.nCopies(size, null));
+
+		List<Future<?>> futures = new ArrayList<>();
+		for (int start = 0; start < size; start += PERSONS_PER_TASK) {
+			final int from = start;
+			final int to = Math.min(size, start + PERSONS_PER_TASK);
+			futures.add(getExecutor().submit(() -> {
+				Random rnd = new Random();
+				MatsimRandom.setThreadRandom(rnd);
+				try {
+					for (int i = from; i < to; i++) {
+						HasPlansAndId<PL, AG> person = personList.get(i);
+						rnd.setSeed(MatsimRandom.getSeed(person.getId().toString(), iteration));
+						GenericPlanStrategy<PL, AG> strategy = prepareAndChooseStrategy(person, subPopLookup);
+						chosenStrategies.set(i, strategy);
+						if (isSplittable(strategy)) {
+							selectedPlans.set(i, ((GenericPlanStrategyImpl<PL, AG>) strategy).selectPlan(person));
+						}
+					}
+				} finally {
+					MatsimRandom.setThreadRandom(null);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException("Replanning failed.", e.getCause());
+			}
+		}
+
+		// the modules may draw random numbers as well, so they get their own stream per person
+		Random rnd = new Random();
+		MatsimRandom.setThreadRandom(rnd);
+		try {
+			for (int i = 0; i < size; i++) {
+				HasPlansAndId<PL, AG> person = personList.get(i);
+				rnd.setSeed(MatsimRandom.getSeed(person.getId().toString(), -1L - iteration));
+				GenericPlanStrategy<PL, AG> strategy = chosenStrategies.get(i);
+				if (isSplittable(strategy)) {
+					((GenericPlanStrategyImpl<PL, AG>) strategy).handlePlan(selectedPlans.get(i));
+				} else {
+					strategy.run(person);
+				}
+			}
+		} finally {
+			MatsimRandom.setThreadRandom(null);
+		}
+	}
+
+	private static boolean isSplittable(final GenericPlanStrategy<?, ?> strategy) {
+		// subclasses might override run(...)
+		return strategy.getClass() == GenericPlanStrategyImpl.class || strategy instanceof PlanStrategyImpl;
+	}
+
+	private ExecutorService getExecutor() {
+		if (this.executor == null) {
+			final AtomicInteger threadCounter = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, runnable -> {
+				Thread thread = new Thread(runnable, "Replanning." + threadCounter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.executor;
+	}
+
 	private Collection<GenericPlanStrategy<PL, AG>> distinctStrategies() {
 		// Leaving out duplicate strategies in different subpopulations
 		Collection<GenericPlanStrategy<PL, AG>> strategies = new LinkedHashSet<>();
@@ -251,6 +397,7 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	 *
 	 */
 	final void handleChangeRequests(final int iteration) {
+		this.currentIteration = iteration;
 		for ( int ii = 0 ; ii <= iteration ; ii++ ) {
 			// (playing back history for those installations which recreate the strategy manager in every iteration)
 			for ( Map.Entry<String, StrategyWeights<PL, AG>> wentry : weightsPerSubpopulation.entrySet() ) {
@@ -272,7 +419,11 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private class MyStrategyChooser implements StrategyChooser<PL, AG> {
 		@Override
 		public GenericPlanStrategy<PL, AG> chooseStrategy(HasPlansAndId<PL, AG> person, String subpopulation) {
-			StrategyWeights<PL, AG> weights = GenericStrategyManager.this.getStrategyWeights(subpopulation);
+			// (no getStrategyWeights(...) here, which would modify the map while persons are handled in parallel)
+			StrategyWeights<PL, AG> weights = GenericStrategyManager.this.weightsPerSubpopulation.get(subpopulation);
+			if (weights == null) {
+				return null;
+			}
 			
 			double rnd = MatsimRandom.getRandom().nextDouble() * weights.totalWeights;
 			
@@ -21,6 +21,7 @@
 package org.matsim.core.replanning;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
@@ -56,6 +57,7 @@ public class StrategyManager implements MatsimManager {
 
 		this();
 		setMaxPlansPerAgent(strategyConfigGroup.getMaxAgentPlanMemorySize());
+		setNumberOfThreads(strategyConfigGroup.getNumberOfThreads());
 
 		int globalInnovationDisableAfter = (int) ((controlerConfigGroup.getLastIteration() - controlerConfigGroup.getFirstIteration())
 				* strategyConfigGroup.getFractionOfIterationsToDisableInnovation() + controlerConfigGroup.getFirstIteration());
@@ -222,6 +224,13 @@ public class StrategyManager implements MatsimManager {
 		delegate.setMaxPlansPerAgent(maxPlansPerAgent);
 	}
 
+	/**
+	 * @see GenericStrategyManager#setNumberOfThreads(int)
+	 */
+	public final void setNumberOfThreads(final int numberOfThreads) {
+		delegate.setNumberOfThreads(numberOfThreads);
+	}
+
 	public final int getMaxPlansPerAgent() {
 		return delegate.getMaxPlansPerAgent();
 	}
@@ -278,6 +287,14 @@ public class StrategyManager implements MatsimManager {
 		delegate.setPlanSelectorForRemoval(planSelector);
 	}
 
+	/**
+	 * @see GenericStrategyManager#setComponentMetrics(ComponentMetrics)
+	 */
+	@com.google.inject.Inject(optional = true)
+	public final void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		delegate.setComponentMetrics(componentMetrics);
+	}
+
 	@Deprecated
 	public final List<GenericPlanStrategy<Plan, Person>> getStrategiesOfDefaultSubpopulation() {
 		return getStrategies(null);
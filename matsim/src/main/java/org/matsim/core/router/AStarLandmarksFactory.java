@@ -27,22 +27,38 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TimeBinMinimumTravelDisutility;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 /**
+ * If {@link ControlerConfigGroup#isTimeDependentLandmarks()} is enabled, the routers created between the start of an
+ * iteration and the mobsim use landmarks which are pre-processed again in every iteration, with the
+ * {@link TimeBinMinimumTravelDisutility} of the current travel disutility. All other routers use the landmarks
+ * pre-processed once with the free speed disutility. For this, the factory must be registered as controler listener.
+ *
  * @author dgrether
  */
 @Singleton
-public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory, IterationStartsListener, BeforeMobsimListener {
 
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
+	private final Map<Network, PreProcessLandmarks> timeDependentPreProcessData = new HashMap<>();
+	private boolean beforeMobsim = false;
 
 	@Inject private GlobalConfigGroup globalConfig ;
+	@Inject private ControlerConfigGroup controlerConfig ;
+	@Inject private TravelTimeCalculatorConfigGroup travelTimeCalculatorConfig ;
 	
 	@Inject
 	public AStarLandmarksFactory() {
@@ -50,15 +66,39 @@ public class AStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 	
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+		final boolean timeDependent = this.beforeMobsim && this.controlerConfig != null && this.controlerConfig.isTimeDependentLandmarks();
+		Map<Network, PreProcessLandmarks> data = timeDependent ? this.timeDependentPreProcessData : this.preProcessData;
+		PreProcessLandmarks preProcessLandmarks = data.get(network);
 		if (preProcessLandmarks == null) {
-			preProcessLandmarks = new PreProcessLandmarks(travelCosts);
-			preProcessLandmarks.setNumberOfThreads( globalConfig.getNumberOfThreads());
+			TravelDisutility minimumCosts = travelCosts;
+			if (timeDependent) {
+				minimumCosts = new TimeBinMinimumTravelDisutility(network, travelCosts,
+						this.travelTimeCalculatorConfig.getTraveltimeBinSize(), this.travelTimeCalculatorConfig.getMaxTime());
+			}
+			preProcessLandmarks = new PreProcessLandmarks(minimumCosts);
+			if ( globalConfig==null ) {
+				preProcessLandmarks.setNumberOfThreads(8);
+				// (if used without injection, as in FastAStarLandmarksFactory)
+			} else {
+				preProcessLandmarks.setNumberOfThreads( globalConfig.getNumberOfThreads());
+			}
 			preProcessLandmarks.run(network);
-			this.preProcessData.put(network, preProcessLandmarks);
+			data.put(network, preProcessLandmarks);
 		}
 		
 		final double overdoFactor = 1.0;
 		return new AStarLandmarks(network, preProcessLandmarks, travelCosts, travelTimes, overdoFactor);
 	}
+
+	@Override
+	public synchronized void notifyIterationStarts(final IterationStartsEvent event) {
+		// the travel times of the last iteration are available until the mobsim starts
+		this.timeDependentPreProcessData.clear();
+		this.beforeMobsim = true;
+	}
+
+	@Override
+	public synchronized void notifyBeforeMobsim(final BeforeMobsimEvent event) {
+		this.beforeMobsim = false;
+	}
 }
\ No newline at end of file
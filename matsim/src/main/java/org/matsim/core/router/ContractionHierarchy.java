@@ -0,0 +1,368 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH) of a network.
+ * <br>
+ * The nodes are ordered by nested dissection: the network is recursively cut into two halves at the
+ * median of the x or y coordinate, and the nodes separating the two halves get a higher rank than
+ * all nodes of the halves. Contracting the nodes in this order, without any witness search, results in
+ * the hierarchy: an undirected graph containing all links of the network plus the necessary shortcuts,
+ * where every arc leads from a node to a node of higher rank. As the hierarchy does not depend on any
+ * travel times or costs, it is computed only once per network, while the weights of the arcs are computed
+ * for each {@link ContractionHierarchyMetric} in a fast customization step.
+ * <br>
+ * Internally, nodes are identified by their rank. The arcs are stored in compressed sparse row format,
+ * sorted by the rank of their lower node and then by the rank of their higher node.
+ * <br>
+ * The hierarchy is immutable and thread-safe. Later changes to the topology of the network are not
+ * reflected in the hierarchy.
+ *
+ * @see ContractionHierarchyRouter
+ */
+public final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/** partitions with at most this number of nodes are not cut further */
+	private static final int LEAF_SIZE = 4;
+
+	private final SpeedyGraph graph;
+	private final int[] rankOfNode;
+	private final int[] nodeOfRank;
+	/** the arcs from node r to higher nodes are stored at positions [firstArc[r], firstArc[r+1]) */
+	private final int[] firstArc;
+	private final int[] arcTail;
+	private final int[] arcHead;
+	/** the arc representing each link of the graph, -1 for loops */
+	private final int[] linkArc;
+	/** whether the link leads from the lower to the higher node of its arc */
+	private final boolean[] linkUpward;
+
+	public ContractionHierarchy(final Network network) {
+		this(new SpeedyGraph(network));
+	}
+
+	public ContractionHierarchy(final SpeedyGraph graph) {
+		this.graph = graph;
+		int nodeCount = graph.getNodeCount();
+
+		int[][] neighbours = buildUndirectedGraph(graph);
+		this.nodeOfRank = new NestedDissection(graph, neighbours).order();
+		this.rankOfNode = new int[nodeCount];
+		for (int rank = 0; rank < nodeCount; rank++) {
+			this.rankOfNode[this.nodeOfRank[rank]] = rank;
+		}
+
+		int[][] upwardNeighbours = contract(neighbours);
+		this.firstArc = new int[nodeCount + 1];
+		int arcCount = 0;
+		for (int rank = 0; rank < nodeCount; rank++) {
+			this.firstArc[rank] = arcCount;
+			arcCount += upwardNeighbours[rank].length;
+		}
+		this.firstArc[nodeCount] = arcCount;
+		this.arcTail = new int[arcCount];
+		this.arcHead = new int[arcCount];
+		for (int rank = 0; rank < nodeCount; rank++) {
+			int arc = this.firstArc[rank];
+			for (int head : upwardNeighbours[rank]) {
+				this.arcTail[arc] = rank;
+				this.arcHead[arc] = head;
+				arc++;
+			}
+		}
+
+		int linkCount = graph.getLinkCount();
+		this.linkArc = new int[linkCount];
+		this.linkUpward = new boolean[linkCount];
+		for (int link = 0; link < linkCount; link++) {
+			int fromRank = this.rankOfNode[graph.getLinkFromNode(link)];
+			int toRank = this.rankOfNode[graph.getLinkToNode(link)];
+			if (fromRank == toRank) {
+				this.linkArc[link] = -1;
+			} else {
+				this.linkArc[link] = getArc(Math.min(fromRank, toRank), Math.max(fromRank, toRank));
+				this.linkUpward[link] = fromRank < toRank;
+			}
+		}
+		log.info("contraction hierarchy with " + nodeCount + " nodes, " + linkCount + " links and " + arcCount + " arcs created.");
+	}
+
+	private static int[][] buildUndirectedGraph(final SpeedyGraph graph) {
+		int nodeCount = graph.getNodeCount();
+		int[] degree = new int[nodeCount];
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			degree[graph.getLinkFromNode(link)]++;
+			degree[graph.getLinkToNode(link)]++;
+		}
+		int[][] neighbours = new int[nodeCount][];
+		for (int node = 0; node < nodeCount; node++) {
+			neighbours[node] = new int[degree[node]];
+			degree[node] = 0;
+		}
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int from = graph.getLinkFromNode(link);
+			int to = graph.getLinkToNode(link);
+			neighbours[from][degree[from]++] = to;
+			neighbours[to][degree[to]++] = from;
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Contracts the nodes in the order of their rank and returns the sorted ranks of the upward neighbours
+	 * of each node. When a node is contracted, all its upward neighbours become pairwise connected. It is
+	 * sufficient to add them to the lowest of these neighbours, as this one is contracted next of them and
+	 * passes them on.
+	 */
+	private int[][] contract(final int[][] neighbours) {
+		int nodeCount = this.nodeOfRank.length;
+		int[][] upward = new int[nodeCount][];
+		int[] upwardSize = new int[nodeCount];
+		for (int rank = 0; rank < nodeCount; rank++) {
+			int[] nodeNeighbours = neighbours[this.nodeOfRank[rank]];
+			upward[rank] = new int[nodeNeighbours.length];
+			for (int neighbour : nodeNeighbours) {
+				int neighbourRank = this.rankOfNode[neighbour];
+				if (neighbourRank > rank) {
+					upward[rank][upwardSize[rank]++] = neighbourRank;
+				}
+			}
+		}
+		for (int rank = 0; rank < nodeCount; rank++) {
+			int[] nodeUpward = upward[rank];
+			int size = upwardSize[rank];
+			Arrays.sort(nodeUpward, 0, size);
+			int unique = 0;
+			for (int i = 0; i < size; i++) {
+				if (unique == 0 || nodeUpward[unique - 1] != nodeUpward[i]) {
+					nodeUpward[unique++] = nodeUpward[i];
+				}
+			}
+			upward[rank] = Arrays.copyOf(nodeUpward, unique);
+			upwardSize[rank] = unique;
+			if (unique > 1) {
+				int parent = nodeUpward[0];
+				int parentSize = upwardSize[parent];
+				if (parentSize + unique - 1 > upward[parent].length) {
+					upward[parent] = Arrays.copyOf(upward[parent], Math.max(2 * upward[parent].length, parentSize + unique - 1));
+				}
+				System.arraycopy(nodeUpward, 1, upward[parent], parentSize, unique - 1);
+				upwardSize[parent] = parentSize + unique - 1;
+			}
+		}
+		return upward;
+	}
+
+	public SpeedyGraph getGraph() {
+		return this.graph;
+	}
+
+	public int getNodeCount() {
+		return this.nodeOfRank.length;
+	}
+
+	public int getArcCount() {
+		return this.arcHead.length;
+	}
+
+	public int getRank(final int nodeIndex) {
+		return this.rankOfNode[nodeIndex];
+	}
+
+	public int getNodeIndex(final int rank) {
+		return this.nodeOfRank[rank];
+	}
+
+	/**
+	 * @return the index of the first arc of the node with the given rank. The arcs to higher nodes have the
+	 * indices from <code>getFirstArc(rank)</code> (inclusive) to <code>getFirstArc(rank + 1)</code> (exclusive).
+	 */
+	public int getFirstArc(final int rank) {
+		return this.firstArc[rank];
+	}
+
+	/**
+	 * @return the rank of the lower node of the arc
+	 */
+	public int getArcTail(final int arc) {
+		return this.arcTail[arc];
+	}
+
+	/**
+	 * @return the rank of the higher node of the arc
+	 */
+	public int getArcHead(final int arc) {
+		return this.arcHead[arc];
+	}
+
+	/**
+	 * @return the arc between the two nodes with the given ranks, <code>lowerRank &lt; higherRank</code>,
+	 * or -1 if the nodes are not adjacent in the hierarchy.
+	 */
+	public int getArc(final int lowerRank, final int higherRank) {
+		int arc = Arrays.binarySearch(this.arcHead, this.firstArc[lowerRank], this.firstArc[lowerRank + 1], higherRank);
+		return arc < 0 ? -1 : arc;
+	}
+
+	/**
+	 * @return the arc of the hierarchy representing the link with the given index in the graph, or -1 if the link is a loop.
+	 */
+	public int getLinkArc(final int linkIndex) {
+		return this.linkArc[linkIndex];
+	}
+
+	public boolean isLinkUpward(final int linkIndex) {
+		return this.linkUpward[linkIndex];
+	}
+
+	/**
+	 * Computes the node order by recursive geometric bisection.
+	 */
+	private static class NestedDissection {
+
+		private final int[][] neighbours;
+		private final double[] x;
+		private final double[] y;
+		private final int[] order;
+		private final int[] mark;
+		private int nextRank = 0;
+		private int nextMark = 0;
+
+		NestedDissection(final SpeedyGraph graph, final int[][] neighbours) {
+			int nodeCount = graph.getNodeCount();
+			this.neighbours = neighbours;
+			this.x = new double[nodeCount];
+			this.y = new double[nodeCount];
+			for (int node = 0; node < nodeCount; node++) {
+				Coord coord = graph.getNode(node).getCoord();
+				this.x[node] = coord.getX();
+				this.y[node] = coord.getY();
+			}
+			this.order = new int[nodeCount];
+			this.mark = new int[nodeCount];
+		}
+
+		int[] order() {
+			int nodeCount = this.order.length;
+			int[] nodes = new int[nodeCount];
+			for (int node = 0; node < nodeCount; node++) {
+				nodes[node] = node;
+			}
+			dissect(nodes, 0, nodeCount);
+			return this.order;
+		}
+
+		/**
+		 * Assigns the next ranks to the nodes in <code>nodes[from, to)</code>. The array is reordered.
+		 */
+		private void dissect(final int[] nodes, final int from, final int to) {
+			if (to - from <= LEAF_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.nextRank++] = nodes[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int node = nodes[i];
+				minX = Math.min(minX, this.x[node]);
+				maxX = Math.max(maxX, this.x[node]);
+				minY = Math.min(minY, this.y[node]);
+				maxY = Math.max(maxY, this.y[node]);
+			}
+			double[] coords = (maxX - minX) >= (maxY - minY) ? this.x : this.y;
+			int middle = (from + to) >>> 1;
+			select(nodes, from, to - 1, middle, coords);
+
+			// the nodes of the lower half adjacent to the upper half form the separator
+			int upperMark = ++this.nextMark;
+			for (int i = middle; i < to; i++) {
+				this.mark[nodes[i]] = upperMark;
+			}
+			int separatorStart = middle;
+			for (int i = middle - 1; i >= from; i--) {
+				int node = nodes[i];
+				for (int neighbour : this.neighbours[node]) {
+					if (this.mark[neighbour] == upperMark) {
+						separatorStart--;
+						nodes[i] = nodes[separatorStart];
+						nodes[separatorStart] = node;
+						break;
+					}
+				}
+			}
+			int[] separator = Arrays.copyOfRange(nodes, separatorStart, middle);
+
+			dissect(nodes, from, separatorStart);
+			dissect(nodes, middle, to);
+			for (int node : separator) {
+				this.order[this.nextRank++] = node;
+			}
+		}
+
+		/**
+		 * Partially sorts <code>nodes[left, right]</code> such that the node at position <code>k</code> has the
+		 * coordinate it would have if the range was sorted, and all nodes before it have smaller or equal coordinates.
+		 */
+		private static void select(final int[] nodes, int left, int right, final int k, final double[] coords) {
+			while (left < right) {
+				double pivot = coords[nodes[(left + right) >>> 1]];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (coords[nodes[i]] < pivot) {
+						i++;
+					}
+					while (coords[nodes[j]] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						int tmp = nodes[i];
+						nodes[i] = nodes[j];
+						nodes[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+}
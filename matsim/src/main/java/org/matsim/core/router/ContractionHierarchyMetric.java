@@ -0,0 +1,114 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyMetric.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The weights of the arcs of a {@link ContractionHierarchy} for one point in time.
+ * <br>
+ * The customization first sets the weight of every arc to the smallest disutility of the links it
+ * represents, and then processes the nodes in ascending order of their rank: for every pair of upward
+ * arcs <code>(v, x)</code> and <code>(v, y)</code> of a node <code>v</code>, the arc <code>(x, y)</code>
+ * exists in the hierarchy, and its weights are reduced to the ones of the detours via <code>v</code> if
+ * these are shorter. Since all arcs of <code>v</code> are final when <code>v</code> is processed, the
+ * resulting weights are the ones of the shortest paths using only lower nodes.
+ * <br>
+ * For every arc and direction, it is stored how the weight was obtained, so the arc can be unpacked
+ * into links: either the index of the link in the {@link SpeedyGraph}, encoded as <code>-2 - linkIndex</code>,
+ * or the rank of the node <code>v</code> the shortest detour leads over, or {@link #NONE} if the arc
+ * cannot be traversed in this direction.
+ */
+/*package*/ final class ContractionHierarchyMetric {
+
+	/*package*/ static final int NONE = -1;
+
+	/*package*/ final double[] upwardWeight;
+	/*package*/ final double[] downwardWeight;
+	/*package*/ final int[] upwardVia;
+	/*package*/ final int[] downwardVia;
+
+	/*package*/ ContractionHierarchyMetric(final ContractionHierarchy hierarchy, final TravelDisutility travelDisutility, final double time) {
+		int arcCount = hierarchy.getArcCount();
+		this.upwardWeight = new double[arcCount];
+		this.downwardWeight = new double[arcCount];
+		this.upwardVia = new int[arcCount];
+		this.downwardVia = new int[arcCount];
+		Arrays.fill(this.upwardWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.downwardWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.upwardVia, NONE);
+		Arrays.fill(this.downwardVia, NONE);
+
+		SpeedyGraph graph = hierarchy.getGraph();
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int arc = hierarchy.getLinkArc(link);
+			if (arc < 0) {
+				continue;
+			}
+			double weight = travelDisutility.getLinkTravelDisutility(graph.getLink(link), time, null, null);
+			if (hierarchy.isLinkUpward(link)) {
+				if (weight < this.upwardWeight[arc]) {
+					this.upwardWeight[arc] = weight;
+					this.upwardVia[arc] = -2 - link;
+				}
+			} else if (weight < this.downwardWeight[arc]) {
+				this.downwardWeight[arc] = weight;
+				this.downwardVia[arc] = -2 - link;
+			}
+		}
+
+		for (int v = 0; v < hierarchy.getNodeCount(); v++) {
+			int lastArc = hierarchy.getFirstArc(v + 1);
+			for (int arcX = hierarchy.getFirstArc(v); arcX < lastArc; arcX++) {
+				int x = hierarchy.getArcHead(arcX);
+				// the arcs of x and the remaining arcs of v are both sorted by the rank of their head
+				int arcXY = hierarchy.getFirstArc(x);
+				for (int arcY = arcX + 1; arcY < lastArc; arcY++) {
+					int y = hierarchy.getArcHead(arcY);
+					while (hierarchy.getArcHead(arcXY) < y) {
+						arcXY++;
+					}
+					double upward = this.downwardWeight[arcX] + this.upwardWeight[arcY];
+					if (upward < this.upwardWeight[arcXY]) {
+						this.upwardWeight[arcXY] = upward;
+						this.upwardVia[arcXY] = v;
+					}
+					double downward = this.downwardWeight[arcY] + this.upwardWeight[arcX];
+					if (downward < this.downwardWeight[arcXY]) {
+						this.downwardWeight[arcXY] = downward;
+						this.downwardVia[arcXY] = v;
+					}
+				}
+			}
+		}
+	}
+
+	/*package*/ static boolean isLink(final int via) {
+		return via < NONE;
+	}
+
+	/*package*/ static int getLinkIndex(final int via) {
+		return -2 - via;
+	}
+
+}
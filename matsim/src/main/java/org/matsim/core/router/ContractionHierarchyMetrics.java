@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyMetrics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The {@link ContractionHierarchyMetric}s of all time bins of one {@link ContractionHierarchy} and travel disutility.
+ * <br>
+ * A metric is customized with the travel disutilities at the middle of its time bin when it is needed first.
+ * Afterwards, it is only read, so it can be shared by the routers of all threads. {@link #clear()} discards all
+ * metrics, so they are customized again with the current travel disutilities.
+ */
+/*package*/ final class ContractionHierarchyMetrics {
+
+	private final ContractionHierarchy hierarchy;
+	private final TravelDisutility travelDisutility;
+	private final double timeBinSize;
+	private final AtomicReferenceArray<ContractionHierarchyMetric> metrics;
+
+	/**
+	 * @param timeBinSize the size of the time bins, in seconds
+	 * @param maxTime departures after this time use the metric of the last time bin
+	 */
+	/*package*/ ContractionHierarchyMetrics(final ContractionHierarchy hierarchy, final TravelDisutility travelDisutility,
+			final double timeBinSize, final double maxTime) {
+		this.hierarchy = hierarchy;
+		this.travelDisutility = travelDisutility;
+		this.timeBinSize = timeBinSize;
+		this.metrics = new AtomicReferenceArray<>((int) (maxTime / timeBinSize) + 1);
+	}
+
+	/*package*/ ContractionHierarchy getHierarchy() {
+		return this.hierarchy;
+	}
+
+	/*package*/ ContractionHierarchyMetric getMetric(final double time) {
+		int bin = time <= 0 ? 0 : Math.min((int) (time / this.timeBinSize), this.metrics.length() - 1);
+		ContractionHierarchyMetric metric = this.metrics.get(bin);
+		if (metric == null) {
+			synchronized (this) {
+				metric = this.metrics.get(bin);
+				if (metric == null) {
+					metric = new ContractionHierarchyMetric(this.hierarchy, this.travelDisutility, (bin + 0.5) * this.timeBinSize);
+					this.metrics.set(bin, metric);
+				}
+			}
+		}
+		return metric;
+	}
+
+	/*package*/ synchronized void clear() {
+		for (int bin = 0; bin < this.metrics.length(); bin++) {
+			this.metrics.set(bin, null);
+		}
+	}
+
+	/**
+	 * @return the number of customized metrics
+	 */
+	/*package*/ int size() {
+		int size = 0;
+		for (int bin = 0; bin < this.metrics.length(); bin++) {
+			if (this.metrics.get(bin) != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,277 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least-cost path calculator based on a customizable {@link ContractionHierarchy}.
+ * <br>
+ * The day is divided into time bins. For every time bin, a {@link ContractionHierarchyMetric} is customized
+ * with the travel disutilities at the middle of the bin, when the first route departing in this bin is
+ * requested. A route is calculated with the metric of its departure time bin by a bidirectional search,
+ * in which both directions only follow arcs to nodes of higher rank. The resulting arcs are then unpacked
+ * into links, and the travel time and cost of the path are calculated link by link for the actual time at
+ * which each link is entered, just like the other routers do.
+ * <br>
+ * Thus, the route is the least-cost route for the travel disutilities at the departure time bin; changes of
+ * the disutilities during the trip are not considered for the route choice. The travel disutilities are
+ * requested without person and vehicle, so person-specific disutilities are not supported.
+ * <br>
+ * The metrics are customized with the travel disutilities at the time they are needed first. The routers created
+ * by a {@link ContractionHierarchyRouterFactory} share their metrics, which the factory discards at the start of
+ * every iteration to pick up the changed travel times. A router created with the public constructor customizes its
+ * own metrics and never updates them.
+ *
+ * <h2>Important note</h2>
+ * This class is NOT thread-safe! Use one instance per thread; the {@link ContractionHierarchy} and the metrics can be shared.
+ *
+ * @see ContractionHierarchyRouterFactory
+ */
+public class ContractionHierarchyRouter implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchyRouter.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final ContractionHierarchyMetrics metrics;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+	private final int[] forwardIteration;
+	private final int[] backwardIteration;
+	private int iteration = 0;
+	private final IntBinaryMinHeap forwardPending;
+	private final IntBinaryMinHeap backwardPending;
+	private int[] unpackStack = new int[64];
+
+	/**
+	 * @param timeBinSize the size of the time bins, in seconds
+	 * @param maxTime departures after this time use the metric of the last time bin
+	 */
+	public ContractionHierarchyRouter(final ContractionHierarchy hierarchy, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			final double timeBinSize, final double maxTime) {
+		this(new ContractionHierarchyMetrics(hierarchy, travelDisutility, timeBinSize, maxTime), travelTime, travelDisutility);
+	}
+
+	/**
+	 * @param metrics customized with the given travel disutility (or an equivalent one)
+	 */
+	/*package*/ ContractionHierarchyRouter(final ContractionHierarchyMetrics metrics, final TravelTime travelTime, final TravelDisutility travelDisutility) {
+		this.hierarchy = metrics.getHierarchy();
+		this.graph = this.hierarchy.getGraph();
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.metrics = metrics;
+
+		ContractionHierarchy hierarchy = this.hierarchy;
+
+		int nodeCount = hierarchy.getNodeCount();
+		this.forwardCost = new double[nodeCount];
+		this.backwardCost = new double[nodeCount];
+		this.forwardArc = new int[nodeCount];
+		this.backwardArc = new int[nodeCount];
+		this.forwardIteration = new int[nodeCount];
+		this.backwardIteration = new int[nodeCount];
+		this.forwardPending = new IntBinaryMinHeap(nodeCount);
+		this.backwardPending = new IntBinaryMinHeap(nodeCount);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int source = this.hierarchy.getRank(this.graph.getNodeIndex(fromNode));
+		int target = this.hierarchy.getRank(this.graph.getNodeIndex(toNode));
+		ContractionHierarchyMetric metric = this.metrics.getMetric(startTime);
+
+		startNewIteration();
+		this.forwardPending.clear();
+		this.backwardPending.clear();
+		visit(this.forwardCost, this.forwardArc, this.forwardIteration, source, 0.0, -1);
+		this.forwardPending.insert(source, 0.0);
+		visit(this.backwardCost, this.backwardArc, this.backwardIteration, target, 0.0, -1);
+		this.backwardPending.insert(target, 0.0);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		while (true) {
+			double forwardMin = this.forwardPending.isEmpty() ? Double.POSITIVE_INFINITY : this.forwardPending.peekKey();
+			double backwardMin = this.backwardPending.isEmpty() ? Double.POSITIVE_INFINITY : this.backwardPending.peekKey();
+			if (Math.min(forwardMin, backwardMin) >= bestCost) {
+				break;
+			}
+			if (forwardMin <= backwardMin) {
+				int node = this.forwardPending.poll();
+				if (this.backwardIteration[node] == this.iteration) {
+					double cost = this.forwardCost[node] + this.backwardCost[node];
+					if (cost < bestCost) {
+						bestCost = cost;
+						meetingNode = node;
+					}
+				}
+				relaxNode(node, metric.upwardWeight, this.forwardCost, this.forwardArc, this.forwardIteration, this.forwardPending);
+			} else {
+				int node = this.backwardPending.poll();
+				if (this.forwardIteration[node] == this.iteration) {
+					double cost = this.forwardCost[node] + this.backwardCost[node];
+					if (cost < bestCost) {
+						bestCost = cost;
+						meetingNode = node;
+					}
+				}
+				relaxNode(node, metric.downwardWeight, this.backwardCost, this.backwardArc, this.backwardIteration, this.backwardPending);
+			}
+		}
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().");
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+		return constructPath(fromNode, meetingNode, metric, startTime, person, vehicle);
+	}
+
+	private void relaxNode(final int node, final double[] weights, final double[] cost, final int[] comingFrom, final int[] visited,
+			final IntBinaryMinHeap pending) {
+		double currCost = cost[node];
+		int lastArc = this.hierarchy.getFirstArc(node + 1);
+		for (int arc = this.hierarchy.getFirstArc(node); arc < lastArc; arc++) {
+			double weight = weights[arc];
+			if (weight == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			int toNode = this.hierarchy.getArcHead(arc);
+			double newCost = currCost + weight;
+			if (visited[toNode] != this.iteration) {
+				visit(cost, comingFrom, visited, toNode, newCost, arc);
+				pending.insert(toNode, newCost);
+			} else if (newCost < cost[toNode]) {
+				visit(cost, comingFrom, visited, toNode, newCost, arc);
+				pending.decreaseKey(toNode, newCost);
+			}
+		}
+	}
+
+	private void visit(final double[] cost, final int[] comingFrom, final int[] visited, final int node, final double nodeCost, final int arc) {
+		cost[node] = nodeCost;
+		comingFrom[node] = arc;
+		visited[node] = this.iteration;
+	}
+
+	private void startNewIteration() {
+		if (this.iteration == Integer.MAX_VALUE) {
+			Arrays.fill(this.forwardIteration, 0);
+			Arrays.fill(this.backwardIteration, 0);
+			this.iteration = 0;
+		}
+		this.iteration++;
+	}
+
+	private Path constructPath(final Node fromNode, final int meetingNode, final ContractionHierarchyMetric metric, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		// the arcs from the source up to the meeting node, in reverse order
+		int stackSize = 0;
+		for (int arc = this.forwardArc[meetingNode]; arc >= 0; arc = this.forwardArc[this.hierarchy.getArcTail(arc)]) {
+			stackSize = push(stackSize, upward(arc));
+		}
+		List<Link> links = new ArrayList<>();
+		stackSize = unpack(stackSize, metric, links);
+		// the arcs from the meeting node down to the target
+		for (int arc = this.backwardArc[meetingNode]; arc >= 0; arc = this.backwardArc[this.hierarchy.getArcTail(arc)]) {
+			stackSize = push(stackSize, downward(arc));
+			stackSize = unpack(stackSize, metric, links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = startTime;
+		double cost = 0.0;
+		for (Link link : links) {
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			nodes.add(link.getToNode());
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	/**
+	 * Replaces the arcs on the stack by the links they represent, in the order in which they are traversed.
+	 * The top of the stack is traversed first.
+	 */
+	private int unpack(int stackSize, final ContractionHierarchyMetric metric, final List<Link> links) {
+		while (stackSize > 0) {
+			int entry = this.unpackStack[--stackSize];
+			int arc = entry >> 1;
+			boolean upward = (entry & 1) == 0;
+			int via = upward ? metric.upwardVia[arc] : metric.downwardVia[arc];
+			if (ContractionHierarchyMetric.isLink(via)) {
+				links.add(this.graph.getLink(ContractionHierarchyMetric.getLinkIndex(via)));
+				continue;
+			}
+			int lower = this.hierarchy.getArc(via, this.hierarchy.getArcTail(arc));
+			int higher = this.hierarchy.getArc(via, this.hierarchy.getArcHead(arc));
+			if (upward) {
+				// tail -> via -> head
+				stackSize = push(stackSize, upward(higher));
+				stackSize = push(stackSize, downward(lower));
+			} else {
+				// head -> via -> tail
+				stackSize = push(stackSize, upward(lower));
+				stackSize = push(stackSize, downward(higher));
+			}
+		}
+		return stackSize;
+	}
+
+	private int push(final int stackSize, final int entry) {
+		if (stackSize == this.unpackStack.length) {
+			this.unpackStack = Arrays.copyOf(this.unpackStack, 2 * stackSize);
+		}
+		this.unpackStack[stackSize] = entry;
+		return stackSize + 1;
+	}
+
+	private static int upward(final int arc) {
+		return arc << 1;
+	}
+
+	private static int downward(final int arc) {
+		return (arc << 1) | 1;
+	}
+
+}
@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyRouterFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchyRouter}s. The {@link ContractionHierarchy} of each network is created
+ * only once and shared by all routers created for this network. The metrics are shared as well, by all routers
+ * created for the same network, travel time and class of travel disutility; two travel disutilities of the same
+ * class on top of the same travel time are assumed to be equal (which does not hold with routing randomness).
+ * By default, the time bins of the metrics are the ones of the travel time calculator.
+ * <br>
+ * The metrics are discarded at the start of every iteration, so they are customized again with the travel times
+ * of the last iteration. This requires that the factory is registered as a controler listener.
+ */
+@Singleton
+public class ContractionHierarchyRouterFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, ContractionHierarchy> hierarchies = new IdentityHashMap<>();
+	private final Map<MetricsKey, ContractionHierarchyMetrics> metrics = new HashMap<>();
+	private final double timeBinSize;
+	private final double maxTime;
+
+	@Inject
+	public ContractionHierarchyRouterFactory(final TravelTimeCalculatorConfigGroup config) {
+		this(config.getTraveltimeBinSize(), config.getMaxTime());
+	}
+
+	public ContractionHierarchyRouterFactory(final double timeBinSize, final double maxTime) {
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return new ContractionHierarchyRouter(getMetrics(network, travelCosts, travelTimes), travelTimes, travelCosts);
+	}
+
+	@Override
+	public synchronized void notifyIterationStarts(final IterationStartsEvent event) {
+		// the routers created before keep their metrics; clear them instead of only forgetting them
+		for (ContractionHierarchyMetrics m : this.metrics.values()) {
+			m.clear();
+		}
+		this.metrics.clear();
+	}
+
+	/*package*/ synchronized ContractionHierarchy getHierarchy(final Network network) {
+		return this.hierarchies.computeIfAbsent(network, ContractionHierarchy::new);
+	}
+
+	/*package*/ synchronized ContractionHierarchyMetrics getMetrics(final Network network, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		return this.metrics.computeIfAbsent(new MetricsKey(network, travelTimes, travelCosts.getClass()),
+				key -> new ContractionHierarchyMetrics(getHierarchy(network), travelCosts, this.timeBinSize, this.maxTime));
+	}
+
+	private static final class MetricsKey {
+		private final Network network;
+		private final TravelTime travelTime;
+		private final Class<?> travelDisutilityClass;
+
+		MetricsKey(final Network network, final TravelTime travelTime, final Class<?> travelDisutilityClass) {
+			this.network = network;
+			this.travelTime = travelTime;
+			this.travelDisutilityClass = travelDisutilityClass;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof MetricsKey)) {
+				return false;
+			}
+			MetricsKey other = (MetricsKey) obj;
+			return this.network == other.network && this.travelTime == other.travelTime
+					&& this.travelDisutilityClass == other.travelDisutilityClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(this.network) + System.identityHashCode(this.travelTime))
+					+ this.travelDisutilityClass.hashCode();
+		}
+	}
+
+}
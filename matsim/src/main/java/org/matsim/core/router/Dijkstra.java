@@ -128,6 +128,11 @@ import org.matsim.vehicles.Vehicle;
 
 	private RouterPriorityQueue<Node> heap = null;
 
+	/**
+	 * The number of nodes taken from the priority queue in the last call of calcLeastCostPath(...).
+	 */
+	private int numberOfVisitedNodes = 0;
+
 	private String[] modeRestriction = null;
 	
 	/*package*/ Person person = null;
@@ -224,6 +229,7 @@ import org.matsim.vehicles.Vehicle;
 		checkNodeBelongToNetwork(toNode);
 		
 		augmentIterationId(); // this call makes the class not thread-safe
+		this.numberOfVisitedNodes = 0;
 		this.person = person2;
 		this.vehicle = vehicle2;
 
@@ -302,6 +308,7 @@ import org.matsim.vehicles.Vehicle;
 		
 		while (stillSearching) {
 			Node outNode = pendingNodes.poll();
+			this.numberOfVisitedNodes++;
 
 			if (outNode == null) {
 				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
@@ -321,6 +328,13 @@ import org.matsim.vehicles.Vehicle;
 		return toNode;
 	}
 	
+	/**
+	 * @return the number of nodes visited by the last call of calcLeastCostPath(...), as a measure of the effort of the search.
+	 */
+	public final int getNumberOfVisitedNodes() {
+		return this.numberOfVisitedNodes;
+	}
+
 	/**
 	 * Constructs the path after the algorithm has been run.
 	 *
@@ -28,7 +28,13 @@ import javax.inject.Singleton;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
@@ -36,20 +42,29 @@ import org.matsim.core.router.util.PreProcessLandmarks;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkFactory;
 import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TimeBinMinimumTravelDisutility;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 /**
+ * Uses time-dependent landmarks like {@link AStarLandmarksFactory} if {@link ControlerConfigGroup#isTimeDependentLandmarks()}
+ * is enabled. Since the routing network holds the pre-processed data, a separate routing network is created for them.
+ *
  * @author cdobler
  */
 @Singleton
-public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory, IterationStartsListener, BeforeMobsimListener {
 	
 	private final RoutingNetworkFactory routingNetworkFactory;
 	private final Map<Network, RoutingNetwork> routingNetworks = new HashMap<>();
 	private final Map<Network, PreProcessLandmarks> preProcessData = new HashMap<>();
+	private final Map<Network, RoutingNetwork> timeDependentRoutingNetworks = new HashMap<>();
+	private final Map<Network, PreProcessLandmarks> timeDependentPreProcessData = new HashMap<>();
+	private boolean beforeMobsim = false;
 	
 	@Inject GlobalConfigGroup globalConfig ;
+	@Inject ControlerConfigGroup controlerConfig ;
+	@Inject TravelTimeCalculatorConfigGroup travelTimeCalculatorConfig ;
 
 	@Inject
 	public FastAStarLandmarksFactory() {
@@ -70,14 +85,22 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 
 	@Override
 	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		PreProcessLandmarks preProcessLandmarks = this.preProcessData.get(network);
+		final boolean timeDependent = this.beforeMobsim && this.controlerConfig != null && this.controlerConfig.isTimeDependentLandmarks();
+		Map<Network, RoutingNetwork> routingNetworks = timeDependent ? this.timeDependentRoutingNetworks : this.routingNetworks;
+		Map<Network, PreProcessLandmarks> preProcessData = timeDependent ? this.timeDependentPreProcessData : this.preProcessData;
+		RoutingNetwork routingNetwork = routingNetworks.get(network);
+		PreProcessLandmarks preProcessLandmarks = preProcessData.get(network);
 		
 		if (routingNetwork == null) {
 			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
 			
 			if (preProcessLandmarks == null) {
-				preProcessLandmarks = new PreProcessLandmarks(travelCosts);
+				TravelDisutility minimumCosts = travelCosts;
+				if (timeDependent) {
+					minimumCosts = new TimeBinMinimumTravelDisutility(network, travelCosts,
+							this.travelTimeCalculatorConfig.getTraveltimeBinSize(), this.travelTimeCalculatorConfig.getMaxTime());
+				}
+				preProcessLandmarks = new PreProcessLandmarks(minimumCosts);
 				if ( globalConfig==null ) {
 					preProcessLandmarks.setNumberOfThreads(8);
 					// (if used without injection.  not so beautiful. kai, nov'17)
@@ -85,18 +108,31 @@ public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory
 					preProcessLandmarks.setNumberOfThreads(globalConfig.getNumberOfThreads());
 				}
 				preProcessLandmarks.run(network);
-				this.preProcessData.put(network, preProcessLandmarks);
+				preProcessData.put(network, preProcessLandmarks);
 				
 				for (RoutingNetworkNode node : routingNetwork.getNodes().values()) {
 					node.setDeadEndData(preProcessLandmarks.getNodeData(node.getNode()));
 				}
 			}				
 			
-			this.routingNetworks.put(network, routingNetwork);
+			routingNetworks.put(network, routingNetwork);
 		}
 		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
 		final double overdoFactor = 1.0;
 		return new FastAStarLandmarks(routingNetwork, preProcessLandmarks, travelCosts, travelTimes, overdoFactor, fastRouterFactory);
 	}
-}
\ No newline at end of file
+
+	@Override
+	public synchronized void notifyIterationStarts(final IterationStartsEvent event) {
+		// the travel times of the last iteration are available until the mobsim starts
+		this.timeDependentRoutingNetworks.clear();
+		this.timeDependentPreProcessData.clear();
+		this.beforeMobsim = true;
+	}
+
+	@Override
+	public synchronized void notifyBeforeMobsim(final BeforeMobsimEvent event) {
+		this.beforeMobsim = false;
+	}
+}
@@ -0,0 +1,57 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * InstrumentedLeastCostPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.analysis.ComponentMetrics;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Records the queries of a {@link LeastCostPathCalculator} in the {@link ComponentMetrics}: their time as
+ * <code>router.&lt;mode&gt;.leastCostPath</code> and, for the routers based on {@link Dijkstra}, the number of
+ * visited nodes as <code>router.&lt;mode&gt;.visitedNodes</code>.
+ */
+/*package*/ final class InstrumentedLeastCostPathCalculator implements LeastCostPathCalculator {
+
+	private final LeastCostPathCalculator delegate;
+	private final ComponentMetrics.Timer timer;
+	private final ComponentMetrics.Counter visitedNodes;
+
+	/*package*/ InstrumentedLeastCostPathCalculator(final LeastCostPathCalculator delegate, final ComponentMetrics metrics, final String mode) {
+		this.delegate = delegate;
+		this.timer = metrics.getTimer("router." + mode + ".leastCostPath");
+		this.visitedNodes = delegate instanceof Dijkstra ? metrics.getCounter("router." + mode + ".visitedNodes") : null;
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		long start = this.timer.start();
+		Path path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		this.timer.stop(start);
+		if (this.visitedNodes != null) {
+			this.visitedNodes.add(((Dijkstra) this.delegate).getNumberOfVisitedNodes());
+		}
+		return path;
+	}
+
+}
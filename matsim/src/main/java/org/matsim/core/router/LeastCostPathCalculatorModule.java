@@ -24,6 +24,7 @@ package org.matsim.core.router;
 
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.util.*;
 
@@ -40,10 +41,33 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(DijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.AStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(AStarLandmarksFactory.class);
+            if (config.controler().isTimeDependentLandmarks()) {
+                // the landmarks are pre-processed without person, and would not be admissible for person-specific disutilities
+                checkNoRoutingRandomness(config, ControlerConfigGroup.GROUP_NAME + ".timeDependentLandmarks");
+                addControlerListenerBinding().to(AStarLandmarksFactory.class);
+            }
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastDijkstra)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+            if (config.controler().isTimeDependentLandmarks()) {
+                checkNoRoutingRandomness(config, ControlerConfigGroup.GROUP_NAME + ".timeDependentLandmarks");
+                addControlerListenerBinding().to(FastAStarLandmarksFactory.class);
+            }
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.SpeedyDijkstra)) {
+            bind(LeastCostPathCalculatorFactory.class).to(SpeedyDijkstraFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchy)) {
+            // the metrics are customized without person, which the randomizing travel disutility does not support
+            checkNoRoutingRandomness(config, "The routingAlgorithmType " + ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchy);
+            bind(LeastCostPathCalculatorFactory.class).to(ContractionHierarchyRouterFactory.class);
+            addControlerListenerBinding().to(ContractionHierarchyRouterFactory.class);
+        }
+    }
+
+    private static void checkNoRoutingRandomness(Config config, String feature) {
+        if (config.plansCalcRoute().getRoutingRandomness() != 0.) {
+            throw new RuntimeException(feature + " requires a travel disutility which does not depend on the person, but the routingRandomness in the "
+                    + PlansCalcRouteConfigGroup.GROUP_NAME + " config group is " + config.plansCalcRoute().getRoutingRandomness() + ". Set it to 0.");
         }
     }
 
@@ -0,0 +1,361 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathMatrixCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the travel times, distances and travel costs of the least-cost paths between many
+ * origins and many destinations, as dense matrices.
+ * <br>
+ * For every origin, one Dijkstra search on a {@link SpeedyGraph} is run, which stops as soon as all
+ * destinations are settled. The searches are distributed over the threads of a {@link ForkJoinPool},
+ * each thread reusing its own search arrays.
+ * <br>
+ * By default, the matrices are time-dependent: every link is entered at the time the search reaches
+ * it, starting at the departure time at the origins. If {@link #setTimeDependent(boolean)} is disabled,
+ * all links are evaluated once at the departure time. The searches then do not depend on the direction,
+ * so if there are fewer destinations than origins, backward searches from the destinations are run instead.
+ * <br>
+ * Travel time and disutility are requested without person and vehicle, and from several threads at the
+ * same time in the time-dependent case, so they must be thread-safe. If several paths have the least cost,
+ * the travel time and distance of any of them may be returned.
+ */
+public final class LeastCostPathMatrixCalculator {
+
+	private final static Logger log = Logger.getLogger(LeastCostPathMatrixCalculator.class);
+
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final int numberOfThreads;
+	private boolean timeDependent = true;
+
+	private final double[] linkLengths;
+	/** the in-links of node i are stored at positions [firstInLink[i], firstInLink[i+1]) of inLinks */
+	private int[] firstInLink = null;
+	private int[] inLinks = null;
+
+	public LeastCostPathMatrixCalculator(final SpeedyGraph graph, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			final int numberOfThreads) {
+		this.graph = graph;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+		this.linkLengths = new double[graph.getLinkCount()];
+		for (int link = 0; link < this.linkLengths.length; link++) {
+			this.linkLengths[link] = graph.getLink(link).getLength();
+		}
+	}
+
+	/**
+	 * Sets whether links are evaluated at the time they are entered (the default), or all at the departure time.
+	 */
+	public void setTimeDependent(final boolean timeDependent) {
+		this.timeDependent = timeDependent;
+	}
+
+	public boolean isTimeDependent() {
+		return this.timeDependent;
+	}
+
+	public Matrix calcMatrix(final List<Node> fromNodes, final List<Node> toNodes, final double departureTime) {
+		final int[] origins = toNodeIndices(fromNodes);
+		final int[] destinations = toNodeIndices(toNodes);
+		final Matrix matrix = new Matrix(fromNodes, toNodes);
+
+		double[] linkTimes = null;
+		double[] linkCosts = null;
+		boolean backward = false;
+		if (!this.timeDependent) {
+			linkTimes = new double[this.graph.getLinkCount()];
+			linkCosts = new double[this.graph.getLinkCount()];
+			for (int link = 0; link < linkTimes.length; link++) {
+				Link l = this.graph.getLink(link);
+				linkTimes[link] = this.travelTime.getLinkTravelTime(l, departureTime, null, null);
+				linkCosts[link] = this.travelDisutility.getLinkTravelDisutility(l, departureTime, null, null);
+			}
+			backward = countDistinct(destinations) < countDistinct(origins);
+			if (backward) {
+				buildInLinks();
+			}
+		}
+
+		final int[] starts = backward ? destinations : origins;
+		final int[] targets = backward ? origins : destinations;
+		final boolean searchBackward = backward;
+		final double[] fixedLinkTimes = linkTimes;
+		final double[] fixedLinkCosts = linkCosts;
+		final AtomicInteger nextStart = new AtomicInteger(0);
+		int threads = Math.min(this.numberOfThreads, Math.max(1, starts.length));
+		List<Callable<Void>> workers = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			workers.add(() -> {
+				Search search = new Search(targets, departureTime, fixedLinkTimes, fixedLinkCosts);
+				int i;
+				while ((i = nextStart.getAndIncrement()) < starts.length) {
+					search.run(starts[i], searchBackward);
+					for (int j = 0; j < targets.length; j++) {
+						int target = targets[j];
+						int index = searchBackward ? j * matrix.columns + i : i * matrix.columns + j;
+						if (search.visitedInIteration[target] == search.iteration) {
+							matrix.travelTimes[index] = (float) (searchBackward ? search.time[target] : search.time[target] - departureTime);
+							matrix.distances[index] = (float) search.distance[target];
+							matrix.travelCosts[index] = (float) search.cost[target];
+						}
+					}
+				}
+				return null;
+			});
+		}
+
+		long start = System.currentTimeMillis();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (Future<Void> future : pool.invokeAll(workers)) {
+				future.get();
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+		log.info("calculated " + fromNodes.size() + "x" + toNodes.size() + " matrix with " + starts.length + (searchBackward ? " backward" : " forward")
+				+ " searches on " + threads + " threads in " + (System.currentTimeMillis() - start) + " ms");
+		return matrix;
+	}
+
+	private int[] toNodeIndices(final List<Node> nodes) {
+		int[] indices = new int[nodes.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = this.graph.getNodeIndex(nodes.get(i));
+		}
+		return indices;
+	}
+
+	private static int countDistinct(final int[] values) {
+		int[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private synchronized void buildInLinks() {
+		if (this.inLinks != null) {
+			return;
+		}
+		int nodeCount = this.graph.getNodeCount();
+		int linkCount = this.graph.getLinkCount();
+		int[] firstInLink = new int[nodeCount + 1];
+		for (int link = 0; link < linkCount; link++) {
+			firstInLink[this.graph.getLinkToNode(link) + 1]++;
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			firstInLink[node + 1] += firstInLink[node];
+		}
+		int[] inLinks = new int[linkCount];
+		int[] next = Arrays.copyOf(firstInLink, nodeCount);
+		for (int link = 0; link < linkCount; link++) {
+			inLinks[next[this.graph.getLinkToNode(link)]++] = link;
+		}
+		this.firstInLink = firstInLink;
+		this.inLinks = inLinks;
+	}
+
+	/**
+	 * The state of the searches of one thread. Like in {@link SpeedyDijkstra}, the arrays are not cleared
+	 * between searches; instead, data of nodes visited in an older iteration is ignored.
+	 */
+	private final class Search {
+		final double[] cost;
+		final double[] time;
+		final double[] distance;
+		final int[] visitedInIteration;
+		final int[] targetInIteration;
+		final IntBinaryMinHeap pendingNodes;
+		final int[] targets;
+		final double departureTime;
+		final double[] linkTimes;
+		final double[] linkCosts;
+		int iteration = 0;
+
+		Search(final int[] targets, final double departureTime, final double[] linkTimes, final double[] linkCosts) {
+			int nodeCount = LeastCostPathMatrixCalculator.this.graph.getNodeCount();
+			this.cost = new double[nodeCount];
+			this.time = new double[nodeCount];
+			this.distance = new double[nodeCount];
+			this.visitedInIteration = new int[nodeCount];
+			this.targetInIteration = new int[nodeCount];
+			this.pendingNodes = new IntBinaryMinHeap(nodeCount);
+			this.targets = targets;
+			this.departureTime = departureTime;
+			this.linkTimes = linkTimes;
+			this.linkCosts = linkCosts;
+		}
+
+		void run(final int startNode, final boolean backward) {
+			this.iteration++;
+			int remainingTargets = 0;
+			for (int target : this.targets) {
+				if (this.targetInIteration[target] != this.iteration) {
+					this.targetInIteration[target] = this.iteration;
+					remainingTargets++;
+				}
+			}
+
+			this.pendingNodes.clear();
+			visit(startNode, 0.0, backward ? 0.0 : this.departureTime, 0.0);
+			this.pendingNodes.insert(startNode, 0.0);
+			while (!this.pendingNodes.isEmpty()) {
+				int node = this.pendingNodes.poll();
+				if (this.targetInIteration[node] == this.iteration) {
+					remainingTargets--;
+					if (remainingTargets == 0) {
+						// the other pending nodes are not settled, but they are not needed either
+						return;
+					}
+				}
+				if (backward) {
+					relaxInLinks(node);
+				} else {
+					relaxOutLinks(node);
+				}
+			}
+		}
+
+		private void relaxOutLinks(final int node) {
+			SpeedyGraph graph = LeastCostPathMatrixCalculator.this.graph;
+			double currTime = this.time[node];
+			int lastLink = graph.getFirstOutLink(node + 1);
+			for (int link = graph.getFirstOutLink(node); link < lastLink; link++) {
+				double linkTime;
+				double linkCost;
+				if (this.linkCosts == null) {
+					Link l = graph.getLink(link);
+					linkTime = LeastCostPathMatrixCalculator.this.travelTime.getLinkTravelTime(l, currTime, null, null);
+					linkCost = LeastCostPathMatrixCalculator.this.travelDisutility.getLinkTravelDisutility(l, currTime, null, null);
+				} else {
+					linkTime = this.linkTimes[link];
+					linkCost = this.linkCosts[link];
+				}
+				relax(node, graph.getLinkToNode(link), link, linkTime, linkCost);
+			}
+		}
+
+		private void relaxInLinks(final int node) {
+			int[] inLinks = LeastCostPathMatrixCalculator.this.inLinks;
+			int[] firstInLink = LeastCostPathMatrixCalculator.this.firstInLink;
+			for (int i = firstInLink[node]; i < firstInLink[node + 1]; i++) {
+				int link = inLinks[i];
+				relax(node, LeastCostPathMatrixCalculator.this.graph.getLinkFromNode(link), link, this.linkTimes[link], this.linkCosts[link]);
+			}
+		}
+
+		private void relax(final int node, final int nextNode, final int link, final double linkTime, final double linkCost) {
+			double newCost = this.cost[node] + linkCost;
+			if (this.visitedInIteration[nextNode] != this.iteration) {
+				visit(nextNode, newCost, this.time[node] + linkTime, this.distance[node] + LeastCostPathMatrixCalculator.this.linkLengths[link]);
+				this.pendingNodes.insert(nextNode, newCost);
+			} else if (newCost < this.cost[nextNode] && this.pendingNodes.contains(nextNode)) {
+				visit(nextNode, newCost, this.time[node] + linkTime, this.distance[node] + LeastCostPathMatrixCalculator.this.linkLengths[link]);
+				this.pendingNodes.decreaseKey(nextNode, newCost);
+			}
+		}
+
+		private void visit(final int node, final double cost, final double time, final double distance) {
+			this.cost[node] = cost;
+			this.time[node] = time;
+			this.distance[node] = distance;
+			this.visitedInIteration[node] = this.iteration;
+		}
+	}
+
+	/**
+	 * The travel times, distances and travel costs between all pairs of origins and destinations, stored
+	 * row by row in flat arrays. Pairs without a path have infinite values.
+	 */
+	public static final class Matrix {
+
+		private final List<Node> fromNodes;
+		private final List<Node> toNodes;
+		private final int columns;
+		private final float[] travelTimes;
+		private final float[] distances;
+		private final float[] travelCosts;
+
+		/*package*/ Matrix(final List<Node> fromNodes, final List<Node> toNodes) {
+			this.fromNodes = fromNodes;
+			this.toNodes = toNodes;
+			this.columns = toNodes.size();
+			int size = fromNodes.size() * toNodes.size();
+			this.travelTimes = new float[size];
+			this.distances = new float[size];
+			this.travelCosts = new float[size];
+			Arrays.fill(this.travelTimes, Float.POSITIVE_INFINITY);
+			Arrays.fill(this.distances, Float.POSITIVE_INFINITY);
+			Arrays.fill(this.travelCosts, Float.POSITIVE_INFINITY);
+		}
+
+		public List<Node> getFromNodes() {
+			return this.fromNodes;
+		}
+
+		public List<Node> getToNodes() {
+			return this.toNodes;
+		}
+
+		/**
+		 * @param from the index of the origin in {@link #getFromNodes()}
+		 * @param to the index of the destination in {@link #getToNodes()}
+		 */
+		public float getTravelTime(final int from, final int to) {
+			return this.travelTimes[from * this.columns + to];
+		}
+
+		public float getDistance(final int from, final int to) {
+			return this.distances[from * this.columns + to];
+		}
+
+		public float getTravelCost(final int from, final int to) {
+			return this.travelCosts[from * this.columns + to];
+		}
+	}
+
+}
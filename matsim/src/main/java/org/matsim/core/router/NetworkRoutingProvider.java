@@ -2,6 +2,7 @@ package org.matsim.core.router;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
@@ -42,6 +43,9 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 
 	@Inject
     LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
+
+	@com.google.inject.Inject(optional = true)
+	ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
 	
 	/**
 	 * This is the older (and still more standard) constructor, where the routingMode and the resulting mode were the
@@ -105,6 +109,9 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 						filteredNetwork,
 						travelDisutilityFactory.createTravelDisutility(travelTime),
 						travelTime);
+		if (this.componentMetrics.isEnabled()) {
+			routeAlgo = new InstrumentedLeastCostPathCalculator(routeAlgo, this.componentMetrics, routingMode);
+		}
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntBinaryMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of Dijkstra's least-cost path algorithm on a time-dependent network, like
+ * {@link Dijkstra}, but without any per-node objects: the cost, time and predecessor link of every
+ * node are stored in flat arrays indexed by the node index of a {@link SpeedyGraph}.
+ * <br>
+ * To avoid clearing the arrays for every request, each node also stores the number of the request
+ * in which it was last visited; data of nodes with an older number is ignored. Starting a new request
+ * thus only increments a counter. The pending nodes are managed by an {@link IntBinaryMinHeap}.
+ * <br>
+ * Like {@link Dijkstra}, nodes reached with the same cost from two links keep the link with the
+ * smaller id, so the results are deterministic. Dead-end pruning and mode restrictions are not
+ * supported; use a filtered network instead.
+ *
+ * <h2>Important note</h2>
+ * This class is NOT thread-safe! Use one instance per thread; the {@link SpeedyGraph} can be shared.
+ *
+ * @see SpeedyDijkstraFactory
+ */
+public class SpeedyDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(SpeedyDijkstra.class);
+
+	private final SpeedyGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+
+	private final double[] cost;
+	private final double[] time;
+	private final int[] comingFrom;
+	private final int[] visitedInIteration;
+	private int iteration = 0;
+	private final IntBinaryMinHeap pendingNodes;
+
+	public SpeedyDijkstra(final SpeedyGraph graph, final TravelTime travelTime, final TravelDisutility travelDisutility) {
+		this.graph = graph;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		int nodeCount = graph.getNodeCount();
+		this.cost = new double[nodeCount];
+		this.time = new double[nodeCount];
+		this.comingFrom = new int[nodeCount];
+		this.visitedInIteration = new int[nodeCount];
+		this.pendingNodes = new IntBinaryMinHeap(nodeCount);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int startNode = this.graph.getNodeIndex(fromNode);
+		int endNode = this.graph.getNodeIndex(toNode);
+
+		startNewIteration();
+		this.pendingNodes.clear();
+		visit(startNode, 0.0, startTime, -1);
+		this.pendingNodes.insert(startNode, 0.0);
+
+		boolean found = false;
+		while (!this.pendingNodes.isEmpty()) {
+			int node = this.pendingNodes.poll();
+			if (node == endNode) {
+				found = true;
+				break;
+			}
+			relaxNode(node, person, vehicle);
+		}
+
+		if (!found) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().");
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+		return constructPath(startNode, endNode, startTime);
+	}
+
+	private void relaxNode(final int node, final Person person, final Vehicle vehicle) {
+		double currTime = this.time[node];
+		double currCost = this.cost[node];
+		int lastLink = this.graph.getFirstOutLink(node + 1);
+		for (int link = this.graph.getFirstOutLink(node); link < lastLink; link++) {
+			Link l = this.graph.getLink(link);
+			int toNode = this.graph.getLinkToNode(link);
+			double travelTime = this.travelTime.getLinkTravelTime(l, currTime, person, vehicle);
+			double travelCost = this.travelDisutility.getLinkTravelDisutility(l, currTime, person, vehicle);
+			double newCost = currCost + travelCost;
+
+			if (this.visitedInIteration[toNode] != this.iteration) {
+				visit(toNode, newCost, currTime + travelTime, link);
+				this.pendingNodes.insert(toNode, newCost);
+			} else {
+				double oldCost = this.cost[toNode];
+				if (newCost < oldCost) {
+					visit(toNode, newCost, currTime + travelTime, link);
+					if (this.pendingNodes.contains(toNode)) {
+						this.pendingNodes.decreaseKey(toNode, newCost);
+					} else {
+						// only possible with negative costs, which are not allowed; still keep the heap consistent
+						this.pendingNodes.insert(toNode, newCost);
+					}
+				} else if (newCost == oldCost && this.pendingNodes.contains(toNode)) {
+					// same tie-breaking as in Dijkstra: take the link with the smaller id.
+					// Already expanded nodes are not changed, as this could create cycles with zero-cost links.
+					int prevLink = this.comingFrom[toNode];
+					if (prevLink >= 0 && this.graph.getLink(prevLink).getId().compareTo(l.getId()) > 0) {
+						visit(toNode, newCost, currTime + travelTime, link);
+					}
+				}
+			}
+		}
+	}
+
+	private void visit(final int node, final double cost, final double time, final int comingFrom) {
+		this.cost[node] = cost;
+		this.time[node] = time;
+		this.comingFrom[node] = comingFrom;
+		this.visitedInIteration[node] = this.iteration;
+	}
+
+	private void startNewIteration() {
+		if (this.iteration == Integer.MAX_VALUE) {
+			Arrays.fill(this.visitedInIteration, 0);
+			this.iteration = 0;
+		}
+		this.iteration++;
+	}
+
+	private Path constructPath(final int startNode, final int endNode, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		nodes.add(this.graph.getNode(endNode));
+		int node = endNode;
+		while (node != startNode) {
+			int link = this.comingFrom[node];
+			links.add(this.graph.getLink(link));
+			node = this.graph.getLinkFromNode(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.time[endNode] - startTime, this.cost[endNode]);
+	}
+
+}
@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Compact, immutable representation of the topology of a {@link Network} for routing.
+ * <br>
+ * Nodes and links are numbered consecutively, starting at 0, in the iteration order of the network.
+ * The out-links of every node are stored in adjacent positions (compressed sparse row format), so
+ * expanding a node only reads a few consecutive array elements. The original {@link Link} objects are
+ * kept, as travel times and disutilities are calculated for them.
+ * <br>
+ * The graph is thread-safe and can be shared by any number of routers. Later changes to the topology
+ * of the network are not reflected in the graph.
+ *
+ * @see SpeedyDijkstra
+ */
+public final class SpeedyGraph {
+
+	private final Network network;
+	private final Node[] nodes;
+	/** index of the graph node by {@link Id#index()} of the node id, -1 if the node is not part of the network */
+	private final int[] nodeIndexById;
+	/** the out-links of node i are stored at positions [firstOutLink[i], firstOutLink[i+1]) */
+	private final int[] firstOutLink;
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+	/** index of the link by {@link Id#index()} of the link id, -1 if the link is not part of the network */
+	private final int[] linkIndexById;
+
+	public SpeedyGraph(final Network network) {
+		this.network = network;
+		int nodeCount = network.getNodes().size();
+		int linkCount = network.getLinks().size();
+
+		this.nodes = new Node[nodeCount];
+		int maxNodeIdIndex = -1;
+		int i = 0;
+		for (Node node : network.getNodes().values()) {
+			this.nodes[i++] = node;
+			maxNodeIdIndex = Math.max(maxNodeIdIndex, node.getId().index());
+		}
+		this.nodeIndexById = new int[maxNodeIdIndex + 1];
+		Arrays.fill(this.nodeIndexById, -1);
+		for (i = 0; i < nodeCount; i++) {
+			this.nodeIndexById[this.nodes[i].getId().index()] = i;
+		}
+
+		this.firstOutLink = new int[nodeCount + 1];
+		this.links = new Link[linkCount];
+		this.linkFromNode = new int[linkCount];
+		this.linkToNode = new int[linkCount];
+		int maxLinkIdIndex = -1;
+		int linkIndex = 0;
+		for (i = 0; i < nodeCount; i++) {
+			this.firstOutLink[i] = linkIndex;
+			for (Link link : this.nodes[i].getOutLinks().values()) {
+				this.links[linkIndex] = link;
+				this.linkFromNode[linkIndex] = i;
+				this.linkToNode[linkIndex] = getNodeIndex(link.getToNode());
+				maxLinkIdIndex = Math.max(maxLinkIdIndex, link.getId().index());
+				linkIndex++;
+			}
+		}
+		this.firstOutLink[nodeCount] = linkIndex;
+		this.linkIndexById = new int[maxLinkIdIndex + 1];
+		Arrays.fill(this.linkIndexById, -1);
+		for (i = 0; i < linkIndex; i++) {
+			this.linkIndexById[this.links[i].getId().index()] = i;
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the index of the node in this graph.
+	 * @throws IllegalArgumentException if the node is not part of the network of this graph.
+	 */
+	public int getNodeIndex(final Node node) {
+		int idIndex = node.getId().index();
+		int index = idIndex < this.nodeIndexById.length ? this.nodeIndexById[idIndex] : -1;
+		if (index < 0 || this.nodes[index] != node) {
+			throw new IllegalArgumentException("Node " + node.getId() + " is not part of the network used by the router.");
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index of the link in this graph, or -1 if the link is not part of the network of this graph.
+	 */
+	public int getLinkIndex(final Id<Link> linkId) {
+		int idIndex = linkId.index();
+		return idIndex < this.linkIndexById.length ? this.linkIndexById[idIndex] : -1;
+	}
+
+	public Node getNode(final int index) {
+		return this.nodes[index];
+	}
+
+	public Link getLink(final int index) {
+		return this.links[index];
+	}
+
+	/**
+	 * @return the index of the first out-link of the node. The out-links of the node have the
+	 * indices from <code>getFirstOutLink(node)</code> (inclusive) to <code>getFirstOutLink(node + 1)</code> (exclusive).
+	 */
+	public int getFirstOutLink(final int nodeIndex) {
+		return this.firstOutLink[nodeIndex];
+	}
+
+	public int getLinkFromNode(final int linkIndex) {
+		return this.linkFromNode[linkIndex];
+	}
+
+	public int getLinkToNode(final int linkIndex) {
+		return this.linkToNode[linkIndex];
+	}
+
+}
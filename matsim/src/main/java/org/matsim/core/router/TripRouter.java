@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -67,6 +68,8 @@ public final class TripRouter implements MatsimExtensionPoint {
 
 	private MainModeIdentifier mainModeIdentifier = new MainModeIdentifierImpl();
 
+	private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
+
 	private Config config;
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
 	// injected, I cannot get it there directly.  kai, oct'17)
@@ -157,6 +160,15 @@ public final class TripRouter implements MatsimExtensionPoint {
 		return routingModules.get( mainMode );
 	}
 
+	/**
+	 * Sets the metrics in which the time of {@link #calcRoute(String, Facility, Facility, double, Person)} is recorded,
+	 * as <code>router.&lt;main mode&gt;</code>.
+	 */
+	@com.google.inject.Inject(optional = true)
+	public void setComponentMetrics(final ComponentMetrics componentMetrics) {
+		this.componentMetrics = componentMetrics;
+	}
+
 	public Set<String> getRegisteredModes() {
 		return Collections.unmodifiableSet( routingModules.keySet() );
 	}
@@ -219,12 +231,17 @@ public final class TripRouter implements MatsimExtensionPoint {
 		RoutingModule module = routingModules.get( mainMode );
 		
 		if (module != null) {
+			final ComponentMetrics.Timer timer = this.componentMetrics.isEnabled() ? this.componentMetrics.getTimer( "router."+mainMode ) : null;
+			final long start = timer != null ? timer.start() : 0;
 			final List<? extends PlanElement> trip =
 					module.calcRoute(
 						fromFacility,
 						toFacility,
 						departureTime,
 						person);
+			if ( timer != null ) {
+				timer.stop( start );
+			}
 
 			if ( trip == null ) {
 				throw new NullPointerException( "Routing module "+module+" returned a null Trip for main mode "+mainMode );
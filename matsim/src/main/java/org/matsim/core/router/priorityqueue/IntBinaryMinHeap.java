@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntBinaryMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of primitive int values in the range <code>[0, capacity)</code>, e.g. node
+ * indices, sorted by a double key. Unlike the {@link BinaryMinHeap}, no objects are involved at all.
+ * <br>
+ * Each value can be contained at most once. The position of each value in the heap is stored in
+ * an array indexed by the value, which allows to decrease the key of a value in O(log n).
+ * Positions of values that are no longer contained are not cleared; instead, a value is only considered
+ * to be contained if the heap entry at its stored position refers back to it. Thus {@link #clear()}
+ * is O(1), independent of the capacity.
+ * <br>
+ * Values with the same key are polled in ascending order of the values, which makes routers using
+ * this heap deterministic.
+ */
+public final class IntBinaryMinHeap {
+
+	private final int[] heap;
+	private final double[] keys;
+	private final int[] positions;
+	private int size = 0;
+
+	public IntBinaryMinHeap(final int capacity) {
+		this.heap = new int[capacity];
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(final int value) {
+		int pos = this.positions[value];
+		return pos < this.size && this.heap[pos] == value;
+	}
+
+	/**
+	 * Adds the value to the heap. The value must not be contained in the heap yet.
+	 */
+	public void insert(final int value, final double key) {
+		int pos = this.size;
+		this.size++;
+		siftUp(pos, value, key);
+	}
+
+	/**
+	 * Decreases the key of a value contained in the heap. Keys larger than the current key are ignored.
+	 */
+	public void decreaseKey(final int value, final double key) {
+		int pos = this.positions[value];
+		if (key < this.keys[pos]) {
+			siftUp(pos, value, key);
+		}
+	}
+
+	/**
+	 * @return the value with the smallest key, without removing it.
+	 */
+	public int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		return this.heap[0];
+	}
+
+	public double peekKey() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		return this.keys[0];
+	}
+
+	/**
+	 * Removes and returns the value with the smallest key.
+	 */
+	public int poll() {
+		if (this.size == 0) {
+			throw new NoSuchElementException();
+		}
+		int min = this.heap[0];
+		this.size--;
+		if (this.size > 0) {
+			siftDown(0, this.heap[this.size], this.keys[this.size]);
+		}
+		return min;
+	}
+
+	private void siftUp(int pos, final int value, final double key) {
+		while (pos > 0) {
+			int parent = (pos - 1) >> 1;
+			int parentValue = this.heap[parent];
+			double parentKey = this.keys[parent];
+			if (parentKey < key || (parentKey == key && parentValue < value)) {
+				break;
+			}
+			set(pos, parentValue, parentKey);
+			pos = parent;
+		}
+		set(pos, value, key);
+	}
+
+	private void siftDown(int pos, final int value, final double key) {
+		int half = this.size >> 1;
+		while (pos < half) {
+			int child = (pos << 1) + 1;
+			int childValue = this.heap[child];
+			double childKey = this.keys[child];
+			int right = child + 1;
+			if (right < this.size) {
+				int rightValue = this.heap[right];
+				double rightKey = this.keys[right];
+				if (rightKey < childKey || (rightKey == childKey && rightValue < childValue)) {
+					child = right;
+					childValue = rightValue;
+					childKey = rightKey;
+				}
+			}
+			if (key < childKey || (key == childKey && value < childValue)) {
+				break;
+			}
+			set(pos, childValue, childKey);
+			pos = child;
+		}
+		set(pos, value, key);
+	}
+
+	private void set(final int pos, final int value, final double key) {
+		this.heap[pos] = value;
+		this.keys[pos] = key;
+		this.positions[value] = pos;
+	}
+
+}
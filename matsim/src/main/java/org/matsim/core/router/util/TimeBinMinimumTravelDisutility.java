@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TimeBinMinimumTravelDisutility.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A travel disutility whose minimum is the lower envelope of the time-dependent travel disutility of each link,
+ * i.e. the smallest disutility over all time bins, instead of the free speed disutility. Pre-processing the
+ * landmarks with it (see {@link PreProcessLandmarks}) yields bounds which are tighter in congested networks.
+ * <br>
+ * The minimum is evaluated at the start and at the middle of every time bin, once when this object is created.
+ * It is a lower bound of the disutility at any time if the disutility is constant within time bins or linearly
+ * interpolated between their middles, as the disutilities based on the travel time calculator are. It is asked
+ * without person and vehicle, so person-specific disutilities are not supported.
+ */
+public final class TimeBinMinimumTravelDisutility implements TravelDisutility {
+
+	private final TravelDisutility delegate;
+	private final double[] minimumByLinkIndex;
+
+	/**
+	 * @param network the links for which the minimum is computed; for other links, the minimum of the delegate is used
+	 * @param timeBinSize the size of the time bins of the disutility in seconds
+	 * @param maxTime the end of the time bins; the disutility is assumed to be constant after it
+	 */
+	public TimeBinMinimumTravelDisutility(final Network network, final TravelDisutility delegate, final double timeBinSize, final double maxTime) {
+		this.delegate = delegate;
+		this.minimumByLinkIndex = new double[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.minimumByLinkIndex, Double.NaN);
+		int numberOfTimeBins = (int) (maxTime / timeBinSize) + 1;
+		for (Link link : network.getLinks().values()) {
+			double minimum = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < numberOfTimeBins; i++) {
+				double binStart = i * timeBinSize;
+				minimum = Math.min(minimum, delegate.getLinkTravelDisutility(link, binStart, null, null));
+				minimum = Math.min(minimum, delegate.getLinkTravelDisutility(link, binStart + timeBinSize / 2, null, null));
+			}
+			this.minimumByLinkIndex[link.getId().index()] = minimum;
+		}
+	}
+
+	@Override
+	public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+		return this.delegate.getLinkTravelDisutility(link, time, person, vehicle);
+	}
+
+	@Override
+	public double getLinkMinimumTravelDisutility(final Link link) {
+		int index = link.getId().index();
+		if (index < this.minimumByLinkIndex.length && !Double.isNaN(this.minimumByLinkIndex[index])) {
+			return this.minimumByLinkIndex[index];
+		}
+		return this.delegate.getLinkMinimumTravelDisutility(link);
+	}
+
+}
@@ -36,7 +36,7 @@ import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
 import org.matsim.core.population.PopulationUtils;
-import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.IOUtils;
@@ -198,7 +198,7 @@ class ScenarioLoaderImpl {
 			log.info("loading population from " + populationFileName);
 
 			if ( config.plans().getInputCRS() == null ) {
-				final PopulationReader reader = new PopulationReader(this.scenario);
+				final ParallelPopulationReaderMatsimV6 reader = new ParallelPopulationReaderMatsimV6(this.scenario);
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse( populationFileName );
 			}
@@ -213,7 +213,7 @@ class ScenarioLoaderImpl {
 								inputCRS,
 								internalCRS );
 
-				final PopulationReader reader = new PopulationReader(transformation , this.scenario);
+				final ParallelPopulationReaderMatsimV6 reader = new ParallelPopulationReaderMatsimV6(transformation , this.scenario);
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse( populationFileName );
 			}
@@ -22,6 +22,7 @@ package org.matsim.core.scoring;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.matsim.analysis.ComponentMetrics;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
@@ -52,12 +53,20 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 	@Inject private OutputDirectoryHierarchy controlerIO;
 	@Inject private ScoringFunctionsForPopulation scoringFunctionsForPopulation;
 	@Inject private ExperiencedPlansService experiencedPlansService;
+	@Inject(optional = true) private ComponentMetrics componentMetrics = ComponentMetrics.DISABLED;
 
 	@Override
 	public void notifyScoring(final ScoringEvent event) {
+		ComponentMetrics.Timer timer = this.componentMetrics.getTimer("scoring.finishScoringFunctions");
+		long start = timer.start();
 		scoringFunctionsForPopulation.finishScoringFunctions();
+		timer.stop(start);
+
+		timer = this.componentMetrics.getTimer("scoring.assignNewScores");
+		start = timer.start();
 		NewScoreAssignerImpl newScoreAssigner = new NewScoreAssignerImpl(this.planCalcScoreConfigGroup, this.controlerConfigGroup);
 		newScoreAssigner.assignNewScores(event.getIteration(), this.scoringFunctionsForPopulation, this.population);
+		timer.stop(start);
 	}
 
 	@Override
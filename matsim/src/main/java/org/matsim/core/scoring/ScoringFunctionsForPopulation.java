@@ -22,14 +22,19 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
@@ -42,6 +47,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -60,6 +66,13 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <br>
+ * By default, the scoring functions are called by the threads handling the events. With a positive number of scoring threads,
+ * the population is partitioned by the persons' Id indices, and each partition is scored by its own thread, which owns the
+ * scoring functions and partial scores of its persons. The events, legs and activities are handed over to these threads in
+ * batches, so the scoring functions of one person still see everything in the order it was handled here. The threads
+ * also finish the scoring functions of their partition; {@link #finishScoringFunctions()} waits for them and then stops
+ * the threads. They are started again when needed, e.g. in the next iteration.
  * 
  * @author michaz
  *
@@ -83,8 +96,11 @@ import gnu.trove.list.array.TDoubleArrayList;
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * Replaced the HashMap for 'agentScorers' with an IdMap, which looks up the scoring function by the person's
+	 * Id index instead of hashing the Id for every event.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final IdMap<Person, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	
@@ -96,9 +112,28 @@ import gnu.trove.list.array.TDoubleArrayList;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	private final Partition[] partitions;
+	/** added to the queue of a partition to stop its thread */
+	private static final Object STOP = new Object();
+
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, PlanCalcScoreConfigGroup planCalcScoreConfigGroup) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory,
+				planCalcScoreConfigGroup.getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 0);
+	}
+
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfScoringThreads) {
+		this.partitions = new Partition[Math.max(0, numberOfScoringThreads)];
+		for (int i = 0; i < this.partitions.length; i++) {
+			this.partitions[i] = new Partition(i);
+		}
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -116,35 +151,63 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	private void init() {
+		for (Partition partition : this.partitions) {
+			partition.awaitIdle();
+			partition.persons.clear();
+		}
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
+			if (this.partitions.length > 0) {
+				getPartition(person.getId()).persons.add(person.getId());
+			}
 		}
 	}
 
+	private Partition getPartition(final Id<Person> personId) {
+		return this.partitions[personId.index() % this.partitions.length];
+	}
+
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
+		if (this.partitions.length == 0) {
+			synchronized (this) {
+				handleEventDirectly(o);
+			}
+			return;
+		}
+		if (o instanceof HasPersonId) {
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			if (getScoringFunctionForAgent(personId) != null) {
+				getPartition(personId).add(o);
+			}
+		}
+		if (o instanceof VehicleEntersTrafficEvent || o instanceof VehicleLeavesTrafficEvent || o instanceof LinkEnterEvent) {
+			// the vehicles and their drivers are tracked here, the link enter events are then passed on to the driver's partition
+			Id<Person> driverId;
+			synchronized (this) {
+				if (o instanceof VehicleEntersTrafficEvent) {
+					vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				} else if (o instanceof VehicleLeavesTrafficEvent) {
+					vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+				}
+				driverId = o instanceof LinkEnterEvent ? vehicles2Drivers.getDriverOfVehicle(((LinkEnterEvent) o).getVehicleId()) : null;
+			}
+			if (driverId != null && getScoringFunctionForAgent(driverId) != null) {
+				getPartition(driverId).add(new DriverLinkEnterEvent(driverId, (LinkEnterEvent) o));
+			}
+		}
+	}
+
+	private void handleEventDirectly(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			handlePersonEvent(o);
 		}
 //		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
@@ -174,8 +237,35 @@ import gnu.trove.list.array.TDoubleArrayList;
 //		}
 	}
 
+	private void handlePersonEvent(Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			} 
+//			else {
+				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
+		if (this.partitions.length == 0) {
+			synchronized (this) {
+				handleLegDirectly(o);
+			}
+		} else if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+			getPartition(o.getAgentId()).add(o);
+		}
+	}
+
+	private void handleLegDirectly(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -187,7 +277,17 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
+		if (this.partitions.length == 0) {
+			synchronized (this) {
+				handleActivityDirectly(o);
+			}
+		} else if (getScoringFunctionForAgent(o.getAgentId()) != null) {
+			getPartition(o.getAgentId()).add(o);
+		}
+	}
+
+	private void handleActivityDirectly(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -213,6 +313,15 @@ import gnu.trove.list.array.TDoubleArrayList;
 	}
 
 	public void finishScoringFunctions() {
+		if (this.partitions.length > 0) {
+			// the partitions finish their own scoring functions, after handling everything they got so far
+			for (Partition partition : this.partitions) {
+				partition.finish();
+			}
+			for (Partition partition : this.partitions) {
+				partition.stop();
+			}
+		}
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -222,6 +331,9 @@ import gnu.trove.list.array.TDoubleArrayList;
 				throw new RuntimeException(throwable);
 			}
 		}
+		if (this.partitions.length > 0) {
+			return;
+		}
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
@@ -251,6 +363,161 @@ import gnu.trove.list.array.TDoubleArrayList;
 
 	}
 
+	/**
+	 * A link enter event together with the driver of the vehicle at the time the event was handled.
+	 */
+	private static final class DriverLinkEnterEvent {
+		final Id<Person> driverId;
+		final LinkEnterEvent event;
+
+		DriverLinkEnterEvent(final Id<Person> driverId, final LinkEnterEvent event) {
+			this.driverId = driverId;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * The persons of one partition and the thread scoring them. Everything for these persons is collected into batches, which
+	 * are handled by the thread in the order they were added. Tasks to be run by the thread may be added in between.
+	 * The thread is started when the first batch or task is added, and runs until {@link #stop()}.
+	 */
+	private final class Partition implements Runnable {
+
+		private static final int BATCH_SIZE = 1024;
+
+		private final int number;
+		private final List<Id<Person>> persons = new ArrayList<>();
+		private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+		private List<Object> batch = new ArrayList<>(BATCH_SIZE);
+		private Thread thread = null;
+
+		Partition(final int number) {
+			this.number = number;
+		}
+
+		synchronized void add(final Object o) {
+			this.batch.add(o);
+			if (this.batch.size() >= BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		private synchronized void flush() {
+			if (this.thread == null) {
+				this.thread = new Thread(this, "ScoringFunctionsForPopulation." + this.number);
+				this.thread.setDaemon(true);
+				this.thread.start();
+			}
+			if (!this.batch.isEmpty()) {
+				this.queue.add(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
+		}
+
+		/**
+		 * Lets the thread finish the scoring functions of this partition after everything added so far is handled.
+		 */
+		void finish() {
+			runTask(() -> {
+				for (Id<Person> personId : this.persons) {
+					ScoringFunction sf = getScoringFunctionForAgent(personId);
+					sf.finish();
+					partialScores.get(personId).add(sf.getScore());
+				}
+			});
+		}
+
+		/**
+		 * Waits until everything added so far is handled.
+		 */
+		void awaitIdle() {
+			final CountDownLatch latch = new CountDownLatch(1);
+			synchronized (this) {
+				flush();
+				this.queue.add(latch);
+			}
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Waits until everything added so far is handled, then stops the thread.
+		 */
+		void stop() {
+			final Thread stoppedThread;
+			synchronized (this) {
+				if (this.thread == null) {
+					return;
+				}
+				flush();
+				this.queue.add(STOP);
+				stoppedThread = this.thread;
+				this.thread = null;
+			}
+			try {
+				stoppedThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+
+		private synchronized void runTask(final Runnable task) {
+			flush();
+			this.queue.add(task);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Object item;
+				try {
+					item = this.queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (item == STOP) {
+					return;
+				} else if (item instanceof CountDownLatch) {
+					((CountDownLatch) item).countDown();
+				} else if (item instanceof Runnable) {
+					handleSafely(item);
+				} else {
+					for (Object o : (List<?>) item) {
+						handleSafely(o);
+					}
+				}
+			}
+		}
+
+		private void handleSafely(final Object o) {
+			if (exception.get() != null) {
+				// the scores are invalid anyway, the exception is thrown in finishScoringFunctions()
+				return;
+			}
+			try {
+				if (o instanceof Runnable) {
+					((Runnable) o).run();
+				} else if (o instanceof PersonExperiencedLeg) {
+					handleLegDirectly((PersonExperiencedLeg) o);
+				} else if (o instanceof PersonExperiencedActivity) {
+					handleActivityDirectly((PersonExperiencedActivity) o);
+				} else if (o instanceof DriverLinkEnterEvent) {
+					ScoringFunction scoringFunction = getScoringFunctionForAgent(((DriverLinkEnterEvent) o).driverId);
+					scoringFunction.handleEvent(((DriverLinkEnterEvent) o).event);
+				} else {
+					handlePersonEvent((Event) o);
+				}
+			} catch (Throwable t) {
+				exception.compareAndSet(null, t);
+			}
+		}
+	}
+
 //	public boolean isPassLinkEventsToPerson() {
 //		return passLinkEventsToPerson;
 //	}
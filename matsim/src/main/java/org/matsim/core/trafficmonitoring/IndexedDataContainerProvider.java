@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
+
+/**
+ * Creates the DataContainer objects of all links of the network up front, backed by one
+ * {@link IndexedTravelTimeData}, and looks them up in an array by {@link Id#index()}.
+ * In contrast to the {@link ArrayBasedDataContainerProvider}, this also works for the
+ * link ids of events, so neither handling events nor getting travel times needs a map lookup.
+ * <br>
+ * Links which are not part of the network when the provider is created are forwarded to
+ * a {@link MapBasedDataContainerProvider}.
+ */
+public class IndexedDataContainerProvider implements DataContainerProvider {
+
+	private final DataContainer[] containers;
+	private final DataContainerProvider delegate;
+
+	public IndexedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory,
+			Network network, int numSlots) {
+		Link[] links = network.getLinks().values().toArray(new Link[0]);
+		IndexedTravelTimeData data = new IndexedTravelTimeData(links, numSlots);
+		int maxIndex = -1;
+		for (Link link : links) {
+			maxIndex = Math.max(maxIndex, link.getId().index());
+		}
+		this.containers = new DataContainer[maxIndex + 1];
+		for (int i = 0; i < links.length; i++) {
+			DataContainer container = new DataContainer(data.getTravelTimeData(i));
+			this.containers[links[i].getId().index()] = container;
+			linkData.put(links[i].getId(), container);
+		}
+		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = linkId.index();
+		if (index < this.containers.length) {
+			DataContainer data = this.containers[index];
+			if (data != null) {
+				return data;
+			}
+		}
+		return this.delegate.getTravelTimeData(linkId, createIfMissing);
+	}
+
+	@Override
+	public DataContainer getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+}
@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IndexedTravelTimeData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Stores the travel time data of many links in flat arrays, indexed by
+ * <code>linkIndex * numSlots + timeSlot</code>, instead of one {@link TravelTimeDataArray}
+ * per link.
+ * <br>
+ * Travel times may be added from several threads at once. The sum and count of a time
+ * slot are updated together while holding one of a fixed number of locks, which is chosen
+ * by the link index. Cached travel times are read without locking, so the getter is a
+ * plain array read as long as no new travel times are added for the link.
+ *
+ * @see IndexedDataContainerProvider
+ */
+/*package*/ final class IndexedTravelTimeData {
+
+	private static final int LOCK_COUNT = 256; // must be a power of 2
+
+	private final Link[] links;
+	private final int numSlots;
+	private final double[] timeSum;
+	private final int[] timeCnt;
+	private final double[] travelTimes;
+	private final Object[] locks = new Object[LOCK_COUNT];
+
+	/*package*/ IndexedTravelTimeData(final Link[] links, final int numSlots) {
+		if ((long) links.length * numSlots > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many links and time slots to store them in arrays: "
+					+ links.length + " links, " + numSlots + " time slots.");
+		}
+		this.links = links;
+		this.numSlots = numSlots;
+		int size = links.length * numSlots;
+		this.timeSum = new double[size];
+		this.timeCnt = new int[size];
+		this.travelTimes = new double[size];
+		for (int i = 0; i < LOCK_COUNT; i++) {
+			this.locks[i] = new Object();
+		}
+		for (int l = 0; l < links.length; l++) {
+			resetTravelTimes(l);
+		}
+	}
+
+	/**
+	 * @return a view on the travel time data of the link with the given index.
+	 */
+	/*package*/ TravelTimeData getTravelTimeData(final int linkIndex) {
+		return new LinkTravelTimeData(linkIndex);
+	}
+
+	private Object getLock(final int linkIndex) {
+		return this.locks[linkIndex & (LOCK_COUNT - 1)];
+	}
+
+	private void resetTravelTimes(final int linkIndex) {
+		synchronized (getLock(linkIndex)) {
+			int offset = linkIndex * this.numSlots;
+			for (int i = offset; i < offset + this.numSlots; i++) {
+				this.timeSum[i] = 0.0;
+				this.timeCnt[i] = 0;
+				this.travelTimes[i] = -1.0;
+			}
+		}
+	}
+
+	private void setTravelTime(final int linkIndex, final int timeSlot, final double traveltime) {
+		int i = linkIndex * this.numSlots + timeSlot;
+		synchronized (getLock(linkIndex)) {
+			this.timeSum[i] = traveltime;
+			this.timeCnt[i] = 1;
+			this.travelTimes[i] = traveltime;
+		}
+	}
+
+	private void addTravelTime(final int linkIndex, final int timeSlot, final double traveltime) {
+		int i = linkIndex * this.numSlots + timeSlot;
+		synchronized (getLock(linkIndex)) {
+			this.timeSum[i] += traveltime;
+			this.timeCnt[i]++;
+			this.travelTimes[i] = -1.0; // invalidate the cached value
+		}
+	}
+
+	private double getTravelTime(final int linkIndex, final int timeSlot, final double now) {
+		int i = linkIndex * this.numSlots + timeSlot;
+		double ttime = this.travelTimes[i];
+		if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+		synchronized (getLock(linkIndex)) {
+			int cnt = this.timeCnt[i];
+			if (cnt == 0) {
+				Link link = this.links[linkIndex];
+				ttime = link.getLength() / link.getFreespeed(now);
+			} else {
+				ttime = this.timeSum[i] / cnt;
+			}
+			this.travelTimes[i] = ttime;
+		}
+		return ttime;
+	}
+
+	private final class LinkTravelTimeData implements TravelTimeData {
+
+		private final int linkIndex;
+
+		LinkTravelTimeData(final int linkIndex) {
+			this.linkIndex = linkIndex;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			IndexedTravelTimeData.this.resetTravelTimes(this.linkIndex);
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			IndexedTravelTimeData.this.setTravelTime(this.linkIndex, timeSlot, traveltime);
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			IndexedTravelTimeData.this.addTravelTime(this.linkIndex, timeSlot, traveltime);
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			return IndexedTravelTimeData.this.getTravelTime(this.linkIndex, timeSlot, now);
+		}
+	}
+
+}
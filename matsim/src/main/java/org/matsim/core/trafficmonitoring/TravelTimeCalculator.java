@@ -19,7 +19,6 @@
  * *********************************************************************** */
 package org.matsim.core.trafficmonitoring;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -44,6 +43,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -62,7 +62,12 @@ import com.google.inject.Inject;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. With {@link TravelTimeCalculatorType#TravelTimeCalculatorIndexed},
+ * the data of all links is stored in flat arrays instead, see {@link IndexedDataContainerProvider}.
+ * <br>
+ * The link enter times of the vehicles are stored in arrays indexed by vehicle, see {@link VehicleLinkEnterTimes}.
+ * Events of different vehicles can be handled by several threads at once, as long as the events of each
+ * vehicle are handled in order.
  * 
  * @author dgrether
  * @author mrieser
@@ -84,11 +89,11 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 	
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	/** the link enter times of the vehicles, and which vehicles are ignored */
+	private final VehicleLinkEnterTimes linkEnterTimes;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -116,6 +121,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorIndexed:
+				calculator.setTravelTimeDataFactory(new TravelTimeDataArrayFactory(network, calculator.numSlots));
+				calculator.useIndexedTravelTimeData(network);
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -194,11 +203,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
-
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.linkEnterTimes = new VehicleLinkEnterTimes();
 
 
 		this.reset(0);
@@ -209,25 +216,26 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	public void handleEvent(final LinkEnterEvent e) {
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
-		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
-
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
-			data.needsConsolidation = true;
+		if (filterAnalyzedModes && this.linkEnterTimes.isIgnored(e.getVehicleId())) return;
+
+		if (this.calculateLinkToLinkTravelTimes) {
+			Id<Link> oldLinkId = this.linkEnterTimes.getLinkId(e.getVehicleId());
+			if (oldLinkId != null) {
+				Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldLinkId, e.getLinkId());
+				DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
+				this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getEnterTime(e.getVehicleId()), e.getTime());
+				data.needsConsolidation = true;
+			}
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes.setLinkEntered(e.getVehicleId(), e.getLinkId(), e.getTime());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			if (this.linkEnterTimes.getLinkId(e.getVehicleId()) != null) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+				this.aggregator.addTravelTime(data.ttData, this.linkEnterTimes.getEnterTime(e.getVehicleId()), e.getTime());
 				data.needsConsolidation = true;
 			}
 		}
@@ -239,7 +247,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * starts a leg on a non analyzed transport mode, add the vehicle 
 		 * to the filtered vehicles set. */
 		if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) { 
-			this.vehiclesToIgnore.add(event.getVehicleId());
+			this.linkEnterTimes.setIgnored(event.getVehicleId(), true);
 		}
 	}
 
@@ -248,10 +256,10 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.removeLinkEntered(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.linkEnterTimes.setIgnored(event.getVehicleId(), false);
 	}
 
 	@Override
@@ -259,16 +267,18 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.removeLinkEntered(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		Id<Link> linkId = this.linkEnterTimes.getLinkId(event.getVehicleId());
+		if (linkId != null) {
+			double enterTime = this.linkEnterTimes.getEnterTime(event.getVehicleId());
+			this.linkEnterTimes.removeLinkEntered(event.getVehicleId());
+			DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, enterTime, event.getTime());
 			if (this.calculateLinkToLinkTravelTimes 
 					&& event.getTime() < qsimConfig.getEndTime() 
 					// (we think that this only makes problems when the abort is not just because of mobsim end time. kai & theresa, jan'17) 
@@ -279,7 +289,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 
 		// try to remove vehicle from set with filtered vehicles
-		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
+		if (filterAnalyzedModes) this.linkEnterTimes.setIgnored(event.getVehicleId(), false);
 	}
 
 	private DataContainer getLinkToLinkTravelTimeData(Tuple<Id<Link>, Id<Link>> fromLinkToLink, final boolean createIfMissing) {
@@ -364,14 +374,24 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
-		this.vehiclesToIgnore.clear();
+		this.linkEnterTimes.clear();
 	}
 
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
 		this.ttDataFactory = factory;
 	}
 
+	/**
+	 * Stores the travel times of all links of the network in flat arrays, see {@link IndexedDataContainerProvider}.
+	 * Must be called before any events are handled.
+	 */
+	/*package*/ void useIndexedTravelTimeData(final Network network) {
+		if (this.calculateLinkTravelTimes) {
+			this.linkData.clear();
+			this.dataContainerProvider = new IndexedDataContainerProvider(this.linkData, this.ttDataFactory, network, this.numSlots);
+		}
+	}
+
 	public void setTravelTimeAggregator(final AbstractTravelTimeAggregator aggregator) {
 		this.aggregator = aggregator;
 	}
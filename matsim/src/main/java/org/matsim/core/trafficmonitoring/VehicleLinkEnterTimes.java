@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * VehicleLinkEnterTimes.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Remembers for every vehicle the link it entered last and the time it did so, and whether the
+ * vehicle is currently ignored by the {@link TravelTimeCalculator}. The data is stored in arrays
+ * indexed by {@link Id#index()}, replacing maps keyed by vehicle id.
+ * <br>
+ * The arrays are split into chunks of fixed size which are allocated when they are first needed
+ * and never copied, so events of different vehicles may be handled concurrently. The events of a
+ * single vehicle must be handled in order, as usual.
+ */
+/*package*/ final class VehicleLinkEnterTimes {
+
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final class Chunk {
+		final int[] linkIndex = new int[CHUNK_SIZE];
+		final double[] enterTime = new double[CHUNK_SIZE];
+		final boolean[] ignored = new boolean[CHUNK_SIZE];
+
+		Chunk() {
+			Arrays.fill(this.linkIndex, -1);
+		}
+	}
+
+	private volatile Chunk[] chunks = new Chunk[16];
+
+	/**
+	 * @return the link the vehicle entered last, or <code>null</code> if the vehicle is not on a link
+	 */
+	/*package*/ Id<Link> getLinkId(final Id<Vehicle> vehicleId) {
+		Chunk chunk = getChunk(vehicleId.index(), false);
+		if (chunk == null) {
+			return null;
+		}
+		int linkIndex = chunk.linkIndex[vehicleId.index() & CHUNK_MASK];
+		return linkIndex < 0 ? null : Id.get(linkIndex, Link.class);
+	}
+
+	/**
+	 * @return the time the vehicle entered its current link; only valid if {@link #getLinkId(Id)} is not <code>null</code>
+	 */
+	/*package*/ double getEnterTime(final Id<Vehicle> vehicleId) {
+		Chunk chunk = getChunk(vehicleId.index(), false);
+		return chunk == null ? Double.NaN : chunk.enterTime[vehicleId.index() & CHUNK_MASK];
+	}
+
+	/*package*/ void setLinkEntered(final Id<Vehicle> vehicleId, final Id<Link> linkId, final double time) {
+		Chunk chunk = getChunk(vehicleId.index(), true);
+		int i = vehicleId.index() & CHUNK_MASK;
+		chunk.enterTime[i] = time;
+		chunk.linkIndex[i] = linkId.index();
+	}
+
+	/*package*/ void removeLinkEntered(final Id<Vehicle> vehicleId) {
+		Chunk chunk = getChunk(vehicleId.index(), false);
+		if (chunk != null) {
+			chunk.linkIndex[vehicleId.index() & CHUNK_MASK] = -1;
+		}
+	}
+
+	/*package*/ boolean isIgnored(final Id<Vehicle> vehicleId) {
+		Chunk chunk = getChunk(vehicleId.index(), false);
+		return chunk != null && chunk.ignored[vehicleId.index() & CHUNK_MASK];
+	}
+
+	/*package*/ void setIgnored(final Id<Vehicle> vehicleId, final boolean ignored) {
+		Chunk chunk = getChunk(vehicleId.index(), ignored);
+		if (chunk != null) {
+			chunk.ignored[vehicleId.index() & CHUNK_MASK] = ignored;
+		}
+	}
+
+	/*package*/ synchronized void clear() {
+		this.chunks = new Chunk[16];
+	}
+
+	private Chunk getChunk(final int vehicleIndex, final boolean createIfMissing) {
+		int c = vehicleIndex >>> CHUNK_BITS;
+		Chunk[] current = this.chunks;
+		if (c < current.length && current[c] != null) {
+			return current[c];
+		}
+		if (!createIfMissing) {
+			return null;
+		}
+		synchronized (this) {
+			current = this.chunks;
+			if (c >= current.length) {
+				current = Arrays.copyOf(current, Math.max(2 * current.length, c + 1));
+			}
+			Chunk chunk = current[c];
+			if (chunk == null) {
+				chunk = new Chunk();
+				current[c] = chunk;
+			}
+			this.chunks = current;
+			return chunk;
+		}
+	}
+
+}
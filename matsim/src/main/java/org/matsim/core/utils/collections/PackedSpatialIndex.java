@@ -0,0 +1,530 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedSpatialIndex.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * An immutable spatial index of data assigned to geometric points, as an alternative to the {@link QuadTree}
+ * for data which does not change after it was collected.
+ * <br>
+ * All values are given at construction. They are sorted along a Hilbert curve, so values close to each other
+ * in space are also close to each other in memory, and then grouped into a tree of bounding boxes with
+ * {@value #NODE_SIZE} children each. The coordinates and the bounding boxes are stored in primitive arrays.
+ * <br>
+ * The index can be read by several threads concurrently. For many queries, use a {@link Searcher}, which
+ * keeps its working memory between queries, so repeated queries do not allocate anything. A searcher must
+ * only be used by one thread at a time. The query methods of the index itself create what they need per call.
+ *
+ * @param <T> The type of data to be stored in the index.
+ */
+public final class PackedSpatialIndex<T> {
+
+	/*package*/ static final int NODE_SIZE = 16;
+
+	private static final int HILBERT_ORDER = 15;
+	private static final int HILBERT_MAX = (1 << HILBERT_ORDER) - 1;
+
+	private final int size;
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+
+	/** the bounding boxes of all levels, starting with the level directly above the values, ending with the root */
+	private final double[] minXs;
+	private final double[] minYs;
+	private final double[] maxXs;
+	private final double[] maxYs;
+	/** the index of the first bounding box of each level; the last entry is the total number of boxes */
+	private final int[] levelStarts;
+
+	/**
+	 * Creates an index of the given values, each located at the coordinate returned by <code>coordGetter</code>.
+	 * A value may be contained several times in the collection.
+	 */
+	public PackedSpatialIndex(final Collection<? extends T> values, final Function<? super T, Coord> coordGetter) {
+		this.size = values.size();
+		double[] unsortedXs = new double[this.size];
+		double[] unsortedYs = new double[this.size];
+		Object[] unsortedValues = values.toArray();
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < this.size; i++) {
+			@SuppressWarnings("unchecked")
+			Coord coord = coordGetter.apply((T) unsortedValues[i]);
+			unsortedXs[i] = coord.getX();
+			unsortedYs[i] = coord.getY();
+			minX = Math.min(minX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxX = Math.max(maxX, coord.getX());
+			maxY = Math.max(maxY, coord.getY());
+		}
+
+		// sort the values along the Hilbert curve; the index of the value is stored in the lower bits of the key
+		long[] keys = new long[this.size];
+		double width = maxX > minX ? maxX - minX : 1.0;
+		double height = maxY > minY ? maxY - minY : 1.0;
+		for (int i = 0; i < this.size; i++) {
+			int hx = (int) (HILBERT_MAX * (unsortedXs[i] - minX) / width);
+			int hy = (int) (HILBERT_MAX * (unsortedYs[i] - minY) / height);
+			keys[i] = (hilbert(hx, hy) << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		this.xs = new double[this.size];
+		this.ys = new double[this.size];
+		this.values = new Object[this.size];
+		for (int i = 0; i < this.size; i++) {
+			int index = (int) keys[i];
+			this.xs[i] = unsortedXs[index];
+			this.ys[i] = unsortedYs[index];
+			this.values[i] = unsortedValues[index];
+		}
+
+		// count the boxes per level
+		List<Integer> levelSizes = new ArrayList<>();
+		int count = this.size;
+		do {
+			count = (count + NODE_SIZE - 1) / NODE_SIZE;
+			levelSizes.add(count);
+		} while (count > 1);
+		this.levelStarts = new int[levelSizes.size() + 1];
+		for (int level = 0; level < levelSizes.size(); level++) {
+			this.levelStarts[level + 1] = this.levelStarts[level] + levelSizes.get(level);
+		}
+		int numberOfBoxes = this.levelStarts[levelSizes.size()];
+		this.minXs = new double[numberOfBoxes];
+		this.minYs = new double[numberOfBoxes];
+		this.maxXs = new double[numberOfBoxes];
+		this.maxYs = new double[numberOfBoxes];
+		Arrays.fill(this.minXs, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.minYs, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.maxXs, Double.NEGATIVE_INFINITY);
+		Arrays.fill(this.maxYs, Double.NEGATIVE_INFINITY);
+
+		for (int i = 0; i < this.size; i++) {
+			int box = i / NODE_SIZE;
+			this.minXs[box] = Math.min(this.minXs[box], this.xs[i]);
+			this.minYs[box] = Math.min(this.minYs[box], this.ys[i]);
+			this.maxXs[box] = Math.max(this.maxXs[box], this.xs[i]);
+			this.maxYs[box] = Math.max(this.maxYs[box], this.ys[i]);
+		}
+		for (int level = 1; level < levelSizes.size(); level++) {
+			int childStart = this.levelStarts[level - 1];
+			for (int child = childStart; child < this.levelStarts[level]; child++) {
+				int box = this.levelStarts[level] + (child - childStart) / NODE_SIZE;
+				this.minXs[box] = Math.min(this.minXs[box], this.minXs[child]);
+				this.minYs[box] = Math.min(this.minYs[box], this.minYs[child]);
+				this.maxXs[box] = Math.max(this.maxXs[box], this.maxXs[child]);
+				this.maxYs[box] = Math.max(this.maxYs[box], this.maxYs[child]);
+			}
+		}
+	}
+
+	/**
+	 * @return the distance of the point <code>(x, y)</code> along the Hilbert curve filling a square with a side length of 2^{@value #HILBERT_ORDER} cells
+	 */
+	/*package*/ static long hilbert(int x, int y) {
+		long d = 0;
+		for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			if (ry == 0) {
+				if (rx == 1) {
+					x = HILBERT_MAX - x;
+					y = HILBERT_MAX - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Creates a new searcher for this index. Keep it to run many queries without allocating memory.
+	 */
+	public Searcher<T> createSearcher() {
+		return new Searcher<>(this);
+	}
+
+	/**
+	 * Gets the object closest to x/y, or <code>null</code> if the index is empty.
+	 */
+	public T getClosest(final double x, final double y) {
+		if (this.size == 0) {
+			return null;
+		}
+		int root = this.levelStarts.length - 2;
+		double[] bestDistance2 = { Double.POSITIVE_INFINITY };
+		int best = searchClosest(root, this.levelStarts[root], x, y, bestDistance2, -1);
+		return getValueAt(best);
+	}
+
+	private int searchClosest(int level, int box, double x, double y, double[] bestDistance2, int best) {
+		int first = (box - this.levelStarts[level]) * NODE_SIZE;
+		if (level == 0) {
+			int end = Math.min(first + NODE_SIZE, this.size);
+			for (int i = first; i < end; i++) {
+				double d2 = distance2(x, y, this.xs[i], this.ys[i]);
+				if (d2 < bestDistance2[0]) {
+					bestDistance2[0] = d2;
+					best = i;
+				}
+			}
+		} else {
+			int childStart = this.levelStarts[level - 1];
+			int end = Math.min(childStart + first + NODE_SIZE, this.levelStarts[level]);
+			for (int child = childStart + first; child < end; child++) {
+				if (boxDistance2(child, x, y) < bestDistance2[0]) {
+					best = searchClosest(level - 1, child, x, y, bestDistance2, best);
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets the k objects closest to x/y, ordered by increasing distance.
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		Searcher<T> searcher = createSearcher();
+		int n = searcher.findKNearest(x, y, k, Double.POSITIVE_INFINITY);
+		List<T> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			result.add(searcher.getValue(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets all objects within a certain distance around x/y, including the distance.
+	 */
+	public Collection<T> getDisk(final double x, final double y, final double distance) {
+		Searcher<T> searcher = createSearcher();
+		int n = searcher.findWithinDistance(x, y, distance);
+		List<T> result = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			result.add(searcher.getValue(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Passes all objects within a certain distance around x/y, including the distance, to the executor.
+	 * This does not allocate any memory.
+	 *
+	 * @return the number of objects passed to the executor
+	 */
+	public int execute(final double x, final double y, final double distance, final QuadTree.Executor<? super T> executor) {
+		if (this.size == 0) {
+			return 0;
+		}
+		int root = this.levelStarts.length - 2;
+		return executeWithinDistance(root, this.levelStarts[root], x, y, distance * distance, executor);
+	}
+
+	private int executeWithinDistance(int level, int box, double x, double y, double maxDistance2, QuadTree.Executor<? super T> executor) {
+		int count = 0;
+		int first = (box - this.levelStarts[level]) * NODE_SIZE;
+		if (level == 0) {
+			int end = Math.min(first + NODE_SIZE, this.size);
+			for (int i = first; i < end; i++) {
+				if (distance2(x, y, this.xs[i], this.ys[i]) <= maxDistance2) {
+					executor.execute(this.xs[i], this.ys[i], getValueAt(i));
+					count++;
+				}
+			}
+		} else {
+			int childStart = this.levelStarts[level - 1];
+			int end = Math.min(childStart + first + NODE_SIZE, this.levelStarts[level]);
+			for (int child = childStart + first; child < end; child++) {
+				if (boxDistance2(child, x, y) <= maxDistance2) {
+					count += executeWithinDistance(level - 1, child, x, y, maxDistance2, executor);
+				}
+			}
+		}
+		return count;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T getValueAt(int i) {
+		return (T) this.values[i];
+	}
+
+	private double boxDistance2(int box, double x, double y) {
+		double dx = x < this.minXs[box] ? this.minXs[box] - x : (x > this.maxXs[box] ? x - this.maxXs[box] : 0);
+		double dy = y < this.minYs[box] ? this.minYs[box] - y : (y > this.maxYs[box] ? y - this.maxYs[box] : 0);
+		return dx * dx + dy * dy;
+	}
+
+	private static double distance2(double x1, double y1, double x2, double y2) {
+		double dx = x1 - x2;
+		double dy = y1 - y2;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Answers queries on a {@link PackedSpatialIndex}. The results of a query are kept in the searcher until the
+	 * next query and can be read with {@link #getValue(int)}, {@link #getX(int)}, {@link #getY(int)} and
+	 * {@link #getDistance(int)}. The working memory only grows if a query has more results than any query before.
+	 * <br>
+	 * A searcher is not thread-safe; use one searcher per thread.
+	 *
+	 * @param <T> The type of data stored in the index.
+	 */
+	public static final class Searcher<T> {
+
+		private final PackedSpatialIndex<T> index;
+
+		/** the results; during a k-nearest search, a max-heap by distance */
+		private int[] resultIndices = new int[16];
+		private double[] resultDistances2 = new double[16];
+		private int resultCount = 0;
+		private int k;
+		private double maxDistance2;
+
+		/** per level, the children of the currently visited box, ordered by distance */
+		private final int[][] childBoxes;
+		private final double[][] childDistances2;
+
+		private Searcher(PackedSpatialIndex<T> index) {
+			this.index = index;
+			int levels = index.levelStarts.length - 1;
+			this.childBoxes = new int[levels][NODE_SIZE];
+			this.childDistances2 = new double[levels][NODE_SIZE];
+		}
+
+		/**
+		 * Gets the object closest to x/y, or <code>null</code> if the index is empty.
+		 */
+		public T getClosest(final double x, final double y) {
+			return findKNearest(x, y, 1, Double.POSITIVE_INFINITY) == 0 ? null : getValue(0);
+		}
+
+		/**
+		 * Finds the k objects closest to x/y which are at most maxDistance away. The results are ordered by
+		 * increasing distance.
+		 *
+		 * @return the number of objects found
+		 */
+		public int findKNearest(final double x, final double y, final int k, final double maxDistance) {
+			this.resultCount = 0;
+			if (k <= 0 || this.index.size == 0) {
+				return 0;
+			}
+			ensureCapacity(Math.min(k, this.index.size));
+			this.k = k;
+			this.maxDistance2 = maxDistance * maxDistance;
+			int root = this.index.levelStarts.length - 2;
+			searchKNearest(root, this.index.levelStarts[root], x, y);
+
+			// heap sort: repeatedly move the farthest result to the end
+			for (int n = this.resultCount - 1; n > 0; n--) {
+				swap(0, n);
+				siftDown(0, n);
+			}
+			return this.resultCount;
+		}
+
+		/**
+		 * Finds all objects within a certain distance around x/y, including the distance. The results are not ordered.
+		 *
+		 * @return the number of objects found
+		 */
+		public int findWithinDistance(final double x, final double y, final double distance) {
+			this.resultCount = 0;
+			if (this.index.size == 0) {
+				return 0;
+			}
+			this.maxDistance2 = distance * distance;
+			int root = this.index.levelStarts.length - 2;
+			searchWithinDistance(root, this.index.levelStarts[root], x, y);
+			return this.resultCount;
+		}
+
+		public T getValue(final int i) {
+			checkResultIndex(i);
+			return this.index.getValueAt(this.resultIndices[i]);
+		}
+
+		public double getX(final int i) {
+			checkResultIndex(i);
+			return this.index.xs[this.resultIndices[i]];
+		}
+
+		public double getY(final int i) {
+			checkResultIndex(i);
+			return this.index.ys[this.resultIndices[i]];
+		}
+
+		public double getDistance(final int i) {
+			checkResultIndex(i);
+			return Math.sqrt(this.resultDistances2[i]);
+		}
+
+		private void checkResultIndex(int i) {
+			if (i < 0 || i >= this.resultCount) {
+				throw new IndexOutOfBoundsException("result " + i + " of " + this.resultCount);
+			}
+		}
+
+		private void searchKNearest(int level, int box, double x, double y) {
+			PackedSpatialIndex<T> idx = this.index;
+			int first = (box - idx.levelStarts[level]) * NODE_SIZE;
+			if (level == 0) {
+				int end = Math.min(first + NODE_SIZE, idx.size);
+				for (int i = first; i < end; i++) {
+					double d2 = distance2(x, y, idx.xs[i], idx.ys[i]);
+					if (d2 <= currentMaxDistance2()) {
+						offer(i, d2);
+					}
+				}
+				return;
+			}
+			// visit the children ordered by their distance, so the results improve quickly and more boxes can be pruned
+			int[] boxes = this.childBoxes[level];
+			double[] distances2 = this.childDistances2[level];
+			int childStart = idx.levelStarts[level - 1];
+			int end = Math.min(childStart + first + NODE_SIZE, idx.levelStarts[level]);
+			int n = 0;
+			for (int child = childStart + first; child < end; child++) {
+				double d2 = idx.boxDistance2(child, x, y);
+				int j = n++;
+				while (j > 0 && distances2[j - 1] > d2) {
+					boxes[j] = boxes[j - 1];
+					distances2[j] = distances2[j - 1];
+					j--;
+				}
+				boxes[j] = child;
+				distances2[j] = d2;
+			}
+			for (int j = 0; j < n; j++) {
+				if (distances2[j] > currentMaxDistance2()) {
+					break;
+				}
+				searchKNearest(level - 1, boxes[j], x, y);
+			}
+		}
+
+		private double currentMaxDistance2() {
+			return this.resultCount < this.k ? this.maxDistance2 : this.resultDistances2[0];
+		}
+
+		private void offer(int i, double d2) {
+			if (this.resultCount < this.k) {
+				int pos = this.resultCount++;
+				this.resultIndices[pos] = i;
+				this.resultDistances2[pos] = d2;
+				// sift up
+				while (pos > 0) {
+					int parent = (pos - 1) / 2;
+					if (this.resultDistances2[parent] >= this.resultDistances2[pos]) {
+						break;
+					}
+					swap(parent, pos);
+					pos = parent;
+				}
+			} else if (d2 < this.resultDistances2[0]) {
+				this.resultIndices[0] = i;
+				this.resultDistances2[0] = d2;
+				siftDown(0, this.resultCount);
+			}
+		}
+
+		private void siftDown(int pos, int n) {
+			while (true) {
+				int largest = pos;
+				int left = 2 * pos + 1;
+				int right = left + 1;
+				if (left < n && this.resultDistances2[left] > this.resultDistances2[largest]) {
+					largest = left;
+				}
+				if (right < n && this.resultDistances2[right] > this.resultDistances2[largest]) {
+					largest = right;
+				}
+				if (largest == pos) {
+					return;
+				}
+				swap(pos, largest);
+				pos = largest;
+			}
+		}
+
+		private void swap(int a, int b) {
+			int i = this.resultIndices[a];
+			this.resultIndices[a] = this.resultIndices[b];
+			this.resultIndices[b] = i;
+			double d = this.resultDistances2[a];
+			this.resultDistances2[a] = this.resultDistances2[b];
+			this.resultDistances2[b] = d;
+		}
+
+		private void searchWithinDistance(int level, int box, double x, double y) {
+			PackedSpatialIndex<T> idx = this.index;
+			int first = (box - idx.levelStarts[level]) * NODE_SIZE;
+			if (level == 0) {
+				int end = Math.min(first + NODE_SIZE, idx.size);
+				for (int i = first; i < end; i++) {
+					double d2 = distance2(x, y, idx.xs[i], idx.ys[i]);
+					if (d2 <= this.maxDistance2) {
+						ensureCapacity(this.resultCount + 1);
+						this.resultIndices[this.resultCount] = i;
+						this.resultDistances2[this.resultCount] = d2;
+						this.resultCount++;
+					}
+				}
+				return;
+			}
+			int childStart = idx.levelStarts[level - 1];
+			int end = Math.min(childStart + first + NODE_SIZE, idx.levelStarts[level]);
+			for (int child = childStart + first; child < end; child++) {
+				if (idx.boxDistance2(child, x, y) <= this.maxDistance2) {
+					searchWithinDistance(level - 1, child, x, y);
+				}
+			}
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > this.resultIndices.length) {
+				int newCapacity = Math.max(capacity, 2 * this.resultIndices.length);
+				this.resultIndices = Arrays.copyOf(this.resultIndices, newCapacity);
+				this.resultDistances2 = Arrays.copyOf(this.resultDistances2, newCapacity);
+			}
+		}
+	}
+
+}
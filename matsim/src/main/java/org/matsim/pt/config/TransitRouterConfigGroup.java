@@ -27,15 +27,25 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "transitRouter";
 
+	public enum TransitRoutingAlgorithmType {Dijkstra, Raptor}
+
+	public enum RaptorOptimization {leastCost, earliestArrival}
+
 	/*package*/ static final String SEARCH_RADIUS = "searchRadius";
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
+	/*package*/ static final String RAPTOR_OPTIMIZATION = "raptorOptimization";
+	/*package*/ static final String RAPTOR_MAX_TRANSFERS = "raptorMaxTransfers";
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private TransitRoutingAlgorithmType routingAlgorithmType = TransitRoutingAlgorithmType.Dijkstra;
+	private RaptorOptimization raptorOptimization = RaptorOptimization.leastCost;
+	private int raptorMaxTransfers = -1;
 
 	private double directWalkFactor = 1. ;
 	
@@ -56,6 +66,12 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
 		comments.put(DIRECT_WALK_FACTOR, DIRECT_WALK_FACTOR_CMT);
+		comments.put(ROUTING_ALGORITHM_TYPE, "The algorithm used to route transit trips, may have the values: " + TransitRoutingAlgorithmType.Dijkstra
+				+ " (on the transit router network) or " + TransitRoutingAlgorithmType.Raptor + " (round-based, on the transit schedule)");
+		comments.put(RAPTOR_OPTIMIZATION, "only used by the " + TransitRoutingAlgorithmType.Raptor + " router: " + RaptorOptimization.leastCost
+				+ " finds the same routes as the Dijkstra router, " + RaptorOptimization.earliestArrival + " minimizes the arrival time instead");
+		comments.put(RAPTOR_MAX_TRANSFERS, "only used by the " + TransitRoutingAlgorithmType.Raptor + " router: the maximum number of "
+				+ "transfers between transit vehicles of a route. A negative value means no limit.");
 		return comments;
 	}
 
@@ -103,6 +119,39 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		return this.additionalTransferTime;
 	}
 
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final TransitRoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public TransitRoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
+
+	@StringSetter( RAPTOR_OPTIMIZATION )
+	public void setRaptorOptimization(final RaptorOptimization raptorOptimization) {
+		testForLocked() ;
+		this.raptorOptimization = raptorOptimization;
+	}
+
+	@StringGetter( RAPTOR_OPTIMIZATION )
+	public RaptorOptimization getRaptorOptimization() {
+		return this.raptorOptimization;
+	}
+
+	@StringSetter( RAPTOR_MAX_TRANSFERS )
+	public void setRaptorMaxTransfers(final int raptorMaxTransfers) {
+		testForLocked() ;
+		this.raptorMaxTransfers = raptorMaxTransfers;
+	}
+
+	@StringGetter( RAPTOR_MAX_TRANSFERS )
+	public int getRaptorMaxTransfers() {
+		return this.raptorMaxTransfers;
+	}
+
 	/**
 	 * {@value #DIRECT_WALK_FACTOR_CMT}
 	 */
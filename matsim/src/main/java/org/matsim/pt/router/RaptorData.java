@@ -0,0 +1,274 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * Compact, array-based representation of a {@link TransitSchedule} used by the {@link RaptorTransitRouter}.
+ * <br>
+ * Every stop of every transit route is a <em>route stop</em>, numbered consecutively such that the stops of
+ * a route have adjacent numbers in the order they are served. This corresponds to the nodes of the
+ * {@link TransitRouterNetwork}. For every route, the departure times at the first stop are stored in
+ * ascending order. Transfers between route stops are created with the same rules as the transfer links of
+ * the {@link TransitRouterNetwork}: from every route stop where passengers can arrive to every route stop
+ * within the beeline walk connection distance where passengers can depart, unless both belong to the same
+ * line and stop facility.
+ * <br>
+ * The data is immutable and thread-safe. It does not reflect later changes of the schedule.
+ */
+public final class RaptorData {
+
+	private final static Logger log = Logger.getLogger(RaptorData.class);
+
+	private final TransitSchedule schedule;
+
+	/*package*/ final TransitLine[] lines;
+	/*package*/ final TransitRoute[] routes;
+	/** the route stops of route r are [routeFirstStop[r], routeFirstStop[r+1]) */
+	/*package*/ final int[] routeFirstStop;
+	/** the sorted departure times of route r at its first stop are departures[routeFirstDeparture[r], routeFirstDeparture[r+1]) */
+	/*package*/ final int[] routeFirstDeparture;
+	/*package*/ final double[] departures;
+
+	/*package*/ final TransitRouteStop[] routeStops;
+	/*package*/ final int[] routeOfRouteStop;
+	/** the arrival offset of the route stop, or its departure offset if the arrival offset is undefined */
+	/*package*/ final double[] arrivalOffset;
+	/*package*/ final double[] departureOffset;
+	/** the beeline distance from the route stop to the next stop of its route */
+	/*package*/ final double[] distanceToNextStop;
+
+	/** the transfers from route stop i are [firstTransfer[i], firstTransfer[i+1]) */
+	/*package*/ final int[] firstTransfer;
+	/*package*/ final int[] transferTarget;
+	/*package*/ final double[] transferDistance;
+
+	private final QuadTree<Integer> routeStopsQuadTree;
+
+	public RaptorData(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		this.schedule = schedule;
+		List<TransitLine> lineList = new ArrayList<>();
+		List<TransitRoute> routeList = new ArrayList<>();
+		List<TransitRouteStop> routeStopList = new ArrayList<>();
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				lineList.add(line);
+				routeList.add(route);
+				routeStopList.addAll(route.getStops());
+			}
+		}
+		int routeCount = routeList.size();
+		int routeStopCount = routeStopList.size();
+		this.lines = lineList.toArray(new TransitLine[routeCount]);
+		this.routes = routeList.toArray(new TransitRoute[routeCount]);
+		this.routeStops = routeStopList.toArray(new TransitRouteStop[routeStopCount]);
+
+		this.routeFirstStop = new int[routeCount + 1];
+		this.routeFirstDeparture = new int[routeCount + 1];
+		this.routeOfRouteStop = new int[routeStopCount];
+		int departureCount = 0;
+		int routeStop = 0;
+		for (int r = 0; r < routeCount; r++) {
+			this.routeFirstStop[r] = routeStop;
+			this.routeFirstDeparture[r] = departureCount;
+			departureCount += this.routes[r].getDepartures().size();
+			for (int i = 0; i < this.routes[r].getStops().size(); i++) {
+				this.routeOfRouteStop[routeStop++] = r;
+			}
+		}
+		this.routeFirstStop[routeCount] = routeStop;
+		this.routeFirstDeparture[routeCount] = departureCount;
+
+		this.departures = new double[departureCount];
+		for (int r = 0; r < routeCount; r++) {
+			int d = this.routeFirstDeparture[r];
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departures[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.routeFirstDeparture[r], d);
+		}
+
+		this.arrivalOffset = new double[routeStopCount];
+		this.departureOffset = new double[routeStopCount];
+		this.distanceToNextStop = new double[routeStopCount];
+		for (int i = 0; i < routeStopCount; i++) {
+			TransitRouteStop stop = this.routeStops[i];
+			this.departureOffset[i] = stop.getDepartureOffset();
+			this.arrivalOffset[i] = !Time.isUndefinedTime(stop.getArrivalOffset()) ? stop.getArrivalOffset() : stop.getDepartureOffset();
+			if (hasNextStop(i)) {
+				this.distanceToNextStop[i] = CoordUtils.calcEuclideanDistance(getCoord(i + 1), getCoord(i));
+			}
+		}
+
+		this.routeStopsQuadTree = createQuadTree();
+		this.firstTransfer = new int[routeStopCount + 1];
+		List<Integer> targets = new ArrayList<>();
+		List<Double> distances = new ArrayList<>();
+		for (int i = 0; i < routeStopCount; i++) {
+			this.firstTransfer[i] = targets.size();
+			if (this.routeStopsQuadTree == null || !hasPreviousStop(i)) {
+				// only add transfers from this route stop if agents actually can arrive here
+				continue;
+			}
+			Coord coord = getCoord(i);
+			for (int j : this.routeStopsQuadTree.getDisk(coord.getX(), coord.getY(), maxBeelineWalkConnectionDistance)) {
+				if (i != j && hasNextStop(j)
+						&& ((getLine(i) != getLine(j)) || (this.routeStops[i].getStopFacility() != this.routeStops[j].getStopFacility()))) {
+					targets.add(j);
+					distances.add(CoordUtils.calcEuclideanDistance(getCoord(j), coord));
+				}
+			}
+		}
+		this.firstTransfer[routeStopCount] = targets.size();
+		this.transferTarget = new int[targets.size()];
+		this.transferDistance = new double[targets.size()];
+		for (int t = 0; t < this.transferTarget.length; t++) {
+			this.transferTarget[t] = targets.get(t);
+			this.transferDistance[t] = distances.get(t);
+		}
+		log.info("raptor data created: " + routeCount + " routes, " + routeStopCount + " route stops, "
+				+ departureCount + " departures, " + this.transferTarget.length + " transfers.");
+	}
+
+	private QuadTree<Integer> createQuadTree() {
+		if (this.routeStops.length == 0) {
+			return null;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < this.routeStops.length; i++) {
+			Coord c = getCoord(i);
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		QuadTree<Integer> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int i = 0; i < this.routeStops.length; i++) {
+			Coord c = getCoord(i);
+			quadTree.put(c.getX(), c.getY(), i);
+		}
+		return quadTree;
+	}
+
+	/*package*/ TransitSchedule getSchedule() {
+		return this.schedule;
+	}
+
+	public int getRouteStopCount() {
+		return this.routeStops.length;
+	}
+
+	public int getRouteCount() {
+		return this.routes.length;
+	}
+
+	/*package*/ Coord getCoord(final int routeStop) {
+		return this.routeStops[routeStop].getStopFacility().getCoord();
+	}
+
+	/*package*/ TransitLine getLine(final int routeStop) {
+		return this.lines[this.routeOfRouteStop[routeStop]];
+	}
+
+	/*package*/ TransitRoute getRoute(final int routeStop) {
+		return this.routes[this.routeOfRouteStop[routeStop]];
+	}
+
+	/*package*/ boolean hasPreviousStop(final int routeStop) {
+		return routeStop > this.routeFirstStop[this.routeOfRouteStop[routeStop]];
+	}
+
+	/*package*/ boolean hasNextStop(final int routeStop) {
+		return routeStop + 1 < this.routeFirstStop[this.routeOfRouteStop[routeStop] + 1];
+	}
+
+	/*package*/ Collection<Integer> getNearestRouteStops(final Coord coord, final double distance) {
+		if (this.routeStopsQuadTree == null) {
+			return Collections.emptyList();
+		}
+		return this.routeStopsQuadTree.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	/**
+	 * @return the nearest route stop, or -1 if the schedule has no stops at all
+	 */
+	/*package*/ int getNearestRouteStop(final Coord coord) {
+		if (this.routeStopsQuadTree == null) {
+			return -1;
+		}
+		return this.routeStopsQuadTree.getClosest(coord.getX(), coord.getY());
+	}
+
+	/**
+	 * Same as {@link PreparedTransitSchedule#getNextDepartureTime(TransitRoute, TransitRouteStop, double)}, but
+	 * using the arrays of this class.
+	 *
+	 * @return the next departure time of the route at the route stop, or {@link Double#POSITIVE_INFINITY} if the route has no departures.
+	 */
+	/*package*/ double getNextDepartureTime(final int routeStop, final double depTime) {
+		int route = this.routeOfRouteStop[routeStop];
+		int from = this.routeFirstDeparture[route];
+		int to = this.routeFirstDeparture[route + 1];
+		if (from == to) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double stopOffset = this.departureOffset[routeStop];
+		double earliestDepartureTimeAtTerminus = depTime - stopOffset;
+		if (earliestDepartureTimeAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int pos = Arrays.binarySearch(this.departures, from, to, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= to) {
+			pos = from; // there is no later departure time, take the first in the morning
+		}
+		double bestDepartureTime = this.departures[pos] + stopOffset;
+		while (bestDepartureTime < depTime) {
+			bestDepartureTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return bestDepartureTime;
+	}
+
+}
@@ -0,0 +1,665 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.config.TransitRouterConfigGroup.RaptorOptimization;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * Round-based transit router (RAPTOR) working directly on the arrays of a {@link RaptorData}, without
+ * building a {@link TransitRouterNetwork} and without a priority queue.
+ * <br>
+ * Every round first scans the transit routes on which a route stop was improved in the previous round,
+ * from the first improved stop to the end of the route, and then relaxes the transfers from all route stops
+ * improved by riding. Thus, after round <code>k</code>, the labels are optimal among all connections with
+ * at most <code>k</code> transit legs. The search stops if no route stop was improved, or if the maximum
+ * number of transfers is reached.
+ * <br>
+ * Travel times and costs of riding and transferring are calculated exactly like in
+ * {@link TransitRouterNetworkTravelTimeAndDisutility}, and route stops are only labeled with the best
+ * cost (or arrival time) like the nodes in the {@link TransitLeastCostPathTree}. With the default
+ * {@link RaptorOptimization#leastCost}, the router therefore finds the same routes as the
+ * {@link TransitRouterImpl} on regular schedules. As the waiting costs depend on the arrival time at a stop,
+ * neither search is exact, and on complex schedules the two routers may occasionally return different routes
+ * of slightly different cost. Only the walk times and disutilities of access, egress and the
+ * direct walk are taken from the {@link TransitTravelDisutility}; customized travel disutilities of the
+ * transit router network are not supported.
+ * <br>
+ * In addition to {@link #calcRoute(Facility, Facility, double, Person)}, the router offers range queries
+ * over a departure time window, see {@link #calcConnections(Facility, Facility, double, double, Person)},
+ * and the best connection for every number of transfers, see
+ * {@link #calcConnectionsByTransfers(Facility, Facility, double, Person)}.
+ *
+ * <h2>Important note</h2>
+ * This class is NOT thread-safe! Use one instance per thread; the {@link RaptorData} can be shared.
+ *
+ * @see RaptorTransitRouterFactory
+ */
+public class RaptorTransitRouter extends AbstractTransitRouter implements TransitRouter {
+
+	private static final int NO_LABEL = -1;
+	private static final int NOT_MARKED = Integer.MAX_VALUE;
+
+	private final RaptorData data;
+	private final boolean earliestArrival;
+	private final int maxRounds;
+
+	// the current label of each route stop, with its cost and time
+	private final int[] label;
+	private final double[] cost;
+	private final double[] time;
+	private final int[] visited;
+	private int iteration = 0;
+
+	// all labels created in the current iteration, each one referring to the label it was created from
+	private int[] labelRouteStop;
+	private int[] labelParent;
+	private boolean[] labelTransfer;
+	private double[] labelCost;
+	private double[] labelTime;
+	private int labelCount = 0;
+
+	private final int[] routeMarkedFrom;
+	private final int[] markedRoutes;
+	private int markedRouteCount = 0;
+
+	private final int[] transferQueue;
+	private final boolean[] inTransferQueue;
+	private int transferQueueHead = 0;
+	private int transferQueueSize = 0;
+
+	private final List<Integer> accessStops = new ArrayList<>();
+	private final List<Integer> egressStops = new ArrayList<>();
+	private final double[] accessCost;
+	private final double[] accessTime;
+	private final double[] egressCost;
+	private final double[] egressTime;
+	private final int[] egressQuery;
+	private int query = 0;
+	private double departureTime;
+	private double bestValue;
+
+	private double rideCost;
+
+	public RaptorTransitRouter(final TransitRouterConfig trConfig, final TransitSchedule schedule) {
+		this(trConfig, new RaptorData(schedule, trConfig.getBeelineWalkConnectionDistance()));
+	}
+
+	public RaptorTransitRouter(final TransitRouterConfig trConfig, final RaptorData data) {
+		super(trConfig, new TransitRouterNetworkTravelTimeAndDisutility(trConfig, new PreparedTransitSchedule(data.getSchedule())));
+		this.data = data;
+		this.earliestArrival = trConfig.getRaptorOptimization() == RaptorOptimization.earliestArrival;
+		this.maxRounds = trConfig.getRaptorMaxTransfers() < 0 ? Integer.MAX_VALUE : trConfig.getRaptorMaxTransfers() + 1;
+
+		int routeStopCount = data.getRouteStopCount();
+		this.cost = new double[routeStopCount];
+		this.time = new double[routeStopCount];
+		this.label = new int[routeStopCount];
+		this.visited = new int[routeStopCount];
+		this.routeMarkedFrom = new int[data.getRouteCount()];
+		Arrays.fill(this.routeMarkedFrom, NOT_MARKED);
+		this.markedRoutes = new int[data.getRouteCount()];
+		this.transferQueue = new int[routeStopCount];
+		this.inTransferQueue = new boolean[routeStopCount];
+		this.accessCost = new double[routeStopCount];
+		this.accessTime = new double[routeStopCount];
+		this.egressCost = new double[routeStopCount];
+		this.egressTime = new double[routeStopCount];
+		this.egressQuery = new int[routeStopCount];
+		int capacity = Math.max(16, 2 * routeStopCount);
+		this.labelRouteStop = new int[capacity];
+		this.labelParent = new int[capacity];
+		this.labelTransfer = new boolean[capacity];
+		this.labelCost = new double[capacity];
+		this.labelTime = new double[capacity];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		prepareQuery(fromCoord, toCoord, person);
+		Connection connection = search(departureTime, null);
+		if (connection == null) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		double directWalkCost = getWalkDisutility(person, fromCoord, toCoord);
+		if (directWalkCost * getConfig().getDirectWalkFactor() < connection.travelCost) {
+			return this.createDirectWalkLegList(null, fromCoord, toCoord);
+		}
+		return convertPassengerRouteToLegList(departureTime, connection.passengerRoute, fromCoord, toCoord, person);
+	}
+
+	/**
+	 * Range query: calculates the transit connections departing within the given time window. For every
+	 * departure of a route at a stop near the start, the best connection departing just in time to catch it
+	 * is calculated. Of these, only the connections which are not dominated by a connection departing later
+	 * and arriving not later are returned, sorted by departure time. The departure time of a connection is
+	 * the latest time at which one can leave and still catch the first transit vehicle. Direct walks are not
+	 * considered.
+	 */
+	public List<Connection> calcConnections(final Facility<?> fromFacility, final Facility<?> toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		prepareQuery(fromCoord, toCoord, person);
+
+		TreeSet<Double> departureTimes = new TreeSet<>(Collections.reverseOrder());
+		for (int routeStop : this.accessStops) {
+			if (!this.data.hasNextStop(routeStop)) {
+				continue;
+			}
+			int route = this.data.routeOfRouteStop[routeStop];
+			double offset = this.data.departureOffset[routeStop] - this.accessTime[routeStop];
+			for (int d = this.data.routeFirstDeparture[route]; d < this.data.routeFirstDeparture[route + 1]; d++) {
+				double departure = this.data.departures[d] + offset;
+				if (departure < earliestDepartureTime) {
+					departure += Math.ceil((earliestDepartureTime - departure) / TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT)
+							* TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+				}
+				for (; departure <= latestDepartureTime; departure += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+					departureTimes.add(departure);
+				}
+			}
+		}
+
+		List<Connection> connections = new ArrayList<>();
+		double bestArrivalTime = Double.POSITIVE_INFINITY;
+		for (double departure : departureTimes) {
+			Connection connection = search(departure, null);
+			if (connection != null && connection.departureTime <= latestDepartureTime && connection.arrivalTime < bestArrivalTime) {
+				bestArrivalTime = connection.arrivalTime;
+				connection.createLegs(this, fromCoord, toCoord, person);
+				connections.add(connection);
+			}
+		}
+		Collections.reverse(connections);
+		return connections;
+	}
+
+	/**
+	 * Calculates the best transit connection for every number of transfers, up to the configured maximum.
+	 * The returned connections are sorted by ascending number of transfers; a connection is only returned if
+	 * it is better than all connections with fewer transfers. Direct walks are not considered.
+	 */
+	public List<Connection> calcConnectionsByTransfers(final Facility<?> fromFacility, final Facility<?> toFacility,
+			final double departureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		prepareQuery(fromCoord, toCoord, person);
+		List<Connection> connections = new ArrayList<>();
+		search(departureTime, connections);
+		for (Connection connection : connections) {
+			connection.createLegs(this, fromCoord, toCoord, person);
+		}
+		return connections;
+	}
+
+	private void prepareQuery(final Coord fromCoord, final Coord toCoord, final Person person) {
+		if (this.query == Integer.MAX_VALUE) {
+			Arrays.fill(this.egressQuery, 0);
+			this.query = 0;
+		}
+		this.query++;
+		this.accessStops.clear();
+		this.egressStops.clear();
+		for (int routeStop : getNearestRouteStops(fromCoord)) {
+			Coord stopCoord = this.data.getCoord(routeStop);
+			this.accessStops.add(routeStop);
+			this.accessTime[routeStop] = getWalkTime(person, fromCoord, stopCoord);
+			this.accessCost[routeStop] = getWalkDisutility(person, fromCoord, stopCoord);
+		}
+		for (int routeStop : getNearestRouteStops(toCoord)) {
+			Coord stopCoord = this.data.getCoord(routeStop);
+			this.egressStops.add(routeStop);
+			this.egressTime[routeStop] = getWalkTime(person, stopCoord, toCoord);
+			this.egressCost[routeStop] = getWalkDisutility(person, stopCoord, toCoord);
+			this.egressQuery[routeStop] = this.query;
+		}
+	}
+
+	/**
+	 * Same as the search for the nearest nodes in the {@link TransitRouterImpl}.
+	 */
+	private Collection<Integer> getNearestRouteStops(final Coord coord) {
+		Collection<Integer> routeStops = this.data.getNearestRouteStops(coord, getConfig().getSearchRadius());
+		if (routeStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearest = this.data.getNearestRouteStop(coord);
+			if (nearest >= 0) { // transit schedule might be completely empty!
+				double distance = CoordUtils.calcEuclideanDistance(coord, this.data.getCoord(nearest));
+				routeStops = this.data.getNearestRouteStops(coord, distance + getConfig().getExtensionRadius());
+			}
+		}
+		return routeStops;
+	}
+
+	/**
+	 * Runs the rounds for the prepared access and egress stops.
+	 *
+	 * @param connectionsByRound if not null, the best connection after every round is added if it is better
+	 *          than the previous one
+	 * @return the best connection, or null if the destination cannot be reached by transit
+	 */
+	private Connection search(final double departureTime, final List<Connection> connectionsByRound) {
+		startNewIteration();
+		this.departureTime = departureTime;
+		this.bestValue = Double.POSITIVE_INFINITY;
+
+		for (int routeStop : this.accessStops) {
+			if (relax(routeStop, this.accessCost[routeStop], departureTime + this.accessTime[routeStop], NO_LABEL, false)) {
+				markRoute(routeStop);
+				enqueueTransfers(routeStop);
+			}
+		}
+		relaxTransfers();
+
+		int round = 0;
+		Connection best = null;
+		while (this.markedRouteCount > 0 && round < this.maxRounds) {
+			round++;
+			scanRoutes();
+			relaxTransfers();
+			if (connectionsByRound != null) {
+				Connection connection = createConnection();
+				if (connection != null && (best == null || isBetter(connection, best))) {
+					best = connection;
+					connectionsByRound.add(connection);
+				}
+			}
+		}
+		// remove the marks in case the maximum number of rounds was reached
+		for (int i = 0; i < this.markedRouteCount; i++) {
+			this.routeMarkedFrom[this.markedRoutes[i]] = NOT_MARKED;
+		}
+		this.markedRouteCount = 0;
+		return connectionsByRound == null ? createConnection() : best;
+	}
+
+	private boolean isBetter(final Connection connection, final Connection other) {
+		if (this.earliestArrival) {
+			return connection.arrivalTime < other.arrivalTime;
+		}
+		return connection.travelCost < other.travelCost;
+	}
+
+	private void scanRoutes() {
+		for (int i = 0; i < this.markedRouteCount; i++) {
+			int route = this.markedRoutes[i];
+			int lastRouteStop = this.data.routeFirstStop[route + 1] - 1;
+			for (int routeStop = this.routeMarkedFrom[route]; routeStop < lastRouteStop; routeStop++) {
+				if (this.visited[routeStop] != this.iteration) {
+					continue;
+				}
+				double travelTime = rideTravelTime(routeStop, this.time[routeStop]);
+				if (travelTime == Double.POSITIVE_INFINITY) {
+					break; // the route has no departures
+				}
+				if (relax(routeStop + 1, this.cost[routeStop] + this.rideCost, this.time[routeStop] + travelTime, this.label[routeStop], false)) {
+					enqueueTransfers(routeStop + 1);
+				}
+			}
+			this.routeMarkedFrom[route] = NOT_MARKED;
+		}
+		this.markedRouteCount = 0;
+	}
+
+	private void relaxTransfers() {
+		TransitRouterConfig config = getConfig();
+		while (this.transferQueueSize > 0) {
+			int routeStop = this.transferQueue[this.transferQueueHead];
+			this.transferQueueHead = (this.transferQueueHead + 1) % this.transferQueue.length;
+			this.transferQueueSize--;
+			this.inTransferQueue[routeStop] = false;
+			for (int t = this.data.firstTransfer[routeStop]; t < this.data.firstTransfer[routeStop + 1]; t++) {
+				int target = this.data.transferTarget[t];
+				double distance = this.data.transferDistance[t];
+				double transferTime = distance / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime();
+				if (relax(target, this.cost[routeStop] + transferCost(transferTime, distance), this.time[routeStop] + transferTime,
+						this.label[routeStop], true)) {
+					markRoute(target);
+					enqueueTransfers(target);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets a new label for the route stop if it improves the current label. As the costs depend on the time,
+	 * the labels created from the current label of a route stop may be worse than the ones created from
+	 * a previous label. The previous labels are thus kept, so the path of every label can be reconstructed.
+	 */
+	private boolean relax(final int routeStop, final double newCost, final double newTime, final int parent, final boolean transfer) {
+		if (this.earliestArrival ? newTime > this.bestValue : newCost > this.bestValue) {
+			return false; // the destination cannot be reached any better from here
+		}
+		if (this.visited[routeStop] == this.iteration) {
+			if (this.earliestArrival) {
+				if (newTime > this.time[routeStop] || (newTime == this.time[routeStop] && newCost >= this.cost[routeStop])) {
+					return false;
+				}
+			} else if (newCost >= this.cost[routeStop]) {
+				return false;
+			}
+		}
+		if (this.labelCount == this.labelRouteStop.length) {
+			int capacity = 2 * this.labelCount;
+			this.labelRouteStop = Arrays.copyOf(this.labelRouteStop, capacity);
+			this.labelParent = Arrays.copyOf(this.labelParent, capacity);
+			this.labelTransfer = Arrays.copyOf(this.labelTransfer, capacity);
+			this.labelCost = Arrays.copyOf(this.labelCost, capacity);
+			this.labelTime = Arrays.copyOf(this.labelTime, capacity);
+		}
+		int newLabel = this.labelCount++;
+		this.labelRouteStop[newLabel] = routeStop;
+		this.labelParent[newLabel] = parent;
+		this.labelTransfer[newLabel] = transfer;
+		this.labelCost[newLabel] = newCost;
+		this.labelTime[newLabel] = newTime;
+		this.label[routeStop] = newLabel;
+		this.cost[routeStop] = newCost;
+		this.time[routeStop] = newTime;
+		this.visited[routeStop] = this.iteration;
+		if (this.egressQuery[routeStop] == this.query) {
+			double value = this.earliestArrival ? newTime + this.egressTime[routeStop] : newCost + this.egressCost[routeStop];
+			if (value < this.bestValue) {
+				this.bestValue = value;
+			}
+		}
+		return true;
+	}
+
+	private void markRoute(final int routeStop) {
+		if (!this.data.hasNextStop(routeStop)) {
+			return;
+		}
+		int route = this.data.routeOfRouteStop[routeStop];
+		if (this.routeMarkedFrom[route] == NOT_MARKED) {
+			this.markedRoutes[this.markedRouteCount++] = route;
+			this.routeMarkedFrom[route] = routeStop;
+		} else if (routeStop < this.routeMarkedFrom[route]) {
+			this.routeMarkedFrom[route] = routeStop;
+		}
+	}
+
+	private void enqueueTransfers(final int routeStop) {
+		if (this.inTransferQueue[routeStop] || this.data.firstTransfer[routeStop] == this.data.firstTransfer[routeStop + 1]) {
+			return;
+		}
+		this.inTransferQueue[routeStop] = true;
+		this.transferQueue[(this.transferQueueHead + this.transferQueueSize) % this.transferQueue.length] = routeStop;
+		this.transferQueueSize++;
+	}
+
+	private void startNewIteration() {
+		if (this.iteration == Integer.MAX_VALUE) {
+			Arrays.fill(this.visited, 0);
+			this.iteration = 0;
+		}
+		this.iteration++;
+		this.labelCount = 0;
+	}
+
+	/**
+	 * Same as {@link TransitRouterNetworkTravelTimeAndDisutility#getLinkTravelTime} for the link from the route
+	 * stop to the next stop of its route. The cost of the ride is stored in {@link #rideCost}.
+	 */
+	private double rideTravelTime(final int routeStop, final double now) {
+		double bestDepartureTime = this.data.getNextDepartureTime(routeStop, now);
+		if (bestDepartureTime == Double.POSITIVE_INFINITY) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double travelTime = (bestDepartureTime - now) + (this.data.arrivalOffset[routeStop + 1] - this.data.departureOffset[routeStop]);
+		if (travelTime < 0) {
+			travelTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		double vehArrivalTime = bestDepartureTime - (this.data.departureOffset[routeStop] - this.data.arrivalOffset[routeStop]);
+		double offVehWaitTime = now < vehArrivalTime ? vehArrivalTime - now : 0;
+		TransitRouterConfig config = getConfig();
+		this.rideCost = -(travelTime - offVehWaitTime) * config.getMarginalUtilityOfTravelTimePt_utl_s()
+				- offVehWaitTime * config.getMarginalUtilityOfWaitingPt_utl_s()
+				- this.data.distanceToNextStop[routeStop] * config.getMarginalUtilityOfTravelDistancePt_utl_m();
+		return travelTime;
+	}
+
+	/**
+	 * Same as {@link TransitRouterNetworkTravelTimeAndDisutility#defaultTransferCost}.
+	 */
+	private double transferCost(final double transferTime, final double distance) {
+		TransitRouterConfig config = getConfig();
+		double waitTime = config.getAdditionalTransferTime();
+		double walkTime = transferTime - waitTime;
+		return -walkTime * config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- distance * config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+				- waitTime * config.getMarginalUtilityOfWaitingPt_utl_s()
+				- config.getUtilityOfLineSwitch_utl();
+	}
+
+	/**
+	 * Creates the connection to the best egress stop from the current labels, with the route segments
+	 * built like in {@link TransitLeastCostPathTree#getTransitPassengerRoute}.
+	 * <br>
+	 * Since the costs depend on the time, the current label of a route stop may have been created from a
+	 * label of its predecessor which has been replaced later, like in a Dijkstra only keeping the best label
+	 * of every node. For every egress stop, both the path of its label and the path along the current labels
+	 * of the predecessors are thus evaluated, and the best one is used.
+	 */
+	private Connection createConnection() {
+		EvaluatedPath best = null;
+		for (int routeStop : this.egressStops) {
+			if (this.visited[routeStop] != this.iteration) {
+				continue;
+			}
+			for (int variant = 0; variant < 2; variant++) {
+				List<Integer> labels = new ArrayList<>();
+				for (int l = this.label[routeStop]; l != NO_LABEL; ) {
+					labels.add(l);
+					int parent = this.labelParent[l];
+					l = (variant == 0 || parent == NO_LABEL) ? parent : this.label[this.labelRouteStop[parent]];
+				}
+				int pathLength = labels.size();
+				EvaluatedPath path = new EvaluatedPath();
+				path.routeStops = new int[pathLength];
+				path.transfer = new boolean[pathLength];
+				for (int i = 0; i < pathLength; i++) {
+					int l = labels.get(pathLength - 1 - i);
+					path.routeStops[i] = this.labelRouteStop[l];
+					path.transfer[i] = this.labelTransfer[l];
+				}
+				if (variant == 1 && Arrays.equals(path.routeStops, best == null ? null : best.routeStops)) {
+					continue;
+				}
+				evaluate(path);
+				double c = path.cost + this.egressCost[routeStop];
+				double t = path.times[pathLength - 1] + this.egressTime[routeStop];
+				if (best == null || (this.earliestArrival ? (t < best.arrivalTime || (t == best.arrivalTime && c < best.cost)) : c < best.cost)) {
+					path.cost = c;
+					path.arrivalTime = t;
+					path.egressStop = routeStop;
+					best = path;
+				}
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		return createConnection(best);
+	}
+
+	/**
+	 * Calculates the times and the cost along the path.
+	 */
+	private void evaluate(final EvaluatedPath path) {
+		int size = path.routeStops.length;
+		int first = path.routeStops[0];
+		path.times = new double[size];
+		path.times[0] = this.departureTime + this.accessTime[first];
+		path.cost = this.accessCost[first];
+		TransitRouterConfig config = getConfig();
+		for (int i = 1; i < size; i++) {
+			int from = path.routeStops[i - 1];
+			int to = path.routeStops[i];
+			if (path.transfer[i]) {
+				double distance = CoordUtils.calcEuclideanDistance(this.data.getCoord(to), this.data.getCoord(from));
+				double transferTime = distance / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime();
+				path.times[i] = path.times[i - 1] + transferTime;
+				path.cost += transferCost(transferTime, distance);
+			} else {
+				path.times[i] = path.times[i - 1] + rideTravelTime(from, path.times[i - 1]);
+				path.cost += this.rideCost;
+			}
+		}
+	}
+
+	private Connection createConnection(final EvaluatedPath path) {
+		int size = path.routeStops.length;
+		int[] routeStops = path.routeStops;
+		double[] times = path.times;
+		TransitRouterConfig config = getConfig();
+
+		int rides = 0;
+		double latestDepartureTime = this.departureTime;
+		for (int i = 1; i < size; i++) {
+			if (!path.transfer[i] && (i == 1 || path.transfer[i - 1])) {
+				if (rides == 0) {
+					// one could have left later, just in time for the first vehicle
+					latestDepartureTime += this.data.getNextDepartureTime(routeStops[i - 1], times[i - 1]) - times[i - 1];
+				}
+				rides++;
+			}
+		}
+
+		// build the route segments backwards, merging rides on the same route and subsequent walks
+		List<RouteSegment> routeSegments = new ArrayList<>();
+		double transferCost = 0.;
+		boolean downstreamRide = false;
+		for (int i = size - 1; i > 0; i--) {
+			int from = routeStops[i - 1];
+			int to = routeStops[i];
+			double travelTime = times[i] - times[i - 1];
+			if (path.transfer[i]) {
+				if (!downstreamRide) {
+					// continuous transfers, or the trip starts with a transfer
+					RouteSegment toSegment = routeSegments.isEmpty() ? null : routeSegments.remove(0);
+					routeSegments.add(0, new RouteSegment(this.data.routeStops[from].getStopFacility(),
+							toSegment == null ? this.data.routeStops[to].getStopFacility() : toSegment.toStop,
+							toSegment == null ? travelTime : toSegment.travelTime, null, null));
+				} else {
+					routeSegments.add(0, new RouteSegment(this.data.routeStops[from].getStopFacility(),
+							this.data.routeStops[to].getStopFacility(), travelTime, null, null));
+				}
+				double distance = CoordUtils.calcEuclideanDistance(this.data.getCoord(to), this.data.getCoord(from));
+				transferCost += transferCost(distance / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime(), distance);
+				downstreamRide = false;
+			} else {
+				if (downstreamRide) {
+					// same route --> update the top route segment
+					RouteSegment routeSegment = routeSegments.remove(0);
+					travelTime += routeSegment.travelTime;
+					routeSegments.add(0, new RouteSegment(this.data.routeStops[from].getStopFacility(), routeSegment.toStop, travelTime,
+							this.data.getLine(from).getId(), this.data.getRoute(from).getId()));
+				} else {
+					routeSegments.add(0, new RouteSegment(this.data.routeStops[from].getStopFacility(),
+							this.data.routeStops[to].getStopFacility(), travelTime, this.data.getLine(from).getId(), this.data.getRoute(from).getId()));
+				}
+				downstreamRide = true;
+			}
+		}
+		if (routeSegments.isEmpty()) {
+			return null;
+		}
+		double travelCost = path.cost + transferCost;
+		return new Connection(latestDepartureTime, path.arrivalTime, travelCost, Math.max(0, rides - 1), new TransitPassengerRoute(travelCost, routeSegments));
+	}
+
+	private static final class EvaluatedPath {
+		int[] routeStops;
+		/** whether the route stop is reached by a transfer, rather than by a ride */
+		boolean[] transfer;
+		double[] times;
+		double cost;
+		double arrivalTime;
+		int egressStop;
+	}
+
+	/**
+	 * A transit connection found by a {@link RaptorTransitRouter}, including access and egress walks.
+	 */
+	public static final class Connection {
+
+		private final double departureTime;
+		private final double arrivalTime;
+		private final double travelCost;
+		private final int transfers;
+		private final TransitPassengerRoute passengerRoute;
+		private List<Leg> legs = null;
+
+		/*package*/ Connection(final double departureTime, final double arrivalTime, final double travelCost, final int transfers,
+				final TransitPassengerRoute passengerRoute) {
+			this.departureTime = departureTime;
+			this.arrivalTime = arrivalTime;
+			this.travelCost = travelCost;
+			this.transfers = transfers;
+			this.passengerRoute = passengerRoute;
+		}
+
+		/*package*/ void createLegs(final RaptorTransitRouter router, final Coord fromCoord, final Coord toCoord, final Person person) {
+			this.legs = router.convertPassengerRouteToLegList(this.departureTime, this.passengerRoute, fromCoord, toCoord, person);
+		}
+
+		public double getDepartureTime() {
+			return this.departureTime;
+		}
+
+		public double getArrivalTime() {
+			return this.arrivalTime;
+		}
+
+		public double getTravelCost() {
+			return this.travelCost;
+		}
+
+		/**
+		 * @return the number of transfers between transit vehicles
+		 */
+		public int getNumberOfTransfers() {
+			return this.transfers;
+		}
+
+		public List<Leg> getLegs() {
+			return this.legs;
+		}
+
+	}
+
+}
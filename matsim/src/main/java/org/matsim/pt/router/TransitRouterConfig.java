@@ -28,6 +28,7 @@ import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.config.groups.VspExperimentalConfigGroup;
 import org.matsim.pt.config.TransitRouterConfigGroup;
+import org.matsim.pt.config.TransitRouterConfigGroup.RaptorOptimization;
 
 /**
  * Design decisions:<ul>
@@ -98,6 +99,10 @@ public class TransitRouterConfig implements MatsimParameters {
 	
 	private boolean cacheTree;
 
+	private RaptorOptimization raptorOptimization = RaptorOptimization.leastCost;
+
+	private int raptorMaxTransfers = -1;
+
 	public TransitRouterConfig(final Config config) {
 		this(config.planCalcScore(), config.plansCalcRoute(), config.transitRouter(), config.vspExperimental());
 	}
@@ -143,6 +148,8 @@ public class TransitRouterConfig implements MatsimParameters {
 		this.setAdditionalTransferTime(trConfig.getAdditionalTransferTime());
 		this.directWalkFactor = trConfig.getDirectWalkFactor() ;
 		this.cacheTree = trConfig.isCacheTree();
+		this.raptorOptimization = trConfig.getRaptorOptimization();
+		this.raptorMaxTransfers = trConfig.getRaptorMaxTransfers();
 	}
 
 	public void setUtilityOfLineSwitch_utl(final double utilityOfLineSwitch_utl_sec) {
@@ -263,4 +270,20 @@ public class TransitRouterConfig implements MatsimParameters {
 	public void setCacheTree(boolean cacheTree) {
 		this.cacheTree = cacheTree;
 	}
-}
\ No newline at end of file
+
+	public RaptorOptimization getRaptorOptimization() {
+		return this.raptorOptimization;
+	}
+
+	public void setRaptorOptimization(RaptorOptimization raptorOptimization) {
+		this.raptorOptimization = raptorOptimization;
+	}
+
+	public int getRaptorMaxTransfers() {
+		return this.raptorMaxTransfers;
+	}
+
+	public void setRaptorMaxTransfers(int raptorMaxTransfers) {
+		this.raptorMaxTransfers = raptorMaxTransfers;
+	}
+}
@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ComponentMetricsControlerListenerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.replanning.strategies.DefaultPlanStrategiesModule.DefaultStrategy;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Runs the controler with the {@link ComponentMetrics} enabled and checks the file written by the
+ * {@link ComponentMetricsControlerListener}.
+ */
+public class ComponentMetricsControlerListenerTest {
+
+	private static final String HEADER = "Iteration\tMetric\tCount\tTotalMillis\tMeanMicros\tMaxMicros\tPerSecond\tValue";
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteEveryIteration() throws IOException {
+		List<String[]> rows = runAndReadRows(1, 1);
+
+		Assert.assertEquals(new TreeSet<>(Arrays.asList("0", "1")), getIterations(rows));
+		for (String iteration : new String[] {"0", "1"}) {
+			Assert.assertTrue("no events handler metrics in iteration " + iteration, hasMetric(rows, iteration, "events."));
+			Assert.assertTrue("no mobsim engine metrics in iteration " + iteration, hasMetric(rows, iteration, "qsim."));
+			Assert.assertTrue("no car router metrics in iteration " + iteration, hasMetric(rows, iteration, "router.car."));
+		}
+		// the mobsim ran in both iterations, while routes were only computed by the re-routing of iteration 1
+		Assert.assertTrue(getCount(rows, "0", "qsim.QNetsimEngine") > 0);
+		Assert.assertTrue(getCount(rows, "1", "qsim.QNetsimEngine") > 0);
+		Assert.assertEquals(0, getCount(rows, "0", "router.car.leastCostPath"));
+		Assert.assertTrue(getCount(rows, "1", "router.car.leastCostPath") > 0);
+	}
+
+	@Test
+	public void testWriteInterval() throws IOException {
+		List<String[]> rows = runAndReadRows(2, 3);
+		Assert.assertEquals(new TreeSet<>(Arrays.asList("0", "2")), getIterations(rows));
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		Config config = createConfig(0, 0);
+		new Controler(createScenario(config)).run();
+		Assert.assertFalse(new File(config.controler().getOutputDirectory(), ComponentMetricsControlerListener.FILENAME_COMPONENT_METRICS + ".txt").exists());
+	}
+
+	/**
+	 * @return the rows below the header, split into their columns
+	 */
+	private List<String[]> runAndReadRows(final int writeInterval, final int lastIteration) throws IOException {
+		Config config = createConfig(writeInterval, lastIteration);
+		new Controler(createScenario(config)).run();
+
+		List<String[]> rows = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(config.controler().getOutputDirectory() + "/"
+				+ ComponentMetricsControlerListener.FILENAME_COMPONENT_METRICS + ".txt")) {
+			Assert.assertEquals(HEADER, reader.readLine());
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				String[] row = line.split("\t", -1);
+				Assert.assertEquals(line, 8, row.length);
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	private static Set<String> getIterations(final List<String[]> rows) {
+		Set<String> iterations = new TreeSet<>();
+		for (String[] row : rows) {
+			iterations.add(row[0]);
+		}
+		return iterations;
+	}
+
+	private static long getCount(final List<String[]> rows, final String iteration, final String metric) {
+		for (String[] row : rows) {
+			if (row[0].equals(iteration) && row[1].equals(metric)) {
+				return Long.parseLong(row[2]);
+			}
+		}
+		throw new AssertionError("no metric " + metric + " in iteration " + iteration);
+	}
+
+	private static boolean hasMetric(final List<String[]> rows, final String iteration, final String prefix) {
+		for (String[] row : rows) {
+			if (row[0].equals(iteration) && row[1].startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Config createConfig(final int writeInterval, final int lastIteration) {
+		Config config = this.utils.loadConfig((String) null);
+		config.controler().setLastIteration(lastIteration);
+		config.controler().setWriteComponentMetricsInterval(writeInterval);
+		config.controler().setCreateGraphs(false);
+		config.controler().setDumpDataAtEnd(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setWritePlansInterval(0);
+
+		ActivityParams homeParams = new ActivityParams("home");
+		homeParams.setTypicalDuration(16 * 3600);
+		config.planCalcScore().addActivityParams(homeParams);
+		ActivityParams workParams = new ActivityParams("work");
+		workParams.setTypicalDuration(8 * 3600);
+		config.planCalcScore().addActivityParams(workParams);
+
+		// re-routes in every iteration, so the router is used after the metrics were reset
+		StrategySettings reRoute = new StrategySettings();
+		reRoute.setStrategyName(DefaultStrategy.ReRoute.toString());
+		reRoute.setWeight(1.);
+		config.strategy().addStrategySettings(reRoute);
+		return config;
+	}
+
+	/**
+	 * A corridor of four nodes with links in both directions, and a few persons commuting by car
+	 * from one end to the other.
+	 */
+	private static Scenario createScenario(final Config config) {
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node[] nodes = new Node[4];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.create(i, Node.class), new Coord(i * 1000, 0));
+		}
+		for (int i = 0; i + 1 < nodes.length; i++) {
+			NetworkUtils.createAndAddLink(network, Id.create(i + "-" + (i + 1), Link.class), nodes[i], nodes[i + 1], 1000, 15, 1800, 1);
+			NetworkUtils.createAndAddLink(network, Id.create((i + 1) + "-" + i, Link.class), nodes[i + 1], nodes[i], 1000, 15, 1800, 1);
+		}
+
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		Id<Link> homeLinkId = Id.create("1-0", Link.class);
+		Id<Link> workLinkId = Id.create("2-3", Link.class);
+		for (int p = 0; p < 5; p++) {
+			Person person = factory.createPerson(Id.create(p, Person.class));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("home", homeLinkId);
+			home.setEndTime(7 * 3600 + p * 60);
+			plan.addActivity(home);
+			plan.addLeg(factory.createLeg(TransportMode.car));
+			Activity work = factory.createActivityFromLinkId("work", workLinkId);
+			work.setEndTime(16 * 3600 + p * 60);
+			plan.addActivity(work);
+			plan.addLeg(factory.createLeg(TransportMode.car));
+			plan.addActivity(factory.createActivityFromLinkId("home", homeLinkId));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return scenario;
+	}
+
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ComponentMetricsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.analysis.ComponentMetrics.Counter;
+import org.matsim.analysis.ComponentMetrics.Gauge;
+import org.matsim.analysis.ComponentMetrics.Metric;
+import org.matsim.analysis.ComponentMetrics.Timer;
+
+public class ComponentMetricsTest {
+
+	@Test
+	public void testTimerCounterAndGauge() {
+		ComponentMetrics metrics = new ComponentMetrics(true);
+		Timer timer = metrics.getTimer("b.timer");
+		timer.record(2000);
+		timer.record(6000);
+		Assert.assertSame(timer, metrics.getTimer("b.timer"));
+		Assert.assertEquals(2, timer.getCount());
+		Assert.assertEquals(8000, timer.getTotalNanos());
+		Assert.assertEquals(6000, timer.getMaxNanos());
+		Assert.assertEquals(2 * 1e9 / 8000, timer.getRatePerSecond(), 1e-6);
+
+		Counter counter = metrics.getCounter("a.counter");
+		counter.increment();
+		counter.add(41);
+		Assert.assertEquals(42, counter.get());
+
+		Gauge gauge = metrics.getGauge("c.gauge");
+		Assert.assertTrue(Double.isNaN(gauge.get()));
+		gauge.set(1.5);
+		Assert.assertEquals(1.5, gauge.get(), 0.0);
+
+		List<Metric> all = metrics.getMetrics();
+		Assert.assertEquals(3, all.size());
+		Assert.assertEquals("a.counter", all.get(0).getName());
+		Assert.assertEquals("b.timer", all.get(1).getName());
+		Assert.assertEquals("c.gauge", all.get(2).getName());
+
+		metrics.reset();
+		Assert.assertEquals(0, timer.getCount());
+		Assert.assertEquals(0, timer.getTotalNanos());
+		Assert.assertEquals(0, timer.getMaxNanos());
+		Assert.assertEquals(0, counter.get());
+		Assert.assertTrue(Double.isNaN(gauge.get()));
+		Assert.assertEquals("metrics must stay registered after a reset", 3, metrics.getMetrics().size());
+	}
+
+	@Test
+	public void testStartStop() {
+		ComponentMetrics metrics = new ComponentMetrics(true);
+		Timer timer = metrics.getTimer("timer");
+		long start = timer.start();
+		Assert.assertTrue(start != 0);
+		timer.stop(start);
+		Assert.assertEquals(1, timer.getCount());
+		Assert.assertTrue(timer.getTotalNanos() >= 0);
+	}
+
+	@Test
+	public void testDisabled() {
+		ComponentMetrics metrics = new ComponentMetrics(false);
+		Timer timer = metrics.getTimer("timer");
+		Assert.assertEquals(0, timer.start());
+		timer.record(1000);
+		Assert.assertEquals(0, timer.getCount());
+		Counter counter = metrics.getCounter("counter");
+		counter.add(5);
+		Assert.assertEquals(0, counter.get());
+		metrics.getGauge("gauge").set(1.0);
+		Assert.assertTrue(Double.isNaN(metrics.getGauge("gauge").get()));
+		Assert.assertTrue(metrics.getMetrics().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNameOfOtherType() {
+		ComponentMetrics metrics = new ComponentMetrics(true);
+		metrics.getTimer("metric");
+		metrics.getCounter("metric");
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final ComponentMetrics metrics = new ComponentMetrics(true);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					metrics.getCounter("counter").increment();
+					metrics.getTimer("timer").record(1);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assert.assertEquals(40000, metrics.getCounter("counter").get());
+		Assert.assertEquals(40000, metrics.getTimer("timer").getCount());
+		Assert.assertEquals(40000, metrics.getTimer("timer").getTotalNanos());
+	}
+
+}
@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		IdMap<TPerson, String> map = new IdMap<>(TPerson.class, 2);
+		Id<TPerson> id1 = Id.create("map1", TPerson.class);
+		Id<TPerson> id2 = Id.create("map2", TPerson.class);
+		Id<TPerson> id3 = Id.create("map3", TPerson.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertNull(map.get("map1"));
+		Assert.assertNull(map.get(null));
+
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("uno", map.get(id1));
+
+		Assert.assertEquals("uno", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertTrue(map.containsValue("three"));
+
+		map.put(id3, null);
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testIteration() {
+		IdMap<TPerson, String> map = new IdMap<>(TPerson.class);
+		Id<TPerson> id1 = Id.create("it1", TPerson.class);
+		Id<TPerson> id2 = Id.create("it2", TPerson.class);
+		Id<TPerson> id3 = Id.create("it3", TPerson.class);
+		map.put(id3, "three");
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		Iterator<Id<TPerson>> keyIter = map.keySet().iterator();
+		Assert.assertSame(id1, keyIter.next());
+		Assert.assertSame(id2, keyIter.next());
+		Assert.assertSame(id3, keyIter.next());
+		Assert.assertFalse(keyIter.hasNext());
+
+		Iterator<String> valueIter = map.values().iterator();
+		Assert.assertEquals("one", valueIter.next());
+		valueIter.remove();
+		Assert.assertEquals("two", valueIter.next());
+		Assert.assertEquals("three", valueIter.next());
+		Assert.assertFalse(valueIter.hasNext());
+		Assert.assertEquals(2, map.size());
+
+		for (Map.Entry<Id<TPerson>, String> e : map.entrySet()) {
+			Assert.assertEquals(e.getValue(), map.get(e.getKey()));
+		}
+	}
+
+	@Test
+	public void testEqualsHashMap() {
+		IdMap<TPerson, Integer> map = new IdMap<>(TPerson.class);
+		Map<Id<TPerson>, Integer> hashMap = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			Id<TPerson> id = Id.create("eq" + i, TPerson.class);
+			map.put(id, i);
+			hashMap.put(id, i);
+		}
+		Assert.assertEquals(hashMap, map);
+		Assert.assertEquals(map, hashMap);
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+		Assert.assertEquals(hashMap, new HashMap<>(map));
+	}
+
+	private static class TPerson {}
+
+}
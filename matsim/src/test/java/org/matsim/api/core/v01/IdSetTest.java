@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		IdSet<TLink> set = new IdSet<>(TLink.class);
+		Id<TLink> id1 = Id.create("set1", TLink.class);
+		Id<TLink> id2 = Id.create("set2", TLink.class);
+		Id<TLink> id3 = Id.create("set3", TLink.class);
+
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(set.add(id1));
+		Assert.assertTrue(set.add(id3));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertFalse(set.contains(id2));
+		Assert.assertTrue(set.contains(id3));
+		Assert.assertFalse(set.contains("set1"));
+
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+		Assert.assertFalse(set.contains(id1));
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id3));
+	}
+
+	@Test
+	public void testIteration() {
+		IdSet<TLink> set = new IdSet<>(TLink.class);
+		Id<TLink> id1 = Id.create("iter1", TLink.class);
+		Id<TLink> id2 = Id.create("iter2", TLink.class);
+		Id<TLink> id3 = Id.create("iter3", TLink.class);
+		set.add(id3);
+		set.add(id1);
+		set.add(id2);
+
+		Iterator<Id<TLink>> iter = set.iterator();
+		Assert.assertSame(id1, iter.next());
+		iter.remove();
+		Assert.assertSame(id2, iter.next());
+		Assert.assertSame(id3, iter.next());
+		Assert.assertFalse(iter.hasNext());
+		Assert.assertEquals(2, set.size());
+
+		Set<Id<TLink>> hashSet = new HashSet<>();
+		hashSet.add(id2);
+		hashSet.add(id3);
+		Assert.assertEquals(hashSet, set);
+		Assert.assertEquals(set, hashSet);
+	}
+
+	private static class TLink {}
+
+}
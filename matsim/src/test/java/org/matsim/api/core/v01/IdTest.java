@@ -67,6 +67,26 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+		Id<TLink> linkId2 = Id.create("2", TLink.class);
+		
+		Assert.assertEquals(0, id1.index());
+		Assert.assertEquals(1, id2.index());
+		Assert.assertEquals(0, id1again.index());
+		Assert.assertEquals(2, Id.getNumberOfIds(TIndexed.class));
+		
+		Assert.assertSame(id1, Id.get(0, TIndexed.class));
+		Assert.assertSame(id2, Id.get(1, TIndexed.class));
+		Assert.assertNull(Id.get(2, TIndexed.class));
+		Assert.assertNull(Id.get(-1, TIndexed.class));
+		Assert.assertSame(linkId2, Id.get(linkId2.index(), TLink.class));
+	}
+	
+	private static class TIndexed {}
 	private static class TLink {}
 	private static class TNode {}
 	
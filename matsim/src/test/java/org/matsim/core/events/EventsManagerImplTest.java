@@ -22,9 +22,14 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +68,27 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_ExceptionInLinkEnterEventHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void reset(final int iteration) {
+			}
+			@Override
+			public void handleEvent(final LinkEnterEvent event) {
+				throw new IllegalStateException("expected");
+			}
+		});
+		try {
+			manager.processEvent(new LinkEnterEvent(1.0, Id.create("v", Vehicle.class), Id.create("l", Link.class)));
+			Assert.fail("expected exception, but got none.");
+		} catch (final IllegalStateException e) {
+			// exceptions of the handlers of the most frequent events are not wrapped
+			Assert.assertEquals("expected", e.getMessage());
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterColumnar;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class EventsReaderColumnarTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21610.0, Id.create("1", Person.class), Id.create("2", Link.class), null, "home"));
+		events.add(new PersonDepartureEvent(21620.0, Id.create("1", Person.class), Id.create("2", Link.class), "car"));
+		events.add(new LinkLeaveEvent(21630.5, Id.create("v1", Vehicle.class), Id.create("2", Link.class)));
+		events.add(new LinkEnterEvent(21630.5, Id.create("v1", Vehicle.class), Id.create("3", Link.class)));
+		events.add(new PersonMoneyEvent(21640.0, Id.create("1", Person.class), -1.25));
+		GenericEvent generic = new GenericEvent("custom", 21650.0);
+		generic.getAttributes().put("text", "a \"quoted\" <value> & more");
+		generic.getAttributes().put("number", "1.0E-5");
+		generic.getAttributes().put("integer", "42");
+		events.add(generic);
+
+		String filename = this.utils.getOutputDirectory() + "events" + ColumnarEventsFormat.FILE_EXTENSION;
+		EventWriterColumnar writer = new EventWriterColumnar(filename);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		List<Event> read = readEvents(filename);
+		Assert.assertEquals(events.size(), read.size());
+		for (int i = 0; i < events.size(); i++) {
+			Assert.assertEquals(events.get(i).getClass(), read.get(i).getClass());
+			Assert.assertEquals(events.get(i).getAttributes(), read.get(i).getAttributes());
+		}
+		Assert.assertEquals("42", read.get(5).getAttributes().get("integer"));
+	}
+
+	@Test
+	public void testManyChunks_timeWindowAndTypes() {
+		String filename = this.utils.getOutputDirectory() + "events" + ColumnarEventsFormat.FILE_EXTENSION;
+		EventWriterColumnar writer = new EventWriterColumnar(filename);
+		int n = 3 * ColumnarEventsFormat.CHUNK_SIZE + 17;
+		for (int i = 0; i < n; i++) {
+			Id<Vehicle> vehicleId = Id.create("v" + (i % 100), Vehicle.class);
+			Id<Link> linkId = Id.create(i % 1000, Link.class);
+			if (i % 2 == 0) {
+				writer.handleEvent(new LinkEnterEvent(i, vehicleId, linkId));
+			} else {
+				writer.handleEvent(new LinkLeaveEvent(i, vehicleId, linkId));
+			}
+		}
+		writer.closeFile();
+
+		Assert.assertEquals(n, readEvents(filename).size());
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		Collector collector = new Collector();
+		manager.addHandler(collector);
+		EventsReaderColumnar reader = new EventsReaderColumnar(manager);
+		reader.setTimeWindow(100000.0, 100009.0);
+		reader.setEventTypes(LinkEnterEvent.EVENT_TYPE);
+		reader.readFile(filename);
+		Assert.assertEquals(5, collector.events.size());
+		for (Event event : collector.events) {
+			Assert.assertTrue(event instanceof LinkEnterEvent);
+			Assert.assertTrue(event.getTime() >= 100000.0 && event.getTime() <= 100009.0);
+			Assert.assertEquals(Id.create((int) event.getTime() % 1000, Link.class), ((LinkEnterEvent) event).getLinkId());
+		}
+	}
+
+	private static List<Event> readEvents(final String filename) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		Collector collector = new Collector();
+		manager.addHandler(collector);
+		new MatsimEventsReader(manager).readFile(filename);
+		return collector.events;
+	}
+
+	private static class Collector implements BasicEventHandler {
+		final List<Event> events = new ArrayList<>();
+
+		@Override
+		public void reset(final int iteration) {
+			this.events.clear();
+		}
+
+		@Override
+		public void handleEvent(final Event event) {
+			this.events.add(event);
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ParallelEventsManagerImplTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final ParallelEventsManagerImpl events = new ParallelEventsManagerImpl(8, 1000, true);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		Assert.assertEquals(Arrays.asList(
+				new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+				new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+				new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")),
+				new ArrayList<>(collector.getEvents()));
+	}
+
+	/**
+	 * Several threads create events concurrently, all handlers must get all events in the same order,
+	 * and the events of a time step must be handled before the ones of the next time step.
+	 */
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		final int producers = 4;
+		final int eventsPerProducerAndStep = 5000;
+		final int steps = 10;
+
+		final ParallelEventsManagerImpl events = new ParallelEventsManagerImpl(3, 1000);
+		EventsCollector collector1 = new EventsCollector();
+		EventsCollector collector2 = new EventsCollector();
+		EventsCollector collector3 = new EventsCollector();
+		events.addHandler(collector1);
+		events.addHandler(collector2);
+		events.addHandler(collector3);
+		events.initProcessing();
+		for (int step = 0; step < steps; step++) {
+			final double time = step;
+			Thread[] threads = new Thread[producers];
+			for (int p = 0; p < producers; p++) {
+				final Id<org.matsim.vehicles.Vehicle> vehicleId = Id.createVehicleId(p);
+				threads[p] = new Thread(() -> {
+					for (int i = 0; i < eventsPerProducerAndStep; i++) {
+						events.processEvent(new LinkEnterEvent(time, vehicleId, Id.createLinkId(i)));
+					}
+				});
+				threads[p].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			events.afterSimStep(time);
+		}
+		events.finishProcessing();
+
+		List<Event> events1 = new ArrayList<>(collector1.getEvents());
+		Assert.assertEquals(producers * eventsPerProducerAndStep * steps, events1.size());
+		Assert.assertEquals(events1, new ArrayList<>(collector2.getEvents()));
+		Assert.assertEquals(events1, new ArrayList<>(collector3.getEvents()));
+		double lastTime = 0.0;
+		for (Event e : events1) {
+			Assert.assertTrue(e.getTime() >= lastTime);
+			lastTime = e.getTime();
+		}
+	}
+
+}
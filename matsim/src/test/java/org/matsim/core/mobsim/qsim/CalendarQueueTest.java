@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.utils.misc.Time;
+
+public class CalendarQueueTest {
+
+	private static final class Item {
+		final int id;
+		final double time;
+
+		Item(int id, double time) {
+			this.id = id;
+			this.time = time;
+		}
+	}
+
+	private static final Comparator<Item> TIE_BREAKER = (i1, i2) -> Integer.compare(i2.id, i1.id);
+
+	private static final Comparator<Item> ORDER = (i1, i2) -> {
+		int cmp = Double.compare(i1.time, i2.time);
+		return cmp != 0 ? cmp : TIE_BREAKER.compare(i1, i2);
+	};
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(4711);
+		// 64 buckets, so many items go through the overflow
+		CalendarQueue<Item> queue = new CalendarQueue<>(TIE_BREAKER, true, 64);
+		PriorityQueue<Item> expected = new PriorityQueue<>(ORDER);
+		int nextId = 0;
+
+		for (int i = 0; i < 500; i++) {
+			Item item = new Item(nextId++, random.nextInt(3) == 0 ? Time.UNDEFINED_TIME : random.nextInt(100) + 0.5 * random.nextInt(2));
+			queue.add(item, item.time);
+			expected.add(item);
+		}
+
+		List<Item> items = new ArrayList<>(expected);
+		for (double now = 10; now < 2000; now += 1 + random.nextInt(3)) {
+			// add some items, some of them far in the future and some of them due already
+			for (int i = 0; i < 5; i++) {
+				Item item = new Item(nextId++, now + random.nextInt(200) - 5 + 0.25 * random.nextInt(4));
+				queue.add(item, item.time);
+				expected.add(item);
+				items.add(item);
+			}
+			// remove some items
+			Item toRemove = items.get(random.nextInt(items.size()));
+			Double removedTime = queue.remove(toRemove);
+			Assert.assertEquals(expected.remove(toRemove), removedTime != null);
+			if (removedTime != null) {
+				Assert.assertEquals(toRemove.time, removedTime, 0.0);
+			}
+
+			Item item;
+			while ((item = queue.poll(now)) != null) {
+				Assert.assertSame(expected.poll(), item);
+				if (random.nextInt(10) == 0) {
+					// add an item which is due immediately while polling
+					Item due = new Item(nextId++, now - random.nextInt(2));
+					queue.add(due, due.time);
+					expected.add(due);
+				}
+			}
+			Assert.assertTrue(expected.isEmpty() || expected.peek().time > now);
+			Assert.assertEquals(expected.size(), queue.size());
+		}
+
+		final List<Item> remaining = new ArrayList<>();
+		queue.forEach((i, time) -> remaining.add(i));
+		for (Item i : remaining) {
+			Assert.assertSame(expected.poll(), i);
+		}
+		Assert.assertTrue(expected.isEmpty());
+
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.poll(Double.POSITIVE_INFINITY));
+	}
+
+	@Test
+	public void testJumpOverIdleTimes() {
+		CalendarQueue<Item> queue = new CalendarQueue<>(TIE_BREAKER, false, 16);
+		Item early = new Item(1, 5.0);
+		Item late = new Item(2, 1e6);
+		Item never = new Item(3, Double.POSITIVE_INFINITY);
+		queue.add(never, never.time);
+		queue.add(late, late.time);
+		queue.add(early, early.time);
+
+		Assert.assertNull(queue.poll(0.0));
+		Assert.assertSame(early, queue.poll(5.0));
+		Assert.assertNull(queue.poll(1e6 - 1));
+		Assert.assertSame(late, queue.poll(1e6));
+		Assert.assertNull(queue.poll(1e9));
+		Assert.assertEquals(1, queue.size());
+		Assert.assertSame(never, queue.poll(Double.POSITIVE_INFINITY));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemoveFromNonRemovableQueue() {
+		CalendarQueue<Item> queue = new CalendarQueue<>(TIE_BREAKER, false);
+		Item item = new Item(1, 1.0);
+		queue.add(item, item.time);
+		queue.remove(item);
+	}
+
+}
@@ -68,6 +68,7 @@ import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
@@ -312,6 +313,60 @@ public class QSimTest {
 		Assert.assertEquals("wrong time in event.", 6.0*3600 + 15, allEvents.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Tests that skipping idle time steps results in exactly the same events, but simulates fewer time steps.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		List<String> expectedEvents = new ArrayList<>();
+		int stepsWithoutSkipping = runForSkippingIdleTimeSteps(false, expectedEvents);
+		List<String> actualEvents = new ArrayList<>();
+		int stepsWithSkipping = runForSkippingIdleTimeSteps(true, actualEvents);
+
+		Assert.assertEquals(expectedEvents, actualEvents);
+		Assert.assertTrue("no time steps were skipped", stepsWithSkipping < stepsWithoutSkipping / 10);
+	}
+
+	private int runForSkippingIdleTimeSteps(boolean skipping, List<String> eventStrings) {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setSkippingIdleTimeSteps(skipping);
+
+		for (int i = 0; i < 4; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6*3600 + i * 7200.5);
+			if (i % 2 == 0) {
+				Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+				NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+				route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+				leg.setRoute(route);
+			} else {
+				Leg leg = PopulationUtils.createAndAddLeg( plan, "other" );
+				Route route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(Route.class, f.link1.getId(), f.link3.getId());
+				route.setTravelTime(15.0 * i);
+				leg.setRoute(route);
+			}
+			Activity a2 = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			a2.setEndTime(20*3600 - i * 60);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, "other" );
+			Route route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(Route.class, f.link3.getId(), f.link1.getId());
+			route.setTravelTime(3600.0);
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			f.plans.addPerson(person);
+		}
+
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> eventStrings.add(event.toString()));
+
+		QSim sim = createQSim(f, events);
+		final int[] steps = {0};
+		sim.addQueueSimulationListeners((MobsimAfterSimStepListener) e -> steps[0]++);
+		sim.run();
+		return steps[0];
+	}
+
 	/**
 	 * This test is mostly useful for manual debugging, because only a single agent is simulated
 	 * on a very simple network.
@@ -593,7 +648,22 @@ public class QSimTest {
 	@Test
 	public void testFlowCapacityDriving() {
 		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		runFlowCapacityDriving(f);
+	}
+
+	/**
+	 * Same as {@link #testFlowCapacityDriving()}, but with multiple threads whose nodes and links are
+	 * frequently redistributed. The results must not depend on the assignment of nodes to threads.
+	 */
+	@Test
+	public void testFlowCapacityDriving_rebalancingRunners() {
+		Fixture f = new Fixture(isUsingFastCapacityUpdate);
+		f.config.qsim().setNumberOfThreads(2);
+		f.config.qsim().setNetsimRunnerRebalancingInterval(10);
+		runFlowCapacityDriving(f);
+	}
 
+	private static void runFlowCapacityDriving(Fixture f) {
 		// add a lot of persons with legs from link1 to link3, starting at 6:30
 		for (int i = 1; i <= 10000; i++) {
 			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FIFOVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+public class FIFOVehicleQTest {
+
+	private static List<QVehicle> createVehicles(int n) {
+		VehicleType type = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			vehicles.add(new QVehicle(new VehicleImpl(Id.create(i, Vehicle.class), type)));
+		}
+		return vehicles;
+	}
+
+	@Test
+	public void testFifoOrderWithWrapAroundAndGrowth() {
+		List<QVehicle> vehicles = createVehicles(100);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+
+		int in = 0;
+		int out = 0;
+		// move the head through the buffer several times before it needs to grow
+		for (int round = 0; round < 50; round++) {
+			queue.add(vehicles.get(in++ % 100));
+			queue.add(vehicles.get(in++ % 100));
+			Assert.assertSame(vehicles.get(out++ % 100), queue.poll());
+		}
+		Assert.assertEquals(in - out, queue.size());
+		while (!queue.isEmpty()) {
+			Assert.assertSame(vehicles.get(out % 100), queue.peek());
+			Assert.assertSame(vehicles.get(out++ % 100), queue.poll());
+		}
+		Assert.assertEquals(in, out);
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testAddFirst() {
+		List<QVehicle> vehicles = createVehicles(40);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		for (int i = 20; i < 40; i++) {
+			queue.add(vehicles.get(i));
+		}
+		for (int i = 19; i >= 0; i--) {
+			queue.addFirst(vehicles.get(i));
+		}
+		Assert.assertEquals(40, queue.size());
+		int i = 0;
+		for (QVehicle veh : queue) {
+			Assert.assertSame(vehicles.get(i++), veh);
+		}
+		for (i = 0; i < 40; i++) {
+			Assert.assertSame(vehicles.get(i), queue.poll());
+		}
+	}
+
+	@Test
+	public void testRemove() {
+		List<QVehicle> vehicles = createVehicles(20);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		// move the head away from the start of the buffer, so the vehicles wrap around
+		for (int i = 0; i < 10; i++) {
+			queue.add(vehicles.get(i));
+			queue.poll();
+		}
+		for (int i = 0; i < 20; i++) {
+			queue.add(vehicles.get(i));
+		}
+
+		Assert.assertTrue(queue.remove(vehicles.get(5)));
+		Assert.assertFalse(queue.remove(vehicles.get(5)));
+		Iterator<QVehicle> iter = queue.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().getId().toString().equals("12")) {
+				iter.remove();
+			}
+		}
+		Assert.assertEquals(18, queue.size());
+		for (int i = 0; i < 20; i++) {
+			if (i != 5 && i != 12) {
+				Assert.assertSame(vehicles.get(i), queue.poll());
+			}
+		}
+		Assert.assertTrue(queue.isEmpty());
+
+		queue.add(vehicles.get(0));
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.peek());
+	}
+
+}
@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int NUMBER_OF_PERSONS = 1234;
+
+	@Test
+	public void testReadSameAsSequentialReader() {
+		final String file = writePopulation();
+
+		final Scenario expected = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(expected).readFile(file);
+
+		for (int numThreads : new int[] {1, 2, 4}) {
+			final Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			ParallelPopulationReaderMatsimV6 reader = new ParallelPopulationReaderMatsimV6(scenario);
+			reader.setNumberOfThreads(numThreads);
+			reader.setPersonsPerChunk(100);
+			reader.readFile(file);
+
+			assertSamePopulation(expected.getPopulation(), scenario.getPopulation());
+		}
+	}
+
+	@Test
+	public void testStreaming() {
+		final String file = writePopulation();
+
+		final Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		ParallelPopulationReaderMatsimV6 reader = new ParallelPopulationReaderMatsimV6(scenario);
+		reader.setNumberOfThreads(3);
+		reader.setPersonsPerChunk(10);
+		final List<Id<Person>> personIds = new ArrayList<>();
+		reader.addAlgorithm(person -> {
+			Assert.assertEquals(2, person.getPlans().size());
+			personIds.add(person.getId());
+		});
+		reader.readFile(file);
+
+		// the writer sorts the persons by id
+		List<Id<Person>> expectedIds = new ArrayList<>(PopulationUtils.getSortedPersons(createPopulation()).keySet());
+		Assert.assertEquals("persons not handled in the order of the file", expectedIds, personIds);
+		Assert.assertTrue(scenario.getPopulation().getPersons().isEmpty());
+	}
+
+	@Test
+	public void testOtherFormats() {
+		final Population population = createPopulation();
+		final String file = this.utils.getOutputDirectory() + "population_v5.xml";
+		new PopulationWriter(population).writeV5(file);
+
+		final Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new ParallelPopulationReaderMatsimV6(scenario).readFile(file);
+
+		Assert.assertEquals(NUMBER_OF_PERSONS, scenario.getPopulation().getPersons().size());
+	}
+
+	private String writePopulation() {
+		final String file = this.utils.getOutputDirectory() + "population.xml.gz";
+		new PopulationWriter(createPopulation()).writeV6(file);
+		return file;
+	}
+
+	private static Population createPopulation() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		final PopulationFactory pf = population.getFactory();
+		population.setName("test population");
+		population.getAttributes().putAttribute("year", 2018);
+
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			person.getAttributes().putAttribute("age", i % 90);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore(i + 0.5 * p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, p));
+				home.setEndTime(7 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg(p == 0 ? "car" : "pt");
+				leg.getAttributes().putAttribute("note", "leg " + p + " of person " + i);
+				plan.addLeg(leg);
+				plan.addActivity(pf.createActivityFromLinkId("work", Id.createLinkId("l" + i)));
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(i % 2));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static void assertSamePopulation(final Population expected, final Population actual) {
+		Assert.assertEquals(expected.getName(), actual.getName());
+		Assert.assertEquals(expected.getAttributes().toString(), actual.getAttributes().toString());
+		Assert.assertEquals(expected.getPersons().size(), actual.getPersons().size());
+
+		Iterator<? extends Person> actualPersons = actual.getPersons().values().iterator();
+		for (Person expectedPerson : expected.getPersons().values()) {
+			Person actualPerson = actualPersons.next();
+			Assert.assertEquals(expectedPerson.getId(), actualPerson.getId());
+			Assert.assertEquals(expectedPerson.getAttributes().toString(), actualPerson.getAttributes().toString());
+			Assert.assertEquals(expectedPerson.getPlans().indexOf(expectedPerson.getSelectedPlan()),
+					actualPerson.getPlans().indexOf(actualPerson.getSelectedPlan()));
+			Assert.assertEquals(expectedPerson.getPlans().size(), actualPerson.getPlans().size());
+			for (int p = 0; p < expectedPerson.getPlans().size(); p++) {
+				Plan expectedPlan = expectedPerson.getPlans().get(p);
+				Plan actualPlan = actualPerson.getPlans().get(p);
+				Assert.assertEquals(expectedPlan.getScore(), actualPlan.getScore());
+				Assert.assertEquals(expectedPlan.getPlanElements().size(), actualPlan.getPlanElements().size());
+				for (int e = 0; e < expectedPlan.getPlanElements().size(); e++) {
+					PlanElement expectedElement = expectedPlan.getPlanElements().get(e);
+					PlanElement actualElement = actualPlan.getPlanElements().get(e);
+					Assert.assertEquals(expectedElement.toString(), actualElement.toString());
+					Assert.assertEquals(expectedElement.getAttributes().toString(), actualElement.getAttributes().toString());
+				}
+			}
+		}
+	}
+
+}
@@ -34,10 +34,12 @@ import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PersonUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.replanning.selectors.BestPlanSelector;
+import org.matsim.core.replanning.selectors.ExpBetaPlanSelector;
 import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.scenario.ScenarioUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -373,6 +375,61 @@ public class StrategyManagerTest {
 		Assert.assertEquals(1.0, weights.get(2), 1e-8);
 	}
 	
+	/**
+	 * Tests that the results of the parallel replanning do not depend on the number of threads.
+	 */
+	@Test
+	public void testParallelReplanningIsDeterministic() {
+		List<String> expected = runParallelReplanning(1);
+		Assert.assertEquals(expected, runParallelReplanning(3));
+		Assert.assertEquals(expected, runParallelReplanning(8));
+	}
+
+	private static List<String> runParallelReplanning(final int numberOfThreads) {
+		MatsimRandom.reset(4711);
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		for (int i = 0; i < 2500; i++) {
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(i, Person.class));
+			for (int p = 0; p < 4; p++) {
+				Plan plan = PersonUtils.createAndAddPlan(person, p == 0);
+				plan.setScore((double) ((i * 7 + p * 3) % 10));
+			}
+			population.addPerson(person);
+		}
+
+		final List<String> handledPlans = new ArrayList<>();
+		PlanStrategyModule module = new PlanStrategyModule() {
+			@Override
+			public void prepareReplanning(ReplanningContext replanningContext) {
+			}
+			@Override
+			public void handlePlan(Plan plan) {
+				plan.setScore(MatsimRandom.getRandom().nextDouble() * 10);
+				handledPlans.add(plan.getPerson().getId() + ":" + plan.getScore());
+			}
+			@Override
+			public void finishReplanning() {
+			}
+		};
+
+		StrategyManager manager = new StrategyManager();
+		manager.setNumberOfThreads(numberOfThreads);
+		manager.setMaxPlansPerAgent(4);
+		manager.addStrategy(new PlanStrategyImpl.Builder(new ExpBetaPlanSelector<Plan, Person>(1.0)).build(), null, 0.7);
+		manager.addStrategy(new PlanStrategyImpl.Builder(new RandomPlanSelector<Plan, Person>()).addStrategyModule(module).build(), null, 0.3);
+
+		List<String> result = new ArrayList<>();
+		for (int iteration = 1; iteration <= 3; iteration++) {
+			final int it = iteration;
+			manager.run(population, iteration, () -> it);
+		}
+		for (Person person : population.getPersons().values()) {
+			result.add(person.getId() + ":" + person.getPlans().size() + ":" + person.getPlans().indexOf(person.getSelectedPlan()));
+		}
+		result.addAll(handledPlans);
+		return result;
+	}
+
 	/**
 	 * A simple extension to the PlanStrategy which counts how often it was
 	 * called.
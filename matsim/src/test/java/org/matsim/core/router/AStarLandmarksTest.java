@@ -20,11 +20,28 @@
 
 package org.matsim.core.router;
 
+import java.util.Random;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TimeBinMinimumTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 
@@ -36,4 +53,87 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	public void testTimeDependentLandmarks() {
+		Scenario scenario = ScenarioUtils.createScenario(loadConfig(null));
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+
+		// congestion which differs by link and time bin, but never goes down to free speed
+		final double timeBinSize = 900;
+		TravelDisutility congested = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				int bin = (int) (Math.max(0, Math.min(time, 30 * 3600)) / timeBinSize);
+				double factor = 1.5 + ((link.getId().index() * 7 + bin * 3) % 5);
+				return factor * link.getLength() / link.getFreespeed();
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength() / link.getFreespeed();
+			}
+		};
+
+		TimeBinMinimumTravelDisutility minimum = new TimeBinMinimumTravelDisutility(network, congested, timeBinSize, 30 * 3600);
+		for (Link link : network.getLinks().values()) {
+			assertEquals(1.5 * link.getLength() / link.getFreespeed(), minimum.getLinkMinimumTravelDisutility(link), 1e-9);
+		}
+
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(minimum);
+		preProcessData.run(network);
+		TravelTime travelTime = (link, time, person, vehicle) -> congested.getLinkTravelDisutility(link, time, person, vehicle);
+		LeastCostPathCalculator aStar = new AStarLandmarks(network, preProcessData, congested, travelTime, 1.0);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, congested, travelTime);
+
+		for (Node fromNode : network.getNodes().values()) {
+			for (Node toNode : network.getNodes().values()) {
+				for (double time = 0; time < 30 * 3600; time += 2.5 * 3600) {
+					Path expected = dijkstra.calcLeastCostPath(fromNode, toNode, time, null, null);
+					Path path = aStar.calcLeastCostPath(fromNode, toNode, time, null, null);
+					assertEquals(expected == null, path == null);
+					if (expected != null) {
+						assertEquals(expected.travelCost, path.travelCost, 1e-6);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Without injection, there is no global config with the number of threads, so the factory falls back to
+	 * a default for the pre-processing, like {@link FastAStarLandmarksFactory}.
+	 */
+	public void testFactoryWithoutInjection() {
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(10, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		for (LeastCostPathCalculatorFactory factory : new LeastCostPathCalculatorFactory[] {new AStarLandmarksFactory(), new FastAStarLandmarksFactory()}) {
+			LeastCostPathCalculator router = factory.createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+			LeastCostPathCalculatorTestUtils.assertSameAsDijkstra(network, router, travelTimeCostCalculator, travelTimeCostCalculator, new Random(42));
+		}
+	}
+
+	/**
+	 * The default config uses a randomized, person-specific travel disutility, for which the time-dependent landmarks
+	 * would neither be admissible nor computable, so the module must reject them.
+	 */
+	public void testTimeDependentLandmarksWithDefaultConfig() {
+		for (RoutingAlgorithmType routingAlgorithmType : new RoutingAlgorithmType[] {RoutingAlgorithmType.AStarLandmarks, RoutingAlgorithmType.FastAStarLandmarks}) {
+			Config config = ConfigUtils.createConfig();
+			config.controler().setRoutingAlgorithmType(routingAlgorithmType);
+			config.controler().setTimeDependentLandmarks(true);
+			try {
+				TripRouterFactoryBuilderWithDefaults.createDefaultLeastCostPathCalculatorFactory(ScenarioUtils.createScenario(config));
+				fail("expected RuntimeException because of the routing randomness.");
+			} catch (RuntimeException e) {
+				Throwable cause = e;
+				while (!cause.getMessage().contains("routingRandomness") && cause.getCause() != null) {
+					cause = cause.getCause();
+				}
+				assertTrue(cause.getMessage(), cause.getMessage().contains("routingRandomness"));
+			}
+
+			config.plansCalcRoute().setRoutingRandomness(0.);
+			assertNotNull(TripRouterFactoryBuilderWithDefaults.createDefaultLeastCostPathCalculatorFactory(ScenarioUtils.createScenario(config)));
+		}
+	}
+
 }
@@ -0,0 +1,198 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.ControlerDefaults;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchyRouterTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchyRouterFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameResultsAsDijkstra() {
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(15, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		assertSameCosts(network, travelTimeCostCalculator, travelTimeCostCalculator, new Random(42));
+	}
+
+	/**
+	 * Uses travel times which change every hour. As all routes are short and depart at the beginning of an hour,
+	 * the least-cost routes only depend on the travel times of the departure time bin.
+	 */
+	public void testTimeBins() {
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(15, new Random(4711));
+		HourlyTravelTime travelTime = new HourlyTravelTime();
+		assertSameCosts(network, travelTime, travelTime, new Random(42));
+	}
+
+	public void testNotConnected() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.create("ch_a", Node.class), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.create("ch_b", Node.class), new Coord(100, 0));
+		Node c = NetworkUtils.createAndAddNode(network, Id.create("ch_c", Node.class), new Coord(200, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("ch_ab", Link.class), a, b, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("ch_cb", Link.class), c, b, 100, 10, 1000, 1);
+
+		LeastCostPathCalculator router = getLeastCostPathCalculator(network);
+		assertNull(router.calcLeastCostPath(a, c, 0, null, null));
+		Path path = router.calcLeastCostPath(c, b, 0, null, null);
+		assertEquals(1, path.links.size());
+		assertEquals(10.0, path.travelTime, 1e-8);
+	}
+
+	/**
+	 * The routers of one factory share their metrics, which are customized again with the changed travel times
+	 * at the start of the next iteration.
+	 */
+	public void testSharedMetrics() {
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(5, new Random(4711));
+		Node from = LeastCostPathCalculatorTestUtils.getNode(network, 0, 0);
+		Node to = LeastCostPathCalculatorTestUtils.getNode(network, 4, 4);
+		SlowLinksTravelTime travelTime = new SlowLinksTravelTime();
+		ContractionHierarchyRouterFactory factory = new ContractionHierarchyRouterFactory(3600, 30 * 3600);
+		LeastCostPathCalculator router1 = factory.createPathCalculator(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		LeastCostPathCalculator router2 = factory.createPathCalculator(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		ContractionHierarchyMetrics metrics = factory.getMetrics(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+
+		Path path1 = router1.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(1, metrics.size());
+		Path path2 = router2.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(1, metrics.size());
+		assertEquals(path1.links, path2.links);
+
+		// block the current route; the metrics are only updated when the next iteration starts
+		travelTime.slowLinks.addAll(path1.links);
+		assertEquals(path1.links, router2.calcLeastCostPath(from, to, 8 * 3600, null, null).links);
+		factory.notifyIterationStarts(null);
+		assertEquals(0, metrics.size());
+
+		Path expected = new Dijkstra(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime).calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Path actual = router2.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(expected.travelCost, actual.travelCost, 1e-8);
+		assertFalse(actual.links.equals(path1.links));
+		assertEquals(expected.travelCost, router1.calcLeastCostPath(from, to, 8 * 3600, null, null).travelCost, 1e-8);
+	}
+
+	/**
+	 * The default config uses a randomized, person-specific travel disutility, so the module must reject the router.
+	 */
+	public void testModuleWithDefaultConfig() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setRoutingAlgorithmType(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchy);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		try {
+			TripRouterFactoryBuilderWithDefaults.createDefaultLeastCostPathCalculatorFactory(scenario);
+			fail("expected RuntimeException because of the routing randomness.");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (!cause.getMessage().contains("routingRandomness") && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			assertTrue(cause.getMessage(), cause.getMessage().contains("routingRandomness"));
+		}
+	}
+
+	public void testModuleWithoutRoutingRandomness() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setRoutingAlgorithmType(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchy);
+		config.plansCalcRoute().setRoutingRandomness(0.);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(5, new Random(4711));
+
+		LeastCostPathCalculatorFactory factory = TripRouterFactoryBuilderWithDefaults.createDefaultLeastCostPathCalculatorFactory(scenario);
+		assertTrue(factory instanceof ContractionHierarchyRouterFactory);
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = ControlerDefaults.createDefaultTravelDisutilityFactory(scenario).createTravelDisutility(travelTime);
+		LeastCostPathCalculator router = factory.createPathCalculator(network, travelDisutility, travelTime);
+		Node from = LeastCostPathCalculatorTestUtils.getNode(network, 0, 0);
+		Node to = LeastCostPathCalculatorTestUtils.getNode(network, 4, 4);
+		Path expected = new Dijkstra(network, travelDisutility, travelTime).calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Path actual = router.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		assertEquals(expected.travelCost, actual.travelCost, 1e-8);
+		assertEquals(expected.links, actual.links);
+	}
+
+	private static void assertSameCosts(final Network network, final TravelTime travelTime, final TravelDisutility travelDisutility, final Random random) {
+		LeastCostPathCalculator router = new ContractionHierarchyRouterFactory(3600, 30 * 3600).createPathCalculator(network, travelDisutility, travelTime);
+		LeastCostPathCalculatorTestUtils.assertSameAsDijkstra(network, router, travelTime, travelDisutility, random);
+	}
+
+	private static class SlowLinksTravelTime implements TravelTime {
+
+		private final Set<Link> slowLinks = new HashSet<>();
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			double factor = this.slowLinks.contains(link) ? 100 : 1;
+			return factor * link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private static class HourlyTravelTime implements TravelTime, TravelDisutility {
+
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			int hour = (int) (time / 3600);
+			double factor = 1.0 + Math.floorMod(link.getId().hashCode() + hour, 4);
+			return factor * link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(final Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathCalculatorTestUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Helpers to compare the routers with {@link Dijkstra} on grid networks with random link lengths and speeds.
+ */
+/*package*/ final class LeastCostPathCalculatorTestUtils {
+
+	private LeastCostPathCalculatorTestUtils() {
+	}
+
+	/**
+	 * Creates a bidirectional grid of <code>size</code> x <code>size</code> nodes, 100m apart. Each link gets
+	 * its own random length and speed, so ties between different paths are unlikely.
+	 */
+	/*package*/ static Network createGridNetwork(final int size, final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, createNodeId(x, y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinkPair(network, getNode(network, x, y), getNode(network, x + 1, y), random);
+				}
+				if (y + 1 < size) {
+					addLinkPair(network, getNode(network, x, y), getNode(network, x, y + 1), random);
+				}
+			}
+		}
+		return network;
+	}
+
+	/*package*/ static Node getNode(final Network network, final int x, final int y) {
+		return network.getNodes().get(createNodeId(x, y));
+	}
+
+	/*package*/ static Link getLink(final Network network, final Node from, final Node to) {
+		return network.getLinks().get(Id.create(from.getId() + "-" + to.getId(), Link.class));
+	}
+
+	/**
+	 * Compares the paths of the router with the ones of {@link Dijkstra} for random node pairs, departing at
+	 * the beginning of random hours.
+	 */
+	/*package*/ static void assertSameAsDijkstra(final Network network, final LeastCostPathCalculator router, final TravelTime travelTime,
+			final TravelDisutility travelDisutility, final Random random) {
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < 200; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double departureTime = random.nextInt(24) * 3600;
+			Path expected = dijkstra.calcLeastCostPath(from, to, departureTime, null, null);
+			Path actual = router.calcLeastCostPath(from, to, departureTime, null, null);
+			Assert.assertEquals(expected.travelCost, actual.travelCost, 1e-8);
+			Assert.assertEquals(expected.travelTime, actual.travelTime, 1e-8);
+			Assert.assertEquals(expected.links, actual.links);
+			Assert.assertEquals(expected.nodes, actual.nodes);
+		}
+	}
+
+	private static Id<Node> createNodeId(final int x, final int y) {
+		return Id.create(x + "_" + y, Node.class);
+	}
+
+	private static void addLinkPair(final Network network, final Node a, final Node b, final Random random) {
+		addLink(network, a, b, random);
+		addLink(network, b, a, random);
+	}
+
+	private static void addLink(final Network network, final Node from, final Node to, final Random random) {
+		NetworkUtils.createAndAddLink(network, Id.create(from.getId() + "-" + to.getId(), Link.class), from, to,
+				100 + 50 * random.nextDouble(), 5 + 25 * random.nextDouble(), 1000, 1);
+	}
+
+}
@@ -0,0 +1,150 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathMatrixCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the matrices with the paths of {@link SpeedyDijkstra} on a grid network with random link speeds.
+ */
+public class LeastCostPathMatrixCalculatorTest {
+
+	private static final int SIZE = 12;
+
+	private final Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(SIZE, new Random(4711));
+	private final List<Node> nodes = new ArrayList<>();
+
+	/** a travel time which depends on the time of day, so paths departing at different times differ */
+	private final TravelTime travelTime = (link, time, person, vehicle) ->
+			link.getLength() / link.getFreespeed() * (1.0 + ((int) (time / 900) + link.getId().index()) % 3);
+
+	private final TravelDisutility travelDisutility = new TravelDisutility() {
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return travelTime.getLinkTravelTime(link, time, person, vehicle) + 0.01 * link.getLength();
+		}
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed() + 0.01 * link.getLength();
+		}
+	};
+
+	public LeastCostPathMatrixCalculatorTest() {
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				Node node = LeastCostPathCalculatorTestUtils.getNode(this.network, x, y);
+				this.nodes.add(node);
+				// some columns without vertical links, so that detours are needed
+				if (y + 1 < SIZE && x % 4 == 3) {
+					Node next = LeastCostPathCalculatorTestUtils.getNode(this.network, x, y + 1);
+					this.network.removeLink(LeastCostPathCalculatorTestUtils.getLink(this.network, node, next).getId());
+					this.network.removeLink(LeastCostPathCalculatorTestUtils.getLink(this.network, next, node).getId());
+				}
+			}
+		}
+		// a node which cannot be reached
+		this.nodes.add(NetworkUtils.createAndAddNode(this.network, Id.create("matrix_isolated", Node.class), new Coord(-100, -100)));
+	}
+
+	@Test
+	public void testTimeDependentMatrix() {
+		List<Node> fromNodes = this.nodes.subList(0, 40);
+		List<Node> toNodes = new ArrayList<>(this.nodes.subList(100, this.nodes.size()));
+		toNodes.add(fromNodes.get(3)); // same node as origin
+		toNodes.add(toNodes.get(0)); // duplicate destination
+
+		SpeedyGraph graph = new SpeedyGraph(this.network);
+		LeastCostPathMatrixCalculator calculator = new LeastCostPathMatrixCalculator(graph, this.travelTime, this.travelDisutility, 4);
+		LeastCostPathMatrixCalculator.Matrix matrix = calculator.calcMatrix(fromNodes, toNodes, 7.9 * 3600);
+		assertSameAsSpeedyDijkstra(graph, matrix, 7.9 * 3600, this.travelTime, this.travelDisutility);
+	}
+
+	@Test
+	public void testStaticMatrixWithBackwardSearches() {
+		final double departureTime = 8 * 3600;
+		TravelTime fixedTravelTime = (link, time, person, vehicle) -> this.travelTime.getLinkTravelTime(link, departureTime, person, vehicle);
+		TravelDisutility fixedTravelDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelDisutility.getLinkTravelDisutility(link, departureTime, person, vehicle);
+			}
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return travelDisutility.getLinkMinimumTravelDisutility(link);
+			}
+		};
+
+		SpeedyGraph graph = new SpeedyGraph(this.network);
+		LeastCostPathMatrixCalculator calculator = new LeastCostPathMatrixCalculator(graph, this.travelTime, this.travelDisutility, 3);
+		calculator.setTimeDependent(false);
+
+		// fewer destinations than origins, so backward searches are used
+		List<Node> fromNodes = this.nodes;
+		List<Node> toNodes = this.nodes.subList(20, 30);
+		LeastCostPathMatrixCalculator.Matrix matrix = calculator.calcMatrix(fromNodes, toNodes, departureTime);
+		assertSameAsSpeedyDijkstra(graph, matrix, departureTime, fixedTravelTime, fixedTravelDisutility);
+
+		// and forward searches the other way round
+		matrix = calculator.calcMatrix(toNodes, fromNodes, departureTime);
+		assertSameAsSpeedyDijkstra(graph, matrix, departureTime, fixedTravelTime, fixedTravelDisutility);
+	}
+
+	private static void assertSameAsSpeedyDijkstra(final SpeedyGraph graph, final LeastCostPathMatrixCalculator.Matrix matrix,
+			final double departureTime, final TravelTime travelTime, final TravelDisutility travelDisutility) {
+		SpeedyDijkstra dijkstra = new SpeedyDijkstra(graph, travelTime, travelDisutility);
+		for (int i = 0; i < matrix.getFromNodes().size(); i++) {
+			for (int j = 0; j < matrix.getToNodes().size(); j++) {
+				Path path = dijkstra.calcLeastCostPath(matrix.getFromNodes().get(i), matrix.getToNodes().get(j), departureTime, null, null);
+				if (path == null) {
+					Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getTravelCost(i, j), 0.0);
+					Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getTravelTime(i, j), 0.0);
+					Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getDistance(i, j), 0.0);
+				} else {
+					double distance = 0;
+					for (Link link : path.links) {
+						distance += link.getLength();
+					}
+					// the random link lengths and speeds make ties unlikely, so the paths should be the same
+					Assert.assertEquals(path.travelCost, matrix.getTravelCost(i, j), 1e-3);
+					Assert.assertEquals(path.travelTime, matrix.getTravelTime(i, j), 1e-3);
+					Assert.assertEquals(distance, matrix.getDistance(i, j), 1e-3);
+				}
+			}
+		}
+	}
+
+}
@@ -82,6 +82,19 @@ public class RoutingIT {
 			}
 		});
 	}
+	@Test
+	public void testSpeedyDijkstra() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "SpeedyDijkstra";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new SpeedyDijkstraFactory();
+			}
+		});
+	}
 	@Test	
 	public void testDijkstraPruneDeadEnds() {
 		doTest(new RouterProvider() {
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+
+public class SpeedyDijkstraTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new SpeedyDijkstraFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the results with the ones of {@link Dijkstra} for many random requests on a grid network
+	 * with random link speeds, reusing the same router instance.
+	 */
+	public void testSameResultsAsDijkstra() {
+		Network network = LeastCostPathCalculatorTestUtils.createGridNetwork(15, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculatorTestUtils.assertSameAsDijkstra(network, getLeastCostPathCalculator(network), travelTimeCostCalculator,
+				travelTimeCostCalculator, new Random(42));
+	}
+
+	public void testNodeOfOtherNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.create("speedy_a", Node.class), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.create("speedy_b", Node.class), new Coord(100, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("speedy_ab", Link.class), a, b, 100, 10, 1000, 1);
+		Network other = NetworkUtils.createNetwork();
+		Node c = NetworkUtils.createAndAddNode(other, Id.create("speedy_a", Node.class), new Coord(0, 0));
+
+		LeastCostPathCalculator speedy = getLeastCostPathCalculator(network);
+		try {
+			speedy.calcLeastCostPath(c, b, 0, null, null);
+			fail("expected IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntBinaryMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntBinaryMinHeapTest {
+
+	@Test
+	public void testInsertPoll() {
+		IntBinaryMinHeap pq = new IntBinaryMinHeap(10);
+		Assert.assertTrue(pq.isEmpty());
+		pq.insert(5, 5.0);
+		pq.insert(1, 3.0);
+		pq.insert(2, 6.0);
+		Assert.assertEquals(3, pq.size());
+		Assert.assertEquals(1, pq.peek());
+		Assert.assertEquals(3.0, pq.peekKey(), 0.0);
+		Assert.assertEquals(1, pq.poll());
+		Assert.assertEquals(2, pq.size());
+
+		pq.insert(3, 1.0);
+		pq.insert(4, 4.0);
+		pq.insert(9, 9.0);
+		Assert.assertEquals(3, pq.poll());
+		Assert.assertEquals(4, pq.poll());
+		Assert.assertEquals(5, pq.poll());
+		Assert.assertEquals(2, pq.poll());
+		Assert.assertEquals(9, pq.poll());
+		Assert.assertTrue(pq.isEmpty());
+	}
+
+	@Test
+	public void testSameKey_ascendingValues() {
+		IntBinaryMinHeap pq = new IntBinaryMinHeap(10);
+		pq.insert(7, 2.0);
+		pq.insert(3, 2.0);
+		pq.insert(8, 1.0);
+		pq.insert(0, 2.0);
+		Assert.assertEquals(8, pq.poll());
+		Assert.assertEquals(0, pq.poll());
+		Assert.assertEquals(3, pq.poll());
+		Assert.assertEquals(7, pq.poll());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		IntBinaryMinHeap pq = new IntBinaryMinHeap(10);
+		pq.insert(0, 5.0);
+		pq.insert(1, 3.0);
+		pq.insert(2, 6.0);
+		pq.decreaseKey(2, 1.0);
+		pq.decreaseKey(1, 7.0); // larger keys are ignored
+		Assert.assertEquals(2, pq.poll());
+		Assert.assertEquals(1, pq.poll());
+		Assert.assertEquals(0, pq.poll());
+	}
+
+	@Test
+	public void testContainsAndClear() {
+		IntBinaryMinHeap pq = new IntBinaryMinHeap(10);
+		pq.insert(4, 1.0);
+		pq.insert(6, 2.0);
+		Assert.assertTrue(pq.contains(4));
+		Assert.assertTrue(pq.contains(6));
+		Assert.assertFalse(pq.contains(5));
+		Assert.assertEquals(4, pq.poll());
+		Assert.assertFalse(pq.contains(4));
+		pq.clear();
+		Assert.assertTrue(pq.isEmpty());
+		Assert.assertFalse(pq.contains(6));
+		pq.insert(6, 3.0);
+		Assert.assertTrue(pq.contains(6));
+		Assert.assertEquals(6, pq.poll());
+	}
+
+	@Test
+	public void testRandomOrder() {
+		Random random = new Random(4711);
+		int n = 1000;
+		IntBinaryMinHeap pq = new IntBinaryMinHeap(n);
+		double[] keys = new double[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextDouble() * 100;
+			pq.insert(i, keys[i]);
+		}
+		for (int i = 0; i < n; i += 3) {
+			keys[i] /= 2;
+			pq.decreaseKey(i, keys[i]);
+		}
+		double[] sorted = keys.clone();
+		Arrays.sort(sorted);
+		for (int i = 0; i < n; i++) {
+			int value = pq.poll();
+			Assert.assertEquals(sorted[i], keys[value], 0.0);
+		}
+		Assert.assertTrue(pq.isEmpty());
+	}
+
+}
@@ -39,6 +39,49 @@ public class ScoringFunctionsForPopulationStressIT {
 		scoringFunctionsForPopulation.finishScoringFunctions();
 	}
 
+	@Test(expected = RuntimeException.class)
+	public void exceptionInScoringFunctionPropagatesWithScoringThreads() {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Id<Person> personId = Id.createPersonId(1);
+		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		EventsManager events = EventsUtils.createEventsManager(config);
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionFactory throwingScoringFunctionFactory = new ThrowingScoringFunctionFactory();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), throwingScoringFunctionFactory, 2);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.processEvent(new PersonMoneyEvent(3600.0, personId, 3.4));
+		scoringFunctionsForPopulation.finishScoringFunctions();
+	}
+
+	@Test
+	public void scoringThreadsAreStoppedWhenFinished() {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Id<Person> personId = Id.createPersonId(1);
+		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		EventsManager events = EventsUtils.createEventsManager(config);
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), new CharyparNagelScoringFunctionFactory(scenario), 2);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			controlerListenerManager.fireControlerIterationStartsEvent(iteration);
+			events.processEvent(new PersonMoneyEvent(3600.0, personId, 3.4));
+			scoringFunctionsForPopulation.finishScoringFunctions();
+			assertEquals(3.4, scoringFunctionsForPopulation.getScoringFunctionForAgent(personId).getScore(), 1e-10);
+			assertEquals(0, countScoringThreads());
+		}
+	}
+
+	private static int countScoringThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && thread.getName().startsWith("ScoringFunctionsForPopulation.")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	private class ThrowingScoringFunctionFactory implements ScoringFunctionFactory {
 		@Override
 		public ScoringFunction createNewScoringFunction(Person person) {
@@ -95,7 +138,17 @@ public class ScoringFunctionsForPopulationStressIT {
 		work(config);
 	}
 
+	@Test
+	public void workWithScoringThreads() {
+		Config config = ConfigUtils.createConfig();
+		work(config, 4);
+	}
+
 	private void work(Config config) {
+		work(config, 0);
+	}
+
+	private void work(Config config, int numberOfScoringThreads) {
 		PlanCalcScoreConfigGroup.ActivityParams work = new PlanCalcScoreConfigGroup.ActivityParams("work");
 		work.setTypicalDuration(100.0);
 		config.planCalcScore().addActivityParams(work);
@@ -152,7 +205,7 @@ public class ScoringFunctionsForPopulationStressIT {
 				};
 			}
 		};
-		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), scoringFunctionFactory);
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events, new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events), scenario.getPopulation(), scoringFunctionFactory, numberOfScoringThreads);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.initProcessing();
 		for (int i=0; i<MAX; i++) {
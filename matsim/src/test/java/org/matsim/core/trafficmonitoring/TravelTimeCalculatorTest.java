@@ -24,6 +24,9 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -46,6 +49,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.events.EventsManagerImpl;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
@@ -365,6 +369,105 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals("wrong link travel time at 06:15.", 359.9712023038157, ttCalc.getLinkTravelTimes().getLinkTravelTime(link10, 6.25 * 3600, null, null), EPSILON);
 	}
 
+	public void testTravelTimeCalculator_Indexed_Optimistic() throws IOException {
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorIndexed.toString());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(getClassInputDirectory() + "link10_network.xml");
+
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(scenario.getNetwork(), config.travelTimeCalculator());
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(ttcalc);
+		new MatsimEventsReader(events).readFile(getClassInputDirectory() + "link10_events.xml");
+
+		Link link10 = scenario.getNetwork().getLinks().get(Id.create("10", Link.class));
+		int timeBinSize = config.travelTimeCalculator().getTraveltimeBinSize();
+		BufferedReader infile = IOUtils.getBufferedReader(getClassInputDirectory() + "link10_ttimes.txt");
+		try {
+			for (int i = 0; i < 4*24; i++) {
+				double ttime = ttcalc.getLinkTravelTimes().getLinkTravelTime(link10, i*timeBinSize, null, null);
+				assertEquals(infile.readLine(), Double.toString(ttime));
+			}
+		} finally {
+			infile.close();
+		}
+	}
+
+	/**
+	 * Handles the events of different vehicles in several threads at once, and compares the
+	 * travel times to the ones when the events are handled one after the other.
+	 */
+	public void testTravelTimeCalculator_Indexed_ConcurrentEvents() throws InterruptedException {
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorIndexed.toString());
+		Network network = NetworkUtils.createNetwork();
+		Node[] nodes = new Node[6];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.create("ttc_" + i, Node.class), new Coord(i * 500, 0));
+		}
+		Link[] links = new Link[nodes.length - 1];
+		for (int i = 0; i < links.length; i++) {
+			links[i] = NetworkUtils.createAndAddLink(network, Id.create("ttc_" + i, Link.class), nodes[i], nodes[i + 1], 500, 10, 1800, 1);
+		}
+
+		final int numThreads = 4;
+		final List<List<Event>> eventsPerThread = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			eventsPerThread.add(new ArrayList<Event>());
+		}
+		Random random = new Random(4711);
+		for (int v = 0; v < 2000; v++) {
+			Id<Vehicle> vehId = Id.create("ttc_" + v, Vehicle.class);
+			List<Event> vehicleEvents = eventsPerThread.get(v % numThreads);
+			double time = random.nextInt(20 * 3600);
+			for (Link link : links) {
+				vehicleEvents.add(new LinkEnterEvent(time, vehId, link.getId()));
+				time += 50 + random.nextInt(600);
+				vehicleEvents.add(new LinkLeaveEvent(time, vehId, link.getId()));
+			}
+		}
+
+		TravelTimeCalculator sequential = TravelTimeCalculator.create(network, config);
+		for (List<Event> list : eventsPerThread) {
+			for (Event e : list) {
+				handleEvent(sequential, e);
+			}
+		}
+
+		final TravelTimeCalculator concurrent = TravelTimeCalculator.create(network, config);
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final List<Event> list = eventsPerThread.get(t);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (Event e : list) {
+						handleEvent(concurrent, e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (Link link : links) {
+			for (int time = 0; time < 24 * 3600; time += config.getTraveltimeBinSize()) {
+				assertEquals(sequential.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						concurrent.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 1e-8);
+			}
+		}
+	}
+
+	private static void handleEvent(final TravelTimeCalculator ttcalc, final Event e) {
+		if (e instanceof LinkEnterEvent) {
+			ttcalc.handleEvent((LinkEnterEvent) e);
+		} else {
+			ttcalc.handleEvent((LinkLeaveEvent) e);
+		}
+	}
+
 	/**
 	 * @author mrieser / senozon
 	 */
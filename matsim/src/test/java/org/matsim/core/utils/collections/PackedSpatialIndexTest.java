@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedSpatialIndexTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+
+/**
+ * Test for {@link PackedSpatialIndex}, comparing its results with a brute force search.
+ */
+public class PackedSpatialIndexTest {
+
+	private static List<Coord> createCoords(int n, long seed) {
+		Random random = new Random(seed);
+		List<Coord> coords = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if (i % 10 == 0 && i > 0) {
+				// some duplicate locations
+				coords.add(new Coord(coords.get(i - 1).getX(), coords.get(i - 1).getY()));
+			} else {
+				coords.add(new Coord(random.nextDouble() * 10000, random.nextDouble() * 5000 - 2500));
+			}
+		}
+		return coords;
+	}
+
+	@Test
+	public void testEmptyIndex() {
+		PackedSpatialIndex<Coord> index = new PackedSpatialIndex<>(Collections.<Coord>emptyList(), c -> c);
+		Assert.assertEquals(0, index.size());
+		Assert.assertNull(index.getClosest(0, 0));
+		Assert.assertTrue(index.getKNearest(0, 0, 5).isEmpty());
+		Assert.assertTrue(index.getDisk(0, 0, 100).isEmpty());
+	}
+
+	@Test
+	public void testGetClosest() {
+		for (int n : new int[] {1, 16, 17, 1000}) {
+			List<Coord> coords = createCoords(n, n);
+			PackedSpatialIndex<Coord> index = new PackedSpatialIndex<>(coords, c -> c);
+			PackedSpatialIndex.Searcher<Coord> searcher = index.createSearcher();
+			Assert.assertEquals(n, index.size());
+
+			Random random = new Random(42);
+			for (int q = 0; q < 200; q++) {
+				Coord query = new Coord(random.nextDouble() * 12000 - 1000, random.nextDouble() * 7000 - 3500);
+				double expected = Double.POSITIVE_INFINITY;
+				for (Coord c : coords) {
+					expected = Math.min(expected, CoordUtils.calcEuclideanDistance(query, c));
+				}
+				Assert.assertEquals(expected, CoordUtils.calcEuclideanDistance(query, index.getClosest(query.getX(), query.getY())), 1e-9);
+				Assert.assertEquals(expected, CoordUtils.calcEuclideanDistance(query, searcher.getClosest(query.getX(), query.getY())), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testKNearest() {
+		List<Coord> coords = createCoords(2000, 1);
+		PackedSpatialIndex<Coord> index = new PackedSpatialIndex<>(coords, c -> c);
+		PackedSpatialIndex.Searcher<Coord> searcher = index.createSearcher();
+
+		Random random = new Random(4711);
+		for (int q = 0; q < 100; q++) {
+			Coord query = new Coord(random.nextDouble() * 10000, random.nextDouble() * 5000 - 2500);
+			int k = 1 + random.nextInt(50);
+			List<Double> distances = new ArrayList<>();
+			for (Coord c : coords) {
+				distances.add(CoordUtils.calcEuclideanDistance(query, c));
+			}
+			Collections.sort(distances);
+
+			int found = searcher.findKNearest(query.getX(), query.getY(), k, Double.POSITIVE_INFINITY);
+			Assert.assertEquals(k, found);
+			for (int i = 0; i < found; i++) {
+				Assert.assertEquals(distances.get(i), searcher.getDistance(i), 1e-9);
+				Assert.assertEquals(searcher.getDistance(i), CoordUtils.calcEuclideanDistance(query, searcher.getValue(i)), 1e-9);
+			}
+
+			List<Coord> nearest = index.getKNearest(query.getX(), query.getY(), k);
+			Assert.assertEquals(k, nearest.size());
+			Assert.assertEquals(distances.get(k - 1), CoordUtils.calcEuclideanDistance(query, nearest.get(k - 1)), 1e-9);
+
+			// limited by the maximal distance
+			double maxDistance = distances.get(k - 1);
+			int within = 0;
+			while (within < distances.size() && distances.get(within) <= maxDistance / 2) {
+				within++;
+			}
+			Assert.assertEquals(Math.min(k, within), searcher.findKNearest(query.getX(), query.getY(), k, maxDistance / 2));
+		}
+	}
+
+	@Test
+	public void testKNearestMoreThanSize() {
+		List<Coord> coords = createCoords(100, 3);
+		PackedSpatialIndex<Coord> index = new PackedSpatialIndex<>(coords, c -> c);
+
+		List<Coord> all = index.getKNearest(5000, 0, Integer.MAX_VALUE);
+		Assert.assertEquals(coords.size(), all.size());
+		Set<Coord> unique = Collections.newSetFromMap(new IdentityHashMap<>());
+		unique.addAll(all);
+		Assert.assertEquals(coords.size(), unique.size());
+		for (int i = 1; i < all.size(); i++) {
+			Assert.assertTrue(CoordUtils.calcEuclideanDistance(new Coord(5000, 0), all.get(i - 1))
+					<= CoordUtils.calcEuclideanDistance(new Coord(5000, 0), all.get(i)));
+		}
+	}
+
+	@Test
+	public void testWithinDistance() {
+		List<Coord> coords = createCoords(3000, 2);
+		PackedSpatialIndex<Coord> index = new PackedSpatialIndex<>(coords, c -> c);
+		PackedSpatialIndex.Searcher<Coord> searcher = index.createSearcher();
+
+		Random random = new Random(815);
+		for (int q = 0; q < 100; q++) {
+			Coord query = new Coord(random.nextDouble() * 10000, random.nextDouble() * 5000 - 2500);
+			double radius = random.nextDouble() * 1000;
+			List<Coord> inside = new ArrayList<>();
+			for (Coord c : coords) {
+				if (CoordUtils.calcEuclideanDistance(query, c) <= radius) {
+					inside.add(c);
+				}
+			}
+			Set<Coord> expected = identitySet(inside);
+
+			int found = searcher.findWithinDistance(query.getX(), query.getY(), radius);
+			List<Coord> actual = new ArrayList<>();
+			for (int i = 0; i < found; i++) {
+				actual.add(searcher.getValue(i));
+				Assert.assertTrue(searcher.getDistance(i) <= radius);
+			}
+			Assert.assertEquals(expected.size(), found);
+			Assert.assertEquals(expected, identitySet(actual));
+
+			Collection<Coord> disk = index.getDisk(query.getX(), query.getY(), radius);
+			Assert.assertEquals(expected.size(), disk.size());
+			Assert.assertEquals(expected, identitySet(disk));
+
+			final List<Coord> executed = new ArrayList<>();
+			int count = index.execute(query.getX(), query.getY(), radius, (x, y, c) -> executed.add(c));
+			Assert.assertEquals(expected.size(), count);
+			Assert.assertEquals(expected, identitySet(executed));
+		}
+	}
+
+	private static Set<Coord> identitySet(Collection<Coord> coords) {
+		Set<Coord> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		set.addAll(coords);
+		return set;
+	}
+
+}
@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.config.TransitRouterConfigGroup.RaptorOptimization;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+/**
+ * Tests the features of the {@link RaptorTransitRouter} which the {@link TransitRouterImpl} does not
+ * have. The regular routing is tested in {@link TransitRouterImplTest}.
+ */
+public class RaptorTransitRouterTest {
+
+	@Test
+	public void testConnectionsInRange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(16100, 5050);
+		List<RaptorTransitRouter.Connection> connections = router.calcConnections(new FakeFacility(fromCoord), new FakeFacility(toCoord),
+				5.0*3600, 6.0*3600, null);
+		// the blue line departs at *:06, *:26 and *:46
+		assertEquals(3, connections.size());
+		// the blue line towards I departs at stop facility 0 in A
+		Coord stopCoord = f.schedule.getFacilities().get(Id.create("0", TransitStopFacility.class)).getCoord();
+		double accessTime = CoordUtils.calcEuclideanDistance(fromCoord, stopCoord) / trConfig.getBeelineWalkSpeed();
+		for (int i = 0; i < 3; i++) {
+			RaptorTransitRouter.Connection connection = connections.get(i);
+			assertEquals(5.0*3600 + (6.0 + 20 * i) * 60 - accessTime, connection.getDepartureTime(), MatsimTestCase.EPSILON);
+			assertEquals(0, connection.getNumberOfTransfers());
+			assertEquals(3, connection.getLegs().size());
+			assertEquals(TransportMode.pt, connection.getLegs().get(1).getMode());
+		}
+		assertEquals(20.0 * 60, connections.get(1).getArrivalTime() - connections.get(0).getArrivalTime(), MatsimTestCase.EPSILON);
+		assertEquals(20.0 * 60, connections.get(2).getArrivalTime() - connections.get(1).getArrivalTime(), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testConnectionsByTransfers() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		List<RaptorTransitRouter.Connection> connections = router.calcConnectionsByTransfers(new FakeFacility(new Coord(3800, 5100)),
+				new FakeFacility(new Coord(28100, 4950)), 5.0*3600 + 40.0*60, null);
+		assertEquals(2, connections.size());
+		// the blue line only, arriving in G at 6:28
+		assertEquals(0, connections.get(0).getNumberOfTransfers());
+		assertEquals(3, connections.get(0).getLegs().size());
+		// the blue line to C, then the red express line, arriving in G at 6:09
+		assertEquals(1, connections.get(1).getNumberOfTransfers());
+		assertEquals(4, connections.get(1).getLegs().size());
+		assertEquals(19.0 * 60, connections.get(0).getArrivalTime() - connections.get(1).getArrivalTime(), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testMaxTransfers() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		trConfig.setRaptorMaxTransfers(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(trConfig, f.schedule);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord(3800, 5100)), new FakeFacility(new Coord(28100, 4950)), 5.0*3600 + 40.0*60, null);
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+	}
+
+	@Test
+	public void testEarliestArrival() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig trConfig = new TransitRouterConfig(f.scenario.getConfig());
+		// make transfers so expensive that the least-cost route uses the blue line only
+		trConfig.setUtilityOfLineSwitch_utl(-20.0);
+		Coord fromCoord = new Coord(3800, 5100);
+		Coord toCoord = new Coord(28100, 4950);
+		List<Leg> legs = new RaptorTransitRouter(trConfig, f.schedule).calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600 + 40.0*60, null);
+		assertEquals(3, legs.size());
+
+		trConfig.setRaptorOptimization(RaptorOptimization.earliestArrival);
+		legs = new RaptorTransitRouter(trConfig, f.schedule).calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600 + 40.0*60, null);
+		assertEquals(4, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(2).getRoute()).getLineId());
+	}
+
+}